@@ -4,7 +4,9 @@ import static org.basex.core.Text.*;
 
 import java.io.*;
 import java.net.*;
+import java.nio.channels.*;
 import java.util.*;
+import java.util.concurrent.*;
 
 import org.basex.api.client.*;
 import org.basex.core.*;
@@ -27,12 +29,20 @@ public final class BaseXServer extends CLI implements Runnable {
   private final HashSet<ClientListener> auth = new HashSet<>();
   /** Indicates if server is running. */
   private volatile boolean running;
+  /** Indicates if server is being shut down. */
+  private volatile boolean quitting;
   /** Indicates if server is to be stopped. */
   private volatile boolean stop;
   /** Initial commands. */
   private StringList commands;
+  /** Sessions whose requests have been processed. */
+  private final Queue<ClientListener> idle = new ConcurrentLinkedQueue<>();
   /** Server socket. */
-  private ServerSocket socket;
+  private ServerSocketChannel socket;
+  /** Selector for incoming connections and requests. */
+  private Selector selector;
+  /** Worker threads for processing requests. */
+  private ExecutorService workers;
   /** Start as service. */
   private boolean service;
   /** Daemon flag. */
@@ -98,9 +108,12 @@ public final class BaseXServer extends CLI implements Runnable {
       // execute initial command-line arguments
       for(final String cmd : commands) execute(cmd);
 
-      socket = new ServerSocket();
-      socket.setReuseAddress(true);
+      socket = ServerSocketChannel.open();
+      socket.socket().setReuseAddress(true);
       socket.bind(new InetSocketAddress(addr, port));
+      socket.configureBlocking(false);
+      selector = Selector.open();
+      socket.register(selector, SelectionKey.OP_ACCEPT);
       stopFile = stopFile(port);
     } catch(final IOException ex) {
       context.log.writeServer(LogType.ERROR, Util.message(ex));
@@ -131,39 +144,61 @@ public final class BaseXServer extends CLI implements Runnable {
 
   @Override
   public void run() {
+    workers = Executors.newFixedThreadPool(context.soptions.get(StaticOptions.SERVERTHREADS),
+      new ThreadFactory() {
+        @Override
+        public Thread newThread(final Runnable r) {
+          final Thread thread = new Thread(r);
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+
     running = true;
     while(running) {
       try {
-        final Socket s = socket.accept();
-        if(stopFile.exists()) {
-          if(!stopFile.delete()) {
-            context.log.writeServer(LogType.ERROR, Util.info(FILE_NOT_DELETED_X, stopFile));
+        // wait for new requests of sessions whose requests have been processed
+        for(ClientListener cl; (cl = idle.poll()) != null;) {
+          try {
+            cl.channel.configureBlocking(false);
+            cl.channel.register(selector, SelectionKey.OP_READ, cl);
+          } catch(final ClosedChannelException ex) {
+            // session has been closed
+            Util.debug(ex);
           }
-          quit();
-        } else {
-          // drop inactive connections
-          final long ka = context.soptions.get(StaticOptions.KEEPALIVE) * 1000L;
-          if(ka > 0) {
-            final long ms = System.currentTimeMillis();
-            for(final ClientListener cs : context.sessions) {
-              if(ms - cs.last > ka) cs.quit();
+        }
+        selector.select();
+
+        final ArrayList<ClientListener> ready = new ArrayList<>();
+        final Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while(keys.hasNext()) {
+          final SelectionKey key = keys.next();
+          keys.remove();
+          if(!key.isValid()) continue;
+          if(key.isAcceptable()) {
+            accept();
+          } else {
+            final ClientListener cl = (ClientListener) key.attachment();
+            if(cl.ready()) {
+              key.cancel();
+              ready.add(cl);
             }
           }
-          final ClientListener cl = new ClientListener(s, context, this);
-          // start authentication timeout
-          final long to = context.soptions.get(StaticOptions.KEEPALIVE) * 1000L;
-          if(to > 0) {
-            cl.auth.schedule(new TimerTask() {
-              @Override
-              public void run() {
-                cl.quitAuth();
-              }
-            }, to);
-            auth.add(cl);
+        }
+        if(!ready.isEmpty()) {
+          // deregister channels before switching them to blocking mode
+          selector.selectNow();
+          for(final ClientListener cl : ready) {
+            try {
+              cl.channel.configureBlocking(true);
+              dispatch(cl);
+            } catch(final ClosedChannelException ex) {
+              // session has been closed
+              Util.debug(ex);
+            }
           }
-          cl.start();
         }
-      } catch(final SocketException ex) {
+      } catch(final ClosedSelectorException | ClosedChannelException ex) {
         break;
       } catch(final Throwable ex) {
         // socket may have been unexpectedly closed
@@ -172,6 +207,87 @@ public final class BaseXServer extends CLI implements Runnable {
         break;
       }
     }
+    workers.shutdown();
+    try {
+      selector.close();
+    } catch(final IOException ex) {
+      Util.debug(ex);
+    }
+  }
+
+  /**
+   * Accepts a new connection.
+   * @throws IOException I/O exception
+   */
+  private void accept() throws IOException {
+    final SocketChannel sc = socket.accept();
+    if(sc == null) return;
+
+    if(quitting) {
+      sc.close();
+    } else if(stopFile.exists()) {
+      if(!stopFile.delete()) {
+        context.log.writeServer(LogType.ERROR, Util.info(FILE_NOT_DELETED_X, stopFile));
+      }
+      sc.close();
+      // server is shut down by a worker: the selector must not wait for running commands
+      quitting = true;
+      workers.execute(new Runnable() {
+        @Override
+        public void run() {
+          quit();
+        }
+      });
+    } else {
+      // drop inactive connections
+      final long ka = context.soptions.get(StaticOptions.KEEPALIVE) * 1000L;
+      if(ka > 0) {
+        final long ms = System.currentTimeMillis();
+        for(final ClientListener cs : context.sessions) {
+          // sessions are closed by a worker: the selector must not wait for running commands
+          if(ms - cs.last > ka) {
+            workers.execute(new Runnable() {
+              @Override
+              public void run() {
+                cs.quit();
+              }
+            });
+          }
+        }
+      }
+      final ClientListener cl = new ClientListener(sc, context, this);
+      // start authentication timeout
+      final long to = context.soptions.get(StaticOptions.KEEPALIVE) * 1000L;
+      if(to > 0) {
+        cl.auth.schedule(new TimerTask() {
+          @Override
+          public void run() {
+            cl.quitAuth();
+          }
+        }, to);
+        auth.add(cl);
+      }
+      dispatch(cl);
+    }
+  }
+
+  /**
+   * Processes the requests of a session in a worker thread.
+   * Afterwards, the session will wait for new requests.
+   * @param cl session
+   */
+  private void dispatch(final ClientListener cl) {
+    workers.execute(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          cl.run();
+        } finally {
+          idle.add(cl);
+          selector.wakeup();
+        }
+      }
+    });
   }
 
   /**
@@ -184,11 +300,10 @@ public final class BaseXServer extends CLI implements Runnable {
   }
 
   /**
-   * Shuts down the server.
+   * Shuts down the server. The selector stops once all sessions have been closed.
    */
   private synchronized void quit() {
     if(!running) return;
-    running = false;
 
     for(final ClientListener cs : auth) {
       remove(cs);
@@ -198,9 +313,11 @@ public final class BaseXServer extends CLI implements Runnable {
       cs.quit();
     }
 
+    running = false;
     try {
       // close interactive input if server was stopped by another process
       socket.close();
+      selector.wakeup();
     } catch(final IOException ex) {
       Util.errln(ex);
       context.log.writeServer(LogType.ERROR, Util.message(ex));
@@ -325,6 +442,14 @@ public final class BaseXServer extends CLI implements Runnable {
     }
   }
 
+  /**
+   * Executes a task in a worker thread.
+   * @param task task
+   */
+  public void execute(final Runnable task) {
+    workers.execute(task);
+  }
+
   /**
    * Removes an authenticated session.
    * @param client client to be removed
@@ -2,6 +2,7 @@ package org.basex.api.client;
 
 import java.io.*;
 import java.net.*;
+import java.util.*;
 
 import org.basex.core.*;
 import org.basex.core.parse.Commands.Cmd;
@@ -143,11 +144,95 @@ public class ClientSession extends Session {
     send(ServerCmd.STORE, input, path);
   }
 
+  /**
+   * Adds documents to the currently opened database. All documents are sent in a single
+   * request; the server adds them in batches, the size of which is defined by
+   * {@link MainOptions#INGESTBATCH}.
+   * @param path target path
+   * @param documents relative document paths and contents
+   * @throws IOException I/O exception
+   */
+  public void ingest(final String path, final Map<String, byte[]> documents)
+      throws IOException {
+
+    sout.write(ServerCmd.INGEST.code);
+    send(path);
+    // send {path}0{length}0{content} for each document
+    final ServerOutput so = new ServerOutput(sout);
+    for(final Map.Entry<String, byte[]> doc : documents.entrySet()) {
+      final byte[] content = doc.getValue();
+      so.write(Token.token(doc.getKey()));
+      so.write(0);
+      so.write(Token.token(content.length));
+      so.write(0);
+      so.write(content);
+    }
+    sout.write(0);
+    sout.flush();
+    receive(null);
+  }
+
   @Override
   public ClientQuery query(final String query) throws IOException {
     return new ClientQuery(query, this, out);
   }
 
+  /**
+   * Evaluates queries in a pipeline. All queries are sent to the server without waiting
+   * for responses. The server evaluates them in parallel and returns the results in the
+   * order in which they are finished. The queries are evaluated in a new context, which
+   * inherits the user and the options of the session.
+   * @param queries queries
+   * @return results, in the order of the queries
+   * @throws IOException I/O exception, or error message of the first failing query
+   */
+  @SuppressWarnings("resource")
+  public String[] pipeline(final String... queries) throws IOException {
+    // send queries in a separate thread: server may send results before all queries are sent
+    final int ql = queries.length;
+    final Thread sender = new Thread() {
+      @Override
+      public void run() {
+        try {
+          for(int q = 0; q < ql; q++) {
+            sout.write(ServerCmd.RUN.code);
+            send(Integer.toString(q));
+            send(queries[q]);
+          }
+          sout.flush();
+        } catch(final IOException ex) {
+          // error will be raised when receiving the results
+          Util.debug(ex);
+        }
+      }
+    };
+    sender.start();
+
+    // receive {TAG}0{RESULT}0{INFO}0 and success flag
+    final String[] results = new String[ql];
+    String error = null;
+    try {
+      final BufferInput bi = new BufferInput(sin);
+      for(int q = 0; q < ql; q++) {
+        final int tag = Strings.toInt(bi.readString());
+        final ArrayOutput ao = new ArrayOutput();
+        receive(bi, ao);
+        final String inf = bi.readString();
+        if(tag < 0 || tag >= ql) throw new BaseXException("Unknown tag: %", tag);
+        if(ok(bi)) results[tag] = ao.toString();
+        else if(error == null) error = inf;
+      }
+    } finally {
+      try {
+        sender.join();
+      } catch(final InterruptedException ex) {
+        Util.debug(ex);
+      }
+    }
+    if(error != null) throw new BaseXException(error);
+    return results;
+  }
+
   @Override
   public synchronized void close() throws IOException {
     socket.close();
@@ -4,14 +4,18 @@ import static org.basex.core.Text.*;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.regex.*;
 import java.util.zip.*;
 
 import org.basex.core.*;
 import org.basex.core.MainOptions.MainParser;
 import org.basex.core.cmd.*;
+import org.basex.data.*;
 import org.basex.io.*;
 import org.basex.io.in.*;
+import org.basex.io.serial.*;
+import org.basex.query.value.node.*;
 import org.basex.util.*;
 import org.basex.util.list.*;
 
@@ -44,6 +48,8 @@ public final class DirParser extends Parser {
   private final boolean rawParser;
   /** Archive name. */
   private final boolean archiveName;
+  /** Number of parser threads. */
+  private final int threads;
   /** Database path for storing binary files. */
   private IOFile rawPath;
 
@@ -53,6 +59,10 @@ public final class DirParser extends Parser {
   private Parser parser;
   /** Element counter. */
   private int c;
+  /** Thread pool for parsing documents in parallel (may be {@code null}). */
+  private ExecutorService pool;
+  /** Documents that are parsed in parallel, in document order. */
+  private final ArrayDeque<Fragment> fragments = new ArrayDeque<>();
 
   /**
    * Constructor.
@@ -70,6 +80,7 @@ public final class DirParser extends Parser {
     addRaw = options.get(MainOptions.ADDRAW);
     dtd = options.get(MainOptions.DTD);
     rawParser = options.get(MainOptions.PARSER) == MainParser.RAW;
+    threads = options.get(MainOptions.PARSETHREADS);
     filter = !source.isDir() && !source.isArchive() ? null :
       Pattern.compile(IOFile.regex(options.get(MainOptions.CREATEFILTER)));
   }
@@ -89,7 +100,18 @@ public final class DirParser extends Parser {
   public void parse(final Builder build) throws IOException {
     build.meta.filesize = 0;
     build.meta.original = source.path();
-    parse(build, source);
+    if(threads > 1 && !rawParser) pool = Executors.newFixedThreadPool(threads);
+    try {
+      parse(build, source);
+      while(!fragments.isEmpty()) merge(build);
+    } finally {
+      if(pool != null) {
+        for(final Fragment f : fragments) f.data.cancel(true);
+        fragments.clear();
+        pool.shutdownNow();
+        pool = null;
+      }
+    }
   }
 
   /**
@@ -193,6 +215,19 @@ public final class DirParser extends Parser {
         if(rawPath != null) {
           Store.store(source.inputSource(), new IOFile(rawPath, targ + name));
         }
+      } else if(pool != null) {
+        // parse input in parallel: cache contents of streamed archive entries
+        IO in = source;
+        if(in instanceof IOStream) {
+          in = new IOContent(source.read());
+          in.name(name);
+        }
+        fragments.add(new Fragment(in, targ));
+        // merge parsed documents in document order, limit number of pending documents
+        while(fragments.size() > threads << 1 || fragments.peek().data.isDone()) {
+          merge(builder);
+          if(fragments.isEmpty()) break;
+        }
       } else {
         // store input as XML
         boolean ok = true;
@@ -226,6 +261,36 @@ public final class DirParser extends Parser {
     }
   }
 
+  /**
+   * Adds the next parsed document to the database.
+   * @param builder builder instance
+   * @throws IOException I/O exception
+   */
+  private void merge(final Builder builder) throws IOException {
+    builder.checkStop();
+    final Fragment f = fragments.poll();
+    final MemData data;
+    try {
+      data = f.data.get();
+    } catch(final InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new ProcException();
+    } catch(final ExecutionException ex) {
+      final Throwable th = ex.getCause();
+      if(th instanceof IOException) {
+        if(!skipCorrupt) throw (IOException) th;
+        Util.debug(th);
+        skipped.add(f.path);
+        return;
+      }
+      if(th instanceof RuntimeException) throw (RuntimeException) th;
+      throw (Error) th;
+    }
+    new BuilderSerializer(builder).serialize(new DBNode(data));
+    // dump debug data
+    if(Prop.debug && (++c & 0x3FF) == 0) Util.err(";");
+  }
+
   @Override
   public String info() {
     final TokenBuilder tb = new TokenBuilder();
@@ -259,4 +324,27 @@ public final class DirParser extends Parser {
   public void close() throws IOException {
     if(parser != null) parser.close();
   }
+
+  /** Document that is parsed by a separate thread. */
+  private final class Fragment {
+    /** Path to the input. */
+    private final String path;
+    /** Parsed document. */
+    private final Future<MemData> data;
+
+    /**
+     * Constructor.
+     * @param input input
+     * @param targ target path
+     */
+    Fragment(final IO input, final String targ) {
+      path = source.path();
+      data = pool.submit(new Callable<MemData>() {
+        @Override
+        public MemData call() throws IOException {
+          return MemBuilder.build("", Parser.singleParser(input, options, targ));
+        }
+      });
+    }
+  }
 }
@@ -28,6 +28,8 @@ public final class Context {
   public final ClientBlocker blocker;
   /** Asynchronous queries. */
   public final QueryPool queries;
+  /** Parsed queries. */
+  public final QueryCache cache;
   /** Options. */
   public final MainOptions options;
   /** Static options. */
@@ -106,6 +108,7 @@ public final class Context {
     repo = ctx.repo;
     log = ctx.log;
     queries = ctx.queries;
+    cache = ctx.cache;
   }
 
   /**
@@ -125,6 +128,7 @@ public final class Context {
     repo = new EXPathRepo(soptions);
     log = new Log(soptions);
     queries = new QueryPool();
+    cache = new QueryCache(soptions);
     user = users.get(UserText.ADMIN);
     listener = null;
   }
@@ -137,6 +141,14 @@ public final class Context {
     return user;
   }
 
+  /**
+   * Returns the process locking.
+   * @return locking
+   */
+  public Locking locks() {
+    return locks;
+  }
+
   /**
    * Sets the user of this context. This method can only be called once.
    * @param us user
@@ -239,6 +251,28 @@ public final class Context {
     return datas.pinned(db) || TableDiskAccess.locked(db, this);
   }
 
+  /**
+   * Reserves the specified database for an operation on its files. The database must neither be
+   * pinned nor be opened by another process. Every successful call must be followed by
+   * {@link #release(String)}.
+   * @param db name of database
+   * @return {@code true} if the database was reserved
+   */
+  public boolean reserve(final String db) {
+    if(!datas.reserve(db)) return false;
+    if(!TableDiskAccess.locked(db, this)) return true;
+    datas.release(db);
+    return false;
+  }
+
+  /**
+   * Releases the reservation of the specified database.
+   * @param db name of database
+   */
+  public void release(final String db) {
+    datas.release(db);
+  }
+
   /**
    * Checks if the current user has the specified permission.
    * @param perm requested permission
@@ -271,12 +305,35 @@ public final class Context {
 
     // administrators will not be affected by the timeout
     if(!user.has(Perm.ADMIN)) pr.startTimeout(soptions.get(StaticOptions.TIMEOUT) * 1000L);
+    acquire(pr);
+  }
+
+  /**
+   * Releases the locks of a registered process and acquires the locks that are currently
+   * requested by the process. Called by processes whose locking requirements have changed.
+   * @param pr process
+   */
+  public void relock(final Proc pr) {
+    assert pr.registered() : "Not registered:" + pr;
+    locks.release(pr);
+    acquire(pr);
+  }
 
+  /**
+   * Locks the databases touched by the specified process.
+   * @param pr process
+   */
+  private void acquire(final Proc pr) {
     // get touched databases
     final LockResult lr = new LockResult();
     pr.databases(lr);
     final StringList write = prepareLock(lr.write, lr.writeAll);
     final StringList read = write == null ? null : prepareLock(lr.read, lr.readAll);
+    pr.owner = user.name();
+    // the priority of non-admin users is limited by the server configuration
+    final int priority = options.get(MainOptions.PRIORITY);
+    pr.priority = user.has(Perm.ADMIN) ? priority :
+      Math.min(priority, soptions.get(StaticOptions.MAXPRIORITY));
     locks.acquire(pr, read, write);
   }
 
@@ -15,6 +15,8 @@ import org.basex.util.*;
 public final class Datas {
   /** List of data references. */
   private final IdentityHashMap<Data, Integer> list = new IdentityHashMap<>();
+  /** Databases that are reserved for operations on their files. */
+  private final HashMap<String, Reservation> reserved = new HashMap<>();
 
   /**
    * Pins and returns a database with the specified name, or returns {@code null}.
@@ -78,6 +80,48 @@ public final class Datas {
     return entry == null ? 0 : entry.getValue();
   }
 
+  /**
+   * Reserves the database with the specified name for an operation on its files (create, drop,
+   * rename, restore). As long as the reservation exists, the database cannot be opened by other
+   * threads. Reservations can be nested by the same thread.
+   * @param name name of the database
+   * @return {@code true} if the database was reserved; {@code false} if it is opened, or if it
+   *   has been reserved by another thread
+   */
+  public synchronized boolean reserve(final String name) {
+    final String key = key(name);
+    Reservation res = reserved.get(key);
+    if(res == null) {
+      if(get(name) != null) return false;
+      res = new Reservation();
+      reserved.put(key, res);
+    } else if(res.owner != Thread.currentThread()) {
+      return false;
+    }
+    res.count++;
+    return true;
+  }
+
+  /**
+   * Releases a reservation of the database with the specified name.
+   * @param name name of the database
+   */
+  public synchronized void release(final String name) {
+    final String key = key(name);
+    final Reservation res = reserved.get(key);
+    if(res != null && --res.count == 0) reserved.remove(key);
+  }
+
+  /**
+   * Checks if the database with the specified name has been reserved by another thread.
+   * @param name name of the database
+   * @return result of check
+   */
+  public synchronized boolean reserved(final String name) {
+    final Reservation res = reserved.get(key(name));
+    return res != null && res.owner != Thread.currentThread();
+  }
+
   /**
    * Closes all data references.
    */
@@ -98,4 +142,21 @@ public final class Datas {
     }
     return null;
   }
+
+  /**
+   * Returns the key for reserving the database with the specified name.
+   * @param name name of the database
+   * @return key
+   */
+  private static String key(final String name) {
+    return Prop.CASE ? name : name.toLowerCase(Locale.ENGLISH);
+  }
+
+  /** Reservation of a database. */
+  private static final class Reservation {
+    /** Thread that owns the reservation. */
+    private final Thread owner = Thread.currentThread();
+    /** Number of nested reservations. */
+    private int count;
+  }
 }
@@ -20,6 +20,8 @@ public final class MainOptions extends Options {
 
   /** Flag for creating a main memory database. */
   public static final BooleanOption MAINMEM = new BooleanOption("MAINMEM", false);
+  /** Flag for storing the table of main memory databases outside the Java heap. */
+  public static final BooleanOption OFFHEAP = new BooleanOption("OFFHEAP", false);
   /** Flag for closing a database after creating it. */
   public static final BooleanOption CREATEONLY = new BooleanOption("CREATEONLY", false);
 
@@ -35,6 +37,8 @@ public final class MainOptions extends Options {
   public static final BooleanOption SKIPCORRUPT = new BooleanOption("SKIPCORRUPT", false);
   /** Flag for adding remaining files as raw files. */
   public static final BooleanOption ADDRAW = new BooleanOption("ADDRAW", false);
+  /** Number of threads for parsing multiple documents. */
+  public static final NumberOption PARSETHREADS = new NumberOption("PARSETHREADS", 1);
   /** Define CSV parser options. */
   public static final OptionsOption<CsvParserOptions> CSVPARSER =
       new OptionsOption<>("CSVPARSER", new CsvParserOptions());
@@ -70,6 +74,8 @@ public final class MainOptions extends Options {
 
   /** Cache new documents before adding them to a database. */
   public static final BooleanOption ADDCACHE = new BooleanOption("ADDCACHE", false);
+  /** Number of documents that are added in a single update by the ingest command. */
+  public static final NumberOption INGESTBATCH = new NumberOption("INGESTBATCH", 1000);
 
   // Indexing
 
@@ -99,8 +105,14 @@ public final class MainOptions extends Options {
   public static final BooleanOption UPDINDEX = new BooleanOption("UPDINDEX", false);
   /** Flag for automatic index updates. */
   public static final BooleanOption AUTOOPTIMIZE = new BooleanOption("AUTOOPTIMIZE", false);
+  /** Size of the cache for decompressed texts (KB); deactivated if set to 0. */
+  public static final NumberOption TEXTCACHE = new NumberOption("TEXTCACHE", 0);
   /** Index split size. */
   public static final NumberOption SPLITSIZE = new NumberOption("SPLITSIZE", 0);
+  /** Number of threads for building index structures. */
+  public static final NumberOption INDEXTHREADS = new NumberOption("INDEXTHREADS", 1);
+  /** Flag for optimizing databases while they can still be read. */
+  public static final BooleanOption ONLINEOPTIMIZE = new BooleanOption("ONLINEOPTIMIZE", false);
 
   // Full-Text
 
@@ -129,6 +141,10 @@ public final class MainOptions extends Options {
   public static final NumberOption INLINELIMIT = new NumberOption("INLINELIMIT", 100);
   /** Flag for tail-call optimization. */
   public static final NumberOption TAILCALLS = new NumberOption("TAILCALLS", 256);
+  /** Maximum number of tuples sorted in main memory by order by clauses (0: no limit). */
+  public static final NumberOption SORTSIZE = new NumberOption("SORTSIZE", 0);
+  /** Maximum number of groups built in main memory by group by clauses (0: no limit). */
+  public static final NumberOption GROUPSIZE = new NumberOption("GROUPSIZE", 0);
   /** Favor global database when opening resources. */
   public static final BooleanOption DEFAULTDB = new BooleanOption("DEFAULTDB", false);
   /** Forces database creation for unknown documents. */
@@ -141,6 +157,8 @@ public final class MainOptions extends Options {
   public static final BooleanOption RUNQUERY = new BooleanOption("RUNQUERY", true);
   /** Number of query executions. */
   public static final NumberOption RUNS = new NumberOption("RUNS", 1);
+  /** Scheduling weight of transactions (higher weights are preferred; limited by MAXPRIORITY). */
+  public static final NumberOption PRIORITY = new NumberOption("PRIORITY", 1);
 
   // Serialize
 
@@ -26,6 +26,10 @@ public abstract class Proc {
   public boolean updating;
   /** Stopped flag. */
   public State state = State.OK;
+  /** Name of the user who runs the process (used for scheduling transactions). */
+  public String owner = "";
+  /** Scheduling weight of the process. */
+  public int priority = 1;
 
   /** Indicates if a process is currently registered. */
   protected boolean registered;
@@ -3,6 +3,7 @@ package org.basex.core;
 import java.util.*;
 
 import org.basex.io.*;
+import org.basex.io.random.*;
 import org.basex.util.*;
 import org.basex.util.options.*;
 
@@ -36,6 +37,12 @@ public final class StaticOptions extends Options {
   public static final BooleanOption LANGKEYS = new BooleanOption("LANGKEYS", false);
   /** Applied locking algorithm: local (database) vs. global (process) locking. */
   public static final BooleanOption GLOBALLOCK = new BooleanOption("GLOBALLOCK", false);
+  /** Size of the buffer pool for database pages (MB). */
+  public static final NumberOption BUFFERPOOL = new NumberOption("BUFFERPOOL", 32);
+  /** Memory-mapped read access to the table, text and attribute value files. */
+  public static final BooleanOption MMAP = new BooleanOption("MMAP", false);
+  /** Evaluate read-only queries on database snapshots, without waiting for writers. */
+  public static final BooleanOption SNAPSHOTS = new BooleanOption("SNAPSHOTS", false);
 
   /** Comment: written to options file. */
   public static final Comment C_CLIENT = new Comment("Client/Server Architecture");
@@ -65,14 +72,24 @@ public final class StaticOptions extends Options {
   public static final NumberOption TIMEOUT = new NumberOption("TIMEOUT", 30);
   /** Keep alive time of clients; deactivated if set to 0. */
   public static final NumberOption KEEPALIVE = new NumberOption("KEEPALIVE", 600);
+  /** Maximum number of threads for processing client requests. */
+  public static final NumberOption SERVERTHREADS = new NumberOption("SERVERTHREADS", 64);
   /** Defines the number of parallel readers. */
   public static final NumberOption PARALLEL = new NumberOption("PARALLEL", 8);
+  /** Maximum number of parallel transactions of a single user (0: no limit). */
+  public static final NumberOption USERPARALLEL = new NumberOption("USERPARALLEL", 0);
+  /** Maximum number of parallel transactions accessing a single database (0: no limit). */
+  public static final NumberOption DBPARALLEL = new NumberOption("DBPARALLEL", 0);
+  /** Maximum scheduling priority of transactions of non-admin users. */
+  public static final NumberOption MAXPRIORITY = new NumberOption("MAXPRIORITY", 1);
   /** Logging flag. */
   public static final BooleanOption LOG = new BooleanOption("LOG", true);
   /** Log message cut-off. */
   public static final NumberOption LOGMSGMAXLEN = new NumberOption("LOGMSGMAXLEN", 1000);
   /** Timeout (seconds) for remembering result of asynchronous queries. */
   public static final NumberOption ASYNCTIMEOUT = new NumberOption("ASYNCTIMEOUT", 3600);
+  /** Maximum number of cached query strings; deactivated if set to 0. */
+  public static final NumberOption QUERYCACHE = new NumberOption("QUERYCACHE", 0);
 
   /** Comment: written to options file. */
   public static final Comment C_HTTP = new Comment("HTTP Services");
@@ -119,6 +136,8 @@ public final class StaticOptions extends Options {
     Prop.language = get(LANG);
     Prop.langkeys = get(LANGKEYS);
     Prop.debug = get(DEBUG);
+    Buffers.pool(get(BUFFERPOOL));
+    MappedFile.enable(get(MMAP));
     final String ph = get(PROXYHOST);
     if(!ph.isEmpty()) {
       Prop.setSystem("http.proxyHost", ph);
@@ -842,6 +842,10 @@ public interface Text {
   String GLOBAL_OPTIONS = lang("global_options");
   /** "Local Options". */
   String LOCAL_OPTIONS = lang("local_options");
+  /** "Query Cache". */
+  String QUERY_CACHE = lang("query_cache");
+  /** "Queue Waiting Times". */
+  String QUEUE_WAITS = lang("queue_waits");
 
   /** "(chopped)". */
   String CHOPPED = '(' + lang("chopped") + ") ";
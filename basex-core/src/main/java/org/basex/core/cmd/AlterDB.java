@@ -42,11 +42,21 @@ public final class AlterDB extends ACreate {
 
     // close database if it's currently opened and not opened by others
     if(!closed) closed = close(context, src);
-    // check if source database is still opened
-    if(context.pinned(src)) return error(DB_PINNED_X, src);
-
+    // check if source database is still opened, and prevent both databases from being opened
+    if(!context.reserve(src)) return error(DB_PINNED_X, src);
+    final boolean ok;
+    try {
+      if(!context.reserve(trg)) return error(DB_PINNED_X, trg);
+      try {
+        ok = alter(src, trg, soptions);
+      } finally {
+        context.release(trg);
+      }
+    } finally {
+      context.release(src);
+    }
     // try to alter database
-    return alter(src, trg, soptions) && (!closed || new Open(trg).run(context)) ?
+    return ok && (!closed || new Open(trg).run(context)) ?
         info(DB_RENAMED_X, src, trg) : error(DB_NOT_RENAMED_X, src);
   }
 
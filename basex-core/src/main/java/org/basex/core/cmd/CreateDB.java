@@ -88,14 +88,18 @@ public final class CreateDB extends ACreate {
         context.openDB(data);
         context.datas.pin(data);
       } else {
-        if(context.pinned(name)) return error(DB_PINNED_X, name);
-
-        // create disk-based instance
-        proc(new DiskBuilder(name, parser, soptions, options)).build().close();
-
-        // second step: open database and create index structures
-        final Open open = new Open(name);
-        if(!open.run(context)) return error(open.info());
+        // prevent the database from being opened by others while it is created
+        if(!context.reserve(name)) return error(DB_PINNED_X, name);
+        try {
+          // create disk-based instance
+          proc(new DiskBuilder(name, parser, soptions, options)).build().close();
+
+          // second step: open database and create index structures
+          final Open open = new Open(name);
+          if(!open.run(context)) return error(open.info());
+        } finally {
+          context.release(name);
+        }
 
         data = context.data();
       }
@@ -166,9 +170,13 @@ public final class CreateDB extends ACreate {
       data = MemBuilder.build(name, parser);
     } else {
       // database is currently locked by another process
-      if(ctx.pinned(name)) throw new BaseXException(DB_PINNED_X, name);
-      new DiskBuilder(name, parser, ctx.soptions, options).build().close();
-      data = Open.open(name, ctx, options);
+      if(!ctx.reserve(name)) throw new BaseXException(DB_PINNED_X, name);
+      try {
+        new DiskBuilder(name, parser, ctx.soptions, options).build().close();
+        data = Open.open(name, ctx, options);
+      } finally {
+        ctx.release(name);
+      }
     }
 
     CreateIndex.create(data, null);
@@ -3,6 +3,8 @@ package org.basex.core.cmd;
 import static org.basex.core.Text.*;
 
 import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
 
 import org.basex.core.*;
 import org.basex.core.parse.*;
@@ -57,11 +59,14 @@ public final class CreateIndex extends ACreate {
     }
     data.meta.names(type, options);
     data.meta.splitsize = options.get(MainOptions.SPLITSIZE);
+    data.meta.indexthreads = options.get(MainOptions.INDEXTHREADS);
 
     if(!startUpdate()) return false;
     boolean ok = true;
     try {
-      create(type, data, this);
+      final ArrayList<IndexType> types = new ArrayList<>(1);
+      types.add(type);
+      create(types, data, this);
       ok = info(INDEX_CREATED_X_X, type, perf);
     } catch(final IOException ex) {
       ok = error(Util.message(ex));
@@ -83,10 +88,42 @@ public final class CreateIndex extends ACreate {
    * @throws IOException I/O exception
    */
   static void create(final Data data, final ACreate cmd) throws IOException {
-    if(data.meta.createtext) create(IndexType.TEXT, data, cmd);
-    if(data.meta.createattr) create(IndexType.ATTRIBUTE, data, cmd);
-    if(data.meta.createtoken) create(IndexType.TOKEN, data, cmd);
-    if(data.meta.createft) create(IndexType.FULLTEXT, data, cmd);
+    final ArrayList<IndexType> types = new ArrayList<>();
+    if(data.meta.createtext) types.add(IndexType.TEXT);
+    if(data.meta.createattr) types.add(IndexType.ATTRIBUTE);
+    if(data.meta.createtoken) types.add(IndexType.TOKEN);
+    if(data.meta.createft) types.add(IndexType.FULLTEXT);
+    create(types, data, cmd);
+  }
+
+  /**
+   * Builds the specified indexes. If {@link MainOptions#INDEXTHREADS} is larger than 1,
+   * the indexes and partitions of the indexes will be built in parallel by a single pool
+   * of threads.
+   * @param types indexes to be built
+   * @param data data reference
+   * @param cmd calling command (may be {@code null})
+   * @throws IOException I/O exception
+   */
+  static void create(final ArrayList<IndexType> types, final Data data, final ACreate cmd)
+      throws IOException {
+
+    final int threads = data.meta.indexthreads;
+    if(threads < 2) {
+      for(final IndexType type : types) create(type, data, cmd);
+    } else {
+      for(final IndexType type : types) DropIndex.drop(type, data);
+      final Builders builders = new Builders(types, data);
+      if(cmd != null) cmd.proc(builders);
+      final IndexPool pool = new IndexPool(threads, cmd);
+      data.meta.indexpool = pool;
+      try {
+        builders.build(pool);
+      } finally {
+        data.meta.indexpool = null;
+        pool.close();
+      }
+    }
   }
 
   /**
@@ -101,4 +138,97 @@ public final class CreateIndex extends ACreate {
     data.createIndex(type, cmd);
     data.meta.index(type, true);
   }
+
+  /**
+   * Process for building multiple indexes in parallel.
+   */
+  private static final class Builders extends Proc {
+    /** Data reference. */
+    private final Data data;
+    /** Index jobs. */
+    private final Job[] jobs;
+
+    /**
+     * Constructor.
+     * @param types indexes to be built
+     * @param data data reference
+     */
+    Builders(final ArrayList<IndexType> types, final Data data) {
+      this.data = data;
+      final int ts = types.size();
+      jobs = new Job[ts];
+      for(int t = 0; t < ts; t++) jobs[t] = new Job(types.get(t));
+    }
+
+    /**
+     * Builds all indexes. If one of the builders fails, or if the process is stopped,
+     * the remaining builders will be stopped, and the first error will be thrown.
+     * @param pool thread pool
+     * @throws IOException I/O exception
+     */
+    void build(final IndexPool pool) throws IOException {
+      try {
+        pool.run(jobs);
+      } finally {
+        // register successfully built indexes, clean up all others
+        for(final Job job : jobs) {
+          if(job.built) data.meta.index(job.type, true);
+          else job.abort();
+        }
+      }
+    }
+
+    @Override
+    protected String tit() {
+      return CREATING_INDEXES;
+    }
+
+    @Override
+    protected String det() {
+      // return details of the slowest builder
+      Job min = jobs[0];
+      for(final Job job : jobs) {
+        if(job.progress() < min.progress()) min = job;
+      }
+      return min.detail();
+    }
+
+    @Override
+    protected double prog() {
+      double p = 0;
+      for(final Job job : jobs) p += job.progress();
+      return p / jobs.length;
+    }
+
+    /**
+     * Builds a single index.
+     */
+    private final class Job extends Proc implements Callable<Void> {
+      /** Index type. */
+      private final IndexType type;
+      /** Indicates if the index has been built. */
+      private volatile boolean built;
+
+      /**
+       * Constructor.
+       * @param type index type
+       */
+      Job(final IndexType type) {
+        this.type = type;
+      }
+
+      @Override
+      public Void call() throws IOException {
+        data.createIndex(type, this);
+        built = true;
+        return null;
+      }
+
+      @Override
+      protected void abort() {
+        // cleans up the files of the index builder (method is overwritten for visibility)
+        super.abort();
+      }
+    }
+  }
 }
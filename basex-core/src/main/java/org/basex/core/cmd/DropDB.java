@@ -39,16 +39,22 @@ public final class DropDB extends ACreate {
     for(final String db : dbs) {
       // close database if it's currently opened
       close(context, db);
-      // check if database is still pinned
-      if(context.pinned(db)) {
+      // check if database is still pinned, and prevent it from being opened
+      if(!context.reserve(db)) {
         info(DB_PINNED_X, db);
         ok = false;
-      } else if(!drop(db, soptions)) {
-        // dropping was not successful
-        info(DB_NOT_DROPPED_X, db);
-        ok = false;
-      } else {
-        info(DB_DROPPED_X, db);
+        continue;
+      }
+      try {
+        if(drop(db, soptions)) {
+          info(DB_DROPPED_X, db);
+        } else {
+          // dropping was not successful
+          info(DB_NOT_DROPPED_X, db);
+          ok = false;
+        }
+      } finally {
+        context.release(db);
       }
     }
     return ok;
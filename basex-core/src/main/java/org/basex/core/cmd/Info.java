@@ -49,9 +49,21 @@ public final class Info extends AInfo {
     info(tb, USED_MEM, Performance.getMemory());
 
     if(user.has(Perm.ADMIN)) {
+      info(tb, QUERY_CACHE, context.cache);
+
       final StaticOptions sopts = context.soptions;
       tb.add(NL + GLOBAL_OPTIONS + COL + NL);
       for(final Option<?> o : sopts) info(tb, o.name(), sopts.get(o));
+
+      final Locking locks = context.locks();
+      if(locks instanceof DBLocking) {
+        final DBLocking dbl = (DBLocking) locks;
+        tb.add(NL + QUEUE_WAITS + COL + NL);
+        info(tb, ALL, DBLocking.info(dbl.waits(null)));
+        for(final String name : dbl.waitingUsers()) {
+          info(tb, name, DBLocking.info(dbl.waits(name)));
+        }
+      }
     }
 
     final MainOptions opts = context.options;
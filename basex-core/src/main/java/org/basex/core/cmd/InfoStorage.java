@@ -1,5 +1,7 @@
 package org.basex.core.cmd;
 
+import static org.basex.core.Text.*;
+import static org.basex.data.DataText.*;
 import static org.basex.util.Strings.*;
 
 import java.io.*;
@@ -8,6 +10,9 @@ import org.basex.core.locks.*;
 import org.basex.core.parse.*;
 import org.basex.core.parse.Commands.*;
 import org.basex.data.*;
+import org.basex.io.random.*;
+import org.basex.util.*;
+import org.basex.util.list.*;
 
 /**
  * Evaluates the 'info storage' command and returns the table representation
@@ -39,9 +44,64 @@ public final class InfoStorage extends AInfo {
     }
     dp.add(start, end);
     out.print(dp.finish());
+    if(data instanceof DiskData) {
+      final DiskData dd = (DiskData) data;
+      out.print(buffers(dd));
+      final TextCache tc = dd.cache();
+      if(tc != null) out.print(cache(tc));
+    }
     return true;
   }
 
+  /**
+   * Returns a table with the buffer statistics of the database files.
+   * @param data disk data
+   * @return table
+   */
+  private static byte[] buffers(final DiskData data) {
+    final Table table = new Table();
+    table.header.add(TABLEFILE);
+    table.header.add(TABLEBUFFERS);
+    table.header.add(TABLEHITS);
+    table.header.add(TABLEMISSES);
+    table.align.add(false);
+    for(int i = 0; i < 3; ++i) table.align.add(true);
+
+    final String[] files = { DATATBL, DATATXT, DATAATV };
+    final Buffers[] buffers = data.buffers();
+    for(int f = 0; f < files.length; f++) {
+      final TokenList tl = new TokenList();
+      tl.add(files[f]);
+      tl.add(buffers[f].size());
+      tl.add(buffers[f].hits());
+      tl.add(buffers[f].misses());
+      table.contents.add(tl);
+    }
+    return new TokenBuilder().add(NL).add(table.finish()).finish();
+  }
+
+  /**
+   * Returns a table with the statistics of the text cache.
+   * @param cache text cache
+   * @return table
+   */
+  private static byte[] cache(final TextCache cache) {
+    final Table table = new Table();
+    table.header.add(TABLEENTRIES);
+    table.header.add(TABLEBYTES);
+    table.header.add(TABLEHITS);
+    table.header.add(TABLEMISSES);
+    for(int i = 0; i < 4; ++i) table.align.add(true);
+
+    final TokenList tl = new TokenList();
+    tl.add(cache.entries());
+    tl.add(cache.bytes());
+    tl.add(cache.hits());
+    tl.add(cache.misses());
+    table.contents.add(tl);
+    return new TokenBuilder().add(NL).add(table.finish()).finish();
+  }
+
   @Override
   public void databases(final LockResult lr) {
     lr.read.add(DBLocking.CONTEXT);
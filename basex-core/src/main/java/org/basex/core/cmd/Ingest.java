@@ -0,0 +1,206 @@
+package org.basex.core.cmd;
+
+import static org.basex.core.Text.*;
+
+import java.io.*;
+
+import org.basex.build.*;
+import org.basex.core.*;
+import org.basex.core.parse.*;
+import org.basex.core.users.*;
+import org.basex.data.*;
+import org.basex.io.*;
+import org.basex.io.in.*;
+import org.basex.query.up.atomic.*;
+import org.basex.util.*;
+
+/**
+ * Evaluates the 'ingest' command and adds a stream of documents to a database.
+ * The input contains a sequence of entries, each consisting of a path and the length
+ * of the content, both suffixed by a {@code 0} byte, and the content:
+ * {@code {path}0{length}0{content}}. The content is streamed to the parser.
+ * The documents are added in batches (see {@link MainOptions#INGESTBATCH}); each batch is
+ * built in a single pass and committed with a single update.
+ *
+ * @author BaseX Team 2005-16, BSD License
+ * @author Christian Gruen
+ */
+public final class Ingest extends ACreate {
+  /** Builder. */
+  private Builder build;
+
+  /**
+   * Constructor, specifying a target path.
+   * The input needs to be set via {@link #setInput(InputStream)}.
+   * @param path target path
+   */
+  public Ingest(final String path) {
+    super(Perm.WRITE, true, path == null ? "" : path);
+  }
+
+  @Override
+  protected boolean run() {
+    final String path = MetaData.normPath(args[0]);
+    if(path == null) return error(PATH_INVALID_X, args[0]);
+    if(in == null || in.getByteStream() == null) return error(RES_NOT_FOUND);
+
+    final int batch = Math.max(1, options.get(MainOptions.INGESTBATCH));
+    final Entries entries = new Entries(new BufferInput(in.getByteStream()), path, batch,
+        options);
+    try {
+      while(entries.more) {
+        if(!add(entries)) return false;
+      }
+      return info(RES_ADDED_X, perf);
+    } catch(final IOException ex) {
+      return error(Util.message(ex));
+    }
+  }
+
+  /**
+   * Builds a data clip for the next batch of documents and adds it to the database.
+   * @param entries entries parser
+   * @return success flag
+   * @throws IOException I/O exception
+   */
+  private boolean add(final Entries entries) throws IOException {
+    final Data data = context.data();
+    final boolean cache = !options.get(MainOptions.MAINMEM) && options.get(MainOptions.ADDCACHE);
+    build = cache ? new DiskBuilder(soptions.randomDbName(data.meta.name), entries, soptions,
+        options) : new MemBuilder(data.meta.name, entries);
+
+    final DataClip clip = build.dataClip();
+    try {
+      // skip update if batch is empty
+      if(clip.data.meta.size > 1) {
+        if(!startUpdate()) return false;
+
+        context.invalidate();
+        final AtomicUpdateCache auc = new AtomicUpdateCache(data);
+        auc.addInsert(data.meta.size, -1, clip);
+        auc.execute(false);
+
+        if(!finishUpdate()) return false;
+      }
+      return true;
+    } finally {
+      DropDB.drop(clip.data, soptions);
+    }
+  }
+
+  @Override
+  public void build(final CmdBuilder cb) {
+    cb.init().arg(S_TO, 0);
+  }
+
+  @Override
+  protected String tit() {
+    return ADD;
+  }
+
+  @Override
+  protected double prog() {
+    return build != null ? build.prog() : 0;
+  }
+
+  /**
+   * Parser for a batch of streamed entries.
+   */
+  private static final class Entries extends Parser {
+    /** Input stream. */
+    private final BufferInput input;
+    /** Target path. */
+    private final String path;
+    /** Maximum number of documents per batch. */
+    private final int batch;
+    /** Indicates if more entries may be available. */
+    boolean more = true;
+
+    /**
+     * Constructor.
+     * @param input input stream
+     * @param path target path
+     * @param batch maximum number of documents per batch
+     * @param options main options
+     */
+    Entries(final BufferInput input, final String path, final int batch,
+        final MainOptions options) {
+      super((IO) null, options);
+      this.input = input;
+      this.path = path;
+      this.batch = batch;
+    }
+
+    @Override
+    public void parse(final Builder builder) throws IOException {
+      for(int d = 0; d < batch; d++) {
+        builder.checkStop();
+        final String name = input.readString();
+        if(name.isEmpty()) {
+          more = false;
+          break;
+        }
+        final String length = input.readString();
+        final long size = Strings.toLong(length);
+        if(size < 0) throw new BaseXException(INVALID_X, "Length of '" + name + '\'');
+
+        // resolve target path and document name
+        final String norm = MetaData.normPath(path + '/' + name);
+        if(norm == null || norm.isEmpty() || norm.endsWith("/"))
+          throw new BaseXException(PATH_INVALID_X, name);
+        final int s = norm.lastIndexOf('/');
+
+        // content is streamed to the parser, and skipped if it is not completely consumed
+        final Content content = new Content(input, size, name);
+        final IO io = new IOStream(content, norm.substring(s + 1));
+        Parser.singleParser(io, options, s == -1 ? "" : norm.substring(0, s)).parse(builder);
+        content.skip();
+      }
+    }
+  }
+
+  /**
+   * Input stream for the content of a single entry. The stream returns the specified number
+   * of bytes from the wrapped input; closing it does not close the wrapped input.
+   */
+  private static final class Content extends InputStream {
+    /** Wrapped input. */
+    private final InputStream input;
+    /** Name of the entry. */
+    private final String name;
+    /** Remaining bytes. */
+    private long remaining;
+
+    /**
+     * Constructor.
+     * @param input wrapped input
+     * @param size number of bytes
+     * @param name name of the entry
+     */
+    Content(final InputStream input, final long size, final String name) {
+      this.input = input;
+      this.name = name;
+      remaining = size;
+    }
+
+    @Override
+    public int read() throws IOException {
+      if(remaining == 0) return -1;
+      final int b = input.read();
+      if(b == -1) throw new EOFException(name);
+      remaining--;
+      return b;
+    }
+
+    /**
+     * Skips the remaining bytes.
+     * @throws IOException I/O exception
+     */
+    void skip() throws IOException {
+      while(read() != -1);
+    }
+
+    @Override
+    public void close() { }
+  }
+}
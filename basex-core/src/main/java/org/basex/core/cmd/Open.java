@@ -90,6 +90,8 @@ public final class Open extends Command {
       if(data == null) {
         // check if the addressed database exists
         if(!context.soptions.dbExists(name)) throw new BaseXException(dbnf(name));
+        // do not open a database whose files are currently created, dropped or renamed
+        if(context.datas.reserved(name)) throw new BaseXException(DB_PINNED_X, name);
 
         // do not open a database that is currently updated
         final MetaData meta = new MetaData(name, options, context.soptions);
@@ -3,6 +3,7 @@ package org.basex.core.cmd;
 import static org.basex.core.Text.*;
 
 import java.io.*;
+import java.util.*;
 
 import org.basex.core.*;
 import org.basex.core.users.*;
@@ -47,6 +48,13 @@ public final class Optimize extends ACreate {
         data.meta.autooptimize = autoopt;
         data.meta.dirty = true;
       }
+      // reassign text cache size
+      final int textcache = options.get(MainOptions.TEXTCACHE);
+      if(textcache != data.meta.textcache) {
+        data.meta.textcache = textcache;
+        data.meta.dirty = true;
+      }
+      data.meta.indexthreads = options.get(MainOptions.INDEXTHREADS);
       optimize(data, this);
       ok = info(DB_OPTIMIZED_X, meta.name, perf);
     } catch(final IOException ex) {
@@ -156,28 +164,31 @@ public final class Optimize extends ACreate {
     }
 
     // rebuild value indexes
-    optimize(IndexType.TEXT, data, md.createtext, enforceText, cmd);
-    optimize(IndexType.ATTRIBUTE, data, md.createattr, enforceAttr, cmd);
-    optimize(IndexType.TOKEN, data, md.createtoken, enforceToken, cmd);
-    optimize(IndexType.FULLTEXT, data, md.createft, enforceFt, cmd);
+    final ArrayList<IndexType> types = new ArrayList<>();
+    optimize(IndexType.TEXT, data, md.createtext, enforceText, types);
+    optimize(IndexType.ATTRIBUTE, data, md.createattr, enforceAttr, types);
+    optimize(IndexType.TOKEN, data, md.createtoken, enforceToken, types);
+    optimize(IndexType.FULLTEXT, data, md.createft, enforceFt, types);
+    CreateIndex.create(types, data, cmd);
   }
 
   /**
-   * Creates or deletes the specified index if the old and new state is different.
+   * Deletes the specified index, or adds it to the indexes to be created,
+   * if the old and new state is different.
    * @param type index type
    * @param data data reference
    * @param create new flag
    * @param enforce enforce operation
-   * @param cmd calling command instance
+   * @param types indexes to be created
    * @throws IOException I/O exception
    */
   private static void optimize(final IndexType type, final Data data, final boolean create,
-      final boolean enforce, final Optimize cmd) throws IOException {
+      final boolean enforce, final ArrayList<IndexType> types) throws IOException {
 
     // check if flags have changed
     if(create == data.meta.index(type) && !enforce) return;
     // create or drop index
-    if(create) CreateIndex.create(type, data, cmd);
+    if(create) types.add(type);
     else DropIndex.drop(type, data);
   }
 
@@ -195,9 +206,12 @@ public final class Optimize extends ACreate {
 
     if(data.meta.updindex) {
       data.idmap = new IdPreMap(md.lastid);
-      if(data.meta.textindex) optimize(IndexType.TEXT, data, true, true, null);
-      if(data.meta.attrindex) optimize(IndexType.ATTRIBUTE, data, true, true, null);
-      if(data.meta.tokenindex) optimize(IndexType.TOKEN, data, true, true, null);
+      final ArrayList<IndexType> types = new ArrayList<>();
+      if(data.meta.textindex) types.add(IndexType.TEXT);
+      if(data.meta.attrindex) types.add(IndexType.ATTRIBUTE);
+      if(data.meta.tokenindex) types.add(IndexType.TOKEN);
+      if(data.meta.ftindex) types.add(IndexType.FULLTEXT);
+      CreateIndex.create(types, data, null);
     }
   }
 }
@@ -23,6 +23,11 @@ import org.basex.util.list.*;
  * the currently opened database. This effectively eliminates all fragmentation
  * and can lead to significant space savings after updates.
  *
+ * If {@link MainOptions#ONLINEOPTIMIZE} is enabled, the database will only be locked for reading
+ * while it is being rebuilt. The write lock is acquired before the old database is replaced.
+ * If the database has been updated or opened by other users in the meantime, the rebuilt database
+ * will be discarded.
+ *
  * @author BaseX Team 2005-16, BSD License
  * @author Leo Woerteler
  */
@@ -31,6 +36,8 @@ public final class OptimizeAll extends ACreate {
   private int pre;
   /** Data size. */
   private int size;
+  /** Indicates if the database is only locked for reading. */
+  private boolean shared;
 
   /**
    * Default constructor.
@@ -42,8 +49,16 @@ public final class OptimizeAll extends ACreate {
   @Override
   protected boolean run() {
     final Data data = context.data();
+    final String tname;
     try {
-      optimizeAll(data, context, options, this);
+      // the database remains opened if the online optimization fails
+      tname = options.get(MainOptions.ONLINEOPTIMIZE) ? buildOnline(data) : null;
+    } catch(final IOException ex) {
+      return error(Util.message(ex));
+    }
+    try {
+      if(tname != null) replace(data, tname, context);
+      else optimizeAll(data, context, options, this);
     } catch(final IOException ex) {
       return error(Util.message(ex));
     } finally {
@@ -62,7 +77,7 @@ public final class OptimizeAll extends ACreate {
 
   @Override
   public void databases(final LockResult lr) {
-    lr.write.add(DBLocking.CONTEXT);
+    (shared ? lr.read : lr.write).add(DBLocking.CONTEXT);
   }
 
   @Override
@@ -98,15 +113,79 @@ public final class OptimizeAll extends ACreate {
   public static void optimizeAll(final Data data, final Context context,
       final MainOptions options, final OptimizeAll cmd) throws IOException {
 
+    check(data, context);
+    replace(data, build(data, context, options, cmd), context);
+  }
+
+  /**
+   * Builds a new instance of the specified database. The database is only locked for reading
+   * while the new instance is built.
+   * @param data disk data
+   * @return name of the temporary database
+   * @throws IOException I/O Exception during index rebuild
+   */
+  private String buildOnline(final Data data) throws IOException {
+    check(data, context);
+
+    // build new instance while other processes can read the database
+    final int updates = data.meta.updates;
+    final String tname;
+    lock(true);
+    try {
+      tname = build(data, context, options, this);
+    } finally {
+      lock(false);
+    }
+
+    // discard new instance if the database has been updated or opened in the meantime
+    try {
+      check(data, context);
+      if(data.meta.updates != updates) throw new BaseXException(DB_UPDATED_X, data.meta.name);
+    } catch(final IOException ex) {
+      DropDB.drop(tname, context.soptions);
+      throw ex;
+    }
+    return tname;
+  }
+
+  /**
+   * Changes the locks of this command.
+   * @param read lock database for reading only
+   */
+  private void lock(final boolean read) {
+    shared = read;
+    context.relock(this);
+  }
+
+  /**
+   * Checks if the specified database can be optimized.
+   * @param data data
+   * @param context database context
+   * @throws BaseXException database exception
+   */
+  private static void check(final Data data, final Context context) throws BaseXException {
     if(data.inMemory()) throw new BaseXException(NO_MAINMEM);
+    // check if database is also pinned by other users
+    final String name = data.meta.name;
+    if(context.datas.pins(name) > 1) throw new BaseXException(DB_PINNED_X, name);
+  }
+
+  /**
+   * Builds a new instance of the specified database with a temporary name.
+   * @param data disk data
+   * @param context database context
+   * @param options main options
+   * @param cmd command reference or {@code null}
+   * @return name of the temporary database
+   * @throws IOException I/O Exception during index rebuild
+   */
+  private static String build(final Data data, final Context context,
+      final MainOptions options, final OptimizeAll cmd) throws IOException {
 
     final DiskData odata = (DiskData) data;
     final MetaData ometa = odata.meta;
     final String name = ometa.name;
 
-    // check if database is also pinned by other users
-    if(context.datas.pins(ometa.name) > 1) throw new BaseXException(DB_PINNED_X, name);
-
     // adopt original meta information
     options.set(MainOptions.CHOP, ometa.chop);
     // adopt original index options
@@ -144,20 +223,45 @@ public final class OptimizeAll extends ACreate {
         dt.meta.filesize = ometa.filesize;
         dt.meta.dirty = true;
         CreateIndex.create(dt, cmd);
-
-        // move binary files
-        final IOFile bin = data.meta.binaries();
-        if(bin.exists()) bin.rename(dt.meta.binaries());
-        final IOFile upd = odata.meta.updateFile();
-        if(upd.exists()) upd.copyTo(dt.meta.updateFile());
       } finally {
         dt.close();
       }
     }
-    // close old database instance, drop it and rename temporary database
-    Close.close(data, context);
-    if(!DropDB.drop(name, sopts)) throw new BaseXException(DB_NOT_DROPPED_X, name);
-    if(!AlterDB.alter(tname, name, sopts)) throw new BaseXException(DB_NOT_RENAMED_X, tname);
+    return tname;
+  }
+
+  /**
+   * Replaces the specified database with a temporary database and closes it.
+   * The temporary database will be dropped if the database is pinned by other users.
+   * @param data disk data
+   * @param tname name of the temporary database
+   * @param context database context
+   * @throws IOException I/O Exception
+   */
+  private static void replace(final Data data, final String tname, final Context context)
+      throws IOException {
+
+    final StaticOptions sopts = context.soptions;
+    final MetaData ometa = data.meta, tmeta = new MetaData(tname, context.options, sopts);
+    final String name = ometa.name;
+    // no other process must open the database while it is replaced
+    synchronized(context.datas) {
+      if(context.datas.pins(name) > 1) {
+        DropDB.drop(tname, sopts);
+        throw new BaseXException(DB_PINNED_X, name);
+      }
+
+      // move binary files
+      final IOFile bin = ometa.binaries();
+      if(bin.exists()) bin.rename(tmeta.binaries());
+      final IOFile upd = ometa.updateFile();
+      if(upd.exists()) upd.copyTo(tmeta.updateFile());
+
+      // close old database instance, drop it and rename temporary database
+      Close.close(data, context);
+      if(!DropDB.drop(name, sopts)) throw new BaseXException(DB_NOT_DROPPED_X, name);
+      if(!AlterDB.alter(tname, name, sopts)) throw new BaseXException(DB_NOT_RENAMED_X, tname);
+    }
   }
 
   /**
@@ -42,12 +42,16 @@ public final class Restore extends ABackup {
 
     // close database if it's currently opened and not opened by others
     if(!closed) closed = close(context, db);
-    // check if database is still pinned
-    if(context.pinned(db)) return error(DB_PINNED_X, db);
+    // check if database is still pinned, and prevent it from being opened
+    if(!context.reserve(db)) return error(DB_PINNED_X, db);
 
     // try to restore database
     try {
-      restore(db, backup, soptions, this);
+      try {
+        restore(db, backup, soptions, this);
+      } finally {
+        context.release(db);
+      }
       return !closed || new Open(db).run(context) ?
         info(DB_RESTORED_X, backup, perf) : error(DB_NOT_RESTORED_X, db);
     } catch(final IOException ex) {
@@ -9,6 +9,7 @@ import java.util.concurrent.atomic.*;
 import java.util.concurrent.locks.*;
 
 import org.basex.core.*;
+import org.basex.util.*;
 import org.basex.util.list.*;
 
 /**
@@ -16,6 +17,12 @@ import org.basex.util.list.*;
  * {@link StaticOptions#PARALLEL} concurrent transactions are allowed,
  * further will be queued.
  *
+ * Queued transactions are scheduled by weighted fair queuing: each user is assigned a share
+ * of the transaction slots, which is defined by the priority of its processes
+ * ({@link MainOptions#PRIORITY}). The number of parallel transactions per user and per
+ * database can be limited via {@link StaticOptions#USERPARALLEL} and
+ * {@link StaticOptions#DBPARALLEL}.
+ *
  * This class prevents locking deadlocks by sorting all all strings
  *
  * Locks can only be released by the same thread which acquired it.
@@ -69,15 +76,35 @@ public final class DBLocking implements Locking {
   private final Map<String, AtomicInteger> lockUsage = new HashMap<>();
   /**
    * Currently running transactions.
-   * Used as monitor for atomizing access to {@link #queue}.
+   * Guarded by {@link #queue}.
    */
   private int transactions;
   /**
    * Queue for transactions waiting.
    *
-   * Used as monitor for waiting threads in queue.
+   * Used as monitor for waiting threads in queue, and for guarding the scheduling state.
+   */
+  private final List<Transaction> queue = new LinkedList<>();
+  /** Running transactions, indexed by thread ids. Guarded by {@link #queue}. */
+  private final Map<Long, Transaction> running = new HashMap<>();
+  /** Number of running transactions per user. Guarded by {@link #queue}. */
+  private final Map<String, AtomicInteger> userUsage = new HashMap<>();
+  /** Number of running transactions per database. Guarded by {@link #queue}. */
+  private final Map<String, AtomicInteger> dbUsage = new HashMap<>();
+  /**
+   * Virtual finish times of the last queued transactions of users with queued or running
+   * transactions. Guarded by {@link #queue}.
+   */
+  private final Map<String, Double> finishTimes = new HashMap<>();
+  /** Virtual time: start time of the last scheduled transaction. Guarded by {@link #queue}. */
+  private double time;
+  /**
+   * Queue wait statistics of users with queued or running transactions: number of
+   * transactions, total and maximum waiting time (nanoseconds). Guarded by {@link #queue}.
    */
-  private final Queue<Long> queue = new LinkedList<>();
+  private final Map<String, long[]> waits = new HashMap<>();
+  /** Queue wait statistics of all transactions. Guarded by {@link #queue}. */
+  private final long[] totalWaits = new long[3];
   /**
    * Stores a list of objects each transaction has write-locked.
    * Null means lock everything, an empty array lock nothing.
@@ -106,10 +133,16 @@ public final class DBLocking implements Locking {
       throw new IllegalMonitorStateException("Thread already holds one or more locks.");
 
     // Wait in queue if necessary
+    final Transaction tr = new Transaction(thread, pr, read, write);
     synchronized(queue) { // Guard queue and transaction, monitor for waiting in queue
-      queue.add(thread);
-      while(transactions >= Math.max(sopts.get(StaticOptions.PARALLEL), 1)
-          || queue.peek() != thread) {
+      // assign virtual start and finish time
+      final Double last = finishTimes.get(tr.owner);
+      tr.start = Math.max(time, last == null ? 0 : last);
+      tr.finish = tr.start + 1d / tr.weight;
+      finishTimes.put(tr.owner, tr.finish);
+
+      queue.add(tr);
+      while(transactions >= Math.max(sopts.get(StaticOptions.PARALLEL), 1) || next() != tr) {
         try {
           queue.wait();
         } catch(final InterruptedException ex) {
@@ -118,7 +151,24 @@ public final class DBLocking implements Locking {
       }
       final int t = transactions++;
       assert t <= Math.max(sopts.get(StaticOptions.PARALLEL), 1);
-      queue.remove(thread);
+      queue.remove(tr);
+      time = Math.max(time, tr.start);
+
+      // register running transaction and waiting time
+      running.put(thread, tr);
+      use(userUsage, tr.owner, 1);
+      if(tr.dbs != null) for(final String db : tr.dbs) use(dbUsage, db, 1);
+      final long wait = System.nanoTime() - tr.queued;
+      long[] stats = waits.get(tr.owner);
+      if(stats == null) {
+        stats = new long[3];
+        waits.put(tr.owner, stats);
+      }
+      waited(stats, wait);
+      waited(totalWaits, wait);
+
+      // other queued transactions may have become admissible as well
+      if(!queue.isEmpty()) queue.notifyAll();
     }
 
     // Global write lock if write StringList is not set
@@ -239,10 +289,127 @@ public final class DBLocking implements Locking {
     // Allow another transaction to run
     synchronized(queue) {
       transactions--;
+      final Transaction tr = running.remove(thread);
+      if(tr != null) {
+        use(userUsage, tr.owner, -1);
+        if(tr.dbs != null) for(final String db : tr.dbs) use(dbUsage, db, -1);
+        evict(tr.owner);
+      }
       queue.notifyAll();
     }
   }
 
+  /**
+   * Returns the queued transaction that may be run next: the transaction with the earliest
+   * virtual finish time, the user and databases of which have not reached their limit of
+   * parallel transactions. Must be called while holding the monitor of {@link #queue}.
+   * @return transaction, or {@code null} if no transaction may be run
+   */
+  private Transaction next() {
+    final int ul = sopts.get(StaticOptions.USERPARALLEL);
+    final int dl = sopts.get(StaticOptions.DBPARALLEL);
+    Transaction next = null;
+    for(final Transaction tr : queue) {
+      // earlier transactions are preferred if finish times are equal
+      if(next != null && tr.finish >= next.finish) continue;
+      if(ul > 0 && usage(userUsage, tr.owner) >= ul) continue;
+      boolean ok = true;
+      if(dl > 0 && tr.dbs != null) {
+        for(final String db : tr.dbs) ok &= usage(dbUsage, db) < dl;
+      }
+      if(ok) next = tr;
+    }
+    return next;
+  }
+
+  /**
+   * Discards the scheduling state and wait statistics of a user who has no queued or
+   * running transactions. Must be called while holding the monitor of {@link #queue}.
+   * @param user name of user
+   */
+  private void evict(final String user) {
+    if(usage(userUsage, user) > 0) return;
+    for(final Transaction tr : queue) {
+      if(tr.owner.equals(user)) return;
+    }
+    finishTimes.remove(user);
+    waits.remove(user);
+  }
+
+  /**
+   * Adds a waiting time to the specified statistics.
+   * @param stats statistics
+   * @param wait waiting time (nanoseconds)
+   */
+  private static void waited(final long[] stats, final long wait) {
+    stats[0]++;
+    stats[1] += wait;
+    stats[2] = Math.max(stats[2], wait);
+  }
+
+  /**
+   * Returns queue wait statistics for the specified user. Statistics are only available
+   * for users with queued or running transactions.
+   * @param user name of user, or {@code null} for the statistics of all transactions
+   * @return number of transactions, total and maximum waiting time (nanoseconds)
+   */
+  public long[] waits(final String user) {
+    synchronized(queue) {
+      final long[] stats = user == null ? totalWaits : waits.get(user);
+      return stats == null ? new long[3] : stats.clone();
+    }
+  }
+
+  /**
+   * Returns a string representation of queue wait statistics.
+   * @param stats statistics
+   * @return string
+   */
+  public static String info(final long[] stats) {
+    final int runs = (int) Math.max(1, stats[0]);
+    return stats[0] + " transactions, " + Performance.getTime(stats[1], runs) + ", max: " +
+      Performance.getTime(stats[2], 1);
+  }
+
+  /**
+   * Returns the names of all users with queue wait statistics.
+   * @return names of users, sorted alphabetically
+   */
+  public StringList waitingUsers() {
+    synchronized(queue) {
+      final StringList users = new StringList(waits.size());
+      for(final String user : waits.keySet()) users.add(user);
+      return users.sort();
+    }
+  }
+
+  /**
+   * Returns the number of running transactions for the specified key.
+   * @param usage usage counters
+   * @param key key
+   * @return number of transactions
+   */
+  private static int usage(final Map<String, AtomicInteger> usage, final String key) {
+    final AtomicInteger count = usage.get(key);
+    return count == null ? 0 : count.get();
+  }
+
+  /**
+   * Updates the number of running transactions for the specified key.
+   * @param usage usage counters
+   * @param key key
+   * @param delta difference
+   */
+  private static void use(final Map<String, AtomicInteger> usage, final String key,
+      final int delta) {
+    final AtomicInteger count = usage.get(key);
+    if(count == null) {
+      usage.put(key, new AtomicInteger(delta));
+    } else if(count.addAndGet(delta) == 0) {
+      usage.remove(key);
+    }
+  }
+
   /**
    * Marks a lock as used.
    * @param lock Lock to set used
@@ -282,7 +449,12 @@ public final class DBLocking implements Locking {
     sb.append("Locking" + NL);
     final String ind = "| ";
     sb.append(ind + "Transactions running: " + transactions + NL);
-    sb.append(ind + "Transaction queue: " + queue + NL);
+    synchronized(queue) {
+      sb.append(ind + "Transaction queue: " + queue + NL);
+      sb.append(ind + "Queue waiting times by user:" + NL);
+      for(final Entry<String, long[]> entry : waits.entrySet())
+        sb.append(ind + ind + entry.getKey() + " -> " + info(entry.getValue()) + NL);
+    }
     sb.append(ind + "Held locks by object:" + NL);
     synchronized(locks) {
       for(final Entry<String, ReentrantReadWriteLock> e : locks.entrySet())
@@ -297,4 +469,58 @@ public final class DBLocking implements Locking {
     return sb.toString();
   }
 
+  /** Transaction. */
+  private static final class Transaction {
+    /** Thread id. */
+    final long thread;
+    /** Name of the user. */
+    final String owner;
+    /** Scheduling weight. */
+    final int weight;
+    /** Accessed databases, or {@code null} if all databases are accessed. */
+    final StringList dbs;
+    /** Time when the transaction was queued (nanoseconds). */
+    final long queued = System.nanoTime();
+    /** Virtual start time. */
+    double start;
+    /** Virtual finish time. */
+    double finish;
+
+    /**
+     * Constructor.
+     * @param thread thread id
+     * @param pr process
+     * @param read names of databases to put read locks on (may be {@code null})
+     * @param write names of databases to put write locks on (may be {@code null})
+     */
+    Transaction(final long thread, final Proc pr, final StringList read,
+        final StringList write) {
+      this.thread = thread;
+      owner = pr.owner;
+      weight = Math.max(pr.priority, 1);
+      if(read == null || write == null) {
+        dbs = null;
+      } else {
+        final StringList sl = new StringList();
+        for(final String db : read) if(db(db)) sl.add(db);
+        for(final String db : write) if(db(db)) sl.add(db);
+        dbs = sl.sort().unique();
+      }
+    }
+
+    /**
+     * Checks if the specified lock string references a database.
+     * @param lock lock string
+     * @return result of check
+     */
+    private static boolean db(final String lock) {
+      return !lock.startsWith(PREFIX) && !lock.startsWith(USER_PREFIX) &&
+          !lock.startsWith(MODULE_PREFIX);
+    }
+
+    @Override
+    public String toString() {
+      return Long.toString(thread);
+    }
+  }
 }
@@ -128,12 +128,12 @@ public abstract class Data {
   public abstract void close();
 
   /**
-   * Drops the specified index.
-   * @param type index to be dropped
-   * @param cmd calling command
+   * Creates the specified index.
+   * @param type index to be created
+   * @param proc calling process (may be {@code null})
    * @throws IOException I/O exception
    */
-  public abstract void createIndex(IndexType type, Command cmd) throws IOException;
+  public abstract void createIndex(IndexType type, Proc proc) throws IOException;
 
   /**
    * Drops the specified index.
@@ -516,18 +516,23 @@ public abstract class Data {
       } else {
         // update element name
         final IntList pres = new IntList();
-        // update text index
-        if(meta.updindex && meta.textindex) {
+        // update text and full-text index
+        final boolean text = meta.updindex && meta.textindex, ft = meta.updindex && meta.ftindex;
+        if(text || ft) {
           final int last = pre + sz;
           for(int curr = pre + attSize(pre, kind); curr < last; curr += size(curr, kind(curr))) {
             if(kind(curr) == TEXT) pres.add(curr);
           }
-          textIndex.delete(new ValueCache(pres, IndexType.TEXT, this));
+          if(text) textIndex.delete(new ValueCache(pres, IndexType.TEXT, this));
+          if(ft) ftIndex.delete(new ValueCache(pres, IndexType.FULLTEXT, this));
         }
         table.write1(pre, 3, uriId);
         final int nameId = elemNames.index(name, null, false);
         table.write2(nsPre, 1, (nsFlag || nsFlag(nsPre) ? 1 << 15 : 0) | nameId);
-        if(!pres.isEmpty()) textIndex.add(new ValueCache(pres, IndexType.TEXT, this));
+        if(!pres.isEmpty()) {
+          if(text) textIndex.add(new ValueCache(pres, IndexType.TEXT, this));
+          if(ft && meta.ftindex) ftIndex.add(new ValueCache(pres, IndexType.FULLTEXT, this));
+        }
       }
     }
   }
@@ -1053,6 +1058,7 @@ public abstract class Data {
       if(meta.textindex) textIndex.delete(new ValueCache(pre, size, IndexType.TEXT, this));
       if(meta.attrindex) attrIndex.delete(new ValueCache(pre, size, IndexType.ATTRIBUTE, this));
       if(meta.tokenindex) tokenIndex.delete(new ValueCache(pre, size, IndexType.TOKEN, this));
+      if(meta.ftindex) ftIndex.delete(new ValueCache(pre, size, IndexType.FULLTEXT, this));
       if(id != -1) idmap.delete(pre, id, -size);
     }
   }
@@ -1071,6 +1077,7 @@ public abstract class Data {
       if(meta.textindex) textIndex.add(new ValueCache(pre, size, IndexType.TEXT, this));
       if(meta.attrindex) attrIndex.add(new ValueCache(pre, size, IndexType.ATTRIBUTE, this));
       if(meta.tokenindex) tokenIndex.add(new ValueCache(pre, size, IndexType.TOKEN, this));
+      if(meta.ftindex) ftIndex.add(new ValueCache(pre, size, IndexType.FULLTEXT, this));
     }
   }
 
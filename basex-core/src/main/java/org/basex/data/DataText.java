@@ -12,9 +12,9 @@ public interface DataText {
   // META DATA ====================================================================================
 
   /** Database version; older version cannot open these instances. */
-  String STORAGE = "7.8";
+  String STORAGE = "8.5";
   /** Index version; older version cannot open indexes of these instances. */
-  String ISTORAGE = "7.8";
+  String ISTORAGE = "8.5";
 
   /** Database version. */
   String DBSTR = "STORAGE";
@@ -40,6 +40,8 @@ public interface DataText {
   String DBUPDIDX = "UPDINDEX";
   /** Automatic optimization. */
   String DBAUTOOPT = "AUTOOPT";
+  /** Text cache size. */
+  String DBTXTCACHE = "TXTCACHE";
   /** Text index. */
   String DBTXTIDX = "TXTINDEX";
   /** Attribute index. */
@@ -276,4 +278,17 @@ public interface DataText {
   byte[] TABLEURI = token("URI");
   /** Table kinds. */
   byte[][] TABLEKINDS = tokens("DOC ", "ELEM", "TEXT", "ATTR", "COMM", "PI  ");
+
+  /** File header. */
+  byte[] TABLEFILE = token("FILE");
+  /** Buffers header. */
+  byte[] TABLEBUFFERS = token("BUFFERS");
+  /** Hits header. */
+  byte[] TABLEHITS = token("HITS");
+  /** Misses header. */
+  byte[] TABLEMISSES = token("MISSES");
+  /** Entries header. */
+  byte[] TABLEENTRIES = token("ENTRIES");
+  /** Size header. */
+  byte[] TABLEBYTES = token("BYTES");
 }
@@ -16,6 +16,7 @@ import org.basex.index.path.*;
 import org.basex.index.value.*;
 import org.basex.io.*;
 import org.basex.io.in.DataInput;
+import org.basex.io.out.*;
 import org.basex.io.out.DataOutput;
 import org.basex.io.random.*;
 import org.basex.util.*;
@@ -31,7 +32,7 @@ import org.basex.util.*;
  */
 public final class DiskData extends Data {
   /** Text compressor. One instance per thread. */
-  private static final ThreadLocal<Compress> COMPRESS = new ThreadLocal<Compress>() {
+  static final ThreadLocal<Compress> COMPRESS = new ThreadLocal<Compress>() {
     @Override
     protected Compress initialValue() {
       return new Compress();
@@ -41,8 +42,16 @@ public final class DiskData extends Data {
   private DataAccess texts;
   /** Values access file. */
   private DataAccess values;
+  /** Cache for decompressed texts (can be {@code null}). */
+  private volatile TextCache cache;
   /** Closed flag. */
   private boolean closed;
+  /** Snapshot of the last committed database state (can be {@code null}). */
+  private SnapshotData snapshot;
+  /** Indicates if snapshots have been requested. */
+  private boolean versioned;
+  /** Indicates if an update is running. */
+  private boolean updating;
 
   /**
    * Default constructor, called from {@link Open#open}.
@@ -54,17 +63,7 @@ public final class DiskData extends Data {
 
     try(final DataInput in = new DataInput(meta.dbfile(DATAINF))) {
       meta.read(in);
-      while(true) {
-        final String k = string(in.readToken());
-        if(k.isEmpty()) break;
-        switch(k) {
-          case DBTAGS: elemNames = new Names(in, meta); break;
-          case DBATTS: attrNames = new Names(in, meta); break;
-          case DBPATH: paths = new PathIndex(this, in); break;
-          case DBNS:   nspaces = new Namespaces(in); break;
-          case DBDOCS: resources.read(in); break;
-        }
-      }
+      read(this, in);
     }
 
     // open data and indexes
@@ -79,7 +78,9 @@ public final class DiskData extends Data {
       if(meta.attrindex) attrIndex = new DiskValues(this, IndexType.ATTRIBUTE);
       if(meta.tokenindex) tokenIndex = new DiskValues(this, IndexType.TOKEN);
     }
-    if(meta.ftindex) ftIndex = new FTIndex(this);
+    if(meta.ftindex) {
+      ftIndex = UpdatableFTIndex.updatable(this) ? new UpdatableFTIndex(this) : new FTIndex(this);
+    }
   }
 
   /**
@@ -104,14 +105,42 @@ public final class DiskData extends Data {
     init();
   }
 
+  /**
+   * Reads the names, paths, namespaces and resources of a database.
+   * @param data data reference
+   * @param in input stream
+   * @throws IOException I/O exception
+   */
+  static void read(final Data data, final DataInput in) throws IOException {
+    while(true) {
+      final String k = string(in.readToken());
+      if(k.isEmpty()) break;
+      switch(k) {
+        case DBTAGS: data.elemNames = new Names(in, data.meta); break;
+        case DBATTS: data.attrNames = new Names(in, data.meta); break;
+        case DBPATH: data.paths = new PathIndex(data, in); break;
+        case DBNS:   data.nspaces = new Namespaces(in); break;
+        case DBDOCS: data.resources.read(in); break;
+      }
+    }
+  }
+
   /**
    * Initializes the database.
    * @throws IOException I/O exception
    */
   private void init() throws IOException {
     table = new TableDiskAccess(meta, false);
-    texts = new DataAccess(meta.dbfile(DATATXT));
-    values = new DataAccess(meta.dbfile(DATAATV));
+    texts = new DataAccess(meta.dbfile(DATATXT), true);
+    values = new DataAccess(meta.dbfile(DATAATV), true);
+  }
+
+  /**
+   * Returns the buffer managers of the table, text and attribute value files.
+   * @return buffer managers
+   */
+  public Buffers[] buffers() {
+    return new Buffers[] { ((TableDiskAccess) table).buffers(), texts.buffers(), values.buffers() };
   }
 
   /**
@@ -122,27 +151,96 @@ public final class DiskData extends Data {
     if(!meta.dirty) return;
 
     try(final DataOutput out = new DataOutput(meta.dbfile(DATAINF))) {
-      meta.write(out);
-      out.writeToken(token(DBTAGS));
-      elemNames.write(out);
-      out.writeToken(token(DBATTS));
-      attrNames.write(out);
-      out.writeToken(token(DBPATH));
-      paths.write(out);
-      out.writeToken(token(DBNS));
-      nspaces.write(out);
-      out.writeToken(token(DBDOCS));
-      resources.write(out);
-      out.write(0);
+      write(out);
     }
     if(meta.updindex) idmap.write(meta.dbfile(DATAIDP));
     meta.dirty = false;
   }
 
+  /**
+   * Writes the meta data, names, paths, namespaces and resources to the specified stream.
+   * @param out output stream
+   * @throws IOException I/O exception
+   */
+  private void write(final DataOutput out) throws IOException {
+    meta.write(out);
+    out.writeToken(token(DBTAGS));
+    elemNames.write(out);
+    out.writeToken(token(DBATTS));
+    attrNames.write(out);
+    out.writeToken(token(DBPATH));
+    paths.write(out);
+    out.writeToken(token(DBNS));
+    nspaces.write(out);
+    out.writeToken(token(DBDOCS));
+    resources.write(out);
+    out.write(0);
+  }
+
+  /**
+   * Returns a read-only snapshot of the last committed database state. If an update is
+   * running, the snapshot reflects the state before the update was started. Readers of the
+   * snapshot do not need to wait for writers, and vice versa: the original contents of
+   * modified table pages and text blocks are preserved until the snapshot is closed.
+   * Index structures are not included in the snapshot.
+   *
+   * A snapshot can only be created for an update that was started after the first snapshot
+   * had been requested. Otherwise, the running update will be waited for.
+   * @return snapshot, which must be closed via {@link SnapshotData#close()}
+   * @throws IOException I/O exception
+   */
+  public synchronized SnapshotData snapshot() throws IOException {
+    versioned = true;
+    while(updating && snapshot == null) {
+      try {
+        wait();
+      } catch(final InterruptedException ex) {
+        throw new BaseXException(ex);
+      }
+    }
+    if(snapshot == null) snapshot = createSnapshot();
+    snapshot.pins++;
+    return snapshot;
+  }
+
+  /**
+   * Releases a snapshot.
+   * @param sd snapshot
+   */
+  synchronized void release(final SnapshotData sd) {
+    if(--sd.pins == 0 && sd != snapshot) sd.release();
+  }
+
+  /**
+   * Creates a snapshot of the current database state.
+   * @return snapshot
+   * @throws IOException I/O exception
+   */
+  private SnapshotData createSnapshot() throws IOException {
+    final ArrayOutput ao = new ArrayOutput();
+    try(final DataOutput out = new DataOutput(ao)) {
+      write(out);
+    }
+    try(final DataInput in = new DataInput(new IOContent(ao.finish()))) {
+      return new SnapshotData(this, in, (TableDiskAccess) table, texts, values);
+    }
+  }
+
+  /**
+   * Discards the snapshot of the last committed database state.
+   */
+  private void discardSnapshot() {
+    if(snapshot != null) {
+      if(snapshot.pins == 0) snapshot.release();
+      snapshot = null;
+    }
+  }
+
   @Override
   public synchronized void close() {
     if(closed) return;
     closed = true;
+    discardSnapshot();
     try {
       write();
       table.close();
@@ -176,7 +274,7 @@ public final class DiskData extends Data {
   }
 
   @Override
-  public void createIndex(final IndexType type, final Command cmd) throws IOException {
+  public void createIndex(final IndexType type, final Proc proc) throws IOException {
     // close existing index
     close(type);
     final IndexBuilder ib;
@@ -185,7 +283,7 @@ public final class DiskData extends Data {
       case FULLTEXT: ib = new FTBuilder(this); break;
       default: throw Util.notExpected();
     }
-    if(cmd != null) cmd.proc(ib);
+    if(proc != null) proc.proc(ib);
     set(type, ib.build());
   }
 
@@ -220,10 +318,22 @@ public final class DiskData extends Data {
       if(uf.exists()) throw new BaseXException(DB_UPDATED_X, meta.name);
       if(!uf.touch()) throw Util.notExpected("%: could not create lock file.", meta.name);
     }
+    synchronized(this) {
+      // preserve committed state for snapshots that will be requested while the update is running
+      if(versioned && snapshot == null) snapshot = createSnapshot();
+      updating = true;
+    }
+    // count all write operations, including changes of options and indexes
+    meta.updates++;
   }
 
   @Override
   public synchronized void finishUpdate(final MainOptions opts) {
+    // snapshot of the previous state will be discarded as soon as it is not used anymore
+    updating = false;
+    discardSnapshot();
+    notifyAll();
+
     // remove updating file
     final boolean auto = opts.get(MainOptions.AUTOFLUSH);
     if(auto) {
@@ -249,6 +359,7 @@ public final class DiskData extends Data {
         values.flush();
         if(textIndex != null) textIndex.flush();
         if(attrIndex != null) attrIndex.flush();
+        if(ftIndex != null) ftIndex.flush();
       }
     } catch(final IOException ex) {
       Util.stack(ex);
@@ -278,9 +389,10 @@ public final class DiskData extends Data {
     final long o = textRef(pre);
     if(number(o)) return numDigits((int) o);
     final DataAccess da = text ? texts : values;
-    final int l = da.readNum(o & IO.OFFCOMP - 1);
+    final long p = o & IO.OFFCOMP - 1;
+    final int l = da.readNum(p);
     // compressed: next number contains number of compressed bytes
-    return compressed(o) ? da.readNum() : l;
+    return compressed(o) ? da.readNum(p + Num.length(l)) : l;
   }
 
   /**
@@ -290,8 +402,52 @@ public final class DiskData extends Data {
    * @return text
    */
   private byte[] txt(final long off, final boolean text) {
+    final TextCache tc = cache();
+    final long key = key(off, text);
+    if(tc != null) {
+      final byte[] cached = tc.get(key);
+      if(cached != null) return cached;
+    }
     final byte[] txt = (text ? texts : values).readToken(off & IO.OFFCOMP - 1);
-    return compressed(off) ? COMPRESS.get().unpack(txt) : txt;
+    final byte[] value = compressed(off) ? COMPRESS.get().unpack(txt) : txt;
+    if(tc != null) tc.add(key, value);
+    return value;
+  }
+
+  /**
+   * Returns the text cache. Creates a new cache if the cache size has been changed.
+   * @return text cache or {@code null}, if texts are not cached
+   */
+  public TextCache cache() {
+    final int size = meta.textcache;
+    if(size <= 0) return null;
+    TextCache tc = cache;
+    if(tc == null || tc.size != size) {
+      tc = new TextCache(size);
+      cache = tc;
+    }
+    return tc;
+  }
+
+  /**
+   * Removes a text from the cache.
+   * @param off text offset
+   * @param text text or attribute flag
+   */
+  private void uncache(final long off, final boolean text) {
+    final TextCache tc = cache;
+    if(tc != null) tc.delete(key(off, text));
+  }
+
+  /**
+   * Returns the cache key for the specified text offset.
+   * @param off text offset
+   * @param text text or attribute flag
+   * @return key
+   */
+  private static long key(final long off, final boolean text) {
+    final long o = off & IO.OFFCOMP - 1;
+    return text ? o : -o - 1;
   }
 
   /**
@@ -299,7 +455,7 @@ public final class DiskData extends Data {
    * @param offset offset
    * @return result of check
    */
-  private static boolean number(final long offset) {
+  static boolean number(final long offset) {
     return (offset & IO.OFFNUM) != 0;
   }
 
@@ -308,7 +464,7 @@ public final class DiskData extends Data {
    * @param offset offset
    * @return result of check
    */
-  private static boolean compressed(final long offset) {
+  static boolean compressed(final long offset) {
     return (offset & IO.OFFCOMP) != 0;
   }
 
@@ -324,7 +480,10 @@ public final class DiskData extends Data {
     // old entry (offset or value)
     final long old = textRef(pre);
     // fill unused space with zero-bytes
-    if(!number(old)) (text ? texts : values).free(old & IO.OFFCOMP - 1, 0);
+    if(!number(old)) {
+      uncache(old, text);
+      (text ? texts : values).free(old & IO.OFFCOMP - 1, 0);
+    }
   }
 
   @Override
@@ -333,9 +492,11 @@ public final class DiskData extends Data {
     indexDelete(pre, -1, 1);
 
     // reference to heap file
-    final DataAccess store = kind == ATTR ? values : texts;
+    final boolean text = kind != ATTR;
+    final DataAccess store = text ? texts : values;
     // old entry (offset or value)
     final long oldRef = textRef(pre);
+    if(!number(oldRef)) uncache(oldRef, text);
 
     // check if new entry is numeric and can be inlined
     final long v = toSimpleInt(value);
@@ -359,6 +520,7 @@ public final class DiskData extends Data {
         off = store.free(oldRef & IO.OFFCOMP - 1, vl + Num.length(vl));
       }
 
+      uncache(off, text);
       store.writeToken(off, val);
       textRef(pre, val == value ? off : off | IO.OFFCOMP);
     }
@@ -377,6 +539,7 @@ public final class DiskData extends Data {
     final DataAccess store = text ? texts : values;
     final long off = store.length();
     final byte[] val = COMPRESS.get().pack(value);
+    uncache(off, text);
     store.writeToken(off, val);
     return val == value ? off : off | IO.OFFCOMP;
   }
@@ -60,7 +60,8 @@ public final class MemData extends Data {
       final MainOptions options) {
 
     super(new MetaData(options));
-    table = new TableMemAccess(meta);
+    table = options.get(MainOptions.OFFHEAP) ? new TableOffHeapAccess(meta) :
+      new TableMemAccess(meta);
     if(meta.updindex) idmap = new IdPreMap(meta.lastid);
     this.texts = texts == null ? new TokenSet() : texts;
     this.values = values == null ? new TokenSet() : values;
@@ -77,7 +78,7 @@ public final class MemData extends Data {
   public void close() { }
 
   @Override
-  public void createIndex(final IndexType type, final Command cmd) throws IOException {
+  public void createIndex(final IndexType type, final Proc proc) throws IOException {
     final IndexBuilder ib;
     switch(type) {
       case TEXT: case ATTRIBUTE: case TOKEN:
@@ -87,7 +88,7 @@ public final class MemData extends Data {
       default:
         throw Util.notExpected();
     }
-    if(cmd != null) cmd.proc(ib);
+    if(proc != null) proc.proc(ib);
     set(type, ib.build());
   }
 
@@ -53,6 +53,8 @@ public final class MetaData {
   public boolean updindex;
   /** Flag for automatic index updating. */
   public boolean autooptimize;
+  /** Size of the text cache (KB). */
+  public int textcache;
 
   /** Indicates if the text index is to be recreated. */
   public boolean createtext;
@@ -86,6 +88,12 @@ public final class MetaData {
   public int maxlen;
   /** Split size for creating indexes. */
   public int splitsize;
+  /** Number of threads for creating indexes (not stored on disk). */
+  public int indexthreads;
+  /** Pool for creating indexes in parallel (not stored on disk). */
+  public IndexPool indexpool;
+  /** Number of write operations since the database was opened (not stored on disk). */
+  public int updates;
 
   /** Language of full-text search index. */
   public Language language;
@@ -136,6 +144,7 @@ public final class MetaData {
     casesens = options.get(MainOptions.CASESENS);
     updindex = options.get(MainOptions.UPDINDEX);
     autooptimize = options.get(MainOptions.AUTOOPTIMIZE);
+    textcache = options.get(MainOptions.TEXTCACHE);
     maxlen = options.get(MainOptions.MAXLEN);
     maxcats = options.get(MainOptions.MAXCATS);
     stopwords = options.get(MainOptions.STOPWORDS);
@@ -145,6 +154,18 @@ public final class MetaData {
     tokeninclude = options.get(MainOptions.TOKENINCLUDE);
     ftinclude = options.get(MainOptions.FTINCLUDE);
     splitsize = options.get(MainOptions.SPLITSIZE);
+    indexthreads = options.get(MainOptions.INDEXTHREADS);
+  }
+
+  /**
+   * Constructor for a database snapshot. The remaining meta data is assigned via
+   * {@link #read(DataInput)}.
+   * @param meta meta data of the database
+   */
+  MetaData(final MetaData meta) {
+    path = meta.path;
+    name = meta.name;
+    language = meta.language;
   }
 
   // STATIC METHODS ===============================================================================
@@ -378,6 +399,7 @@ public final class MetaData {
         else if(k.equals(DBCHOP))     chop         = toBool(v);
         else if(k.equals(DBUPDIDX))   updindex     = toBool(v);
         else if(k.equals(DBAUTOOPT))  autooptimize = toBool(v);
+        else if(k.equals(DBTXTCACHE)) textcache    = toInt(v);
         else if(k.equals(DBTXTIDX))   textindex    = toBool(v);
         else if(k.equals(DBATVIDX))   attrindex    = toBool(v);
         else if(k.equals(DBTOKIDX))   tokenindex   = toBool(v);
@@ -427,6 +449,7 @@ public final class MetaData {
     writeInfo(out, DBCHOP,     chop);
     writeInfo(out, DBUPDIDX,   updindex);
     writeInfo(out, DBAUTOOPT,  autooptimize);
+    writeInfo(out, DBTXTCACHE, textcache);
     writeInfo(out, DBTXTIDX,   textindex);
     writeInfo(out, DBATVIDX,   attrindex);
     writeInfo(out, DBTOKIDX,   tokenindex);
@@ -460,12 +483,13 @@ public final class MetaData {
     time = System.currentTimeMillis();
     uptodate = false;
     dirty = true;
+    updates++;
     if(!updindex) {
       textindex = false;
       attrindex = false;
       tokenindex = false;
+      ftindex = false;
     }
-    ftindex = false;
   }
 
   /**
@@ -0,0 +1,178 @@
+package org.basex.data;
+
+import static org.basex.util.Token.*;
+
+import java.io.*;
+
+import org.basex.core.*;
+import org.basex.index.*;
+import org.basex.io.*;
+import org.basex.io.in.DataInput;
+import org.basex.io.random.*;
+import org.basex.util.*;
+
+/**
+ * This class provides read-only access to a snapshot of a {@link DiskData} instance,
+ * which is created via {@link DiskData#snapshot()}. The snapshot reflects the last committed
+ * state of the database and remains unchanged if the database is updated.
+ *
+ * The table and the text and attribute value files are versioned page-wise (copy-on-write),
+ * whereas names, paths, namespaces and resources are copied. As index structures are not
+ * versioned, they will not be available in the snapshot: queries that access the index
+ * structures of a database via functions lock and open the original database instead.
+ * The ID/PRE mapping is copied, as it only grows with the number of updates.
+ *
+ * @author BaseX Team 2005-16, BSD License
+ * @author Christian Gruen
+ */
+public final class SnapshotData extends Data {
+  /** Original database. */
+  private final DiskData data;
+  /** Texts. */
+  private final AccessSnapshot texts;
+  /** Attribute values. */
+  private final AccessSnapshot values;
+  /** Number of pins (guarded by the monitor of the original database). */
+  int pins;
+
+  /**
+   * Constructor.
+   * @param data original database
+   * @param in input stream with meta data, names, paths, namespaces and resources
+   * @param table table of the original database
+   * @param texts texts of the original database
+   * @param values attribute values of the original database
+   * @throws IOException I/O exception
+   */
+  SnapshotData(final DiskData data, final DataInput in, final TableDiskAccess table,
+      final DataAccess texts, final DataAccess values) throws IOException {
+    super(new MetaData(data.meta));
+    this.data = data;
+    meta.read(in);
+    DiskData.read(this, in);
+
+    // index structures are not versioned
+    meta.textindex = false;
+    meta.attrindex = false;
+    meta.tokenindex = false;
+    meta.ftindex = false;
+    meta.corrupt = false;
+    if(meta.updindex) idmap = new IdPreMap(data.idmap);
+
+    this.table = table.snapshot(meta);
+    this.texts = texts.snapshot();
+    this.values = values.snapshot();
+  }
+
+  /**
+   * Returns the original database.
+   * @return original database
+   */
+  public DiskData original() {
+    return data;
+  }
+
+  /**
+   * Discards the preserved pages of the snapshot.
+   */
+  void release() {
+    try {
+      table.close();
+    } catch(final IOException ex) {
+      Util.stack(ex);
+    }
+    texts.close();
+    values.close();
+  }
+
+  @Override
+  public void unpin() { }
+
+  @Override
+  public void close() {
+    data.release(this);
+  }
+
+  @Override
+  public void createIndex(final IndexType type, final Proc proc) {
+    throw Util.notExpected();
+  }
+
+  @Override
+  public void dropIndex(final IndexType type) {
+    throw Util.notExpected();
+  }
+
+  @Override
+  public void startUpdate(final MainOptions opts) {
+    throw Util.notExpected();
+  }
+
+  @Override
+  public void finishUpdate(final MainOptions opts) {
+    throw Util.notExpected();
+  }
+
+  @Override
+  public void flush(final boolean all) { }
+
+  @Override
+  public byte[] text(final int pre, final boolean text) {
+    final long o = textRef(pre);
+    return DiskData.number(o) ? token((int) o) : txt(o, text);
+  }
+
+  @Override
+  public long textItr(final int pre, final boolean text) {
+    final long o = textRef(pre);
+    return DiskData.number(o) ? o & IO.OFFNUM - 1 : toLong(txt(o, text));
+  }
+
+  @Override
+  public double textDbl(final int pre, final boolean text) {
+    final long o = textRef(pre);
+    return DiskData.number(o) ? o & IO.OFFNUM - 1 : toDouble(txt(o, text));
+  }
+
+  @Override
+  public int textLen(final int pre, final boolean text) {
+    final long o = textRef(pre);
+    if(DiskData.number(o)) return numDigits((int) o);
+    final AccessSnapshot as = text ? texts : values;
+    final long p = o & IO.OFFCOMP - 1;
+    final int l = as.readNum(p);
+    // compressed: next number contains number of compressed bytes
+    return DiskData.compressed(o) ? as.readNum(p + Num.length(l)) : l;
+  }
+
+  /**
+   * Returns a text (text, comment, pi) or attribute value.
+   * @param off text offset
+   * @param text text or attribute flag
+   * @return text
+   */
+  private byte[] txt(final long off, final boolean text) {
+    final byte[] txt = (text ? texts : values).readToken(off & IO.OFFCOMP - 1);
+    return DiskData.compressed(off) ? DiskData.COMPRESS.get().unpack(txt) : txt;
+  }
+
+  @Override
+  public boolean inMemory() {
+    return false;
+  }
+
+  @Override
+  protected void delete(final int pre, final boolean text) {
+    throw Util.notExpected();
+  }
+
+  @Override
+  protected void updateText(final int pre, final byte[] value, final int kind) {
+    throw Util.notExpected();
+  }
+
+  @Override
+  protected long textRef(final byte[] value, final boolean text) {
+    throw Util.notExpected();
+  }
+}
@@ -0,0 +1,205 @@
+package org.basex.data;
+
+import java.util.*;
+import java.util.Map.Entry;
+
+/**
+ * This class caches decompressed texts and attribute values of a disk database.
+ * Entries are referenced by their file offsets. The cache is divided into segments,
+ * which are locked separately. If a segment exceeds its maximum size, the least recently
+ * used entries will be removed.
+ *
+ * @author BaseX Team 2005-16, BSD License
+ * @author Christian Gruen
+ */
+public final class TextCache {
+  /** Number of segments (must be 1 << n). */
+  private static final int SEGMENTS = 1 << 4;
+  /** Estimated memory consumption of a cache entry, excluding the cached value. */
+  private static final int ENTRY = 64;
+
+  /** Segments. */
+  private final Segment[] segments = new Segment[SEGMENTS];
+  /** Maximum size of the cache (KB). */
+  final int size;
+
+  /**
+   * Constructor.
+   * @param size maximum size of the cache (KB)
+   */
+  TextCache(final int size) {
+    this.size = size;
+    final long max = ((long) size << 10) / SEGMENTS;
+    for(int s = 0; s < SEGMENTS; s++) segments[s] = new Segment(max);
+  }
+
+  /**
+   * Returns a cached value.
+   * @param key key
+   * @return value or {@code null}
+   */
+  byte[] get(final long key) {
+    return segment(key).get(key);
+  }
+
+  /**
+   * Caches a value.
+   * @param key key
+   * @param value value
+   */
+  void add(final long key, final byte[] value) {
+    segment(key).add(key, value);
+  }
+
+  /**
+   * Removes a value from the cache.
+   * @param key key
+   */
+  void delete(final long key) {
+    segment(key).delete(key);
+  }
+
+  /**
+   * Returns the number of cached entries.
+   * @return number of entries
+   */
+  public int entries() {
+    int e = 0;
+    for(final Segment s : segments) e += s.entries();
+    return e;
+  }
+
+  /**
+   * Returns the estimated memory consumption of the cached entries.
+   * @return number of bytes
+   */
+  public long bytes() {
+    long b = 0;
+    for(final Segment s : segments) b += s.bytes();
+    return b;
+  }
+
+  /**
+   * Returns the number of cache hits.
+   * @return number of hits
+   */
+  public long hits() {
+    long h = 0;
+    for(final Segment s : segments) h += s.hits();
+    return h;
+  }
+
+  /**
+   * Returns the number of cache misses.
+   * @return number of misses
+   */
+  public long misses() {
+    long m = 0;
+    for(final Segment s : segments) m += s.misses();
+    return m;
+  }
+
+  /**
+   * Returns the segment for the specified key.
+   * @param key key
+   * @return segment
+   */
+  private Segment segment(final long key) {
+    final int h = (int) (key ^ key >>> 32);
+    return segments[(h ^ h >>> 7 ^ h >>> 16) & SEGMENTS - 1];
+  }
+
+  /** Cache segment. */
+  private static final class Segment {
+    /** Cached entries, in access order. */
+    private final LinkedHashMap<Long, byte[]> map = new LinkedHashMap<>(16, 0.75f, true);
+    /** Maximum size of the segment. */
+    private final long max;
+    /** Current size of the segment. */
+    private long bytes;
+    /** Number of hits. */
+    private long hits;
+    /** Number of misses. */
+    private long misses;
+
+    /**
+     * Constructor.
+     * @param max maximum size of the segment
+     */
+    Segment(final long max) {
+      this.max = max;
+    }
+
+    /**
+     * Returns a cached value.
+     * @param key key
+     * @return value or {@code null}
+     */
+    synchronized byte[] get(final long key) {
+      final byte[] value = map.get(key);
+      if(value != null) hits++;
+      else misses++;
+      return value;
+    }
+
+    /**
+     * Caches a value. Values that would occupy a large part of the segment are ignored.
+     * @param key key
+     * @param value value
+     */
+    synchronized void add(final long key, final byte[] value) {
+      final long b = value.length + ENTRY;
+      if(b > max >>> 3) return;
+
+      final byte[] old = map.put(key, value);
+      bytes += old != null ? value.length - old.length : b;
+      // remove least recently used entries
+      final Iterator<Entry<Long, byte[]>> it = map.entrySet().iterator();
+      while(bytes > max && it.hasNext()) {
+        bytes -= it.next().getValue().length + ENTRY;
+        it.remove();
+      }
+    }
+
+    /**
+     * Removes a value from the cache.
+     * @param key key
+     */
+    synchronized void delete(final long key) {
+      final byte[] old = map.remove(key);
+      if(old != null) bytes -= old.length + ENTRY;
+    }
+
+    /**
+     * Returns the number of cached entries.
+     * @return number of entries
+     */
+    synchronized int entries() {
+      return map.size();
+    }
+
+    /**
+     * Returns the estimated memory consumption of the cached entries.
+     * @return number of bytes
+     */
+    synchronized long bytes() {
+      return bytes;
+    }
+
+    /**
+     * Returns the number of hits.
+     * @return number of hits
+     */
+    synchronized long hits() {
+      return hits;
+    }
+
+    /**
+     * Returns the number of misses.
+     * @return number of misses
+     */
+    synchronized long misses() {
+      return misses;
+    }
+  }
+}
@@ -47,6 +47,21 @@ public class IdPreMap {
     oids = new int[1];
   }
 
+  /**
+   * Constructs a copy of the specified map.
+   * @param map map to be copied
+   */
+  public IdPreMap(final IdPreMap map) {
+    baseid = map.baseid;
+    rows = map.rows;
+    final int s = Math.max(1, rows);
+    pres = Arrays.copyOf(map.pres, s);
+    fids = Arrays.copyOf(map.fids, s);
+    nids = Arrays.copyOf(map.nids, s);
+    incs = Arrays.copyOf(map.incs, s);
+    oids = Arrays.copyOf(map.oids, s);
+  }
+
   /**
    * Constructs a map by reading it from a file.
    * @param f file to read from
@@ -28,6 +28,8 @@ public abstract class IndexBuilder extends Proc {
   protected final IndexType type;
   /** Text node flag. */
   protected final boolean text;
+  /** Pool for building indexes in parallel (can be {@code null}). */
+  protected final IndexPool pool;
 
   /** Number of index operations to perform before writing a partial index to disk. */
   private final int splitSize;
@@ -45,6 +47,10 @@ public abstract class IndexBuilder extends Proc {
   protected int splits;
   /** Threshold for freeing memory when estimating main memory consumption. */
   private int gcCount;
+  /** Number of index operations at the time the index structures were last written. */
+  private long written;
+  /** Number of buffered index operations that have been registered in the pool. */
+  private long buffered;
 
   /**
    * Constructor.
@@ -58,6 +64,7 @@ public abstract class IndexBuilder extends Proc {
     size = data.meta.size;
     includeNames = new IndexNames(type, data);
     text = type == IndexType.TEXT || type == IndexType.FULLTEXT;
+    pool = data.meta.indexpool;
 
     // run garbage collection if memory maximum is already reached
     if(Performance.memory() >= maxMem) clean();
@@ -77,6 +84,7 @@ public abstract class IndexBuilder extends Proc {
   @SuppressWarnings("unused")
   protected void check() throws IOException {
     checkStop();
+    if(pool != null) pool.checkStop();
     if(Prop.debug && (pre & 0x1FFFFF) == 0) Util.err(".");
   }
 
@@ -95,13 +103,19 @@ public abstract class IndexBuilder extends Proc {
    * @throws IOException I/O Exception
    */
   protected final boolean splitRequired() throws IOException {
+    // index operations since the last split, and number of builders that share the memory
+    final long ops = count - written;
+    final int builders = pool != null ? pool.buffer(ops - buffered) : 1;
+    buffered = ops;
+
     // checks if a fixed split size has been specified
-    final boolean split;
+    boolean split;
     if(splitSize > 0) {
-      split = count >= (splits + 1L) * splitSize;
+      split = ops >= Math.max(1, splitSize / builders);
     } else {
       // if not, estimate how much main memory is left
-      split = Performance.memory() >= maxMem;
+      final long mem = Performance.memory();
+      split = mem >= maxMem;
       // stop operation if index splitting degenerates
       int gc = gcCount;
       if(split) {
@@ -111,11 +125,22 @@ public abstract class IndexBuilder extends Proc {
         gc = Math.max(-1, gc - 1);
       }
       gcCount = gc;
+      // check if the builder consumes more than its share of the memory
+      if(!split && builders > 1) split = pool.exceeds(mem, maxMem, ops);
     }
     if(split && Prop.debug) Util.err("|");
     return split;
   }
 
+  /**
+   * Registers that all buffered index operations have been written to disk.
+   */
+  protected final void written() {
+    written = count;
+    if(pool != null) pool.buffer(-buffered);
+    buffered = 0;
+  }
+
   /**
    * Performs memory cleanup after writing partial memory if necessary.
    */
@@ -0,0 +1,143 @@
+package org.basex.index;
+
+import java.io.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import org.basex.core.*;
+import org.basex.util.*;
+
+/**
+ * Pool of threads for building index structures in parallel. A single pool is shared by all
+ * indexes and table partitions that are built by a command: the number of concurrently running
+ * tasks never exceeds the number of threads, and the main memory that is available for
+ * building indexes is divided among the index builders that are currently running.
+ *
+ * @author BaseX Team 2005-16, BSD License
+ * @author Christian Gruen
+ */
+public final class IndexPool {
+  /** Number of threads (including the calling thread). */
+  public final int threads;
+
+  /** Additional threads. */
+  private final ExecutorService pool;
+  /** Calling process (can be {@code null}). */
+  private final Proc proc;
+  /** Memory consumption at the time the pool was created. */
+  private final long memory = Performance.memory();
+  /** Number of tasks that are currently running. */
+  private final AtomicInteger active = new AtomicInteger();
+  /** Number of index operations that are currently buffered in main memory. */
+  private final AtomicLong buffered = new AtomicLong();
+
+  /**
+   * Constructor.
+   * @param threads number of threads
+   * @param proc calling process (can be {@code null})
+   */
+  public IndexPool(final int threads, final Proc proc) {
+    this.threads = threads;
+    this.proc = proc;
+    pool = Executors.newFixedThreadPool(threads - 1);
+  }
+
+  /**
+   * Runs the specified tasks and waits until all of them have been finished. Tasks are run by
+   * the calling thread and by idle threads of the pool. As the calling thread never waits for
+   * tasks that have not been started yet, tasks can run other tasks without blocking the pool.
+   * If a task fails, all other tasks will be stopped, and the first error will be thrown.
+   * @param <T> task type
+   * @param tasks tasks
+   * @throws IOException I/O exception
+   */
+  public <T extends Proc & Callable<Void>> void run(final T[] tasks) throws IOException {
+    final int ts = tasks.length;
+    final AtomicInteger next = new AtomicInteger();
+    final AtomicReference<Throwable> error = new AtomicReference<>();
+    final CountDownLatch finished = new CountDownLatch(ts);
+    final Runnable worker = new Runnable() {
+      @Override
+      public void run() {
+        for(int t; (t = next.getAndIncrement()) < ts;) {
+          active.incrementAndGet();
+          try {
+            tasks[t].call();
+          } catch(final Throwable ex) {
+            if(error.compareAndSet(null, ex)) stop(tasks);
+          } finally {
+            active.decrementAndGet();
+            finished.countDown();
+          }
+        }
+      }
+    };
+    for(int t = Math.min(ts, threads) - 1; t > 0; t--) pool.execute(worker);
+    worker.run();
+
+    // wait for the tasks that have been started by other threads
+    boolean interrupted = false;
+    while(true) {
+      try {
+        finished.await();
+        break;
+      } catch(final InterruptedException ex) {
+        interrupted = true;
+        stop(tasks);
+      }
+    }
+    if(interrupted) Thread.currentThread().interrupt();
+
+    final Throwable ex = error.get();
+    if(ex instanceof IOException) throw (IOException) ex;
+    if(ex instanceof RuntimeException) throw (RuntimeException) ex;
+    if(ex instanceof Error) throw (Error) ex;
+    if(ex != null) throw Util.notExpected(ex);
+  }
+
+  /**
+   * Checks if the calling process was interrupted.
+   */
+  public void checkStop() {
+    if(proc != null) proc.checkStop();
+  }
+
+  /**
+   * Shuts down the pool.
+   */
+  public void close() {
+    pool.shutdown();
+  }
+
+  /**
+   * Registers a change in the number of index operations that are buffered by an index builder.
+   * @param ops difference
+   * @return number of index builders that are currently running (at least {@code 1})
+   */
+  int buffer(final long ops) {
+    buffered.addAndGet(ops);
+    return Math.max(1, active.get());
+  }
+
+  /**
+   * Checks if an index builder consumes more than its share of the available main memory.
+   * The consumption of a builder is estimated by its share of all buffered index operations.
+   * @param mem current memory consumption
+   * @param max maximum memory consumption
+   * @param ops index operations buffered by the builder
+   * @return result of check
+   */
+  boolean exceeds(final long mem, final long max, final long ops) {
+    final long total = buffered.get();
+    return total > 0 && (double) (mem - memory) * ops / total >=
+        (double) (max - memory) / Math.max(1, active.get());
+  }
+
+  /**
+   * Stops all tasks.
+   * @param tasks tasks
+   */
+  private static void stop(final Proc[] tasks) {
+    for(final Proc task : tasks) task.stop();
+  }
+}
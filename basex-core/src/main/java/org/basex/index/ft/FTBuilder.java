@@ -38,13 +38,7 @@ public final class FTBuilder extends IndexBuilder {
     final MetaData meta = data.meta;
     tree = new FTIndexTrees(data.meta.maxlen);
 
-    final FTOpt fto = new FTOpt();
-    fto.set(FTFlag.DC, meta.diacritics);
-    fto.set(FTFlag.ST, meta.stemming);
-    fto.cs = meta.casesens ? FTCase.SENSITIVE : FTCase.INSENSITIVE;
-    fto.sw = new StopWords(data, meta.stopwords);
-    fto.ln = data.meta.language;
-
+    final FTOpt fto = options(meta, new StopWords(data, meta.stopwords));
     if(!Tokenizer.supportFor(fto.ln))
       throw new BaseXException(NO_TOKENIZER_X, fto.ln);
     if(meta.stemming && !Stemmer.supportFor(fto.ln))
@@ -53,10 +47,28 @@ public final class FTBuilder extends IndexBuilder {
     lexer = new FTLexer(fto);
   }
 
+  /**
+   * Returns the full-text options of a database.
+   * @param meta meta data
+   * @param sw stop words
+   * @return options
+   */
+  static FTOpt options(final MetaData meta, final StopWords sw) {
+    final FTOpt fto = new FTOpt();
+    fto.set(FTFlag.DC, meta.diacritics);
+    fto.set(FTFlag.ST, meta.stemming);
+    fto.cs = meta.casesens ? FTCase.SENSITIVE : FTCase.INSENSITIVE;
+    fto.sw = sw;
+    fto.ln = meta.language;
+    return fto;
+  }
+
   @Override
   public FTIndex build() throws IOException {
     Util.debug(det());
 
+    // node ids are indexed if the index is updatable
+    final boolean updindex = data.meta.updindex;
     for(pre = 0; pre < size; ++pre) {
       if((pre & 0x0FFF) == 0) check();
       if(!indexEntry()) continue;
@@ -64,6 +76,7 @@ public final class FTBuilder extends IndexBuilder {
       // current lexer position
       final StopWords sw = lexer.ftOpt().sw;
       lexer.init(data.text(pre, true));
+      final int id = updindex ? data.id(pre) : pre;
       int pos = -1;
       while(lexer.hasNext()) {
         final byte[] tok = lexer.nextToken();
@@ -75,7 +88,7 @@ public final class FTBuilder extends IndexBuilder {
             writeIndex(true);
             clean();
           }
-          tree.index(tok, pre, pos, splits);
+          tree.index(tok, id, pos, splits);
           count++;
         }
       }
@@ -85,7 +98,13 @@ public final class FTBuilder extends IndexBuilder {
     write(splits > 0);
 
     finishIndex();
-    return new FTIndex(data);
+    if(!updindex) return new FTIndex(data);
+
+    // create empty update file
+    data.meta.dbfile(DATAFTX + 'u').delete();
+    final UpdatableFTIndex index = new UpdatableFTIndex(data);
+    index.write();
+    return index;
   }
 
   /**
@@ -151,7 +170,7 @@ public final class FTBuilder extends IndexBuilder {
    * @param lp last offset
    * @throws IOException I/O exception
    */
-  private static void writeInd(final DataOutput outX, final IntList il,
+  static void writeInd(final DataOutput outX, final IntList il,
       final int ls, final int lp) throws IOException {
 
     final int is = il.size();
@@ -207,6 +226,7 @@ public final class FTBuilder extends IndexBuilder {
 
     // increase split counter
     splits++;
+    written();
   }
 
   /**
@@ -46,30 +46,33 @@ import org.basex.util.similarity.*;
  *   {@code pre1/pos1, pre2/pos2, pre3/pos3, ...} [{@link Num}]</li>
  * </ul>
  *
+ * <p>If the {@link MainOptions#UPDINDEX} option is enabled, node ids are stored instead of pre
+ * values, and the index is opened as {@link UpdatableFTIndex}.</p>
+ *
  * @author BaseX Team 2005-16, BSD License
  * @author Christian Gruen
  */
-public final class FTIndex extends ValueIndex {
+public class FTIndex extends ValueIndex {
   /** Entry size. */
-  private static final int ENTRY = 9;
+  static final int ENTRY = 9;
 
   /** Cached texts. Increases used memory, but speeds up repeated queries. */
-  private final IntObjMap<byte[]> ctext = new IntObjMap<>();
+  private IntObjMap<byte[]> ctext;
   /** Levenshtein reference. */
   private final Levenshtein ls = new Levenshtein();
 
   /** Index storing each unique token length and pointer
    * on the first token with this length. */
-  private final DataAccess inX;
+  DataAccess inX;
   /** Index storing each token, its data size and pointer on the data. */
-  private final DataAccess inY;
+  DataAccess inY;
   /** Storing pre and pos values for each token. */
-  private final DataAccess inZ;
+  DataAccess inZ;
 
   /** Cache for number of hits and data reference per token. */
-  private final IndexCache cache = new IndexCache();
+  private IndexCache cache;
   /** Token positions. */
-  private final int[] tp;
+  int[] tp;
 
   /**
    * Constructor, initializing the index structure.
@@ -78,7 +81,16 @@ public final class FTIndex extends ValueIndex {
    */
   public FTIndex(final Data data) throws IOException {
     super(data, IndexType.FULLTEXT);
-    // cache token length index
+    open();
+  }
+
+  /**
+   * Opens the index files and caches the token length index.
+   * @throws IOException I/O Exception
+   */
+  final void open() throws IOException {
+    ctext = new IntObjMap<>();
+    cache = new IndexCache();
     inY = new DataAccess(data.meta.dbfile(DATAFTX + 'y'));
     inZ = new DataAccess(data.meta.dbfile(DATAFTX + 'z'));
     inX = new DataAccess(data.meta.dbfile(DATAFTX + 'x'));
@@ -313,7 +325,7 @@ public final class FTIndex extends ValueIndex {
    * @param lt length of the token
    * @return int pointer on ftdata
    */
-  private long pointer(final long pt, final int lt) {
+  final long pointer(final long pt, final int lt) {
     return inY.read5(pt + lt);
   }
 
@@ -323,7 +335,7 @@ public final class FTIndex extends ValueIndex {
    * @param lt length of the token
    * @return size of the ftdata
    */
-  private int size(final long pt, final int lt) {
+  final int size(final long pt, final int lt) {
     return inY.read4(pt + lt + 5);
   }
 
@@ -383,15 +395,12 @@ public final class FTIndex extends ValueIndex {
         if(wc.match(t)) {
           inZ.cursor(pointer(i, ti));
           final int s = size(i, ti);
-          for(int d = 0; d < s; d++) {
-            pr.add(inZ.readNum());
-            ps.add(inZ.readNum());
-          }
+          for(int d = 0; d < s; d++) add(inZ.readNum(), inZ.readNum(), pr, ps);
         }
         i += ti + ENTRY;
       }
     }
-    return iter(new FTCache(pr, ps), token);
+    return iter(pr, ps, token);
   }
 
   /**
@@ -402,15 +411,47 @@ public final class FTIndex extends ValueIndex {
    * @param token index token
    * @return iterator
    */
-  private static FTIndexIterator iter(final long off, final int size, final DataAccess da,
+  private FTIndexIterator iter(final long off, final int size, final DataAccess da,
       final byte[] token) {
     da.cursor(off);
     final IntList pr = new IntList(size);
     final IntList ps = new IntList(size);
-    for(int c = 0; c < size; c++) {
-      pr.add(da.readNum());
-      ps.add(da.readNum());
+    for(int c = 0; c < size; c++) add(da.readNum(), da.readNum(), pr, ps);
+    return iter(pr, ps, token);
+  }
+
+  /**
+   * Adds the pre value of the specified id and the token position to the result lists.
+   * @param id id (or pre value)
+   * @param pos token position
+   * @param pr pre values
+   * @param ps token positions
+   */
+  private void add(final int id, final int pos, final IntList pr, final IntList ps) {
+    final int pre = pre(id);
+    if(pre != -1) {
+      pr.add(pre);
+      ps.add(pos);
     }
+  }
+
+  /**
+   * Returns the pre value for the specified id.
+   * @param id id (or pre value)
+   * @return pre value, or {@code -1} if the entry is obsolete
+   */
+  protected int pre(final int id) {
+    return id;
+  }
+
+  /**
+   * Returns an iterator for the specified pre values and token positions.
+   * @param pr pre values
+   * @param ps token positions
+   * @param token index token
+   * @return iterator
+   */
+  static FTIndexIterator iter(final IntList pr, final IntList ps, final byte[] token) {
     return iter(new FTCache(pr, ps), token);
   }
 
@@ -494,12 +535,14 @@ public final class FTIndex extends ValueIndex {
 
   @Override
   public void add(final ValueCache vc) {
-    throw Util.notExpected();
+    // pre values cannot be updated: invalidate index
+    data.meta.ftindex = false;
   }
 
   @Override
   public void delete(final ValueCache vc) {
-    throw Util.notExpected();
+    // pre values cannot be updated: invalidate index
+    data.meta.ftindex = false;
   }
 
   @Override
@@ -0,0 +1,480 @@
+package org.basex.index.ft;
+
+import static org.basex.data.DataText.*;
+import static org.basex.util.Token.*;
+import static org.basex.util.ft.FTFlag.*;
+
+import java.io.*;
+import java.util.*;
+
+import org.basex.data.*;
+import org.basex.index.query.*;
+import org.basex.index.value.*;
+import org.basex.io.*;
+import org.basex.io.in.DataInput;
+import org.basex.io.out.DataOutput;
+import org.basex.query.expr.ft.*;
+import org.basex.query.util.ft.*;
+import org.basex.util.*;
+import org.basex.util.ft.*;
+import org.basex.util.hash.*;
+import org.basex.util.list.*;
+import org.basex.util.similarity.*;
+
+/**
+ * <p>This class provides access and update functions to a full-text index structure stored on
+ * disk. The index files have the format described in {@link FTIndex}, but contain node ids
+ * instead of pre values.</p>
+ *
+ * <p>Updates are buffered in main memory: the entries of deleted and updated nodes are marked
+ * as obsolete, and the tokens of new texts are added to a delta index. When the database is
+ * flushed, the buffered updates are written to a separate file, or merged with the existing index
+ * files if their number exceeds a threshold. Texts need not be tokenized again for merging.</p>
+ *
+ * @author BaseX Team 2005-16, BSD License
+ * @author Christian Gruen
+ */
+public final class UpdatableFTIndex extends FTIndex {
+  /** Minimum number of buffered updates that triggers a merge. */
+  private static final int MERGE = 1 << 12;
+
+  /** Ids of obsolete index entries. */
+  private IntSet stale = new IntSet();
+  /** Delta index: tokens and their ids and positions. */
+  private TokenObjMap<Postings> delta = new TokenObjMap<>();
+  /** Levenshtein reference. */
+  private final Levenshtein ls = new Levenshtein();
+  /** Lexer (initialized on demand). */
+  private FTLexer lexer;
+  /** Indicates if the buffered updates need to be written. */
+  private boolean dirty;
+
+  /**
+   * Constructor, initializing the index structure.
+   * @param data data reference
+   * @throws IOException I/O Exception
+   */
+  public UpdatableFTIndex(final Data data) throws IOException {
+    super(data);
+    final IOFile file = data.meta.dbfile(DATAFTX + 'u');
+    if(!file.exists()) return;
+
+    try(final DataInput in = new DataInput(file)) {
+      for(final int id : in.readNums()) stale.add(id);
+      for(int t = in.readNum(); t > 0; t--) {
+        final byte[] token = in.readToken();
+        final Postings ps = new Postings();
+        for(int s = in.readNum(); s > 0; s--) ps.add(in.readNum(), in.readNum());
+        delta.put(token, ps);
+      }
+    }
+  }
+
+  /**
+   * Indicates if the index of the specified database can be updated.
+   * Indexes without update file have been created by older versions and contain pre values.
+   * @param data data reference
+   * @return result of check
+   */
+  public static boolean updatable(final Data data) {
+    return data.meta.updindex && data.meta.dbfile(DATAFTX + 'u').exists();
+  }
+
+  @Override
+  protected int pre(final int id) {
+    return stale.contains(id) ? -1 : data.pre(id);
+  }
+
+  @Override
+  public synchronized int costs(final IndexToken it) {
+    final int costs = super.costs(it);
+    final Postings ps = delta.get(it.get());
+    return ps == null || costs == Integer.MAX_VALUE ? costs : costs + ps.ids.size();
+  }
+
+  @Override
+  public synchronized IndexIterator iter(final IndexToken it) {
+    final IndexIterator iter = super.iter(it);
+    if(delta.isEmpty()) return iter;
+
+    final byte[] tok = it.get();
+    final FTLexer lex = (FTLexer) it;
+    final FTOpt opt = lex.ftOpt();
+    final IntList pr = new IntList(), ps = new IntList();
+    if(opt.is(WC)) {
+      final FTWildcard wc = new FTWildcard(tok);
+      if(wc.parse()) {
+        for(final byte[] token : delta) {
+          if(wc.match(token)) add(token, pr, ps);
+        }
+      }
+    } else if(opt.is(FZ)) {
+      final int k = lex.lserror(tok);
+      for(final byte[] token : delta) {
+        if(ls.similar(token, tok, k)) add(token, pr, ps);
+      }
+    } else {
+      add(tok, pr, ps);
+    }
+    return pr.isEmpty() ? iter : FTIndexIterator.union((FTIndexIterator) iter, iter(pr, ps, tok));
+  }
+
+  @Override
+  public synchronized EntryIterator entries(final IndexEntries entries) {
+    if(!updated()) return super.entries(entries);
+
+    // collect current entries
+    final byte[] prefix = entries.get();
+    final TokenList tokens = new TokenList();
+    final IntList counts = new IntList();
+    final Entries ents = new Entries();
+    while(ents.next()) {
+      if(startsWith(ents.token, prefix)) {
+        tokens.add(ents.token);
+        counts.add(ents.ids.size());
+      }
+    }
+    return new EntryIterator() {
+      int t = -1;
+
+      @Override
+      public byte[] next() {
+        return ++t < tokens.size() ? tokens.get(t) : null;
+      }
+      @Override
+      public int count() {
+        return counts.get(t);
+      }
+    };
+  }
+
+  @Override
+  public synchronized void add(final ValueCache vc) {
+    final FTLexer lex = lexer();
+    for(final byte[] text : vc) {
+      final int[] ids = vc.ids(text).toArray();
+      lex.init(text);
+      int pos = -1;
+      while(lex.hasNext()) {
+        final byte[] token = lex.nextToken();
+        ++pos;
+        if(!indexed(token)) continue;
+        Postings ps = delta.get(token);
+        if(ps == null) {
+          ps = new Postings();
+          delta.put(token, ps);
+        }
+        for(final int id : ids) ps.add(id, pos);
+      }
+    }
+    dirty = true;
+  }
+
+  @Override
+  public synchronized void delete(final ValueCache vc) {
+    final FTLexer lex = lexer();
+    for(final byte[] text : vc) {
+      final IntList ids = vc.ids(text);
+      final int is = ids.size();
+      for(int i = 0; i < is; i++) stale.add(ids.get(i));
+
+      // remove entries of the delta index
+      if(delta.isEmpty()) continue;
+      lex.init(text);
+      while(lex.hasNext()) {
+        final byte[] token = lex.nextToken();
+        final Postings ps = delta.get(token);
+        if(ps != null && ps.delete(ids) && ps.ids.isEmpty()) delta.delete(token);
+      }
+    }
+    dirty = true;
+  }
+
+  @Override
+  public synchronized void flush() {
+    if(!dirty) return;
+    try {
+      if(updates() > Math.max(MERGE, data.meta.size >>> 4)) merge();
+      write();
+    } catch(final IOException ex) {
+      Util.stack(ex);
+    }
+  }
+
+  @Override
+  public synchronized void close() {
+    flush();
+    super.close();
+  }
+
+  /**
+   * Writes the buffered updates to disk.
+   * @throws IOException I/O exception
+   */
+  synchronized void write() throws IOException {
+    try(final DataOutput out = new DataOutput(data.meta.dbfile(DATAFTX + 'u'))) {
+      out.writeNums(stale.toArray());
+      out.writeNum(delta.size());
+      for(final byte[] token : delta) {
+        final Postings ps = delta.get(token);
+        final int s = ps.ids.size();
+        out.writeToken(token);
+        out.writeNum(s);
+        for(int i = 0; i < s; i++) {
+          out.writeNum(ps.ids.get(i));
+          out.writeNum(ps.pos.get(i));
+        }
+      }
+    }
+    dirty = false;
+  }
+
+  /**
+   * Merges the buffered updates with the index files.
+   * @throws IOException I/O exception
+   */
+  private void merge() throws IOException {
+    final String name = DATAFTX + 'm';
+    try(final DataOutput outX = new DataOutput(data.meta.dbfile(name + 'x'));
+        final DataOutput outY = new DataOutput(data.meta.dbfile(name + 'y'));
+        final DataOutput outZ = new DataOutput(data.meta.dbfile(name + 'z'))) {
+
+      final IntList ind = new IntList();
+      final Entries ents = new Entries();
+      int tl = 0;
+      while(ents.next()) {
+        final byte[] token = ents.token;
+        if(tl < token.length) {
+          tl = token.length;
+          ind.add(tl);
+          ind.add((int) outY.size());
+        }
+        final int s = ents.ids.size();
+        outY.writeBytes(token);
+        outY.write5(outZ.size());
+        outY.write4(s);
+        for(int i = 0; i < s; i++) {
+          outZ.writeNum(ents.ids.get(i));
+          outZ.writeNum(ents.pos.get(i));
+        }
+      }
+      FTBuilder.writeInd(outX, ind, tl + 1, (int) outY.size());
+    }
+
+    // replace index files
+    super.close();
+    for(final char c : new char[] { 'x', 'y', 'z' }) {
+      final IOFile file = data.meta.dbfile(DATAFTX + c);
+      if(!file.delete() || !data.meta.dbfile(name + c).rename(file))
+        throw new IOException("Could not replace " + file);
+    }
+    open();
+    stale = new IntSet();
+    delta = new TokenObjMap<>();
+  }
+
+  /**
+   * Indicates if updates have been buffered.
+   * @return result of check
+   */
+  private boolean updated() {
+    return !stale.isEmpty() || !delta.isEmpty();
+  }
+
+  /**
+   * Returns the number of buffered updates.
+   * @return number of updates
+   */
+  private int updates() {
+    int u = stale.size();
+    for(final Postings ps : delta.values()) u += ps.ids.size();
+    return u;
+  }
+
+  /**
+   * Adds the pre values and positions of a token in the delta index to the specified lists.
+   * @param token token
+   * @param pr pre values
+   * @param ps positions
+   */
+  private void add(final byte[] token, final IntList pr, final IntList ps) {
+    final Postings p = delta.get(token);
+    if(p == null) return;
+    final int s = p.ids.size();
+    for(int i = 0; i < s; i++) {
+      pr.add(data.pre(p.ids.get(i)));
+      ps.add(p.pos.get(i));
+    }
+  }
+
+  /**
+   * Checks if the specified token will be indexed.
+   * @param token token
+   * @return result of check
+   */
+  private boolean indexed(final byte[] token) {
+    final StopWords sw = lexer.ftOpt().sw;
+    return token.length <= data.meta.maxlen && (sw.isEmpty() || !sw.contains(token));
+  }
+
+  /**
+   * Returns a lexer with the full-text options of the database.
+   * @return lexer
+   */
+  private FTLexer lexer() {
+    if(lexer == null) {
+      final StopWords sw = new StopWords();
+      sw.comp(data);
+      lexer = new FTLexer(FTBuilder.options(data.meta, sw));
+    }
+    return lexer;
+  }
+
+  /**
+   * Compares two tokens in the order of the index.
+   * @param token1 first token
+   * @param token2 second token
+   * @return difference
+   */
+  private static int compare(final byte[] token1, final byte[] token2) {
+    final int d = token1.length - token2.length;
+    return d != 0 ? d : diff(token1, token2);
+  }
+
+  /** Ids and positions of a token in the delta index. */
+  private static final class Postings {
+    /** Ids. */
+    final IntList ids = new IntList(1);
+    /** Positions. */
+    final IntList pos = new IntList(1);
+
+    /**
+     * Adds an entry.
+     * @param id id
+     * @param ps position
+     */
+    void add(final int id, final int ps) {
+      ids.add(id);
+      pos.add(ps);
+    }
+
+    /**
+     * Deletes the entries with the specified ids.
+     * @param list ids to be deleted
+     * @return {@code true} if entries were deleted
+     */
+    boolean delete(final IntList list) {
+      boolean deleted = false;
+      for(int i = ids.size() - 1; i >= 0; i--) {
+        if(list.contains(ids.get(i))) {
+          ids.remove(i);
+          pos.remove(i);
+          deleted = true;
+        }
+      }
+      return deleted;
+    }
+  }
+
+  /**
+   * Iterator over the current index entries, merging the index files and the buffered updates.
+   * Obsolete entries are skipped.
+   */
+  private final class Entries {
+    /** Sorted tokens of the delta index. */
+    private final TokenList tokens = new TokenList(delta.size());
+    /** Current ids. */
+    private final IntList ids = new IntList();
+    /** Current positions. */
+    private final IntList pos = new IntList();
+    /** Current token. */
+    private byte[] token;
+
+    /** Next token in the index files ({@code null} if all tokens have been read). */
+    private byte[] next;
+    /** Pointer and number of entries of the next token in the index files. */
+    private long pointer;
+    /** Number of entries of the next token in the index files. */
+    private int size;
+    /** Current token length, position and end position in the index files. */
+    private int length = -1, p, e;
+    /** Offset of the next delta token. */
+    private int d;
+
+    /**
+     * Constructor.
+     */
+    Entries() {
+      for(final byte[] tok : delta) tokens.add(tok);
+      final byte[][] toks = tokens.toArray();
+      Arrays.sort(toks, new Comparator<byte[]>() {
+        @Override
+        public int compare(final byte[] t1, final byte[] t2) {
+          return UpdatableFTIndex.compare(t1, t2);
+        }
+      });
+      tokens.reset();
+      tokens.add(toks);
+      nextToken();
+    }
+
+    /**
+     * Proceeds to the next entry with at least one id.
+     * @return result of check
+     */
+    boolean next() {
+      final int ts = tokens.size();
+      while(next != null || d < ts) {
+        final byte[] dt = d < ts ? tokens.get(d) : null;
+        final int c = next == null ? 1 : dt == null ? -1 : compare(next, dt);
+        token = c <= 0 ? next : dt;
+        ids.reset();
+        pos.reset();
+        if(c <= 0) {
+          inZ.cursor(pointer);
+          for(int s = 0; s < size; s++) {
+            final int id = inZ.readNum(), ps = inZ.readNum();
+            if(!stale.contains(id)) {
+              ids.add(id);
+              pos.add(ps);
+            }
+          }
+          nextToken();
+        }
+        if(c >= 0) {
+          final Postings pst = delta.get(dt);
+          ids.add(pst.ids.toArray());
+          pos.add(pst.pos.toArray());
+          d++;
+        }
+        if(!ids.isEmpty()) return true;
+      }
+      return false;
+    }
+
+    /**
+     * Reads the next token from the index files.
+     */
+    private void nextToken() {
+      final int tl = tp.length;
+      while(p == e) {
+        if(++length == tl - 1) {
+          next = null;
+          return;
+        }
+        p = tp[length];
+        if(p == -1) {
+          p = e;
+          continue;
+        }
+        int c = length + 1;
+        while(tp[c] == -1) c++;
+        e = tp[c];
+      }
+      next = inY.readBytes(p, length);
+      pointer = pointer(p, length);
+      size = size(p, length);
+      p += length + ENTRY;
+    }
+  }
+}
@@ -7,6 +7,9 @@ import java.io.*;
 import org.basex.data.*;
 import org.basex.io.in.DataInput;
 import org.basex.io.out.DataOutput;
+import org.basex.query.*;
+import org.basex.query.value.item.*;
+import org.basex.util.*;
 import org.basex.util.hash.*;
 
 /**
@@ -26,6 +29,10 @@ public final class Stats {
   public double max;
   /** Number of occurrences. */
   public int count;
+  /** Number of values that can be cast to xs:date ({@code -1}: invalid values exist). */
+  public int dates;
+  /** Number of values that can be cast to xs:dateTime ({@code -1}: invalid values exist). */
+  public int dateTimes;
   /** Leaf node flag. This flag indicates if a node has children other than
    * texts and attributes. */
   private boolean leaf;
@@ -83,6 +90,14 @@ public final class Stats {
     count = in.readNum();
     leaf = in.readBool();
     in.readDouble();
+    // 0x20 indicates that date statistics are available; otherwise, they are invalidated
+    if((k & 0x20) != 0) {
+      dates = in.readNum() - 1;
+      dateTimes = in.readNum() - 1;
+    } else {
+      dates = -1;
+      dateTimes = -1;
+    }
   }
 
   /**
@@ -91,8 +106,8 @@ public final class Stats {
    * @throws IOException I/O exception
    */
   public void write(final DataOutput out) throws IOException {
-    // 0x10 indicates format introduced with Version 7.1
-    out.writeNum(type.ordinal() | 0x10);
+    // 0x10 indicates format introduced with Version 7.1, 0x20 indicates date statistics
+    out.writeNum(type.ordinal() | 0x30);
     if(type == StatsType.INTEGER || type == StatsType.DOUBLE) {
       out.writeDouble(min);
       out.writeDouble(max);
@@ -103,6 +118,8 @@ public final class Stats {
     out.writeBool(leaf);
     // legacy since version 7.1
     out.writeDouble(0);
+    out.writeNum(dates + 1);
+    out.writeNum(dateTimes + 1);
   }
 
   /**
@@ -111,11 +128,18 @@ public final class Stats {
    * conversion fails again, it is handled as string category. Next, all values
    * are cached. As soon as their number exceeds a maximum, the cached
    * values are skipped, and contents are treated as arbitrary strings.
+   * In addition, values are counted that can be cast to dates and dateTimes.
    * @param value value to be added
    * @param meta meta data
    */
   public void add(final byte[] value, final MetaData meta) {
     final int vl = value.length;
+    if(dates != -1 || dateTimes != -1) {
+      // values that are too long for the index are treated as invalid
+      final int dt = vl <= meta.maxlen ? date(value) : 0;
+      if(dates != -1) dates = dt == 1 && dat(value) ? dates + 1 : -1;
+      if(dateTimes != -1) dateTimes = dt == 2 && dtm(value) ? dateTimes + 1 : -1;
+    }
     if(vl == 0 || type == StatsType.TEXT || ws(value)) return;
 
     StatsType t = type;
@@ -155,6 +179,59 @@ public final class Stats {
     type = t;
   }
 
+  /**
+   * Checks if the specified value has the lexical form of a date or dateTime.
+   * Only the leading date components are checked.
+   * @param value value
+   * @return {@code 1} for a date, {@code 2} for a dateTime, {@code 0} otherwise
+   */
+  private static int date(final byte[] value) {
+    final byte[] v = trim(value);
+    final int vl = v.length;
+    // year: optional sign, at least four digits
+    int p = vl > 0 && v[0] == '-' ? 1 : 0;
+    final int s = p;
+    while(p < vl && digit(v[p])) p++;
+    if(p - s < 4 || p + 6 > vl) return 0;
+    // month and day
+    if(v[p] != '-' || !digit(v[p + 1]) || !digit(v[p + 2]) || v[p + 3] != '-' ||
+       !digit(v[p + 4]) || !digit(v[p + 5])) return 0;
+    p += 6;
+    if(p == vl) return 1;
+    final byte c = v[p];
+    return c == 'T' ? 2 : c == 'Z' || c == '+' || c == '-' ? 1 : 0;
+  }
+
+  /**
+   * Checks if the specified value can be cast to a date.
+   * @param value value
+   * @return result of check
+   */
+  private static boolean dat(final byte[] value) {
+    try {
+      new Dat(value, null);
+      return true;
+    } catch(final QueryException ex) {
+      Util.debug(ex);
+      return false;
+    }
+  }
+
+  /**
+   * Checks if the specified value can be cast to a dateTime.
+   * @param value value
+   * @return result of check
+   */
+  private static boolean dtm(final byte[] value) {
+    try {
+      new Dtm(value, null);
+      return true;
+    } catch(final QueryException ex) {
+      Util.debug(ex);
+      return false;
+    }
+  }
+
   @Override
   public String toString() {
     final StringBuilder sb = new StringBuilder(count + "x");
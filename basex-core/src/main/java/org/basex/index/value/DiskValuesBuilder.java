@@ -3,7 +3,10 @@ package org.basex.index.value;
 import static org.basex.util.Token.*;
 
 import java.io.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
 
+import org.basex.core.*;
 import org.basex.data.*;
 import org.basex.index.*;
 import org.basex.io.out.DataOutput;
@@ -28,10 +31,25 @@ import org.basex.util.list.*;
  * </li>
  * </ul>
  *
+ * <p>If indexes are built by a pool of threads (see {@link MetaData#indexpool}), the table will
+ * be split into partitions, which will be indexed in parallel. The resulting partial indexes
+ * will be merged in a final step.</p>
+ *
  * @author BaseX Team 2005-16, BSD License
  * @author Christian Gruen
  */
 public final class DiskValuesBuilder extends ValuesBuilder {
+  /** Minimum number of nodes of a partition. */
+  private static final int PARTITION = 1 << 16;
+
+  /** Parent builder (only assigned if this builder indexes a partition). */
+  private final DiskValuesBuilder parent;
+  /** Number of partial index files (only assigned if partitions are indexed in parallel). */
+  private final AtomicInteger files;
+  /** Builders of the partitions (only assigned if partitions are indexed in parallel). */
+  private DiskValuesBuilder[] builders;
+  /** First pre value of the indexed range. */
+  private int start;
   /** Temporary value tree. */
   private IndexTree index;
 
@@ -41,7 +59,20 @@ public final class DiskValuesBuilder extends ValuesBuilder {
    * @param type index type
    */
   public DiskValuesBuilder(final Data data, final IndexType type) {
+    this(data, type, null);
+  }
+
+  /**
+   * Constructor.
+   * @param data data reference
+   * @param type index type
+   * @param parent parent builder (can be {@code null})
+   */
+  private DiskValuesBuilder(final Data data, final IndexType type,
+      final DiskValuesBuilder parent) {
     super(data, type);
+    this.parent = parent;
+    files = parent == null ? new AtomicInteger() : parent.files;
     index = new IndexTree(type);
   }
 
@@ -49,8 +80,64 @@ public final class DiskValuesBuilder extends ValuesBuilder {
   public DiskValues build() throws IOException {
     Util.debug(det());
 
+    final int threads = pool != null ? Math.min(pool.threads, size / PARTITION) : 1;
+    if(threads > 1) {
+      scan(threads);
+    } else {
+      scan(0, size);
+      writeIndex(splits > 0);
+    }
+    if(splits > 1) {
+      index = null;
+      clean();
+      merge();
+    }
+
+    finishIndex();
+    return data.meta.updindex ? new UpdatableDiskValues(data, type) : new DiskValues(data, type);
+  }
+
+  /**
+   * Indexes partitions of the database in parallel and writes them to partial index files.
+   * @param threads number of threads
+   * @throws IOException I/O exception
+   */
+  private void scan(final int threads) throws IOException {
+    index = null;
+    final DiskValuesBuilder[] bs = new DiskValuesBuilder[threads];
+    final Partition[] partitions = new Partition[threads];
+    for(int t = 0; t < threads; t++) {
+      final DiskValuesBuilder builder = new DiskValuesBuilder(data, type, this);
+      builder.start = (int) ((long) size * t / threads);
+      bs[t] = builder;
+      partitions[t] = new Partition(builder, (int) ((long) size * (t + 1) / threads));
+    }
+    builders = bs;
+    pool.run(partitions);
+
+    for(final DiskValuesBuilder builder : bs) count += builder.count;
+    pre = size;
+    splits = files.get();
+  }
+
+  /**
+   * Updates the progress information of the partitioned index.
+   */
+  private synchronized void updateProgress() {
+    int p = 0;
+    for(final DiskValuesBuilder builder : builders) p += builder.pre - builder.start;
+    pre = p;
+  }
+
+  /**
+   * Indexes the values of the specified range.
+   * @param first first pre value
+   * @param last pre value after the range
+   * @throws IOException I/O exception
+   */
+  private void scan(final int first, final int last) throws IOException {
     final boolean updindex = data.meta.updindex;
-    for(pre = 0; pre < size; ++pre) {
+    for(pre = first; pre < last; ++pre) {
       if((pre & 0x0FFF) == 0) check();
       if(indexEntry()) {
         final int id = updindex ? data.id(pre) : pre;
@@ -66,21 +153,15 @@ public final class DiskValuesBuilder extends ValuesBuilder {
         }
       }
     }
-
-    writeIndex(splits > 0);
-    if(splits > 1) {
-      index = null;
-      clean();
-      merge();
-    }
-
-    finishIndex();
-    return updindex ? new UpdatableDiskValues(data, type) : new DiskValues(data, type);
   }
 
   @Override
   protected void check() throws IOException {
     super.check();
+    if(parent != null) {
+      parent.checkStop();
+      parent.updateProgress();
+    }
     // check if main memory is exhausted
     if(splitRequired()) {
       writeIndex(true);
@@ -162,7 +243,7 @@ public final class DiskValuesBuilder extends ValuesBuilder {
    */
   private void writeIndex(final boolean partial) throws IOException {
     // write id arrays and references
-    final String name = DiskValues.fileSuffix(type) + (partial ? splits : "");
+    final String name = DiskValues.fileSuffix(type) + (partial ? files.getAndIncrement() : "");
     try(final DataOutput outL = new DataOutput(data.meta.dbfile(name + 'l'));
         final DataOutput outR = new DataOutput(data.meta.dbfile(name + 'r'))) {
       outL.write4(index.size());
@@ -201,6 +282,7 @@ public final class DiskValuesBuilder extends ValuesBuilder {
     }
     // increase split counter
     splits++;
+    written();
   }
 
   /**
@@ -242,4 +324,31 @@ public final class DiskValuesBuilder extends ValuesBuilder {
     // drop index files
     data.meta.drop(DiskValues.fileSuffix(type) + ".+");
   }
+
+  /**
+   * Partition of the table, which is indexed by a separate builder.
+   */
+  private static final class Partition extends Proc implements Callable<Void> {
+    /** Builder. */
+    private final DiskValuesBuilder builder;
+    /** Pre value after the partition. */
+    private final int end;
+
+    /**
+     * Constructor.
+     * @param builder builder
+     * @param end pre value after the partition
+     */
+    Partition(final DiskValuesBuilder builder, final int end) {
+      this.builder = proc(builder);
+      this.end = end;
+    }
+
+    @Override
+    public Void call() throws IOException {
+      builder.scan(builder.start, end);
+      builder.writeIndex(true);
+      return null;
+    }
+  }
 }
@@ -54,7 +54,7 @@ public final class ValueCache implements Iterable<byte[]> {
     pos = type == IndexType.TOKEN ? new ArrayList<IntList>() : null;
 
     final IndexNames in = new IndexNames(type, data);
-    final boolean text = type == IndexType.TEXT;
+    final boolean text = type == IndexType.TEXT || type == IndexType.FULLTEXT;
     final int pl = pres.size(), kind = text ? Data.TEXT : Data.ATTR;
     for(int p = 0; p < pl; p++) {
       final int pre = pres.get(p);
@@ -64,7 +64,7 @@ public final class ValueCache implements Iterable<byte[]> {
           for(final byte[] token : distinctTokens(data.text(pre, text))) {
             addId(token, pre, ps++, data);
           }
-        } else if(data.textLen(pre, text) <= data.meta.maxlen) {
+        } else if(type == IndexType.FULLTEXT || data.textLen(pre, text) <= data.meta.maxlen) {
           addId(data.text(pre, text), pre, 0, data);
         }
       }
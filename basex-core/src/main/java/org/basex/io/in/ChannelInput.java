@@ -0,0 +1,122 @@
+package org.basex.io.in;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+
+import org.basex.io.*;
+import org.basex.util.list.*;
+
+/**
+ * This class uses an internal buffer to read bytes from a socket channel.
+ * If the channel is in non-blocking mode, incoming bytes can be buffered via
+ * {@link #fill()} and inspected via {@link #get(int)} before they are consumed.
+ *
+ * @author BaseX Team 2005-16, BSD License
+ * @author Christian Gruen
+ */
+public final class ChannelInput extends InputStream {
+  /** Socket channel. */
+  private final SocketChannel channel;
+  /** Byte buffer. */
+  private final byte[] array = new byte[IO.BLOCKSIZE];
+  /** Wrapped byte buffer. */
+  private final ByteBuffer buffer = ByteBuffer.wrap(array);
+  /** Current buffer position. */
+  private int bpos;
+  /** Current buffer size. */
+  private int bsize;
+
+  /**
+   * Constructor.
+   * @param channel socket channel
+   */
+  public ChannelInput(final SocketChannel channel) {
+    this.channel = channel;
+  }
+
+  /**
+   * Buffers the bytes that are available. Must only be called if the channel is in
+   * non-blocking mode.
+   * @return {@code false} if the end of the stream has been reached
+   * @throws IOException I/O exception
+   */
+  public boolean fill() throws IOException {
+    // move remaining bytes to the start of the buffer
+    if(bpos > 0) {
+      bsize -= bpos;
+      System.arraycopy(array, bpos, array, 0, bsize);
+      bpos = 0;
+    }
+    return full() || receive() != -1;
+  }
+
+  /**
+   * Checks if the buffer is full.
+   * @return result of check
+   */
+  public boolean full() {
+    return bpos == 0 && bsize == array.length;
+  }
+
+  /**
+   * Returns a buffered byte without consuming it.
+   * @param offset offset from the current position
+   * @return unsigned byte, or {@code -1} if the byte has not been buffered yet
+   */
+  public int get(final int offset) {
+    final int p = bpos + offset;
+    return p < bsize ? array[p] & 0xFF : -1;
+  }
+
+  @Override
+  public int available() {
+    return bsize - bpos;
+  }
+
+  @Override
+  public int read() throws IOException {
+    if(bpos == bsize) {
+      bpos = 0;
+      bsize = 0;
+      int r;
+      while((r = receive()) == 0);
+      if(r == -1) return -1;
+    }
+    return array[bpos++] & 0xFF;
+  }
+
+  /**
+   * Reads a string from the input stream, suffixed by a {@code 0} byte.
+   * @return string
+   * @throws IOException I/O Exception
+   */
+  public String readString() throws IOException {
+    final ByteList bl = new ByteList();
+    for(int l; (l = read()) > 0;) bl.add(l);
+    return bl.toString();
+  }
+
+  /**
+   * Reads a byte array from the input stream, suffixed by a {@code 0} byte.
+   * @return token
+   * @throws IOException I/O Exception
+   */
+  public byte[] readBytes() throws IOException {
+    final ByteList bl = new ByteList();
+    for(int l; (l = read()) > 0;) bl.add(l);
+    return bl.finish();
+  }
+
+  /**
+   * Reads bytes from the channel into the free part of the buffer.
+   * @return number of read bytes, or {@code -1} if the end of the stream has been reached
+   * @throws IOException I/O exception
+   */
+  private int receive() throws IOException {
+    buffer.limit(array.length).position(bsize);
+    final int r = channel.read(buffer);
+    if(r > 0) bsize += r;
+    return r;
+  }
+}
@@ -0,0 +1,117 @@
+package org.basex.io.random;
+
+import org.basex.io.*;
+import org.basex.util.*;
+
+/**
+ * This class provides read-only access to a snapshot of a {@link DataAccess} file.
+ * Blocks that have been modified after the snapshot was created are retrieved from the
+ * preserved block versions. Read operations can be performed concurrently.
+ *
+ * @author BaseX Team 2005-16, BSD License
+ * @author Christian Gruen
+ */
+public final class AccessSnapshot {
+  /** Block snapshots of reading threads. */
+  private final ThreadLocal<Block> blocks = new ThreadLocal<Block>() {
+    @Override
+    protected Block initialValue() {
+      return new Block();
+    }
+  };
+  /** Original file. */
+  private final DataAccess access;
+  /** Version of the snapshot. */
+  private final Version version;
+
+  /**
+   * Constructor.
+   * @param access original file
+   * @param version version of the snapshot
+   */
+  AccessSnapshot(final DataAccess access, final Version version) {
+    this.access = access;
+    this.version = version;
+  }
+
+  /**
+   * Discards the snapshot.
+   */
+  public void close() {
+    access.release(version);
+  }
+
+  /**
+   * Reads a {@link Num} value.
+   * @param pos position
+   * @return read num
+   */
+  public int readNum(final long pos) {
+    final int value = read(pos);
+    switch(value & 0xC0) {
+    case 0:
+      return value;
+    case 0x40:
+      return (value - 0x40 << 8) + read(pos + 1);
+    case 0x80:
+      return (value - 0x80 << 24) + (read(pos + 1) << 16) + (read(pos + 2) << 8) + read(pos + 3);
+    default:
+      return (read(pos + 1) << 24) + (read(pos + 2) << 16) + (read(pos + 3) << 8) + read(pos + 4);
+    }
+  }
+
+  /**
+   * Reads a token.
+   * @param pos position
+   * @return token
+   */
+  public byte[] readToken(final long pos) {
+    final int l = readNum(pos);
+    final byte[] token = new byte[l];
+    long p = pos + Num.length(l);
+    for(int t = 0; t < l;) {
+      final Block bl = block(p);
+      final int o = (int) (p - bl.pos), n = Math.min(l - t, IO.BLOCKSIZE - o);
+      System.arraycopy(bl.data, o, token, t, n);
+      p += n;
+      t += n;
+    }
+    return token;
+  }
+
+  // PRIVATE METHODS ==========================================================
+
+  /**
+   * Reads a byte.
+   * @param pos position
+   * @return byte value
+   */
+  private int read(final long pos) {
+    final Block bl = block(pos);
+    return bl.data[(int) (pos - bl.pos)] & 0xFF;
+  }
+
+  /**
+   * Returns the block snapshot of the current thread that contains the specified position.
+   * As the contents of a snapshot never change, fetched blocks remain valid.
+   * @param pos position
+   * @return block snapshot
+   */
+  private Block block(final long pos) {
+    final Block bl = blocks.get();
+    final long p = pos - (pos & IO.BLOCKSIZE - 1);
+    if(bl.pos != p) {
+      access.read(version, p, bl.data);
+      bl.pos = p;
+    }
+    return bl;
+  }
+
+  /** Block snapshot of a reading thread. */
+  private static final class Block {
+    /** Block data. */
+    final byte[] data = new byte[IO.BLOCKSIZE];
+    /** Block position. */
+    long pos = -1;
+  }
+}
@@ -1,5 +1,7 @@
 package org.basex.io.random;
 
+import java.util.concurrent.atomic.*;
+
 import org.basex.io.*;
 
 /**
@@ -15,4 +17,15 @@ final class Buffer {
   long pos = -1;
   /** Dirty flag. */
   boolean dirty;
+  /** Indicates if the buffer is currently being filled by a reading thread. */
+  boolean loading;
+  /** Number of threads that are reading the buffer. */
+  final AtomicInteger pins = new AtomicInteger();
+
+  /**
+   * Unpins the buffer.
+   */
+  void unpin() {
+    pins.decrementAndGet();
+  }
 }
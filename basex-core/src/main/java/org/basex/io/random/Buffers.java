@@ -1,24 +1,72 @@
 package org.basex.io.random;
 
+import java.util.*;
+import java.util.concurrent.atomic.*;
+
+import org.basex.io.*;
+
 /**
- * This class provides a simple, clock-based buffer management.
+ * This class provides a scan-resistant, clock-based buffer management.
+ *
+ * Each buffer has a reference counter, which is incremented whenever a buffer is accessed
+ * again. Buffers that have only been accessed once (cold buffers), such as the pages of a
+ * sequential scan, will always be replaced first. If all buffers are hot, new buffers will be
+ * allocated as long as the global buffer pool, which is shared by all database files, has free
+ * capacity. Otherwise, the reference counters will be decremented by the clock hand.
+ * The positions of replaced pages are remembered: if they are requested again, they will be
+ * treated as hot pages.
  *
  * @author BaseX Team 2005-16, BSD License
  * @author Christian Gruen
  */
-final class Buffers {
-  /** Number of buffers (must be 1 << n). */
+public final class Buffers {
+  /** Minimum number of buffers (not taken from the buffer pool). */
   private static final int BUFFERS = 1 << 4;
+  /** Maximum value of a reference counter. */
+  private static final int MAXREF = 3;
+  /** Maximum number of additional buffers in the buffer pool. */
+  private static volatile long capacity = (32L << 20) / IO.BLOCKSIZE;
+  /** Number of additional buffers that have been taken from the buffer pool. */
+  private static final AtomicLong ALLOCATED = new AtomicLong();
+
   /** Buffers. */
-  private final Buffer[] buf = new Buffer[BUFFERS];
+  private Buffer[] buf;
+  /** Buffer positions. */
+  private long[] keys;
+  /** Reference counters. */
+  private int[] refs;
+  /** Hash buckets, pointing to buffer offsets (incremented by one). */
+  private int[] buckets;
+  /** Pointers to the next buffer offsets in the hash buckets (incremented by one). */
+  private int[] next;
+  /** Positions of replaced pages (indexed by their hash values). */
+  private long[] ghosts;
+  /** Number of buffers. */
+  private int size;
+  /** Number of cold buffers. */
+  private int cold;
   /** Current buffer offset. */
   private int off;
+  /** Position of the clock hand. */
+  private int hand;
+  /** Number of buffer hits. */
+  private long hits;
+  /** Number of buffer misses. */
+  private long misses;
 
   /**
    * Constructor.
    */
   Buffers() {
-    for(int b = 0; b < BUFFERS; ++b) buf[b] = new Buffer();
+    init();
+  }
+
+  /**
+   * Assigns the maximum size of the global buffer pool.
+   * @param mb size in megabytes
+   */
+  public static void pool(final int mb) {
+    capacity = Math.max(0, ((long) mb << 20) / IO.BLOCKSIZE);
   }
 
   /**
@@ -26,7 +74,7 @@ final class Buffers {
    * @return buffers
    */
   Buffer[] all() {
-    return buf;
+    return Arrays.copyOf(buf, size);
   }
 
   /**
@@ -37,17 +85,259 @@ final class Buffers {
     return buf[off];
   }
 
+  /**
+   * Returns the buffer with the specified position. The reference counter is not changed.
+   * @param p buffer pointer
+   * @return buffer, or {@code null} if no buffer exists for the specified position
+   */
+  Buffer get(final long p) {
+    final int b = find(p);
+    return b == -1 ? null : buf[b];
+  }
+
   /**
    * Chooses a buffer and sets the offset.
+   * Repeated accesses to the current buffer are not counted as new references.
    * @param p buffer pointer
    * @return true if cursor has changed
    */
   boolean cursor(final long p) {
-    final int o = off;
-    do {
-      if(buf[off].pos == p) return false;
-    } while((off = off + 1 & BUFFERS - 1) != o);
-    off = o + 1 & BUFFERS - 1;
+    if(keys[off] == p) return false;
+
+    final int b = find(p);
+    if(b != -1) {
+      reference(b);
+      off = b;
+      return false;
+    }
+    off = assign(p);
+    return true;
+  }
+
+  /**
+   * Returns the buffer with the specified position and pins it. The current buffer is not
+   * changed. If the buffer has been assigned to a new position, its old position will be
+   * retained and must be updated by the caller. Pinned buffers will not be replaced until
+   * they are unpinned again (see {@link Buffer#unpin()}).
+   * @param p buffer pointer
+   * @return buffer
+   */
+  Buffer pin(final long p) {
+    int b = find(p);
+    if(b != -1) reference(b);
+    else b = assign(p);
+    final Buffer bf = buf[b];
+    bf.pins.incrementAndGet();
+    return bf;
+  }
+
+  /**
+   * Returns the number of buffers.
+   * @return number of buffers
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns the number of buffer hits.
+   * @return number of hits
+   */
+  public long hits() {
+    return hits;
+  }
+
+  /**
+   * Returns the number of buffer misses.
+   * @return number of misses
+   */
+  public long misses() {
+    return misses;
+  }
+
+  /**
+   * Returns all additional buffers to the global buffer pool and discards all buffered pages.
+   */
+  void close() {
+    ALLOCATED.addAndGet(BUFFERS - size);
+    init();
+  }
+
+  // PRIVATE METHODS ==============================================================================
+
+  /**
+   * Initializes the minimum number of empty buffers.
+   */
+  private void init() {
+    buf = new Buffer[BUFFERS];
+    keys = new long[BUFFERS];
+    refs = new int[BUFFERS];
+    buckets = new int[BUFFERS << 1];
+    next = new int[BUFFERS];
+    ghosts = ghosts(BUFFERS << 1);
+    size = 0;
+    cold = 0;
+    off = 0;
+    hand = 0;
+    for(int b = 0; b < BUFFERS; ++b) add();
+  }
+
+  /**
+   * Registers a new reference to the specified buffer.
+   * @param b buffer offset
+   */
+  private void reference(final int b) {
+    final int r = refs[b];
+    if(r == 0) cold--;
+    if(r < MAXREF) refs[b] = r + 1;
+    hits++;
+  }
+
+  /**
+   * Assigns a new position to a replaced buffer.
+   * @param p buffer position
+   * @return buffer offset
+   */
+  private int assign(final long p) {
+    misses++;
+    final boolean hot = ghosts[hash(p)] == p;
+    final int o = hot && grow() ? size - 1 : victim();
+    final long k = keys[o];
+    if(k != -1) {
+      remove(o);
+      ghosts[hash(k)] = k;
+    }
+    keys[o] = p;
+    link(o);
+    if(hot) {
+      refs[o] = 1;
+      cold--;
+    }
+    return o;
+  }
+
+  /**
+   * Returns the offset of a cold buffer to be replaced. The current buffer and pinned buffers
+   * will be skipped. If all buffers are hot, a new buffer will be allocated, if possible.
+   * If all buffers are in use, an additional buffer will be allocated in any case.
+   * @return buffer offset
+   */
+  private int victim() {
+    final boolean age = cold == 0;
+    if(age && grow()) return size - 1;
+
+    final int sz = size;
+    for(int c = (MAXREF + 2) * sz; c > 0; c--) {
+      final int h = hand;
+      hand = h + 1 == sz ? 0 : h + 1;
+      if(h == off && keys[h] != -1 || buf[h].pins.get() != 0) continue;
+      final int r = refs[h];
+      if(r == 0) return h;
+      if(age) {
+        refs[h] = r - 1;
+        if(r == 1) cold++;
+      }
+    }
+    ALLOCATED.incrementAndGet();
+    add();
+    return size - 1;
+  }
+
+  /**
+   * Tries to take a new buffer from the global buffer pool.
+   * @return success flag
+   */
+  private boolean grow() {
+    if(ALLOCATED.incrementAndGet() > capacity) {
+      ALLOCATED.decrementAndGet();
+      return false;
+    }
+    add();
     return true;
   }
+
+  /**
+   * Adds a new buffer.
+   */
+  private void add() {
+    final int s = size;
+    if(s == buf.length) {
+      final int ns = s << 1;
+      buf = Arrays.copyOf(buf, ns);
+      keys = Arrays.copyOf(keys, ns);
+      refs = Arrays.copyOf(refs, ns);
+      next = Arrays.copyOf(next, ns);
+      // rehash buffer and ghost positions
+      buckets = new int[ns << 1];
+      for(int b = 0; b < s; b++) link(b);
+      final long[] gh = ghosts;
+      ghosts = ghosts(ns << 1);
+      for(final long g : gh) if(g != -1) ghosts[hash(g)] = g;
+    }
+    buf[s] = new Buffer();
+    keys[s] = -1;
+    size = s + 1;
+    cold++;
+  }
+
+  /**
+   * Creates an empty array for the positions of replaced pages.
+   * @param length array length
+   * @return array
+   */
+  private static long[] ghosts(final int length) {
+    final long[] gh = new long[length];
+    Arrays.fill(gh, -1);
+    return gh;
+  }
+
+  /**
+   * Returns the offset of the buffer with the specified position.
+   * @param p buffer position
+   * @return offset or {@code -1}
+   */
+  private int find(final long p) {
+    for(int b = buckets[hash(p)]; b != 0; b = next[b - 1]) {
+      if(keys[b - 1] == p) return b - 1;
+    }
+    return -1;
+  }
+
+  /**
+   * Adds the position of the specified buffer to the hash buckets.
+   * @param b buffer offset
+   */
+  private void link(final int b) {
+    final long p = keys[b];
+    if(p == -1) return;
+    final int h = hash(p);
+    next[b] = buckets[h];
+    buckets[h] = b + 1;
+  }
+
+  /**
+   * Removes the position of the specified buffer from the hash buckets.
+   * @param b buffer offset
+   */
+  private void remove(final int b) {
+    final long p = keys[b];
+    if(p == -1) return;
+    final int h = hash(p);
+    if(buckets[h] == b + 1) {
+      buckets[h] = next[b];
+    } else {
+      int n = buckets[h];
+      while(next[n - 1] != b + 1) n = next[n - 1];
+      next[n - 1] = next[b];
+    }
+  }
+
+  /**
+   * Computes the hash bucket of a buffer position.
+   * @param p buffer position
+   * @return bucket
+   */
+  private int hash(final long p) {
+    return (int) ((p ^ p >>> 32) * 0x9E3779B97F4A7C15L >>> 32) & buckets.length - 1;
+  }
 }
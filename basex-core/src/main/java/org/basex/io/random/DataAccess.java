@@ -1,6 +1,7 @@
 package org.basex.io.random;
 
 import java.io.*;
+import java.util.*;
 
 import org.basex.io.*;
 import org.basex.util.*;
@@ -8,6 +9,10 @@ import org.basex.util.*;
 /**
  * This class allows positional read and write access to a database file.
  *
+ * Read-only snapshots of the file can be created via {@link #snapshot()}: as long as
+ * a snapshot exists, the original contents of all blocks will be preserved before they are
+ * modified for the first time, and the file will not be truncated.
+ *
  * @author BaseX Team 2005-16, BSD License
  * @author Christian Gruen
  */
@@ -23,12 +28,32 @@ public final class DataAccess implements Closeable {
   /** Offset. */
   private int off;
 
+  /** File reference (only assigned if the file may be mapped into memory). */
+  private final IOFile file;
+  /** Memory-mapped file (can be {@code null}). */
+  private volatile MappedFile mapped;
+  /** Indicates if the file will be mapped with the next read operation. */
+  private volatile boolean remap;
+  /** Versions of existing snapshots. */
+  private volatile Version[] versions = {};
+
   /**
    * Constructor, initializing the file reader.
    * @param file the file to be read
    * @throws IOException I/O Exception
    */
   public DataAccess(final IOFile file) throws IOException {
+    this(file, false);
+  }
+
+  /**
+   * Constructor, initializing the file reader.
+   * @param file the file to be read
+   * @param map map file into memory if this is enabled for database files
+   *   (see {@link MappedFile#enable(boolean)})
+   * @throws IOException I/O Exception
+   */
+  public DataAccess(final IOFile file, final boolean map) throws IOException {
     RandomAccessFile f = null;
     try {
       f = new RandomAccessFile(file.file(), "rw");
@@ -39,6 +64,8 @@ public final class DataAccess implements Closeable {
       if(f != null) f.close();
       throw ex;
     }
+    this.file = map ? file : null;
+    remap = map && MappedFile.enabled();
   }
 
   /**
@@ -47,23 +74,90 @@ public final class DataAccess implements Closeable {
   public synchronized void flush() {
     try {
       for(final Buffer b : bm.all()) if(b.dirty) writeBlock(b);
-      if(changed) {
+      if(changed && versions.length == 0) {
         raf.setLength(length);
         changed = false;
       }
     } catch(final IOException ex) {
       Util.stack(ex);
     }
+    if(mapped == null) remap = file != null && MappedFile.enabled();
   }
 
   @Override
   public synchronized void close() {
     flush();
+    unmap();
     try {
       raf.close();
     } catch(final IOException ex) {
       Util.stack(ex);
     }
+    bm.close();
+  }
+
+  /**
+   * Returns the buffer manager.
+   * @return buffer manager
+   */
+  public Buffers buffers() {
+    return bm;
+  }
+
+  /**
+   * Creates a read-only snapshot of the current file contents.
+   * @return snapshot
+   */
+  public synchronized AccessSnapshot snapshot() {
+    final Version version = new Version((int) ((length + IO.BLOCKSIZE - 1) / IO.BLOCKSIZE));
+    final Version[] vs = Arrays.copyOf(versions, versions.length + 1);
+    vs[vs.length - 1] = version;
+    versions = vs;
+    return new AccessSnapshot(this, version);
+  }
+
+  /**
+   * Discards the blocks that have been preserved for a snapshot.
+   * @param version version of the snapshot
+   */
+  synchronized void release(final Version version) {
+    final int vl = versions.length;
+    for(int v = 0; v < vl; v++) {
+      if(versions[v] == version) {
+        final Version[] vs = new Version[vl - 1];
+        System.arraycopy(versions, 0, vs, 0, v);
+        System.arraycopy(versions, v + 1, vs, v, vl - v - 1);
+        versions = vs;
+        return;
+      }
+    }
+  }
+
+  /**
+   * Copies the contents of a block, as it was seen when the specified snapshot was created.
+   * @param version version of the snapshot
+   * @param pos block position
+   * @param data target array
+   */
+  synchronized void read(final Version version, final long pos, final byte[] data) {
+    byte[] b = version.get((int) (pos / IO.BLOCKSIZE));
+    if(b == null) {
+      final Buffer bf = bm.get(pos);
+      if(bf != null) b = bf.data;
+    }
+    if(b != null) {
+      System.arraycopy(b, 0, data, 0, IO.BLOCKSIZE);
+    } else {
+      try {
+        final long len = Math.min(IO.BLOCKSIZE, raf.length() - pos);
+        if(len > 0) {
+          raf.seek(pos);
+          raf.readFully(data, 0, (int) len);
+        }
+      } catch(final IOException ex) {
+        throw Util.notExpected(ex);
+      }
+    }
   }
 
   /**
@@ -95,9 +189,13 @@ public final class DataAccess implements Closeable {
    * @param pos position
    * @return integer value
    */
-  public synchronized byte read1(final long pos) {
-    cursor(pos);
-    return read1();
+  public byte read1(final long pos) {
+    final MappedFile mf = mapped();
+    if(mf != null) return (byte) mf.read(pos);
+    synchronized(this) {
+      cursor(pos);
+      return read1();
+    }
   }
 
   /**
@@ -113,9 +211,16 @@ public final class DataAccess implements Closeable {
    * @param pos position
    * @return integer value
    */
-  public synchronized int read4(final long pos) {
-    cursor(pos);
-    return read4();
+  public int read4(final long pos) {
+    final MappedFile mf = mapped();
+    if(mf != null) {
+      return (mf.read(pos) << 24) + (mf.read(pos + 1) << 16) + (mf.read(pos + 2) << 8) +
+          mf.read(pos + 3);
+    }
+    synchronized(this) {
+      cursor(pos);
+      return read4();
+    }
   }
 
   /**
@@ -131,9 +236,16 @@ public final class DataAccess implements Closeable {
    * @param pos position
    * @return long value
    */
-  public synchronized long read5(final long pos) {
-    cursor(pos);
-    return read5();
+  public long read5(final long pos) {
+    final MappedFile mf = mapped();
+    if(mf != null) {
+      return ((long) mf.read(pos) << 32) + ((long) mf.read(pos + 1) << 24) +
+          (mf.read(pos + 2) << 16) + (mf.read(pos + 3) << 8) + mf.read(pos + 4);
+    }
+    synchronized(this) {
+      cursor(pos);
+      return read5();
+    }
   }
 
   /**
@@ -149,9 +261,13 @@ public final class DataAccess implements Closeable {
    * @param p text position
    * @return read num
    */
-  public synchronized int readNum(final long p) {
-    cursor(p);
-    return readNum();
+  public int readNum(final long p) {
+    final MappedFile mf = mapped();
+    if(mf != null) return mf.readNum(p);
+    synchronized(this) {
+      cursor(p);
+      return readNum();
+    }
   }
 
   /**
@@ -159,9 +275,13 @@ public final class DataAccess implements Closeable {
    * @param p text position
    * @return text as byte array
    */
-  public synchronized byte[] readToken(final long p) {
-    cursor(p);
-    return readToken();
+  public byte[] readToken(final long p) {
+    final MappedFile mf = mapped();
+    if(mf != null) return mf.readToken(p);
+    synchronized(this) {
+      cursor(p);
+      return readToken();
+    }
   }
 
   /**
@@ -179,9 +299,17 @@ public final class DataAccess implements Closeable {
    * @param len length
    * @return byte array
    */
-  public synchronized byte[] readBytes(final long pos, final int len) {
-    cursor(pos);
-    return readBytes(len);
+  public byte[] readBytes(final long pos, final int len) {
+    final MappedFile mf = mapped();
+    if(mf != null) {
+      final byte[] b = new byte[len];
+      mf.read(pos, b, 0, len);
+      return b;
+    }
+    synchronized(this) {
+      cursor(pos);
+      return readBytes(len);
+    }
   }
 
   /**
@@ -212,7 +340,7 @@ public final class DataAccess implements Closeable {
    * Sets the disk cursor.
    * @param pos read position
    */
-  public void cursor(final long pos) {
+  public synchronized void cursor(final long pos) {
     off = (int) (pos & IO.BLOCKSIZE - 1);
     final long b = pos - off;
     if(!bm.cursor(b)) return;
@@ -222,8 +350,8 @@ public final class DataAccess implements Closeable {
       if(bf.dirty) writeBlock(bf);
       bf.pos = b;
       raf.seek(bf.pos);
-      if(bf.pos < raf.length())
-        raf.readFully(bf.data, 0, (int) Math.min(length - bf.pos, IO.BLOCKSIZE));
+      final long len = Math.min(Math.min(length, raf.length()) - bf.pos, IO.BLOCKSIZE);
+      if(len > 0) raf.readFully(bf.data, 0, (int) len);
     } catch(final IOException ex) {
       Util.stack(ex);
     }
@@ -253,6 +381,7 @@ public final class DataAccess implements Closeable {
    * @param value value to be written
    */
   public void write5(final long pos, final long value) {
+    unmap();
     cursor(pos);
     write((byte) (value >>> 32));
     write((byte) (value >>> 24));
@@ -267,6 +396,7 @@ public final class DataAccess implements Closeable {
    * @param value byte array to be appended
    */
   public void write4(final long pos, final int value) {
+    unmap();
     cursor(pos);
     write4(value);
   }
@@ -276,6 +406,7 @@ public final class DataAccess implements Closeable {
    * @param value value to be written
    */
   public void write4(final int value) {
+    unmap();
     write(value >>> 24);
     write(value >>> 16);
     write(value >>>  8);
@@ -287,6 +418,7 @@ public final class DataAccess implements Closeable {
    * @param value number to be appended
    */
   public void writeNum(final int value) {
+    unmap();
     if(value < 0 || value > 0x3FFFFFFF) {
       write(0xC0); write(value >>> 24); write(value >>> 16); write(value >>> 8); write(value);
     } else if(value > 0x3FFF) {
@@ -306,11 +438,12 @@ public final class DataAccess implements Closeable {
    * @param len token length
    */
   public void writeBytes(final byte[] buffer, final int offset, final int len) {
+    unmap();
     final int last = offset + len;
     int o = offset;
 
     while(o < last) {
-      final Buffer bf = buffer();
+      final Buffer bf = modify();
       final int l = Math.min(last - o, IO.BLOCKSIZE - off);
       System.arraycopy(buffer, o, bf.data, off, l);
       bf.dirty = true;
@@ -328,6 +461,7 @@ public final class DataAccess implements Closeable {
    * @param values byte array to be appended
    */
   public void writeToken(final long pos, final byte[] values) {
+    unmap();
     cursor(pos);
     writeToken(values, 0, values.length);
   }
@@ -340,6 +474,7 @@ public final class DataAccess implements Closeable {
    * @return new offset to store text
    */
   public long free(final long pos, final int size) {
+    unmap();
     // old text size (available space)
     int os = readNum(pos) + (int) (cursor() - pos);
 
@@ -383,6 +518,41 @@ public final class DataAccess implements Closeable {
 
   // PRIVATE METHODS ==========================================================
 
+  /**
+   * Returns the memory-mapped file. Maps the file if this was requested.
+   * @return mapped file or {@code null}
+   */
+  private MappedFile mapped() {
+    final MappedFile mf = mapped;
+    return mf != null || !remap ? mf : map();
+  }
+
+  /**
+   * Maps the file into memory.
+   * @return mapped file or {@code null}
+   */
+  private synchronized MappedFile map() {
+    if(remap) {
+      remap = false;
+      try {
+        mapped = new MappedFile(file, length);
+      } catch(final IOException ex) {
+        Util.debug(ex);
+      }
+    }
+    return mapped;
+  }
+
+  /**
+   * Discards the memory-mapped file before data is changed.
+   */
+  private void unmap() {
+    if(file != null) {
+      mapped = null;
+      remap = false;
+    }
+  }
+
   /**
    * Reads the next byte.
    * @return next byte
@@ -397,7 +567,7 @@ public final class DataAccess implements Closeable {
    * @param value byte to be written
    */
   private void write(final int value) {
-    final Buffer bf = buffer();
+    final Buffer bf = modify();
     bf.dirty = true;
     bf.data[off++] = (byte) value;
     final long nl = bf.pos + off;
@@ -427,6 +597,26 @@ public final class DataAccess implements Closeable {
     buffer.dirty = false;
   }
 
+  /**
+   * Returns a buffer which is going to be modified.
+   * If snapshots exist, the original contents of the block will be preserved.
+   * @return buffer
+   */
+  private Buffer modify() {
+    final Buffer bf = buffer();
+    if(versions.length != 0) preserve(bf);
+    return bf;
+  }
+
+  /**
+   * Preserves the contents of the specified buffer for all snapshots.
+   * @param bf buffer
+   */
+  private synchronized void preserve(final Buffer bf) {
+    final int b = (int) (bf.pos / IO.BLOCKSIZE);
+    for(final Version v : versions) v.preserve(b, bf.data);
+  }
+
   /**
    * Returns a buffer which can be used for writing new bytes.
    * @return buffer
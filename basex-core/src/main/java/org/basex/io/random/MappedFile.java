@@ -0,0 +1,130 @@
+package org.basex.io.random;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.channels.FileChannel.MapMode;
+
+import org.basex.io.*;
+import org.basex.util.*;
+
+/**
+ * This class provides concurrent, read-only access to a memory-mapped file.
+ * Files larger than 2 GB are mapped in chunks.
+ *
+ * @author BaseX Team 2005-16, BSD License
+ * @author Christian Gruen
+ */
+public final class MappedFile {
+  /** Power of the chunk size. */
+  private static final int CHUNKPOWER = 30;
+  /** Chunk size. */
+  private static final long CHUNKSIZE = 1L << CHUNKPOWER;
+  /** Indicates if database files will be mapped into memory. */
+  private static volatile boolean enabled;
+
+  /** Mapped chunks. */
+  private final MappedByteBuffer[] chunks;
+  /** Number of mapped bytes. */
+  final long length;
+
+  /**
+   * Constructor.
+   * @param file file to be mapped
+   * @param length number of bytes to be mapped
+   * @throws IOException I/O exception
+   */
+  MappedFile(final IOFile file, final long length) throws IOException {
+    this.length = length;
+    final int cs = (int) (length + CHUNKSIZE - 1 >>> CHUNKPOWER);
+    chunks = new MappedByteBuffer[cs];
+    // the mapping remains valid after the channel has been closed
+    try(final RandomAccessFile raf = new RandomAccessFile(file.file(), "r")) {
+      final FileChannel fc = raf.getChannel();
+      for(int c = 0; c < cs; c++) {
+        final long pos = (long) c << CHUNKPOWER;
+        chunks[c] = fc.map(MapMode.READ_ONLY, pos, Math.min(CHUNKSIZE, length - pos));
+      }
+    }
+  }
+
+  /**
+   * Enables or disables memory mapping of database files.
+   * Mapped files will be released by the garbage collector.
+   * @param map map flag
+   */
+  public static void enable(final boolean map) {
+    enabled = map;
+  }
+
+  /**
+   * Indicates if database files will be mapped into memory.
+   * @return result of check
+   */
+  static boolean enabled() {
+    return enabled;
+  }
+
+  /**
+   * Reads a byte value from the specified position.
+   * @param pos position
+   * @return unsigned byte value
+   */
+  int read(final long pos) {
+    return chunks[(int) (pos >>> CHUNKPOWER)].get((int) (pos & CHUNKSIZE - 1)) & 0xFF;
+  }
+
+  /**
+   * Copies bytes from the specified position to an array.
+   * @param pos position
+   * @param array target array
+   * @param off array offset
+   * @param len number of bytes
+   */
+  void read(final long pos, final byte[] array, final int off, final int len) {
+    long p = pos;
+    int o = off, l = len;
+    while(l > 0) {
+      // positions are thread-specific: work on a duplicate of the original buffer
+      final ByteBuffer bb = chunks[(int) (p >>> CHUNKPOWER)].duplicate();
+      bb.position((int) (p & CHUNKSIZE - 1));
+      final int n = Math.min(l, bb.remaining());
+      bb.get(array, o, n);
+      p += n;
+      o += n;
+      l -= n;
+    }
+  }
+
+  /**
+   * Reads a {@link Num} value from the specified position.
+   * @param pos position
+   * @return integer value
+   */
+  int readNum(final long pos) {
+    long p = pos;
+    final int value = read(p++);
+    switch(value & 0xC0) {
+    case 0:
+      return value;
+    case 0x40:
+      return (value - 0x40 << 8) + read(p);
+    case 0x80:
+      return (value - 0x80 << 24) + (read(p++) << 16) + (read(p++) << 8) + read(p);
+    default:
+      return (read(p++) << 24) + (read(p++) << 16) + (read(p++) << 8) + read(p);
+    }
+  }
+
+  /**
+   * Reads a token from the specified position.
+   * @param pos position
+   * @return token
+   */
+  byte[] readToken(final long pos) {
+    final int l = readNum(pos);
+    final byte[] token = new byte[l];
+    read(pos + Num.length(l), token, 0, l);
+    return token;
+  }
+}
@@ -3,6 +3,7 @@ package org.basex.io.random;
 import static org.basex.data.DataText.*;
 
 import java.io.*;
+import java.nio.*;
 import java.nio.channels.*;
 import java.util.*;
 
@@ -16,7 +17,14 @@ import org.basex.util.*;
 /**
  * This class stores the table on disk and reads it page-wise.
  *
- * NOTE: this class is not thread-safe.
+ * Read operations can be performed concurrently: pages are retrieved from the buffer manager
+ * and pinned while they are read. Missing pages are fetched from disk via positional reads,
+ * or copied from the memory-mapped file if no updates are pending and memory mapping is enabled
+ * (see {@link MappedFile#enable(boolean)}). Write operations are not thread-safe.
+ *
+ * Read-only snapshots of the table can be created via {@link #snapshot(MetaData)}: as long as
+ * a snapshot exists, the original contents of all pages will be preserved before they are
+ * modified for the first time.
  *
  * @author BaseX Team 2005-16, BSD License
  * @author Christian Gruen
@@ -31,6 +39,15 @@ public final class TableDiskAccess extends TableAccess {
   private BitArray usedPages;
   /** File lock. */
   private FileLock fl;
+  /** Channel for positional reads (lazily opened). */
+  private FileChannel reader;
+  /** Memory-mapped table file (lazily mapped, can be {@code null}). */
+  private volatile MappedFile mapped;
+
+  /** Indicates if pages can be read from the mapped file (no pending updates, shared lock). */
+  private volatile boolean direct;
+  /** Versions of existing snapshots. */
+  private volatile Version[] versions = {};
 
   /** First pre values (ascending order); will be initialized with the first update. */
   private int[] fpres;
@@ -106,6 +123,7 @@ public final class TableDiskAccess extends TableAccess {
   @Override
   public synchronized void flush(final boolean all) throws IOException {
     for(final Buffer b : bm.all()) if(b.dirty) write(b);
+    direct = fl != null && fl.isShared();
     if(!dirty || !all) return;
 
     try(final DataOutput out = new DataOutput(meta.dbfile(DATATBL + 'i'))) {
@@ -126,17 +144,87 @@ public final class TableDiskAccess extends TableAccess {
   @Override
   public synchronized void close() throws IOException {
     flush(true);
+    direct = false;
+    mapped = null;
+    if(reader != null) reader.close();
     file.close();
+    bm.close();
+  }
+
+  /**
+   * Returns the buffer manager.
+   * @return buffer manager
+   */
+  public Buffers buffers() {
+    return bm;
+  }
+
+  /**
+   * Creates a read-only snapshot of the current table.
+   * @param md meta data of the snapshot
+   * @return snapshot
+   */
+  public synchronized TableSnapshot snapshot(final MetaData md) {
+    final Version version = new Version(size);
+    final Version[] vs = Arrays.copyOf(versions, versions.length + 1);
+    vs[vs.length - 1] = version;
+    versions = vs;
+    return new TableSnapshot(md, this, version, fpres == null ? null : Arrays.copyOf(fpres, used),
+        pages == null ? null : Arrays.copyOf(pages, used), used);
+  }
+
+  /**
+   * Discards the pages that have been preserved for a snapshot.
+   * @param version version of the snapshot
+   */
+  synchronized void release(final Version version) {
+    final int vl = versions.length;
+    for(int v = 0; v < vl; v++) {
+      if(versions[v] == version) {
+        final Version[] vs = new Version[vl - 1];
+        System.arraycopy(versions, 0, vs, 0, v);
+        System.arraycopy(versions, v + 1, vs, v, vl - v - 1);
+        versions = vs;
+        return;
+      }
+    }
+  }
+
+  /**
+   * Copies the contents of a page, as it was seen when the specified snapshot was created.
+   * @param version version of the snapshot
+   * @param p page
+   * @param data target array
+   */
+  void read(final Version version, final int p, final byte[] data) {
+    synchronized(this) {
+      final byte[] b = version.get(p);
+      if(b != null) {
+        System.arraycopy(b, 0, data, 0, IO.BLOCKSIZE);
+        return;
+      }
+    }
+    final Buffer bf = pin(p);
+    try {
+      // page may have been preserved while it was pinned
+      synchronized(this) {
+        final byte[] b = version.get(p);
+        System.arraycopy(b != null ? b : bf.data, 0, data, 0, IO.BLOCKSIZE);
+      }
+    } finally {
+      bf.unpin();
+    }
   }
 
   @Override
-  public boolean lock(final boolean write) {
+  public synchronized boolean lock(final boolean write) {
     try {
       if(fl != null) {
         if(write != fl.isShared()) return true;
         fl.release();
       }
       fl = file.getChannel().tryLock(0, Long.MAX_VALUE, !write);
+      direct = fl != null && !write && !pending();
       return fl != null;
     } catch(final IOException ex) {
       throw Util.notExpected(ex);
@@ -144,39 +232,64 @@ public final class TableDiskAccess extends TableAccess {
   }
 
   @Override
-  public synchronized int read1(final int pre, final int off) {
-    final int o = off + cursor(pre);
-    final byte[] b = bm.current().data;
-    return b[o] & 0xFF;
+  public int read1(final int pre, final int off) {
+    final int p = find(pre);
+    final Buffer bf = pin(page(p));
+    try {
+      final int o = off + (pre - fpre(p) << IO.NODEPOWER);
+      final byte[] b = bf.data;
+      return b[o] & 0xFF;
+    } finally {
+      bf.unpin();
+    }
   }
 
   @Override
-  public synchronized int read2(final int pre, final int off) {
-    final int o = off + cursor(pre);
-    final byte[] b = bm.current().data;
-    return ((b[o] & 0xFF) << 8) + (b[o + 1] & 0xFF);
+  public int read2(final int pre, final int off) {
+    final int p = find(pre);
+    final Buffer bf = pin(page(p));
+    try {
+      final int o = off + (pre - fpre(p) << IO.NODEPOWER);
+      final byte[] b = bf.data;
+      return ((b[o] & 0xFF) << 8) + (b[o + 1] & 0xFF);
+    } finally {
+      bf.unpin();
+    }
   }
 
   @Override
-  public synchronized int read4(final int pre, final int off) {
-    final int o = off + cursor(pre);
-    final byte[] b = bm.current().data;
-    return ((b[o] & 0xFF) << 24) + ((b[o + 1] & 0xFF) << 16) +
-      ((b[o + 2] & 0xFF) << 8) + (b[o + 3] & 0xFF);
+  public int read4(final int pre, final int off) {
+    final int p = find(pre);
+    final Buffer bf = pin(page(p));
+    try {
+      final int o = off + (pre - fpre(p) << IO.NODEPOWER);
+      final byte[] b = bf.data;
+      return ((b[o] & 0xFF) << 24) + ((b[o + 1] & 0xFF) << 16) +
+        ((b[o + 2] & 0xFF) << 8) + (b[o + 3] & 0xFF);
+    } finally {
+      bf.unpin();
+    }
   }
 
   @Override
-  public synchronized long read5(final int pre, final int off) {
-    final int o = off + cursor(pre);
-    final byte[] b = bm.current().data;
-    return ((long) (b[o] & 0xFF) << 32) + ((long) (b[o + 1] & 0xFF) << 24) +
-      ((b[o + 2] & 0xFF) << 16) + ((b[o + 3] & 0xFF) << 8) + (b[o + 4] & 0xFF);
+  public long read5(final int pre, final int off) {
+    final int p = find(pre);
+    final Buffer bf = pin(page(p));
+    try {
+      final int o = off + (pre - fpre(p) << IO.NODEPOWER);
+      final byte[] b = bf.data;
+      return ((long) (b[o] & 0xFF) << 32) + ((long) (b[o + 1] & 0xFF) << 24) +
+        ((b[o + 2] & 0xFF) << 16) + ((b[o + 3] & 0xFF) << 8) + (b[o + 4] & 0xFF);
+    } finally {
+      bf.unpin();
+    }
   }
 
   @Override
   public void write1(final int pre, final int off, final int v) {
+    modified();
     final int o = off + cursor(pre);
-    final Buffer bf = bm.current();
+    final Buffer bf = modify();
     final byte[] b = bf.data;
     b[o] = (byte) v;
     bf.dirty = true;
@@ -184,8 +297,9 @@ public final class TableDiskAccess extends TableAccess {
 
   @Override
   public void write2(final int pre, final int off, final int v) {
+    modified();
     final int o = off + cursor(pre);
-    final Buffer bf = bm.current();
+    final Buffer bf = modify();
     final byte[] b = bf.data;
     b[o] = (byte) (v >>> 8);
     b[o + 1] = (byte) v;
@@ -194,8 +308,9 @@ public final class TableDiskAccess extends TableAccess {
 
   @Override
   public void write4(final int pre, final int off, final int v) {
+    modified();
     final int o = off + cursor(pre);
-    final Buffer bf = bm.current();
+    final Buffer bf = modify();
     final byte[] b = bf.data;
     b[o]     = (byte) (v >>> 24);
     b[o + 1] = (byte) (v >>> 16);
@@ -206,8 +321,9 @@ public final class TableDiskAccess extends TableAccess {
 
   @Override
   public void write5(final int pre, final int off, final long v) {
+    modified();
     final int o = off + cursor(pre);
-    final Buffer bf = bm.current();
+    final Buffer bf = modify();
     final byte[] b = bf.data;
     b[o]     = (byte) (v >>> 32);
     b[o + 1] = (byte) (v >>> 24);
@@ -219,9 +335,10 @@ public final class TableDiskAccess extends TableAccess {
 
   @Override
   protected void copy(final byte[] entries, final int pre, final int last) {
+    modified();
     for(int o = 0, i = pre; i < last; ++i, o += IO.NODESIZE) {
       final int off = cursor(i);
-      final Buffer bf = bm.current();
+      final Buffer bf = modify();
       System.arraycopy(entries, o, bf.data, off, IO.NODESIZE);
       bf.dirty = true;
     }
@@ -241,7 +358,7 @@ public final class TableDiskAccess extends TableAccess {
 
     // check if all entries are in current page: handle and return
     if(last - 1 < nextPre) {
-      final Buffer bf = bm.current();
+      final Buffer bf = modify();
       copy(bf.data, from + nr, bf.data, from, nextPre - last);
       updatePre(nr);
 
@@ -276,7 +393,7 @@ public final class TableDiskAccess extends TableAccess {
 
     // if the last page is empty, clear the corresponding bit
     read(pages[page]);
-    final Buffer bf = bm.current();
+    final Buffer bf = modify();
     if(nextPre == last) {
       usedPages.clear((int) bf.pos);
       ++unused;
@@ -327,7 +444,7 @@ public final class TableDiskAccess extends TableAccess {
     final int moved = nold - split;
 
     // special case: all entries fit in the current page
-    Buffer bf = bm.current();
+    Buffer bf = modify();
     if(nold + nnew <= IO.BLOCKSIZE) {
       Array.move(bf.data, split, nnew, moved);
       System.arraycopy(entries, 0, bf.data, split, nnew);
@@ -366,7 +483,7 @@ public final class TableDiskAccess extends TableAccess {
         if(remain <= IO.BLOCKSIZE - o) {
           // copy the last records
           readPage(page + 1);
-          bf = bm.current();
+          bf = modify();
           System.arraycopy(bf.data, 0, bf.data, remain, o);
           System.arraycopy(all, all.length - remain, bf.data, 0, remain);
           bf.dirty = true;
@@ -429,10 +546,191 @@ public final class TableDiskAccess extends TableAccess {
       usedPages = new BitArray(used, true);
     }
     dirty = true;
+    modified();
   }
 
   // PRIVATE METHODS ==========================================================
 
+  /**
+   * Returns the index of the page containing the specified pre value.
+   * The shared cursor is not changed.
+   * @param pre pre value
+   * @return page index
+   */
+  private int find(final int pre) {
+    final int last = used - 1;
+    int l = 0, h = last;
+    while(l <= h) {
+      final int p = h + l >>> 1;
+      if(pre < fpre(p)) h = p - 1;
+      else if(pre >= (p == last ? meta.size : fpre(p + 1))) l = p + 1;
+      else return p;
+    }
+    throw Util.notExpected("Data Access out of bounds: % (table size: %)", pre, meta.size);
+  }
+
+  /**
+   * Returns the buffer of the specified page and pins it.
+   * If the page is not buffered yet, it is read from disk without locking the table.
+   * @param p page
+   * @return buffer (must be unpinned after the page has been read)
+   */
+  private Buffer pin(final int p) {
+    final Buffer bf;
+    synchronized(this) {
+      bf = bm.pin(p);
+      if(bf.pos == p) {
+        loaded(bf);
+        return bf;
+      }
+      try {
+        if(bf.dirty) write(bf);
+      } catch(final IOException ex) {
+        Util.stack(ex);
+      }
+      bf.pos = p;
+      bf.loading = true;
+    }
+    load(bf);
+    return bf;
+  }
+
+  /**
+   * Fills the specified buffer with its page from disk and notifies all waiting threads.
+   * @param bf buffer
+   */
+  private void load(final Buffer bf) {
+    final long pos = bf.pos * IO.BLOCKSIZE;
+    boolean read = false;
+    try {
+      final MappedFile mf = direct ? mapped() : null;
+      if(mf != null && pos + IO.BLOCKSIZE <= mf.length) {
+        mf.read(pos, bf.data, 0, IO.BLOCKSIZE);
+      } else {
+        final ByteBuffer bb = ByteBuffer.wrap(bf.data);
+        final FileChannel fc = reader();
+        while(bb.hasRemaining()) {
+          if(fc.read(bb, pos + bb.position()) == -1) throw new EOFException();
+        }
+      }
+      read = true;
+    } catch(final IOException ex) {
+      // channel may have been closed by an interrupt: use buffered access
+      Util.debug(ex);
+      closeReader();
+    } finally {
+      synchronized(this) {
+        try {
+          if(!read) {
+            file.seek(pos);
+            file.readFully(bf.data);
+          }
+        } catch(final IOException ex) {
+          Util.stack(ex);
+        } finally {
+          bf.loading = false;
+          notifyAll();
+        }
+      }
+    }
+  }
+
+  /**
+   * Waits until the specified buffer has been filled by another thread.
+   * @param bf buffer
+   */
+  private synchronized void loaded(final Buffer bf) {
+    boolean interrupted = false;
+    while(bf.loading) {
+      try {
+        wait();
+      } catch(final InterruptedException ex) {
+        interrupted = true;
+      }
+    }
+    if(interrupted) Thread.currentThread().interrupt();
+  }
+
+  /**
+   * Returns the channel for positional reads.
+   * @return channel
+   * @throws IOException I/O exception
+   */
+  private synchronized FileChannel reader() throws IOException {
+    if(reader == null) reader = new RandomAccessFile(meta.dbfile(DATATBL).file(), "r").getChannel();
+    return reader;
+  }
+
+  /**
+   * Returns the memory-mapped table file.
+   * @return mapped file, or {@code null} if memory mapping is disabled
+   * @throws IOException I/O exception
+   */
+  private MappedFile mapped() throws IOException {
+    final MappedFile mf = mapped;
+    return mf != null || !MappedFile.enabled() ? mf : map();
+  }
+
+  /**
+   * Maps the table file into memory.
+   * @return mapped file
+   * @throws IOException I/O exception
+   */
+  private synchronized MappedFile map() throws IOException {
+    if(mapped == null) mapped = new MappedFile(meta.dbfile(DATATBL), file.length());
+    return mapped;
+  }
+
+  /**
+   * Closes the channel for positional reads.
+   */
+  private synchronized void closeReader() {
+    if(reader != null) {
+      try {
+        reader.close();
+      } catch(final IOException ex) {
+        Util.debug(ex);
+      }
+      reader = null;
+    }
+  }
+
+  /**
+   * Returns the current buffer, which is going to be modified.
+   * If snapshots exist, the original contents of the page will be preserved.
+   * @return buffer
+   */
+  private Buffer modify() {
+    final Buffer bf = bm.current();
+    if(versions.length != 0) preserve(bf);
+    return bf;
+  }
+
+  /**
+   * Preserves the contents of the specified buffer for all snapshots.
+   * @param bf buffer
+   */
+  private synchronized void preserve(final Buffer bf) {
+    for(final Version v : versions) v.preserve((int) bf.pos, bf.data);
+  }
+
+  /**
+   * Disables access to the memory-mapped file.
+   */
+  private void modified() {
+    direct = false;
+    mapped = null;
+  }
+
+  /**
+   * Checks if buffers contain changes that have not been written to disk yet.
+   * @return result of check
+   */
+  private boolean pending() {
+    for(final Buffer b : bm.all()) if(b.dirty) return true;
+    return false;
+  }
+
   /**
    * Searches for the page containing the entry for the specified pre value.
    * Reads the page and returns its offset inside the page.
@@ -488,7 +786,7 @@ public final class TableDiskAccess extends TableAccess {
    * @param p index of the page to fetch
    * @return pre value
    */
-  private synchronized int page(final int p) {
+  private int page(final int p) {
     return pages == null ? p : pages[p];
   }
 
@@ -497,7 +795,7 @@ public final class TableDiskAccess extends TableAccess {
    * @param p index of the page to fetch
    * @return pre value
    */
-  private synchronized int fpre(final int p) {
+  private int fpre(final int p) {
     return fpres == null ? p * IO.ENTRIES : fpres[p];
   }
 
@@ -506,7 +804,10 @@ public final class TableDiskAccess extends TableAccess {
    * @param p page to fetch
    */
   private synchronized void read(final int p) {
-    if(!bm.cursor(p)) return;
+    if(!bm.cursor(p)) {
+      loaded(bm.current());
+      return;
+    }
 
     final Buffer bf = bm.current();
     try {
@@ -577,7 +878,7 @@ public final class TableDiskAccess extends TableAccess {
    * @return number of written bytes
    */
   private int write(final byte[] s, final int o) {
-    final Buffer bf = bm.current();
+    final Buffer bf = modify();
     final int len = Math.min(IO.BLOCKSIZE, s.length - o);
     System.arraycopy(s, o, bf.data, 0, len);
     bf.dirty = true;
@@ -592,4 +893,14 @@ public final class TableDiskAccess extends TableAccess {
   private int occSpace(final int i) {
     return (i + 1 < used ? fpres[i + 1] : meta.size) - fpres[i];
   }
+
+  /** Page snapshot of a reading thread (see {@link TableSnapshot}). */
+  static final class Page {
+    /** Page data. */
+    final byte[] data = new byte[IO.BLOCKSIZE];
+    /** Pre value of the first entry. */
+    int first = -1;
+    /** Pre value of the first entry in the next page. */
+    int next = -1;
+  }
 }
@@ -0,0 +1,252 @@
+package org.basex.io.random;
+
+import java.nio.*;
+import java.util.*;
+
+import org.basex.data.*;
+import org.basex.io.*;
+
+/**
+ * This class allows main memory access to the database table representation.
+ * In contrast to {@link TableMemAccess}, the table is stored in direct byte buffers,
+ * which are allocated outside the Java heap. The first buffer grows until it reaches
+ * the chunk size; further entries are stored in additional chunks of the same size.
+ *
+ * NOTE: this class is not thread-safe.
+ *
+ * @author BaseX Team 2005-16, BSD License
+ * @author Christian Gruen
+ */
+public final class TableOffHeapAccess extends TableAccess {
+  /** Power of the number of entries per chunk. */
+  private static final int CHUNKPOWER = 16;
+  /** Number of entries per chunk. */
+  private static final int CHUNKSIZE = 1 << CHUNKPOWER;
+  /** Initial number of entries. */
+  private static final int INITIAL = 1 << 8;
+  /** Size of the buffer used for moving entries. */
+  private static final int MOVE = 1 << 16;
+
+  /** Chunks. */
+  private ByteBuffer[] chunks = new ByteBuffer[1];
+
+  /**
+   * Stores the table in direct byte buffers.
+   * @param md meta data
+   */
+  public TableOffHeapAccess(final MetaData md) {
+    super(md);
+    chunks[0] = ByteBuffer.allocateDirect(INITIAL << IO.NODEPOWER);
+  }
+
+  @Override
+  public void flush(final boolean all) { }
+
+  @Override
+  public void close() { }
+
+  @Override
+  public boolean lock(final boolean lock) { return true; }
+
+  @Override
+  public int read1(final int p, final int o) {
+    return chunk(p).get(offset(p, o)) & 0xFF;
+  }
+
+  @Override
+  public int read2(final int p, final int o) {
+    return chunk(p).getShort(offset(p, o)) & 0xFFFF;
+  }
+
+  @Override
+  public int read4(final int p, final int o) {
+    return chunk(p).getInt(offset(p, o));
+  }
+
+  @Override
+  public long read5(final int p, final int o) {
+    final ByteBuffer bb = chunk(p);
+    final int i = offset(p, o);
+    return (bb.get(i) & 0xFFL) << 32 | bb.getInt(i + 1) & 0xFFFFFFFFL;
+  }
+
+  @Override
+  public void write1(final int p, final int o, final int v) {
+    dirty();
+    chunk(p).put(offset(p, o), (byte) v);
+  }
+
+  @Override
+  public void write2(final int p, final int o, final int v) {
+    dirty();
+    chunk(p).putShort(offset(p, o), (short) v);
+  }
+
+  @Override
+  public void write4(final int p, final int o, final int v) {
+    dirty();
+    chunk(p).putInt(offset(p, o), v);
+  }
+
+  @Override
+  public void write5(final int p, final int o, final long v) {
+    dirty();
+    final ByteBuffer bb = chunk(p);
+    final int i = offset(p, o);
+    bb.put(i, (byte) (v >>> 32));
+    bb.putInt(i + 1, (int) v);
+  }
+
+  @Override
+  protected void copy(final byte[] entries, final int pre, final int last) {
+    dirty();
+    put((long) pre << IO.NODEPOWER, entries, 0, last - pre << IO.NODEPOWER);
+  }
+
+  @Override
+  public void delete(final int pre, final int nr) {
+    if(nr == 0) return;
+    move(pre + nr, pre);
+  }
+
+  @Override
+  public void insert(final int pre, final byte[] entries) {
+    if(entries.length == 0) return;
+    move(pre, pre + (entries.length >>> IO.NODEPOWER));
+    set(pre, entries);
+  }
+
+  @Override
+  protected void dirty() {
+    dirty = true;
+  }
+
+  // PRIVATE METHODS ==========================================================
+
+  /**
+   * Returns the chunk of the specified entry.
+   * @param p pre value
+   * @return chunk
+   */
+  private ByteBuffer chunk(final int p) {
+    return chunks[p >>> CHUNKPOWER];
+  }
+
+  /**
+   * Returns the offset of the specified entry in its chunk.
+   * @param p pre value
+   * @param o offset of the value
+   * @return offset
+   */
+  private static int offset(final int p, final int o) {
+    return ((p & CHUNKSIZE - 1) << IO.NODEPOWER) + o;
+  }
+
+  /**
+   * Moves entries inside the table.
+   * @param op source position
+   * @param np destination position
+   */
+  private void move(final int op, final int np) {
+    dirty();
+    final int l = meta.size - op;
+    capacity(np + l);
+
+    final long src = (long) op << IO.NODEPOWER, trg = (long) np << IO.NODEPOWER;
+    final long len = (long) l << IO.NODEPOWER;
+    final byte[] tmp = new byte[(int) Math.min(MOVE, len)];
+    if(np > op) {
+      // move entries backwards, starting with the last bytes
+      for(long e = len; e > 0;) {
+        final int n = (int) Math.min(tmp.length, e);
+        e -= n;
+        get(src + e, tmp, n);
+        put(trg + e, tmp, 0, n);
+      }
+    } else {
+      for(long s = 0; s < len;) {
+        final int n = (int) Math.min(tmp.length, len - s);
+        get(src + s, tmp, n);
+        put(trg + s, tmp, 0, n);
+        s += n;
+      }
+    }
+    meta.size += np - op;
+  }
+
+  /**
+   * Ensures that the specified number of entries can be stored.
+   * @param size number of entries
+   */
+  private void capacity(final int size) {
+    // grow first chunk
+    final ByteBuffer first = chunks[0];
+    final int cap = first.capacity() >>> IO.NODEPOWER;
+    if(cap < CHUNKSIZE && size > cap) {
+      int c = cap;
+      while(c < size && c < CHUNKSIZE) c <<= 1;
+      final ByteBuffer bb = ByteBuffer.allocateDirect(c << IO.NODEPOWER);
+      final ByteBuffer old = first.duplicate();
+      old.clear();
+      bb.put(old);
+      chunks[0] = bb;
+    }
+    // add further chunks
+    final int cs = (int) ((long) size + CHUNKSIZE - 1 >>> CHUNKPOWER);
+    if(cs > chunks.length) {
+      final int s = chunks.length;
+      chunks = Arrays.copyOf(chunks, cs);
+      for(int c = s; c < cs; c++) chunks[c] = ByteBuffer.allocateDirect(CHUNKSIZE << IO.NODEPOWER);
+    }
+  }
+
+  /**
+   * Copies bytes from the table to an array.
+   * @param pos byte position in the table
+   * @param array target array
+   * @param len number of bytes
+   */
+  private void get(final long pos, final byte[] array, final int len) {
+    long p = pos;
+    int o = 0;
+    while(o < len) {
+      final ByteBuffer bb = buffer(p);
+      final int n = Math.min(len - o, bb.remaining());
+      bb.get(array, o, n);
+      p += n;
+      o += n;
+    }
+  }
+
+  /**
+   * Copies bytes from an array to the table.
+   * @param pos byte position in the table
+   * @param array source array
+   * @param off array offset
+   * @param len number of bytes
+   */
+  private void put(final long pos, final byte[] array, final int off, final int len) {
+    long p = pos;
+    int o = off;
+    final int end = off + len;
+    while(o < end) {
+      final ByteBuffer bb = buffer(p);
+      final int n = Math.min(end - o, bb.remaining());
+      bb.put(array, o, n);
+      p += n;
+      o += n;
+    }
+  }
+
+  /**
+   * Returns a buffer, which is positioned at the specified byte position in the table.
+   * @param pos byte position
+   * @return buffer
+   */
+  private ByteBuffer buffer(final long pos) {
+    final ByteBuffer bb = chunks[(int) (pos >>> CHUNKPOWER + IO.NODEPOWER)].duplicate();
+    bb.clear();
+    bb.position((int) (pos & (CHUNKSIZE << IO.NODEPOWER) - 1));
+    return bb;
+  }
+}
@@ -0,0 +1,187 @@
+package org.basex.io.random;
+
+import org.basex.data.*;
+import org.basex.io.*;
+import org.basex.util.*;
+
+/**
+ * This class provides read-only access to a snapshot of a {@link TableDiskAccess} table.
+ * Pages that have been modified after the snapshot was created are retrieved from the
+ * preserved page versions. Read operations can be performed concurrently.
+ *
+ * @author BaseX Team 2005-16, BSD License
+ * @author Christian Gruen
+ */
+public final class TableSnapshot extends TableAccess {
+  /** Page snapshots of reading threads. */
+  private final ThreadLocal<TableDiskAccess.Page> snapshots =
+      new ThreadLocal<TableDiskAccess.Page>() {
+    @Override
+    protected TableDiskAccess.Page initialValue() {
+      return new TableDiskAccess.Page();
+    }
+  };
+  /** Original table. */
+  private final TableDiskAccess table;
+  /** Version of the snapshot. */
+  private final Version version;
+  /** First pre values (ascending order; {@code null} if the page index is regular). */
+  private final int[] fpres;
+  /** Page index ({@code null} if the page index is regular). */
+  private final int[] pages;
+  /** Number of used pages. */
+  private final int used;
+
+  /**
+   * Constructor.
+   * @param md meta data of the snapshot
+   * @param table original table
+   * @param version version of the snapshot
+   * @param fpres first pre values (can be {@code null})
+   * @param pages page index (can be {@code null})
+   * @param used number of used pages
+   */
+  TableSnapshot(final MetaData md, final TableDiskAccess table, final Version version,
+      final int[] fpres, final int[] pages, final int used) {
+    super(md);
+    this.table = table;
+    this.version = version;
+    this.fpres = fpres;
+    this.pages = pages;
+    this.used = used;
+  }
+
+  @Override
+  public void flush(final boolean all) { }
+
+  @Override
+  public void close() {
+    table.release(version);
+  }
+
+  @Override
+  public boolean lock(final boolean write) {
+    return !write;
+  }
+
+  @Override
+  public int read1(final int pre, final int off) {
+    final TableDiskAccess.Page pg = snapshot(pre);
+    final int o = off + (pre - pg.first << IO.NODEPOWER);
+    final byte[] b = pg.data;
+    return b[o] & 0xFF;
+  }
+
+  @Override
+  public int read2(final int pre, final int off) {
+    final TableDiskAccess.Page pg = snapshot(pre);
+    final int o = off + (pre - pg.first << IO.NODEPOWER);
+    final byte[] b = pg.data;
+    return ((b[o] & 0xFF) << 8) + (b[o + 1] & 0xFF);
+  }
+
+  @Override
+  public int read4(final int pre, final int off) {
+    final TableDiskAccess.Page pg = snapshot(pre);
+    final int o = off + (pre - pg.first << IO.NODEPOWER);
+    final byte[] b = pg.data;
+    return ((b[o] & 0xFF) << 24) + ((b[o + 1] & 0xFF) << 16) +
+      ((b[o + 2] & 0xFF) << 8) + (b[o + 3] & 0xFF);
+  }
+
+  @Override
+  public long read5(final int pre, final int off) {
+    final TableDiskAccess.Page pg = snapshot(pre);
+    final int o = off + (pre - pg.first << IO.NODEPOWER);
+    final byte[] b = pg.data;
+    return ((long) (b[o] & 0xFF) << 32) + ((long) (b[o + 1] & 0xFF) << 24) +
+      ((b[o + 2] & 0xFF) << 16) + ((b[o + 3] & 0xFF) << 8) + (b[o + 4] & 0xFF);
+  }
+
+  @Override
+  public void write1(final int pre, final int off, final int v) {
+    throw Util.notExpected();
+  }
+
+  @Override
+  public void write2(final int pre, final int off, final int v) {
+    throw Util.notExpected();
+  }
+
+  @Override
+  public void write4(final int pre, final int off, final int v) {
+    throw Util.notExpected();
+  }
+
+  @Override
+  public void write5(final int pre, final int off, final long v) {
+    throw Util.notExpected();
+  }
+
+  @Override
+  protected void dirty() {
+    throw Util.notExpected();
+  }
+
+  @Override
+  protected void copy(final byte[] entries, final int pre, final int last) {
+    throw Util.notExpected();
+  }
+
+  @Override
+  public void delete(final int pre, final int nr) {
+    throw Util.notExpected();
+  }
+
+  @Override
+  public void insert(final int pre, final byte[] entries) {
+    throw Util.notExpected();
+  }
+
+  // PRIVATE METHODS ==========================================================
+
+  /**
+   * Returns the page snapshot of the current thread that contains the specified pre value.
+   * As the contents of a snapshot never change, fetched pages remain valid.
+   * @param pre pre value
+   * @return page snapshot
+   */
+  private TableDiskAccess.Page snapshot(final int pre) {
+    final TableDiskAccess.Page pg = snapshots.get();
+    if(pre < pg.first || pre >= pg.next) fetch(pg, pre);
+    return pg;
+  }
+
+  /**
+   * Fills the specified page snapshot with the page containing the specified pre value.
+   * @param pg page snapshot
+   * @param pre pre value
+   */
+  private void fetch(final TableDiskAccess.Page pg, final int pre) {
+    final int last = used - 1;
+    int l = 0, h = last;
+    while(l <= h) {
+      final int p = h + l >>> 1, fp = fpre(p), np = p == last ? meta.size : fpre(p + 1);
+      if(pre < fp) {
+        h = p - 1;
+      } else if(pre >= np) {
+        l = p + 1;
+      } else {
+        table.read(version, pages == null ? p : pages[p], pg.data);
+        pg.first = fp;
+        pg.next = np;
+        return;
+      }
+    }
+    throw Util.notExpected("Snapshot access out of bounds: % (table size: %)", pre, meta.size);
+  }
+
+  /**
+   * Returns the first pre value of the specified page.
+   * @param p index of the page
+   * @return pre value
+   */
+  private int fpre(final int p) {
+    return fpres == null ? p * IO.ENTRIES : fpres[p];
+  }
+}
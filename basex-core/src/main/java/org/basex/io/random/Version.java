@@ -0,0 +1,46 @@
+package org.basex.io.random;
+
+import org.basex.util.hash.*;
+
+/**
+ * This class preserves the original contents of pages that are modified after a snapshot of
+ * a database file has been created (copy-on-write).
+ *
+ * NOTE: this class is not thread-safe; its methods are called by the synchronized methods of
+ * the owning file access.
+ *
+ * @author BaseX Team 2005-16, BSD License
+ * @author Christian Gruen
+ */
+final class Version {
+  /** Preserved pages. */
+  private final IntObjMap<byte[]> pages = new IntObjMap<>();
+  /** Number of pages at the time the snapshot was created. */
+  private final int limit;
+
+  /**
+   * Constructor.
+   * @param limit number of pages at the time the snapshot was created
+   */
+  Version(final int limit) {
+    this.limit = limit;
+  }
+
+  /**
+   * Preserves the contents of the specified page before it is modified for the first time.
+   * @param page page
+   * @param data page data
+   */
+  void preserve(final int page, final byte[] data) {
+    if(page < limit && pages.get(page) == null) pages.put(page, data.clone());
+  }
+
+  /**
+   * Returns the original contents of the specified page.
+   * @param page page
+   * @return page data, or {@code null} if the page has not been modified
+   */
+  byte[] get(final int page) {
+    return pages.get(page);
+  }
+}
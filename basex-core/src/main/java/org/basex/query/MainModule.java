@@ -172,6 +172,8 @@ public final class MainModule extends Module {
     private final IdentityHashMap<Scope, Object> funcs = new IdentityHashMap<>();
     /** Reference to process list of locked databases. */
     private final StringList sl;
+    /** Reference to the list of databases whose index structures are accessed. */
+    private final StringList indexes;
     /** Focus level. */
     private int level;
 
@@ -182,6 +184,7 @@ public final class MainModule extends Module {
      */
     private LockVisitor(final LockResult lr, final QueryContext qc) {
       sl = qc.updating ? lr.write : lr.read;
+      indexes = qc.resources.indexes;
       level = qc.ctxItem == null ? 0 : 1;
     }
 
@@ -194,6 +197,14 @@ public final class MainModule extends Module {
       return true;
     }
 
+    @Override
+    public boolean index(final String db) {
+      // name is unknown at compile time: return false
+      if(db == null) return false;
+      indexes.add(db);
+      return true;
+    }
+
     @Override
     public void enterFocus() {
       level++;
@@ -0,0 +1,215 @@
+package org.basex.query;
+
+import java.util.*;
+
+import org.basex.core.*;
+import org.basex.query.expr.*;
+import org.basex.query.var.*;
+import org.basex.util.*;
+import org.basex.util.hash.*;
+
+/**
+ * Cache for parsed queries.
+ *
+ * Queries that are evaluated repeatedly are only parsed once. The parsed main module is
+ * kept as template, and its root expression is copied for each evaluation. The copy is
+ * compiled and optimized as usual. As compilation depends on the opened databases, the
+ * index structures and the current date and time, compiled queries are not cached, and no
+ * entries need to be invalidated if databases are updated.
+ *
+ * Templates are leased exclusively, as their static context will be modified while a copied
+ * expression is evaluated. If a query is evaluated concurrently, an additional template
+ * will be created for each concurrent evaluation.
+ *
+ * @author BaseX Team 2005-16, BSD License
+ * @author Christian Gruen
+ */
+public final class QueryCache {
+  /** Maximum number of templates per query. */
+  private static final int MAX_TEMPLATES = 8;
+
+  /** Templates, indexed by query keys (least recently used first). */
+  private final LinkedHashMap<String, Templates> cache = new LinkedHashMap<>(16, 0.75f, true);
+  /** Static options. */
+  private final StaticOptions sopts;
+  /** Number of cache hits. */
+  private long hits;
+  /** Number of cache misses. */
+  private long misses;
+
+  /**
+   * Constructor.
+   * @param sopts static options
+   */
+  public QueryCache(final StaticOptions sopts) {
+    this.sopts = sopts;
+  }
+
+  /**
+   * Assigns the main module of the specified query to the query context.
+   * If the query is cached, its main module will be copied from a template.
+   * @param query query string
+   * @param qc query context
+   * @param sc static context
+   * @return leased template, or {@code null} if the query cannot be cached
+   * @throws QueryException query exception
+   */
+  Template parse(final String query, final QueryContext qc, final StaticContext sc)
+      throws QueryException {
+
+    final MainOptions opts = qc.context.options;
+    if(sopts.get(StaticOptions.QUERYCACHE) <= 0 || !opts.toMap(MainOptions.BINDINGS).isEmpty()
+        || QueryProcessor.isLibrary(query)) return null;
+
+    final String uri = Token.string(sc.baseURI().string());
+    final String path = opts.get(MainOptions.QUERYPATH);
+    final String key = new StringBuilder(query).append('\0').append(uri).append('\0').
+        append(path).append('\0').append(sc.mixUpdates).toString();
+
+    Template tmpl;
+    synchronized(this) {
+      final Templates tmpls = cache.get(key);
+      if(tmpls != null && !tmpls.cacheable) return null;
+      if(tmpls == null || tmpls.list.isEmpty()) {
+        misses++;
+        tmpl = null;
+      } else {
+        hits++;
+        tmpl = tmpls.list.remove(tmpls.list.size() - 1);
+      }
+    }
+
+    if(tmpl == null) {
+      // parse query with a new context; remember if the query cannot be cached
+      tmpl = new Template(key, query, uri, qc.context);
+      if(!tmpl.cacheable()) {
+        release(key, null);
+        return null;
+      }
+    }
+    tmpl.copy(qc);
+    if(!path.isEmpty()) sc.baseURI(path);
+    return tmpl;
+  }
+
+  /**
+   * Returns a template to the cache.
+   * @param tmpl template
+   */
+  void release(final Template tmpl) {
+    release(tmpl.key, tmpl);
+  }
+
+  /**
+   * Removes all templates and resets the statistics.
+   */
+  public synchronized void clear() {
+    cache.clear();
+    hits = 0;
+    misses = 0;
+  }
+
+  /**
+   * Caches a template.
+   * @param key query key
+   * @param tmpl template, or {@code null} if the query cannot be cached
+   */
+  private synchronized void release(final String key, final Template tmpl) {
+    Templates tmpls = cache.get(key);
+    if(tmpls == null) {
+      tmpls = new Templates(tmpl != null);
+      cache.put(key, tmpls);
+      // remove least recently used entry
+      if(cache.size() > sopts.get(StaticOptions.QUERYCACHE)) {
+        final Iterator<String> keys = cache.keySet().iterator();
+        keys.next();
+        keys.remove();
+      }
+    }
+    if(tmpl != null && tmpls.cacheable && tmpls.list.size() < MAX_TEMPLATES) {
+      tmpls.list.add(tmpl);
+    }
+  }
+
+  @Override
+  public synchronized String toString() {
+    final long total = hits + misses;
+    final StringBuilder sb = new StringBuilder().append(cache.size()).append(" queries, ");
+    sb.append(hits).append('/').append(total).append(" hits");
+    if(total != 0) sb.append(String.format(Locale.ENGLISH, " (%.1f%%)", hits * 100d / total));
+    return sb.toString();
+  }
+
+  /** Templates of a query. */
+  private static final class Templates {
+    /** Available templates. */
+    final ArrayList<Template> list = new ArrayList<>(1);
+    /** Indicates if the query can be cached. */
+    final boolean cacheable;
+
+    /**
+     * Constructor.
+     * @param cacheable indicates if the query can be cached
+     */
+    Templates(final boolean cacheable) {
+      this.cacheable = cacheable;
+    }
+  }
+
+  /** Parsed query. */
+  static final class Template {
+    /** Query key. */
+    private final String key;
+    /** Query context. */
+    private final QueryContext qc;
+    /** Main module. */
+    private final MainModule root;
+
+    /**
+     * Constructor.
+     * @param key query key
+     * @param query query string
+     * @param uri static base URI
+     * @param ctx database context
+     * @throws QueryException query exception
+     */
+    private Template(final String key, final String query, final String uri, final Context ctx)
+        throws QueryException {
+      this.key = key;
+      qc = new QueryContext(ctx);
+      final StaticContext sc = new StaticContext(qc);
+      if(!uri.isEmpty()) sc.baseURI(uri);
+      root = qc.parseMain(query, null, sc);
+    }
+
+    /**
+     * Checks if the query can be copied. This is not the case if it declares functions,
+     * options or a context value, or if it imports modules.
+     * @return result of check
+     */
+    private boolean cacheable() {
+      return qc.funcs.funcs().length == 0 && qc.modParsed.isEmpty() && qc.ctxItem == null &&
+          qc.tempOpts.isEmpty() && qc.readLocks.isEmpty() && qc.writeLocks.isEmpty() &&
+          !qc.declarations();
+    }
+
+    /**
+     * Assigns a copy of the main module and the static variables to the specified context.
+     * @param ctx query context
+     * @throws QueryException query exception
+     */
+    private void copy(final QueryContext ctx) throws QueryException {
+      qc.vars.copy(ctx);
+      final VarScope scp = new VarScope(root.sc);
+      final Expr expr;
+      try {
+        expr = root.expr.copy(ctx, scp, new IntObjMap<Var>());
+      } finally {
+        ctx.vars.copied();
+      }
+      ctx.info.query = qc.info.query;
+      ctx.mainModule(MainModule.get(expr, scp, null, null, root.sc, root.info));
+      ctx.updating = qc.updating;
+    }
+  }
+}
@@ -450,6 +450,21 @@ public final class QueryContext extends Proc implements Closeable {
     // replace collection lock with context lock
     if(lr.read.delete(Docs.COLL)) lr.read.add(DBLocking.CONTEXT);
     if(lr.write.delete(Docs.COLL)) lr.write.add(DBLocking.CONTEXT);
+
+    // read-only queries: access databases via snapshots, drop database locks
+    // (databases whose index structures are accessed are still locked and opened directly)
+    if(!updating && !lr.readAll && context.soptions.get(StaticOptions.SNAPSHOTS)) {
+      final StringList locks = new StringList(lr.read.size());
+      for(final String lock : lr.read) {
+        if(lock.startsWith(DBLocking.PREFIX) || lock.startsWith(DBLocking.USER_PREFIX) ||
+           lock.startsWith(DBLocking.MODULE_PREFIX) || resources.indexes.contains(lock)) {
+          locks.add(lock);
+        }
+      }
+      lr.read.reset();
+      lr.read.add(locks);
+      resources.snapshots = true;
+    }
   }
 
   /**
@@ -552,6 +567,14 @@ public final class QueryContext extends Proc implements Closeable {
     return serParams;
   }
 
+  /**
+   * Indicates if the query declares serialization or full-text options.
+   * @return result of check
+   */
+  boolean declarations() {
+    return serParams != null || ftOpt != null;
+  }
+
   /**
    * Returns the current full-text options. Creates a new instance if called first.
    * @return full-text options
@@ -21,6 +21,15 @@ import org.basex.util.list.*;
  * @author Christian Gruen
  */
 public final class QueryPool {
+  /** Maximum number of items in the buffer of a streamed result. */
+  private static final int BUFFER = 1 << 8;
+  /** Interval for checking interruptions while waiting for the buffer (ms). */
+  private static final long WAIT = 100;
+  /** Maximum time to wait until a streamed query has acquired its locks (ms). */
+  private static final long START = 1000;
+  /** Marker for the end of a streamed result. */
+  private static final Item END = new Atm(Token.EMPTY);
+
   /** Queries. */
   private final Map<String, Query> queries = new ConcurrentHashMap<>();
 
@@ -28,24 +37,29 @@ public final class QueryPool {
    * Adds and registers query.
    * @param qp query processor
    * @param cache cache results
+   * @param stream stream results
    * @param info input info
    * @return query id
    */
-  public String add(final QueryProcessor qp, final boolean cache, final InputInfo info) {
+  public String add(final QueryProcessor qp, final boolean cache, final boolean stream,
+      final InputInfo info) {
     final String id = "Query-" + UUID.randomUUID();
-    queries.put(id, new Query(qp, id, cache, info));
+    queries.put(id, new Query(qp, id, cache, stream, info));
     return id;
   }
 
   /**
    * Retrieves the query result.
    * @param id id
+   * @param qc query context of the consumer
    * @param info input info
    * @return result
    * @throws QueryException query exception
    */
-  public Value result(final String id, final InputInfo info) throws QueryException {
+  public Value result(final String id, final QueryContext qc, final InputInfo info)
+      throws QueryException {
     final Query query = get(id, info);
+    if(query.buffer != null) return query.iter(qc).value();
     if(query.qp != null) throw ASYNC_RUNNING_X.get(info, id);
 
     try {
@@ -56,6 +70,21 @@ public final class QueryPool {
     }
   }
 
+  /**
+   * Returns an iterator for the query result.
+   * Streamed results are returned as soon as the query has acquired its locks.
+   * @param id id
+   * @param qc query context of the consumer
+   * @param info input info
+   * @return result iterator
+   * @throws QueryException query exception
+   */
+  public Iter iter(final String id, final QueryContext qc, final InputInfo info)
+      throws QueryException {
+    final Query query = get(id, info);
+    return query.buffer != null ? query.iter(qc) : result(id, qc, info).iter();
+  }
+
   /**
    * Checks if the specified query is running.
    * @param id id
@@ -117,15 +146,32 @@ public final class QueryPool {
    */
   public Value copy(final Iter iter, final Context ctx) throws QueryException {
     final ValueBuilder vb = new ValueBuilder();
-    for(Item it; (it = iter.next()) != null;) {
-      if(it instanceof FItem) throw BASX_FITEM_X.get(null, it);
-      final Data data = it.data();
-      if(data != null && !data.inMemory()) it = ((DBNode) it).dbNodeCopy(ctx.options);
-      vb.add(it);
-    }
+    for(Item it; (it = iter.next()) != null;) vb.add(copy(it, ctx));
     return vb.value();
   }
 
+  /**
+   * Creates a context-independent copy of an item.
+   * @param it item
+   * @param ctx database context
+   * @return copy
+   * @throws QueryException query exception
+   */
+  private static Item copy(final Item it, final Context ctx) throws QueryException {
+    if(it instanceof FItem) throw BASX_FITEM_X.get(null, it);
+    final Data data = it.data();
+    return data != null && !data.inMemory() ? ((DBNode) it).dbNodeCopy(ctx.options) : it;
+  }
+
+  /**
+   * Returns the time after which results will be discarded.
+   * @param ctx database context
+   * @return timeout (ms)
+   */
+  private static long timeout(final Context ctx) {
+    return ctx.soptions.get(StaticOptions.ASYNCTIMEOUT) * 1000L;
+  }
+
   /**
    * Representation of an asynchronous query.
    *
@@ -139,6 +185,12 @@ public final class QueryPool {
     final InputInfo info;
     /** Cache results. */
     boolean cache;
+    /** Buffer for streamed results ({@code null} if results are not streamed). */
+    final ArrayBlockingQueue<Item> buffer;
+    /** Indicates if the streamed result is being read. */
+    boolean reading;
+    /** Signals that the query has acquired its locks, or that it has been finished. */
+    final CountDownLatch started = new CountDownLatch(1);
     /** Query processor. */
     QueryProcessor qp;
     /** Query result. */
@@ -153,13 +205,16 @@ public final class QueryPool {
      * @param qp query processor
      * @param id query id
      * @param cache cache results
+     * @param stream stream results
      * @param info input info
      */
-    Query(final QueryProcessor qp, final String id, final boolean cache, final InputInfo info) {
+    Query(final QueryProcessor qp, final String id, final boolean cache, final boolean stream,
+        final InputInfo info) {
       this.qp = qp;
       this.id = id;
       this.info = info;
-      this.cache = cache;
+      this.cache = cache || stream;
+      buffer = stream ? new ArrayBlockingQueue<Item>(BUFFER) : null;
       start();
     }
 
@@ -169,9 +224,15 @@ public final class QueryPool {
       QueryException exc = null;
       Value value = null;
       try {
-        // register and evaluate query, cache results
+        // register and evaluate query, cache or stream results
         ctx.register(qp);
-        value = copy(qp.iter(), ctx);
+        started.countDown();
+        if(buffer != null) {
+          final Iter iter = qp.iter();
+          for(Item it; (it = iter.next()) != null;) put(copy(it, ctx), timeout(ctx));
+        } else {
+          value = copy(qp.iter(), ctx);
+        }
       } catch(final ProcException ex) {
         // query was interrupted: do not cache it
         cache = false;
@@ -180,6 +241,8 @@ public final class QueryPool {
       } catch(final Throwable ex) {
         exc = ASYNC_UNEXPECTED_X.get(info, ex);
       } finally {
+        started.countDown();
+        if(buffer != null) finish(exc, ctx);
         if(cache) {
           // cache result, discard it after timeout
           result = value;
@@ -190,7 +253,7 @@ public final class QueryPool {
             public void run() {
               queries.remove(id);
             }
-          }, ctx.soptions.get(StaticOptions.ASYNCTIMEOUT) * 1000L);
+          }, timeout(ctx));
         } else {
           // no caching: immediately remove result
           queries.remove(id);
@@ -203,6 +266,114 @@ public final class QueryPool {
       }
     }
 
+    /**
+     * Indicates the end of a streamed result.
+     * @param exc exception (can be {@code null})
+     * @param ctx database context
+     */
+    private void finish(final QueryException exc, final Context ctx) {
+      exception = exc;
+      if(cache) {
+        try {
+          put(END, timeout(ctx));
+          return;
+        } catch(final ProcException ex) {
+          Util.debug(ex);
+          cache = false;
+        }
+      }
+      // interrupted query: discard pending items
+      buffer.clear();
+      buffer.offer(END);
+    }
+
+    /**
+     * Adds an item to the buffer of the streamed result.
+     * Waits until the item has been consumed or the query has been stopped.
+     * @param it item
+     * @param timeout maximum time to wait (ms)
+     */
+    private void put(final Item it, final long timeout) {
+      final long end = System.currentTimeMillis() + timeout;
+      try {
+        while(!buffer.offer(it, WAIT, TimeUnit.MILLISECONDS)) {
+          qp.qc.checkStop();
+          // stop query if the result is not consumed
+          if(System.currentTimeMillis() > end) throw new ProcException();
+        }
+      } catch(final InterruptedException ex) {
+        Util.debug(ex);
+        throw new ProcException();
+      }
+    }
+
+    /**
+     * Returns an iterator for the streamed result. The result can only be read once.
+     * The consumer waits only briefly for a query that has not acquired its locks yet,
+     * as it may hold locks by itself that are requested by the query.
+     * @param qc query context of the consumer
+     * @return iterator
+     * @throws QueryException query exception
+     */
+    synchronized Iter iter(final QueryContext qc) throws QueryException {
+      if(reading || !start(qc)) throw ASYNC_RUNNING_X.get(info, id);
+      reading = true;
+      return new Iter() {
+        boolean done;
+
+        @Override
+        public Item next() throws QueryException {
+          if(done) return null;
+          final Item it = take();
+          if(it != END) return it;
+
+          // end of result: remove query, return exception or interruption
+          done = true;
+          if(timer != null) timer.cancel();
+          queries.remove(id);
+          if(exception != null) throw exception;
+          if(!cache) throw ASYNC_UNKNOWN_X.get(info, id);
+          return null;
+        }
+
+        /**
+         * Waits for the next item.
+         * @return item
+         */
+        private Item take() {
+          try {
+            while(true) {
+              final Item it = buffer.poll(WAIT, TimeUnit.MILLISECONDS);
+              if(it != null) return it;
+              qc.checkStop();
+            }
+          } catch(final InterruptedException ex) {
+            Util.debug(ex);
+            throw new ProcException();
+          }
+        }
+      };
+    }
+
+    /**
+     * Waits until the query has acquired its locks.
+     * @param qc query context of the consumer
+     * @return {@code true} if the query has acquired its locks or has been finished
+     */
+    private boolean start(final QueryContext qc) {
+      final long end = System.currentTimeMillis() + START;
+      try {
+        while(!started.await(WAIT, TimeUnit.MILLISECONDS)) {
+          qc.checkStop();
+          if(System.currentTimeMillis() > end) return false;
+        }
+        return true;
+      } catch(final InterruptedException ex) {
+        Util.debug(ex);
+        throw new ProcException();
+      }
+    }
+
     /**
      * Stops the query.
      */
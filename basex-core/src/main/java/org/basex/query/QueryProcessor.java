@@ -35,6 +35,10 @@ public final class QueryProcessor extends Proc implements Closeable {
   private final String query;
   /** Parsed flag. */
   private boolean parsed;
+  /** Indicates if the static context has been modified, or if modules have been declared. */
+  private boolean custom;
+  /** Leased template of the query cache ({@code null} if the query was parsed). */
+  private QueryCache.Template template;
 
   /**
    * Default constructor.
@@ -54,7 +58,8 @@ public final class QueryProcessor extends Proc implements Closeable {
   public void parse() throws QueryException {
     if(parsed) return;
     try {
-      qc.parseMain(query, null, sc);
+      if(!custom) template = qc.context.cache.parse(query, qc, sc);
+      if(template == null) qc.parseMain(query, null, sc);
     } finally {
       parsed = true;
       updating = qc.updating;
@@ -209,6 +214,7 @@ public final class QueryProcessor extends Proc implements Closeable {
    */
   public QueryProcessor namespace(final String prefix, final String uri) throws QueryException {
     sc.namespace(prefix, uri);
+    custom = true;
     return this;
   }
 
@@ -219,6 +225,7 @@ public final class QueryProcessor extends Proc implements Closeable {
    */
   public QueryProcessor uriResolver(final UriResolver resolver) {
     sc.resolver = resolver;
+    custom = true;
     return this;
   }
 
@@ -247,6 +254,7 @@ public final class QueryProcessor extends Proc implements Closeable {
    */
   public void module(final String uri, final String file) {
     qc.modDeclared.put(uri, file);
+    custom = true;
   }
 
   /**
@@ -260,6 +268,10 @@ public final class QueryProcessor extends Proc implements Closeable {
   @Override
   public void close() {
     qc.close();
+    if(template != null) {
+      qc.context.cache.release(template);
+      template = null;
+    }
   }
 
   @Override
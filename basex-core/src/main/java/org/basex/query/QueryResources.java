@@ -38,6 +38,10 @@ public final class QueryResources {
   private final ArrayList<Data> datas = new ArrayList<>(1);
   /** Indicates if the first database in the context is globally opened. */
   private boolean globalData;
+  /** Indicates if databases are accessed via read-only snapshots. */
+  boolean snapshots;
+  /** Databases whose index structures are accessed (will not be accessed via snapshots). */
+  final StringList indexes = new StringList();
 
   /** Module loader. */
   private ModuleLoader modules;
@@ -105,7 +109,14 @@ public final class QueryResources {
    * Closes all opened data references that have not been added by the global context.
    */
   void close() {
-    for(final Data data : datas) Close.close(data, qc.context);
+    for(final Data data : datas) {
+      if(data instanceof SnapshotData) {
+        data.close();
+        Close.close(((SnapshotData) data).original(), qc.context);
+      } else {
+        Close.close(data, qc.context);
+      }
+    }
     datas.clear();
     // close dynamically loaded JAR files
     if(modules != null) modules.close();
@@ -131,8 +142,7 @@ public final class QueryResources {
     }
     try {
       // open and add new data reference
-      final Context ctx = qc.context;
-      return addData(Open.open(name, ctx, ctx.options));
+      return addData(open(name));
     } catch(final IOException ex) {
       throw BXDB_OPEN_X.get(info, ex);
     }
@@ -385,13 +395,31 @@ public final class QueryResources {
     if(input.db != null) {
       try {
         // try to open database
-        final Context ctx = qc.context;
-        return addData(Open.open(input.db, ctx, ctx.options));
+        return addData(open(input.db));
       } catch(final IOException ex) { Util.debug(ex); }
     }
     return null;
   }
 
+  /**
+   * Opens a database. If snapshots are enabled, and if the index structures of the database
+   * will not be accessed, a snapshot of the database is returned.
+   * @param name name of database
+   * @return data reference
+   * @throws IOException I/O exception
+   */
+  private Data open(final String name) throws IOException {
+    final Context ctx = qc.context;
+    final Data data = Open.open(name, ctx, ctx.options);
+    if(!snapshots || indexes.contains(name) || !(data instanceof DiskData)) return data;
+    try {
+      return ((DiskData) data).snapshot();
+    } catch(final IOException ex) {
+      Close.close(data, ctx);
+      throw ex;
+    }
+  }
+
   /**
    * Creates a new database instance.
    * @param input query input
@@ -199,6 +199,7 @@ public interface QueryText {
   /** Parser token. */ String READ_LOCK = "read-lock";
   /** Parser token. */ String WRITE_LOCK = "write-lock";
   /** Parser token. */ String NON_DETERMNISTIC = "non-deterministic";
+  /** Parser token. */ String PARALLEL = "parallel";
 
   // PARSER KEYWORDS (IGNORED BY THE SYNTAX HIGHLIGHTER) ==========================================
 
@@ -381,6 +382,7 @@ public interface QueryText {
   /** Query Info. */ String TEST = "test";
   /** Query Info. */ String MIN = "min";
   /** Query Info. */ String MAX = "max";
+  /** Query Info. */ String LIMIT = "limit";
   /** Query Info. */ String INF = "inf";
   /** Query Info. */ String TCL = "tailCall";
 
@@ -400,6 +402,7 @@ public interface QueryText {
   /** Optimization info. */ String OPTFLWOR = "simplifying flwor expression";
   /** Optimization info. */ String OPTINLINE_X = "inlining %";
   /** Optimization info. */ String OPTWHERE = "rewriting where clause(s)";
+  /** Optimization info. */ String OPTJOIN_X = "rewriting to hash join: %";
   /** Optimization info. */ String OPTPRED_X = "rewriting % to predicate(s)";
   /** Optimization info. */ String OPTCAST_X = "removing redundant % cast.";
   /** Optimization info. */ String OPTVAR_X = "removing variable %";
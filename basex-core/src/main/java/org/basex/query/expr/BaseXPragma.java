@@ -29,6 +29,18 @@ public final class BaseXPragma extends Pragma {
   void finish(final QueryContext qc) {
   }
 
+  /**
+   * Returns the number of threads for evaluating the enclosed expression in parallel.
+   * If no positive number is specified as pragma value, the number of available processors
+   * will be returned.
+   * @return number of threads, or {@code 0} if this is no parallel pragma
+   */
+  int threads() {
+    if(!Token.eq(name.local(), Token.token(QueryText.PARALLEL))) return 0;
+    final int threads = Token.toInt(value);
+    return threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+  }
+
   @Override
   public boolean has(final Flag flag) {
     return flag == Flag.NDT && Token.eq(name.local(), Token.token(QueryText.NON_DETERMNISTIC));
@@ -80,6 +80,13 @@ public final class Cast extends Single {
     return new Cast(sc, info, expr.copy(qc, scp, vs), seqType);
   }
 
+  @Override
+  public boolean sameAs(final Expr cmp) {
+    if(!(cmp instanceof Cast)) return false;
+    final Cast c = (Cast) cmp;
+    return seqType.eq(c.seqType) && expr.sameAs(c.expr);
+  }
+
   @Override
   public void plan(final FElem plan) {
     addPlan(plan, planElem(TYP, seqType), expr);
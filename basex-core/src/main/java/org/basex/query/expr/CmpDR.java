@@ -0,0 +1,216 @@
+package org.basex.query.expr;
+
+import static org.basex.query.QueryError.*;
+import static org.basex.query.QueryText.*;
+
+import org.basex.data.*;
+import org.basex.index.*;
+import org.basex.index.stats.*;
+import org.basex.query.*;
+import org.basex.query.expr.index.*;
+import org.basex.query.iter.*;
+import org.basex.query.util.*;
+import org.basex.query.value.item.*;
+import org.basex.query.value.node.*;
+import org.basex.query.value.type.*;
+import org.basex.query.var.*;
+import org.basex.util.*;
+import org.basex.util.hash.*;
+
+/**
+ * Date range expression. Compares untyped values with {@code xs:dateTime} or
+ * {@code xs:date} bounds.
+ *
+ * @author BaseX Team 2005-16, BSD License
+ * @author Christian Gruen
+ */
+final class CmpDR extends Single {
+  /** Minimum (can be {@code null}). */
+  private final ADate min;
+  /** Include minimum value. */
+  private final boolean mni;
+  /** Maximum (can be {@code null}). */
+  private final ADate max;
+  /** Include maximum value. */
+  private final boolean mxi;
+  /** Flag for atomic evaluation. */
+  private final boolean atomic;
+
+  /**
+   * Constructor.
+   * @param expr (compiled) expression
+   * @param min minimum value
+   * @param mni include minimum value
+   * @param max maximum value
+   * @param mxi include maximum value
+   * @param info input info
+   */
+  private CmpDR(final Expr expr, final ADate min, final boolean mni, final ADate max,
+      final boolean mxi, final InputInfo info) {
+
+    super(info, expr);
+    this.min = min;
+    this.mni = mni;
+    this.max = max;
+    this.mxi = mxi;
+    seqType = SeqType.BLN;
+    final SeqType st = expr.seqType();
+    atomic = st.zeroOrOne() && !st.mayBeArray();
+  }
+
+  @Override
+  public Expr optimize(final QueryContext qc, final VarScope scp) throws QueryException {
+    return expr.isValue() ? optPre(item(qc, info), qc) : this;
+  }
+
+  /**
+   * Tries to convert the specified expression into a date range expression.
+   * @param cmp expression to be converted
+   * @return new or original expression
+   */
+  static ParseExpr get(final CmpG cmp) {
+    final Expr e1 = cmp.exprs[0], e2 = cmp.exprs[1];
+    if(e1.has(Flag.NDT) || e1.has(Flag.UPD) || !(e2 instanceof Dtm || e2 instanceof Dat))
+      return cmp;
+
+    // left operand must yield untyped values or values of the same type
+    final ADate d = (ADate) e2;
+    final Type t = e1.seqType().type;
+    if(!(t instanceof NodeType || t == AtomType.ATM || t == d.type)) return cmp;
+
+    switch(cmp.op.op) {
+      case GE: return new CmpDR(e1, d,    true,  null, true,  cmp.info);
+      case GT: return new CmpDR(e1, d,    false, null, true,  cmp.info);
+      case LE: return new CmpDR(e1, null, true,  d,    true,  cmp.info);
+      case LT: return new CmpDR(e1, null, true,  d,    false, cmp.info);
+      default: return cmp;
+    }
+  }
+
+  @Override
+  public Bln item(final QueryContext qc, final InputInfo ii) throws QueryException {
+    // atomic evaluation of arguments (faster)
+    if(atomic) {
+      final Item it = expr.item(qc, info);
+      return Bln.get(it != null && eval(it));
+    }
+
+    // iterative evaluation
+    final Iter ir = expr.atomIter(qc, info);
+    for(Item it; (it = ir.next()) != null;) {
+      if(eval(it)) return Bln.TRUE;
+    }
+    return Bln.FALSE;
+  }
+
+  /**
+   * Evaluates the range for the specified item.
+   * @param it item to be evaluated
+   * @return result of check
+   * @throws QueryException query exception
+   */
+  private boolean eval(final Item it) throws QueryException {
+    final ADate d = bound();
+    if(it.type != d.type && !it.type.isUntyped()) throw diffError(info, it, d);
+    final int mn = min == null ? -1 : min.diff(it, null, info);
+    final int mx = max == null ?  1 : max.diff(it, null, info);
+    return (mni ? mn <= 0 : mn < 0) && (mxi ? mx >= 0 : mx > 0);
+  }
+
+  /**
+   * Returns one of the bounds.
+   * @return bound
+   */
+  private ADate bound() {
+    return min != null ? min : max;
+  }
+
+  /**
+   * Creates an intersection of the existing and the specified expressions.
+   * @param c range comparison
+   * @return resulting expression or {@code null}
+   * @throws QueryException query exception
+   */
+  Expr intersect(final CmpDR c) throws QueryException {
+    // skip intersection if types or expressions to be compared are different
+    if(bound().type != c.bound().type || !c.expr.sameAs(expr)) return null;
+
+    // find common minimum and maximum value
+    ADate mn = min, mx = max;
+    boolean ni = mni, xi = mxi;
+    if(c.min != null) {
+      final int d = mn == null ? 1 : c.min.diff(mn, null, info);
+      if(d > 0) {
+        mn = c.min;
+        ni = c.mni;
+      } else if(d == 0) {
+        ni &= c.mni;
+      }
+    }
+    if(c.max != null) {
+      final int d = mx == null ? -1 : c.max.diff(mx, null, info);
+      if(d < 0) {
+        mx = c.max;
+        xi = c.mxi;
+      } else if(d == 0) {
+        xi &= c.mxi;
+      }
+    }
+
+    // remove comparisons that will never yield results
+    if(mn != null && mx != null) {
+      final int d = mn.diff(mx, null, info);
+      if(d > 0 || d == 0 && !(ni && xi)) return Bln.FALSE;
+    }
+    return new CmpDR(c.expr, mn, ni, mx, xi, info);
+  }
+
+  @Override
+  public boolean indexAccessible(final IndexInfo ii) {
+    // min/max values are required
+    if(min == null || max == null) return false;
+
+    // no support for main-memory databases
+    final Data data = ii.ic.data;
+    if(data.inMemory()) return false;
+    // accept location paths, or casts of location paths to the type of the bounds
+    final Expr input = expr instanceof Cast ? ((Cast) expr).expr : expr;
+    final IndexType type = ii.type(input, null);
+    if(type == null) return false;
+
+    // all indexed values must be castable to the type of the bounds: otherwise, the original
+    // comparison would raise an error that cannot be reproduced by the index access
+    final Stats stats = CmpR.stats(ii, type, input);
+    if(stats == null || (min.type == AtomType.DTM ? stats.dateTimes : stats.dates) != stats.count)
+      return false;
+
+    // create range access
+    final DateRangeAccess dra = new DateRangeAccess(info, type, min, mni, max, mxi, ii.ic);
+    ii.costs = dra.costs();
+    if(ii.costs < 0) return false;
+
+    final TokenBuilder tb = new TokenBuilder();
+    tb.add(mni ? '[' : '(').addExt(min).add(',').addExt(max).add(mxi ? ']' : ')');
+    ii.create(dra, true, info, Util.info(OPTINDEX_X_X, type + " date range", tb));
+    return true;
+  }
+
+  @Override
+  public Expr copy(final QueryContext qc, final VarScope scp, final IntObjMap<Var> vs) {
+    return new CmpDR(expr.copy(qc, scp, vs), min, mni, max, mxi, info);
+  }
+
+  @Override
+  public void plan(final FElem plan) {
+    addPlan(plan, planElem(MIN, min != null ? min : "", MAX, max != null ? max : ""), expr);
+  }
+
+  @Override
+  public String toString() {
+    final TokenBuilder tb = new TokenBuilder();
+    if(min != null) tb.addExt(min).add(mni ? " <= " : " < ");
+    tb.addExt(expr);
+    if(max != null) tb.add(mxi ? " <= " : " < ").addExt(max);
+    return tb.toString();
+  }
+}
@@ -184,6 +184,8 @@ public final class CmpG extends Cmp {
     ParseExpr e = CmpR.get(this);
     // rewrite expr CMP string)
     if(e == this) e = CmpSR.get(this);
+    // rewrite expr CMP date)
+    if(e == this) e = CmpDR.get(this);
     if(e != this) {
       // pre-evaluate optimized expression
       qc.compInfo(OPTREWRITE_X, this);
@@ -318,10 +320,18 @@ public final class CmpG extends Cmp {
     return cmp;
   }
 
+  /**
+   * Checks if this is an equality comparison on the default collation.
+   * @return result of check
+   */
+  public boolean equality() {
+    return op == OpG.EQ && coll == null;
+  }
+
   @Override
   public boolean indexAccessible(final IndexInfo ii) throws QueryException {
     // only equality expressions on default collation can be rewritten
-    if(op != OpG.EQ || coll != null) return false;
+    if(!equality()) return false;
 
     Expr expr1 = exprs[0];
     final boolean tokenize = expr1 instanceof FnTokenize;
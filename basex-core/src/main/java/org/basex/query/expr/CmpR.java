@@ -193,12 +193,26 @@ public final class CmpR extends Single {
    * @return key
    */
   private Stats key(final IndexInfo ii, final IndexType type) {
+    final Stats key = expr instanceof AxisPath ? stats(ii, type, expr) : null;
+    return key == null || key.type == StatsType.INTEGER ||
+        key.type == StatsType.DOUBLE ? key : null;
+  }
+
+  /**
+   * Retrieves the statistics of the element/attribute name addressed by the specified input.
+   * @param ii index info
+   * @param type index type
+   * @param expr input expression (path, or context value if the element name is known)
+   * @return statistics, or {@code null} if they are not available or not up-to-date
+   */
+  static Stats stats(final IndexInfo ii, final IndexType type, final Expr expr) {
     // statistics are not up-to-date
     final Data data = ii.ic.data;
-    if(!data.meta.uptodate || !data.nspaces.isEmpty() || !(expr instanceof AxisPath)) return null;
+    if(!data.meta.uptodate || !data.nspaces.isEmpty()) return null;
 
     NameTest test = ii.test;
     if(test == null) {
+      if(!(expr instanceof AxisPath)) return null;
       final Step step;
       final AxisPath path = (AxisPath) expr;
       final int st = path.steps.length - 1;
@@ -213,9 +227,7 @@ public final class CmpR extends Single {
     }
 
     final Names names = type == IndexType.TEXT ? data.elemNames : data.attrNames;
-    final Stats key = names.stat(names.id(test.name.local()));
-    return key == null || key.type == StatsType.INTEGER ||
-        key.type == StatsType.DOUBLE ? key : null;
+    return names.stat(names.id(test.name.local()));
   }
 
   @Override
@@ -3,6 +3,7 @@ package org.basex.query.expr;
 import static org.basex.query.QueryText.*;
 
 import org.basex.query.*;
+import org.basex.query.expr.gflwor.*;
 import org.basex.query.iter.*;
 import org.basex.query.value.*;
 import org.basex.query.value.node.*;
@@ -62,8 +63,13 @@ public final class Extension extends Single {
   @Override
   public Value value(final QueryContext qc) throws QueryException {
     try {
-      for(final Pragma p : pragmas) p.init(qc, info);
-      return qc.value(expr);
+      int threads = 0;
+      for(final Pragma p : pragmas) {
+        p.init(qc, info);
+        if(p instanceof BaseXPragma) threads = Math.max(threads, ((BaseXPragma) p).threads());
+      }
+      return threads != 0 && expr instanceof GFLWOR ? ((GFLWOR) expr).parallel(qc, threads) :
+        qc.value(expr);
     } finally {
       for(final Pragma p : pragmas) p.finish(qc);
     }
@@ -0,0 +1,112 @@
+package org.basex.query.expr.gflwor;
+
+import java.util.*;
+
+import org.basex.query.*;
+import org.basex.query.expr.*;
+import org.basex.query.expr.path.*;
+import org.basex.query.func.*;
+import org.basex.query.value.type.*;
+import org.basex.query.value.type.SeqType.Occ;
+import org.basex.query.var.*;
+import org.basex.util.*;
+
+/**
+ * Aggregates of a non-grouping variable of a {@code group by} clause, which are computed while
+ * the tuples are grouped. Aggregates are registered by {@code fn:count} and {@code fn:sum} calls
+ * that reference the variable.
+ *
+ * @author BaseX Team 2005-16, BSD License
+ * @author Christian Gruen
+ */
+public final class Aggregates {
+  /** Aggregate functions. */
+  final ArrayList<Function> funcs = new ArrayList<>();
+  /** Aggregated expressions (references to the variable, or paths). */
+  final ArrayList<Expr> exprs = new ArrayList<>();
+  /** Variables bound to the aggregates. */
+  final ArrayList<Var> vars = new ArrayList<>();
+
+  /** Non-grouping variable. */
+  private final Var var;
+  /** Indicates if the nodes bound to the variable are in document order and distinct. */
+  private final boolean ordered;
+
+  /**
+   * Constructor.
+   * @param var non-grouping variable
+   * @param ordered indicates if the nodes bound to the variable are in document order and
+   *   distinct across all tuples
+   */
+  Aggregates(final Var var, final boolean ordered) {
+    this.var = var;
+    this.ordered = ordered;
+  }
+
+  /**
+   * Returns the aggregates of a non-grouping variable that is referenced by the specified
+   * expression or by the root of the specified path.
+   * @param expr expression
+   * @return aggregates, or {@code null} if no aggregates are assigned
+   */
+  public static Aggregates get(final Expr expr) {
+    final Expr ex = expr instanceof Path ? ((Path) expr).root : expr;
+    return ex instanceof VarRef ? ((VarRef) ex).var.aggr : null;
+  }
+
+  /**
+   * Returns a reference to the variable that will be bound to the aggregate of the specified
+   * expression. For sums, the variable will be bound to partial sums, which need to be summed
+   * up again: this way, errors will only be raised if the sum is requested.
+   * @param func aggregate function ({@link Function#COUNT} or {@link Function#SUM})
+   * @param expr argument of the function
+   * @param qc query context
+   * @param scp variable scope
+   * @param info input info
+   * @return variable reference, or {@code null} if the aggregate cannot be computed
+   * @throws QueryException query exception
+   */
+  public VarRef aggregate(final Function func, final Expr expr, final QueryContext qc,
+      final VarScope scp, final InputInfo info) throws QueryException {
+
+    if(!(expr instanceof VarRef ? ((VarRef) expr).var.is(var) : path(expr))) return null;
+    // values must be numbers or untyped: otherwise, summing up partial sums may raise
+    // different errors
+    final Type type = expr.seqType().type;
+    if(func == Function.SUM && !type.isNumberOrUntyped()) return null;
+
+    // reuse existing aggregate
+    final int es = exprs.size();
+    for(int e = 0; e < es; e++) {
+      if(funcs.get(e) == func && exprs.get(e).sameAs(expr)) return new VarRef(info, vars.get(e));
+    }
+
+    final Var vr = scp.newLocal(qc, var.name, null, false);
+    vr.refineType(func == Function.COUNT ? SeqType.ITR : SeqType.get(
+        type.instanceOf(AtomType.ITR) ? AtomType.ITR : type.isNumber() ? type : AtomType.AAT,
+        Occ.ZERO_MORE), qc, info);
+    funcs.add(func);
+    exprs.add(expr);
+    vars.add(vr);
+    return new VarRef(info, vr);
+  }
+
+  /**
+   * Checks if the specified expression is a path that selects the attributes of the nodes
+   * bound to the variable. If the nodes are in document order and distinct, the result of
+   * the path is the concatenation of the results for the single tuples.
+   * @param expr expression
+   * @return result of check
+   */
+  private boolean path(final Expr expr) {
+    if(!ordered || !(expr instanceof Path)) return false;
+    final Path path = (Path) expr;
+    if(!(path.root instanceof VarRef && ((VarRef) path.root).var.is(var))) return false;
+    for(final Expr step : path.steps) {
+      if(!(step instanceof Step)) return false;
+      final Step st = (Step) step;
+      if(st.axis != Axis.ATTR || st.preds.length != 0) return false;
+    }
+    return true;
+  }
+}
@@ -1,7 +1,9 @@
 package org.basex.query.expr.gflwor;
 
 import java.util.*;
+import java.util.concurrent.*;
 
+import org.basex.data.*;
 import org.basex.query.*;
 import org.basex.query.expr.*;
 import org.basex.query.expr.path.*;
@@ -30,6 +32,8 @@ public final class GFLWOR extends ParseExpr {
   private final LinkedList<Clause> clauses;
   /** Return expression. */
   public Expr ret;
+  /** Maximum number of requested results. */
+  private long limit = Long.MAX_VALUE;
 
   /**
    * Constructor.
@@ -48,11 +52,37 @@ public final class GFLWOR extends ParseExpr {
    * @return the evaluator
    */
   private Eval newEval() {
+    final OrderBy top = top();
     Eval e = new StartEval();
-    for(final Clause cls : clauses) e = cls.eval(e);
+    for(final Clause cls : clauses) e = cls == top ? top.eval(e, limit) : cls.eval(e);
     return e;
   }
 
+  /**
+   * Assigns the maximum number of results that will be requested from this expression.
+   * If the tuples are ordered, and if each tuple yields a single item, only the best tuples
+   * will be retained by the order by clause.
+   * @param max maximum number of results
+   */
+  public void limit(final long max) {
+    limit = max;
+  }
+
+  /**
+   * Returns the order by clause that only needs to return the requested number of tuples.
+   * @return order by clause or {@code null}
+   */
+  private OrderBy top() {
+    if(limit == Long.MAX_VALUE || !ret.seqType().one()) return null;
+    final Iterator<Clause> iter = clauses.descendingIterator();
+    while(iter.hasNext()) {
+      final Clause clause = iter.next();
+      if(clause instanceof OrderBy) return (OrderBy) clause;
+      if(!(clause instanceof Let)) break;
+    }
+    return null;
+  }
+
   @Override
   public Item item(final QueryContext qc, final InputInfo ii) throws QueryException {
     Item out = null;
@@ -103,6 +133,69 @@ public final class GFLWOR extends ParseExpr {
     };
   }
 
+  /**
+   * Evaluates the iterations of the first {@code for} clause in parallel and returns the
+   * results in their original order. The expression is evaluated sequentially if its
+   * iterations may depend on each other.
+   * If a {@code group by} clause is found, the groups of each range of iterations are built in
+   * parallel and merged, and the remaining clauses are evaluated sequentially.
+   * @param qc query context
+   * @param threads number of threads
+   * @return resulting value
+   * @throws QueryException query exception
+   */
+  public Value parallel(final QueryContext qc, final int threads) throws QueryException {
+    if(threads < 2 || !parallel()) return value(qc);
+
+    final For fr = (For) clauses.getFirst();
+    final Value items = qc.value(fr.expr);
+    final long split = Math.max(1, items.size() / (threads * 4L));
+    final int cs = clauses.size();
+    int g = 1;
+    while(g < cs && !(clauses.get(g) instanceof GroupBy)) g++;
+    final GroupBy group = g < cs ? (GroupBy) clauses.get(g) : null;
+    final ConcurrentSkipListMap<Long, Grouper> groups = new ConcurrentSkipListMap<>();
+    final Parallel task = group == null ?
+      new Parallel(fr, clauses.subList(1, cs), ret, items, split, qc) :
+      new Parallel(fr, clauses.subList(1, g), group, groups, items, split, qc);
+    final ForkJoinPool pool = new ForkJoinPool(threads);
+    try {
+      final Value value = pool.invoke(task);
+      if(group == null) return value;
+
+      // merge the groups of all ranges, evaluate the remaining clauses
+      Eval ev = group.eval(Grouper.merge(new ArrayList<>(groups.values()), threads, pool));
+      for(final Clause cl : clauses.subList(g + 1, cs)) ev = cl.eval(ev);
+      final ValueBuilder vb = new ValueBuilder();
+      while(ev.next(qc)) vb.add(ret.value(qc));
+      return vb.value();
+    } catch(final RuntimeException ex) {
+      qc.checkStop();
+      final Throwable th = Util.rootException(ex);
+      if(th instanceof QueryException) throw (QueryException) th;
+      throw ex;
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  /**
+   * Checks if the iterations of the first {@code for} clause can be evaluated independently.
+   * @return result of check
+   */
+  private boolean parallel() {
+    if(has(Flag.NDT) || has(Flag.UPD)) return false;
+    final Clause first = clauses.getFirst();
+    if(!(first instanceof For) || ((For) first).score != null || ((For) first).empty)
+      return false;
+    for(final Clause cl : clauses) {
+      // clauses after a group by clause are evaluated sequentially
+      if(cl instanceof GroupBy) return true;
+      if(!(cl instanceof ForLet || cl instanceof Where || cl instanceof Join)) return false;
+    }
+    return true;
+  }
+
   @Override
   public Expr compile(final QueryContext qc, final VarScope scp) throws QueryException {
     final ListIterator<Clause> iter = clauses.listIterator();
@@ -119,9 +212,62 @@ public final class GFLWOR extends ParseExpr {
       clauseError(qe, iter);
     }
 
+    aggregate(qc, scp);
     return optimize(qc, scp);
   }
 
+  /**
+   * Computes the counts and sums of non-grouping variables while grouping if the variables are
+   * passed on to {@code fn:count} or {@code fn:sum}. Aggregates are only computed if they are
+   * requested by the following clauses or the return expression. Variables that are not
+   * referenced anymore will be removed in the optimization step.
+   * @param qc query context
+   * @param scp variable scope
+   * @throws QueryException query exception
+   */
+  private void aggregate(final QueryContext qc, final VarScope scp) throws QueryException {
+    for(int c = 0; c < clauses.size(); c++) {
+      final Clause clause = clauses.get(c);
+      if(!(clause instanceof GroupBy)) continue;
+
+      // register aggregates, which are requested by the optimized function calls
+      final GroupBy group = (GroupBy) clause;
+      final Var[] vars = group.aggregates(ordered(c));
+      for(final Var var : vars) {
+        inline(qc, scp, var, new VarRef(group.info, var), clauses.listIterator(c + 1));
+      }
+      final GroupBy gb = group.aggregate(qc, scp);
+      if(gb != null) clauses.set(c, gb);
+    }
+  }
+
+  /**
+   * Returns the variables that bind the nodes of a for clause in document order if this clause
+   * is the only one that iterates the tuples preceding the specified clause. Besides the
+   * variable of the for clause, let variables are returned that are bound to this variable.
+   * @param c position of the clause
+   * @return ids of the variables (empty if the tuples may not be ordered)
+   */
+  private IntSet ordered(final int c) {
+    final IntSet vars = new IntSet();
+    boolean iter = false;
+    for(int p = 0; p < c; p++) {
+      final Clause clause = clauses.get(p);
+      if(clause instanceof For) {
+        if(iter || !((For) clause).expr.iterable()) return new IntSet();
+        vars.add(((For) clause).var.id);
+        iter = true;
+      } else if(clause instanceof Let) {
+        final Expr ex = ((Let) clause).expr;
+        if(ex instanceof VarRef && vars.contains(((VarRef) ex).var.id))
+          vars.add(((Let) clause).var.id);
+      } else if(!(clause instanceof Where || clause instanceof Count)) {
+        return new IntSet();
+      }
+    }
+    return vars;
+  }
+
   @Override
   public Expr optimize(final QueryContext qc, final VarScope scp) throws QueryException {
     final ListIterator<Clause> iter = clauses.listIterator();
@@ -546,7 +692,14 @@ public final class GFLWOR extends ParseExpr {
           final Clause before = clauses.get(b4);
           if(before instanceof For) {
             final For f = (For) before;
-            if(f.toPredicate(qc, scp, where.expr)) {
+            final Join join = join(f, b4, where);
+            if(join != null) {
+              qc.compInfo(QueryText.OPTJOIN_X, join);
+              clauses.set(b4, join.optimize(qc, scp));
+              clauses.remove(newPos);
+              i--;
+              changed = true;
+            } else if(f.toPredicate(qc, scp, where.expr)) {
               fors.add((For) before);
               clauses.remove(newPos);
               i--;
@@ -565,6 +718,50 @@ public final class GFLWOR extends ParseExpr {
     return changed;
   }
 
+  /**
+   * Tries to merge a for clause and a where clause with an equality comparison to a hash join.
+   * The join will only be created if the bound expression and the operand referencing the
+   * item variable are independent of the incoming tuples, and if the comparison will be
+   * evaluated for multiple tuples.
+   * @param f for clause
+   * @param index position of the for clause
+   * @param where where clause
+   * @return join or {@code null}
+   */
+  private Join join(final For f, final int index, final Where where) {
+    // skip single items and positional or scoring for clauses
+    if(f.empty || f.vars.length != 1 || f.expr.size() == 1 || f.expr.seqType().one() ||
+        !(where.expr instanceof CmpG) || !((CmpG) where.expr).equality()) return null;
+
+    // indexed operand: must reference the item variable
+    final Expr[] ops = ((CmpG) where.expr).exprs;
+    final Expr key = ops[0].uses(f.var) ? ops[0] : ops[1];
+    final Expr probe = key == ops[0] ? ops[1] : ops[0];
+    if(!key.uses(f.var) || probe.uses(f.var)) return null;
+
+    // bound expression and key will be evaluated only once:
+    // reject variables that may be bound to different values by the preceding clauses
+    if(f.expr.has(Flag.NDT) || key.has(Flag.NDT)) return null;
+    boolean loop = false;
+    for(int c = 0; c < index; c++) {
+      final Clause clause = clauses.get(c);
+      loop |= clause instanceof For || clause instanceof Window;
+      if(loop) {
+        for(final Var v : clause.vars) {
+          if(f.expr.uses(v) || key.uses(v)) return null;
+        }
+      }
+    }
+    if(!loop) return null;
+
+    // prefer index access on database nodes
+    final Data data = f.expr.data();
+    if(data != null && (data.meta.textindex || data.meta.attrindex) && key instanceof Path)
+      return null;
+
+    return new Join(f.var, f.expr, where.expr, f.info);
+  }
+
   /**
    * Rewrite positional variables to predicates.
    * @param qc query context
@@ -757,7 +954,9 @@ public final class GFLWOR extends ParseExpr {
   public Expr copy(final QueryContext qc, final VarScope scp, final IntObjMap<Var> vs) {
     final LinkedList<Clause> cls = new LinkedList<>();
     for(final Clause clause : clauses) cls.add(clause.copy(qc, scp, vs));
-    return copyType(new GFLWOR(info, cls, ret.copy(qc, scp, vs)));
+    final GFLWOR gflwor = new GFLWOR(info, cls, ret.copy(qc, scp, vs));
+    gflwor.limit = limit;
+    return copyType(gflwor);
   }
 
   /**
@@ -809,7 +1008,7 @@ public final class GFLWOR extends ParseExpr {
 
   @Override
   public void plan(final FElem plan) {
-    final FElem e = planElem();
+    final FElem e = planElem(QueryText.LIMIT, limit == Long.MAX_VALUE ? null : limit);
     for(final Clause clause : clauses) clause.plan(e);
     ret.plan(e);
     plan.add(e);
@@ -4,10 +4,13 @@ import static org.basex.query.QueryText.*;
 
 import java.util.*;
 
+import org.basex.core.*;
 import org.basex.query.*;
 import org.basex.query.expr.*;
 import org.basex.query.expr.gflwor.GFLWOR.Clause;
 import org.basex.query.expr.gflwor.GFLWOR.Eval;
+import org.basex.query.func.*;
+import org.basex.query.iter.*;
 import org.basex.query.util.*;
 import org.basex.query.util.collation.*;
 import org.basex.query.value.*;
@@ -33,6 +36,8 @@ public final class GroupBy extends Clause {
   private Expr[] preExpr;
   /** Non-grouping variables. */
   private Var[] post;
+  /** Aggregate functions applied to the values of non-grouping variables (can be {@code null}). */
+  private Function[] aggr;
   /** Number of non-occluded grouping variables. */
   private final int nonOcc;
 
@@ -49,6 +54,7 @@ public final class GroupBy extends Clause {
     this.post = post;
     preExpr = new Expr[pre.length];
     System.arraycopy(pre, 0, preExpr, 0, pre.length);
+    aggr = new Function[pre.length];
     int n = 0;
     for(final Spec spec : specs) if(!spec.occluded) n++;
     nonOcc = n;
@@ -59,15 +65,17 @@ public final class GroupBy extends Clause {
    * @param specs grouping specs
    * @param pre pre-grouping expressions
    * @param post post-grouping variables
+   * @param aggr aggregate functions
    * @param nonOcc number of non-occluded grouping variables
    * @param info input info
    */
-  private GroupBy(final Spec[] specs, final Expr[] pre, final Var[] post, final int nonOcc,
-      final InputInfo info) {
+  private GroupBy(final Spec[] specs, final Expr[] pre, final Var[] post, final Function[] aggr,
+      final int nonOcc, final InputInfo info) {
     super(info, vars(specs, post));
     this.specs = specs;
     preExpr = pre;
     this.post = post;
+    this.aggr = aggr;
     this.nonOcc = nonOcc;
   }
 
@@ -89,119 +97,155 @@ public final class GroupBy extends Clause {
   Eval eval(final Eval sub) {
     return new Eval() {
       /** Groups to iterate over. */
-      private Group[] groups;
-      /** Current position. */
-      private int pos;
+      private Grouper groups;
 
       @Override
       public boolean next(final QueryContext qc) throws QueryException {
-        if(groups == null) groups = init(qc);
-        if(pos == groups.length) return false;
-
-        final Group curr = groups[pos];
-        // be nice to the garbage collector
-        groups[pos++] = null;
-
-        int p = 0;
-        for(final Spec spec : specs) {
-          if(!spec.occluded) {
-            final Item key = curr.key[p++];
-            qc.set(spec.var, key == null ? Empty.SEQ : key, info);
-          }
-        }
-        final int pl = post.length;
-        for(int i = 0; i < pl; i++) qc.set(post[i], curr.ngv[i].value(), info);
-        return true;
+        if(groups == null) groups = group(sub, qc, qc.context.options.get(MainOptions.GROUPSIZE));
+        return bind(groups.next(), qc);
       }
+    };
+  }
 
-      /**
-       * Builds up the groups.
-       * @param qc query context
-       * @throws QueryException query exception
-       */
-      private Group[] init(final QueryContext qc) throws QueryException {
-        final ArrayList<Group> grps = new ArrayList<>();
-        final IntObjMap<Group> map = new IntObjMap<>();
-        final Collation[] colls = new Collation[nonOcc];
-        int c = 0;
-        for(final Spec spec : specs) {
-          if(!spec.occluded) colls[c++] = spec.coll;
-        }
-
-        while(sub.next(qc)) {
-          final Item[] key = new Item[nonOcc];
-          int p = 0, hash = 1;
-          for(final Spec spec : specs) {
-            final Item atom = spec.atomItem(qc, info);
-            if(!spec.occluded) {
-              key[p++] = atom;
-              // If the values are compared using a special collation, we let them collide
-              // here and let the comparison do all the work later.
-              // This enables other non-collation specs to avoid the collision.
-              hash = 31 * hash + (atom == null || spec.coll != null ? 0 : atom.hash(info));
-            }
-            qc.set(spec.var, atom == null ? Empty.SEQ : atom, info);
-          }
-
-          // find the group for this key
-          final Group fst;
-          Group grp = null;
-          // no collations, so we can use hashing
-          for(Group g = fst = map.get(hash); g != null; g = g.next) {
-            if(eq(key, g.key, colls)) {
-              grp = g;
-              break;
-            }
-          }
-
-          final int pl = preExpr.length;
-          if(grp == null) {
-            // new group, add it to the list
-            final ValueBuilder[] ngs = new ValueBuilder[pl];
-            final int nl = ngs.length;
-            for(int n = 0; n < nl; n++) ngs[n] = new ValueBuilder();
-            grp = new Group(key, ngs);
-            grps.add(grp);
-
-            // insert the group into the hash table
-            if(fst == null) {
-              map.put(hash, grp);
-            } else {
-              final Group nxt = fst.next;
-              fst.next = grp;
-              grp.next = nxt;
-            }
-          }
-
-          // add values of non-grouping variables to the group
-          for(int g = 0; g < pl; g++) grp.ngv[g].add(preExpr[g].value(qc));
-        }
-
-        // we're finished, copy the array so the list can be garbage-collected
-        return grps.toArray(new Group[grps.size()]);
+  /**
+   * Returns an evaluator for groups that have already been built.
+   * @param groups groups
+   * @return evaluator
+   */
+  Eval eval(final Grouper groups) {
+    return new Eval() {
+      @Override
+      public boolean next(final QueryContext qc) throws QueryException {
+        return bind(groups.next(), qc);
       }
     };
   }
 
   /**
-   * Checks two keys for equality.
-   * @param its1 first keys
-   * @param its2 second keys
-   * @param coll collations
-   * @return {@code true} if the compare as equal, {@code false} otherwise
+   * Builds the groups for the tuples of the specified evaluator.
+   * @param sub evaluator of the preceding clauses
+   * @param qc query context
+   * @param limit maximum number of groups in main memory (0: no limit)
+   * @return groups
    * @throws QueryException query exception
    */
-  private boolean eq(final Item[] its1, final Item[] its2, final Collation[] coll)
-      throws QueryException {
+  Grouper group(final Eval sub, final QueryContext qc, final int limit) throws QueryException {
+    final Collation[] colls = new Collation[nonOcc];
+    int c = 0;
+    for(final Spec spec : specs) {
+      if(!spec.occluded) colls[c++] = spec.coll;
+    }
 
-    final int il = its1.length;
-    for(int i = 0; i < il; i++) {
-      final Item it1 = its1[i], it2 = its2[i];
-      if(it1 == null ^ it2 == null || it1 != null && !it1.equiv(it2, coll[i], info)) return false;
+    final Grouper groups = new Grouper(preExpr, aggr, colls, limit, qc, info);
+    while(sub.next(qc)) {
+      final Item[] key = new Item[nonOcc];
+      int p = 0, hash = 1;
+      for(final Spec spec : specs) {
+        final Item atom = spec.atomItem(qc, info);
+        if(!spec.occluded) {
+          key[p++] = atom;
+          // If the values are compared using a special collation, we let them collide
+          // here and let the comparison do all the work later.
+          // This enables other non-collation specs to avoid the collision.
+          hash = 31 * hash + (atom == null || spec.coll != null ? 0 : atom.hash(info));
+        }
+        qc.set(spec.var, atom == null ? Empty.SEQ : atom, info);
+      }
+      groups.add(key, hash);
+    }
+    return groups;
+  }
+
+  /**
+   * Binds the grouping and non-grouping variables of a group.
+   * @param curr group (can be {@code null})
+   * @param qc query context
+   * @return {@code true} if the variables have been bound, {@code false} if no group was left
+   * @throws QueryException query exception
+   */
+  private boolean bind(final Group curr, final QueryContext qc) throws QueryException {
+    if(curr == null) return false;
+
+    int p = 0;
+    for(final Spec spec : specs) {
+      if(!spec.occluded) {
+        final Item key = curr.key[p++];
+        qc.set(spec.var, key == null ? Empty.SEQ : key, info);
+      }
+    }
+    final int pl = post.length;
+    for(int i = 0; i < pl; i++) {
+      final Function func = aggr[i];
+      final Value val;
+      if(func == Function.COUNT) {
+        val = Int.get(curr.count[i]);
+      } else if(func == Function.SUM) {
+        // partial sums: running total and the value that could not be added
+        final Item sum = curr.sum[i], fail = curr.fail[i];
+        val = sum == null ? fail == null ? Empty.SEQ : fail :
+          fail == null ? sum : new ValueBuilder().add(sum).add(fail).value();
+      } else {
+        val = curr.ngv[i].value();
+      }
+      qc.set(post[i], val, info);
     }
     return true;
   }
 
+  /**
+   * Assigns aggregates to the non-grouping variables. While they are assigned, {@code fn:count}
+   * and {@code fn:sum} calls with references to the variables will be rewritten to references
+   * to new variables, which are bound to the aggregated values.
+   * @param nodes ids of the variables that bind the nodes of a single tuple in document order
+   * @return variables to which aggregates have been assigned
+   */
+  Var[] aggregates(final IntSet nodes) {
+    Var[] vs = { };
+    final int pl = preExpr.length;
+    for(int p = 0; p < pl; p++) {
+      if(aggr[p] != null) continue;
+      final Expr pre = preExpr[p];
+      final Var var = post[p];
+      var.aggr = new Aggregates(var, pre instanceof VarRef &&
+          nodes.contains(((VarRef) pre).var.id));
+      vs = Array.add(vs, var);
+    }
+    return vs;
+  }
+
+  /**
+   * Creates a clause with additional non-grouping variables for the aggregates that have been
+   * requested, and removes the aggregates from the variables.
+   * @param qc query context
+   * @param scp variable scope
+   * @return new clause, or {@code null} if no aggregates were requested
+   * @throws QueryException query exception
+   */
+  GroupBy aggregate(final QueryContext qc, final VarScope scp) throws QueryException {
+    Expr[] pre = preExpr;
+    Var[] vs = post;
+    Function[] funcs = aggr;
+    final int pl = preExpr.length;
+    for(int p = 0; p < pl; p++) {
+      final Var var = post[p];
+      final Aggregates ag = var.aggr;
+      if(ag == null) continue;
+      var.aggr = null;
+      final Expr ex = preExpr[p];
+      final int al = ag.vars.size();
+      for(int a = 0; a < al; a++) {
+        // aggregated expression is evaluated with the values of a single tuple
+        Expr e = ag.exprs.get(a).copy(qc, scp, new IntObjMap<Var>());
+        final Expr inl = e.inline(qc, scp, var, ex.copy(qc, scp, new IntObjMap<Var>()));
+        if(inl != null) e = inl;
+        pre = Array.add(pre, e);
+        vs = Array.add(vs, ag.vars.get(a));
+        funcs = Array.add(funcs, ag.funcs.get(a));
+      }
+    }
+    return vs == post ? null : new GroupBy(specs, pre, vs, funcs, nonOcc, info);
+  }
+
   @Override
   public boolean has(final Flag flag) {
     for(final Spec sp : specs) if(sp.has(flag)) return true;
@@ -219,6 +263,7 @@ public final class GroupBy extends Clause {
   public GroupBy optimize(final QueryContext qc, final VarScope scp) throws QueryException {
     final int pl = preExpr.length;
     for(int p = 0; p < pl; p++) {
+      if(aggr[p] != null) continue;
       final SeqType it = preExpr[p].seqType();
       post[p].refineType(it.withOcc(it.mayBeZero() ? Occ.ZERO_MORE : Occ.ONE_MORE), qc, info);
     }
@@ -258,7 +303,7 @@ public final class GroupBy extends Clause {
     }
 
     // done
-    return new GroupBy(Arr.copyAll(qc, scp, vs, specs), pEx, ps, nonOcc, info);
+    return new GroupBy(Arr.copyAll(qc, scp, vs, specs), pEx, ps, aggr.clone(), nonOcc, info);
   }
 
   @Override
@@ -276,6 +321,7 @@ public final class GroupBy extends Clause {
     for(int p = 0; p < post.length; p++) {
       if(!used.get(post[p].id)) {
         preExpr = Array.delete(preExpr, p);
+        aggr = Array.delete(aggr, p);
         post = Array.delete(post, p--);
       }
     }
@@ -319,7 +365,9 @@ public final class GroupBy extends Clause {
     final int pl = post.length;
     for(int p = 0; p < pl; p++) {
       sb.append(LET).append(" (: post-group :) ").append(post[p]);
-      sb.append(' ').append(ASSIGN).append(' ').append(preExpr[p]).append(' ');
+      sb.append(' ').append(ASSIGN).append(' ');
+      if(aggr[p] != null) sb.append(Token.string(aggr[p].id())).append('(');
+      sb.append(preExpr[p]).append(aggr[p] != null ? ") " : " ");
     }
     sb.append(GROUP).append(' ').append(BY);
     final int sl = specs.length;
@@ -402,22 +450,38 @@ public final class GroupBy extends Clause {
    * @author BaseX Team 2005-16, BSD License
    * @author Leo Woerteler
    */
-  private static final class Group {
+  static final class Group {
     /** Grouping key, may contain {@code null} values. */
     final Item[] key;
-    /** Non-grouping variables. */
+    /** Hash value of the key. */
+    final int hash;
+    /** Values of non-grouping variables ({@code null} for aggregated variables). */
     final ValueBuilder[] ngv;
+    /** Counts of aggregated non-grouping variables (can be {@code null}). */
+    final long[] count;
+    /** Sums of aggregated non-grouping variables (can be {@code null}). */
+    final Item[] sum;
+    /** Values that could not be added to the sums (can be {@code null}). */
+    final Item[] fail;
+    /** Position of the first occurrence. */
+    long order;
     /** Overflow list. */
     Group next;
 
     /**
      * Constructor.
      * @param k grouping key
+     * @param h hash value of the key
      * @param ng non-grouping variables
+     * @param aggr indicates if aggregates will be computed
      */
-    Group(final Item[] k, final ValueBuilder[] ng) {
+    Group(final Item[] k, final int h, final ValueBuilder[] ng, final boolean aggr) {
       key = k;
+      hash = h;
       ngv = ng;
+      count = aggr ? new long[ng.length] : null;
+      sum = aggr ? new Item[ng.length] : null;
+      fail = aggr ? new Item[ng.length] : null;
     }
   }
 }
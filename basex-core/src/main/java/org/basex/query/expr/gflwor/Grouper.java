@@ -0,0 +1,522 @@
+package org.basex.query.expr.gflwor;
+
+import static org.basex.query.QueryError.*;
+
+import java.io.*;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.*;
+
+import org.basex.core.*;
+import org.basex.io.*;
+import org.basex.io.in.DataInput;
+import org.basex.io.out.DataOutput;
+import org.basex.query.*;
+import org.basex.query.expr.*;
+import org.basex.query.expr.gflwor.GroupBy.Group;
+import org.basex.query.func.*;
+import org.basex.query.iter.*;
+import org.basex.query.util.collation.*;
+import org.basex.query.value.*;
+import org.basex.query.value.item.*;
+import org.basex.util.*;
+import org.basex.util.hash.*;
+
+/**
+ * Builds the groups of a {@code group by} clause. Groups are looked up via the hash values of
+ * their keys. For non-grouping variables that are only aggregated, running totals are kept
+ * instead of the values.
+ *
+ * If the number of groups exceeds the limit specified by {@link MainOptions#GROUPSIZE}, the
+ * tuples of all new groups are hash-partitioned and written to temporary files. The groups in
+ * main memory are returned first, followed by the groups of each partition, which are built
+ * one after another. Tuples that cannot be written to disk (see {@link Spill}) are kept in
+ * main memory; their positions in the partitions are preserved.
+ *
+ * Groups that have been built in parallel for ranges of the input can be merged: the groups
+ * of each hash partition are merged by a separate task, and the merged groups are returned in
+ * the order of their first occurrence.
+ *
+ * @author BaseX Team 2005-16, BSD License
+ * @author Christian Gruen
+ */
+final class Grouper {
+  /** Number of partitions for tuples that are written to disk. */
+  private static final int PARTITIONS = 16;
+
+  /** Expressions of the non-grouping variables. */
+  private final Expr[] exprs;
+  /** Aggregate functions applied to the values of non-grouping variables. */
+  private final Function[] aggr;
+  /** Collations of the non-occluded grouping keys (entries can be {@code null}). */
+  private final Collation[] colls;
+  /** Maximum number of groups in main memory (0: no limit). */
+  private final int limit;
+  /** Query context. */
+  private final QueryContext qc;
+  /** Input info. */
+  private final InputInfo info;
+  /** Indicates if aggregates are computed. */
+  private final boolean aggregated;
+
+  /** Hash table with the groups in main memory ({@code null} if groups are returned). */
+  private IntObjMap<Group> map = new IntObjMap<>();
+  /** Groups that will be returned next, in the order of their first occurrence. */
+  private ArrayList<Group> groups = new ArrayList<>();
+  /** Partitions with tuples that have been written to disk ({@code null} if none exist). */
+  private Partition[] parts;
+  /** Temporary storage for partitions. */
+  private Spill store;
+  /** Position of the next group to be returned. */
+  private int pos;
+  /** Position of the next partition to be read. */
+  private int part;
+
+  /**
+   * Constructor.
+   * @param exprs expressions of the non-grouping variables
+   * @param aggr aggregate functions
+   * @param colls collations of the non-occluded grouping keys
+   * @param limit maximum number of groups in main memory (0: no limit)
+   * @param qc query context
+   * @param info input info
+   */
+  Grouper(final Expr[] exprs, final Function[] aggr, final Collation[] colls, final int limit,
+      final QueryContext qc, final InputInfo info) {
+    this.exprs = exprs;
+    this.aggr = aggr;
+    this.colls = colls;
+    this.limit = limit;
+    this.qc = qc;
+    this.info = info;
+    boolean ag = false;
+    for(final Function func : aggr) ag |= func != null;
+    aggregated = ag;
+  }
+
+  /**
+   * Adds a tuple. The values of the non-grouping variables are evaluated with the current
+   * variable bindings.
+   * @param key grouping key (items may be {@code null})
+   * @param hash hash value of the key
+   * @throws QueryException query exception
+   */
+  void add(final Item[] key, final int hash) throws QueryException {
+    Group grp = find(map, key, hash);
+    if(grp == null) {
+      if(limit > 0 && groups.size() >= limit) {
+        spill(key, hash);
+        return;
+      }
+      grp = create(map, groups, key, hash);
+    }
+
+    // add values of non-grouping variables to the group, or update their aggregates
+    final int el = exprs.length;
+    for(int e = 0; e < el; e++) {
+      final Function func = aggr[e];
+      if(func == Function.COUNT) {
+        grp.count[e] += exprs[e].value(qc).size();
+      } else if(func == Function.SUM) {
+        if(grp.fail[e] == null) sum(grp, e, exprs[e].atomIter(qc, info));
+      } else {
+        grp.ngv[e].add(exprs[e].value(qc));
+      }
+    }
+  }
+
+  /**
+   * Returns the next group.
+   * @return group, or {@code null} if all groups have been returned
+   * @throws QueryException query exception
+   */
+  Group next() throws QueryException {
+    map = null;
+    while(pos == groups.size()) {
+      // proceed with the next partition on disk
+      if(parts == null) return null;
+      while(part < parts.length && parts[part] == null) part++;
+      if(part == parts.length) return null;
+      final Partition p = parts[part];
+      parts[part++] = null;
+      groups = p.groups();
+      pos = 0;
+    }
+    final Group grp = groups.get(pos);
+    // be nice to the garbage collector
+    groups.set(pos++, null);
+    return grp;
+  }
+
+  /**
+   * Merges groups that have been built for consecutive ranges of the input.
+   * @param partials groups of the ranges, in the order of their input
+   * @param threads number of hash partitions to be merged in parallel
+   * @param pool thread pool
+   * @return merged groups
+   * @throws QueryException query exception
+   */
+  static Grouper merge(final List<Grouper> partials, final int threads,
+      final ExecutorService pool) throws QueryException {
+
+    final Grouper first = partials.get(0);
+    final ArrayList<Callable<ArrayList<Group>>> tasks = new ArrayList<>(threads);
+    for(int t = 0; t < threads; t++) {
+      final int p = t;
+      tasks.add(new Callable<ArrayList<Group>>() {
+        @Override
+        public ArrayList<Group> call() throws QueryException {
+          return first.merge(partials, p, threads);
+        }
+      });
+    }
+
+    final ArrayList<Group> groups = new ArrayList<>();
+    try {
+      for(final Future<ArrayList<Group>> future : pool.invokeAll(tasks)) {
+        groups.addAll(future.get());
+      }
+    } catch(final InterruptedException ex) {
+      Util.debug(ex);
+      throw new ProcException();
+    } catch(final ExecutionException ex) {
+      final Throwable th = Util.rootException(ex);
+      if(th instanceof QueryException) throw (QueryException) th;
+      if(th instanceof RuntimeException) throw (RuntimeException) th;
+      throw Util.notExpected(th);
+    }
+
+    // restore the order of the first occurrences
+    Collections.sort(groups, new Comparator<Group>() {
+      @Override
+      public int compare(final Group g1, final Group g2) {
+        return Long.compare(g1.order, g2.order);
+      }
+    });
+    final Grouper grouper = new Grouper(first.exprs, first.aggr, first.colls, 0, first.qc,
+        first.info);
+    grouper.groups = groups;
+    return grouper;
+  }
+
+  // PRIVATE METHODS ==============================================================================
+
+  /**
+   * Merges the groups of a single hash partition.
+   * @param partials groups of the ranges, in the order of their input
+   * @param p partition
+   * @param ps number of partitions
+   * @return merged groups
+   * @throws QueryException query exception
+   */
+  private ArrayList<Group> merge(final List<Grouper> partials, final int p, final int ps)
+      throws QueryException {
+
+    final IntObjMap<Group> m = new IntObjMap<>();
+    final ArrayList<Group> list = new ArrayList<>();
+    final int pl = partials.size();
+    for(int i = 0; i < pl; i++) {
+      for(final Group grp : partials.get(i).groups) {
+        if(partition(grp.hash, ps) != p) continue;
+        qc.checkStop();
+        final Group target = find(m, grp.key, grp.hash);
+        if(target == null) {
+          // first occurrence: the order is determined by the range and the local position
+          grp.order |= (long) i << 32;
+          grp.next = null;
+          list.add(grp);
+          insert(m, grp);
+        } else {
+          merge(target, grp);
+        }
+      }
+    }
+    return list;
+  }
+
+  /**
+   * Merges the values and aggregates of a group into another group.
+   * @param target target group
+   * @param source group to be merged
+   * @throws QueryException query exception
+   */
+  private void merge(final Group target, final Group source) throws QueryException {
+    final int el = exprs.length;
+    for(int e = 0; e < el; e++) {
+      final Function func = aggr[e];
+      if(func == Function.COUNT) {
+        target.count[e] += source.count[e];
+      } else if(func == Function.SUM) {
+        if(target.fail[e] == null) {
+          final Item sum = source.sum[e];
+          if(sum != null) sum(target, e, sum.iter());
+          if(target.fail[e] == null) target.fail[e] = source.fail[e];
+        }
+      } else {
+        target.ngv[e].add(source.ngv[e].value());
+      }
+    }
+  }
+
+  /**
+   * Adds the values of a tuple that has been read from disk to a group.
+   * @param grp group
+   * @param values values of the non-grouping variables, or their counts
+   * @throws QueryException query exception
+   */
+  private void add(final Group grp, final Value[] values) throws QueryException {
+    final int el = exprs.length;
+    for(int e = 0; e < el; e++) {
+      final Function func = aggr[e];
+      if(func == Function.COUNT) {
+        grp.count[e] += ((Item) values[e]).itr(info);
+      } else if(func == Function.SUM) {
+        if(grp.fail[e] == null) sum(grp, e, values[e].iter());
+      } else {
+        grp.ngv[e].add(values[e]);
+      }
+    }
+  }
+
+  /**
+   * Adds items to the sum of a non-grouping variable. Errors are deferred: remaining values are
+   * ignored after a value has been found that cannot be added, as the final summation will
+   * fail anyway.
+   * @param grp group
+   * @param e index of the variable
+   * @param iter items to be added
+   * @throws QueryException query exception
+   */
+  private void sum(final Group grp, final int e, final Iter iter) throws QueryException {
+    Item sum = grp.sum[e];
+    for(Item it; (it = iter.next()) != null;) {
+      try {
+        sum = sum != null ? Calc.PLUS.ev(info, sum, it) :
+          it.type.isUntyped() ? Dbl.get(it.dbl(info)) : it;
+      } catch(final QueryException ex) {
+        Util.debug(ex);
+        grp.fail[e] = it;
+        break;
+      }
+    }
+    grp.sum[e] = sum;
+  }
+
+  /**
+   * Writes a tuple of a new group to its partition on disk.
+   * @param key grouping key
+   * @param hash hash value of the key
+   * @throws QueryException query exception
+   */
+  private void spill(final Item[] key, final int hash) throws QueryException {
+    final int el = exprs.length;
+    final Value[] values = new Value[el];
+    for(int e = 0; e < el; e++) {
+      final Function func = aggr[e];
+      values[e] = func == Function.COUNT ? Int.get(exprs[e].value(qc).size()) :
+        func == Function.SUM ? exprs[e].atomValue(qc, info) : exprs[e].value(qc);
+    }
+    if(parts == null) {
+      parts = new Partition[PARTITIONS];
+      store = new Spill(qc, info);
+    }
+    final int p = partition(hash, PARTITIONS);
+    if(parts[p] == null) parts[p] = new Partition(store.file());
+    parts[p].write(key, hash, values);
+  }
+
+  /**
+   * Returns the group for the specified key.
+   * @param m hash table
+   * @param key grouping key
+   * @param hash hash value of the key
+   * @return group, or {@code null} if the key has not been found
+   * @throws QueryException query exception
+   */
+  private Group find(final IntObjMap<Group> m, final Item[] key, final int hash)
+      throws QueryException {
+    for(Group g = m.get(hash); g != null; g = g.next) {
+      if(eq(key, g.key)) return g;
+    }
+    return null;
+  }
+
+  /**
+   * Creates a new group.
+   * @param m hash table
+   * @param list list of groups
+   * @param key grouping key
+   * @param hash hash value of the key
+   * @return group
+   */
+  private Group create(final IntObjMap<Group> m, final ArrayList<Group> list, final Item[] key,
+      final int hash) {
+    final int el = exprs.length;
+    final ValueBuilder[] ngv = new ValueBuilder[el];
+    for(int e = 0; e < el; e++) {
+      if(aggr[e] == null) ngv[e] = new ValueBuilder();
+    }
+    final Group grp = new Group(key, hash, ngv, aggregated);
+    grp.order = list.size();
+    list.add(grp);
+    insert(m, grp);
+    return grp;
+  }
+
+  /**
+   * Inserts a group into a hash table.
+   * @param m hash table
+   * @param grp group
+   */
+  private static void insert(final IntObjMap<Group> m, final Group grp) {
+    final Group fst = m.get(grp.hash);
+    if(fst == null) {
+      m.put(grp.hash, grp);
+    } else {
+      grp.next = fst.next;
+      fst.next = grp;
+    }
+  }
+
+  /**
+   * Returns the partition of a hash value.
+   * @param hash hash value
+   * @param ps number of partitions
+   * @return partition
+   */
+  private static int partition(final int hash, final int ps) {
+    return (hash & Integer.MAX_VALUE) % ps;
+  }
+
+  /**
+   * Checks two keys for equality.
+   * @param its1 first keys
+   * @param its2 second keys
+   * @return {@code true} if the compare as equal, {@code false} otherwise
+   * @throws QueryException query exception
+   */
+  private boolean eq(final Item[] its1, final Item[] its2) throws QueryException {
+    final int il = its1.length;
+    for(int i = 0; i < il; i++) {
+      final Item it1 = its1[i], it2 = its2[i];
+      if(it1 == null ^ it2 == null || it1 != null && !it1.equiv(it2, colls[i], info)) return false;
+    }
+    return true;
+  }
+
+  /** Tuple that is kept in main memory while the other tuples of its partition are on disk. */
+  private static final class Tuple {
+    /** Grouping key. */
+    private final Item[] key;
+    /** Hash value of the key. */
+    private final int hash;
+    /** Values of the non-grouping variables. */
+    private final Value[] values;
+
+    /**
+     * Constructor.
+     * @param key grouping key
+     * @param hash hash value of the key
+     * @param values values of the non-grouping variables
+     */
+    private Tuple(final Item[] key, final int hash, final Value[] values) {
+      this.key = key;
+      this.hash = hash;
+      this.values = values;
+    }
+  }
+
+  /** Partition with the tuples of groups that have been written to disk. */
+  private final class Partition {
+    /** File. */
+    private final IOFile file;
+    /** Output stream. */
+    private final DataOutput out;
+    /** Tuples that cannot be written to disk. */
+    private final ArrayList<Tuple> tuples = new ArrayList<>();
+    /** Number of tuples. */
+    private int size;
+
+    /**
+     * Constructor.
+     * @param file file
+     * @throws QueryException query exception
+     */
+    private Partition(final IOFile file) throws QueryException {
+      this.file = file;
+      try {
+        out = new DataOutput(file);
+      } catch(final IOException ex) {
+        throw IOERR_X.get(info, ex);
+      }
+    }
+
+    /**
+     * Writes a tuple.
+     * @param key grouping key
+     * @param hash hash value of the key
+     * @param values values of the non-grouping variables
+     * @throws QueryException query exception
+     */
+    private void write(final Item[] key, final int hash, final Value[] values)
+        throws QueryException {
+      try {
+        if(Spill.storable(key, values)) {
+          out.write(1);
+          out.writeNum(hash);
+          for(final Item it : key) store.write(out, it);
+          for(final Value value : values) store.write(out, value);
+        } else {
+          // only remember the position of the tuple
+          out.write(0);
+          tuples.add(new Tuple(key, hash, values));
+        }
+        size++;
+      } catch(final IOException ex) {
+        throw IOERR_X.get(info, ex);
+      }
+    }
+
+    /**
+     * Builds the groups of this partition and deletes the file.
+     * @return groups
+     * @throws QueryException query exception
+     */
+    private ArrayList<Group> groups() throws QueryException {
+      final IntObjMap<Group> m = new IntObjMap<>();
+      final ArrayList<Group> list = new ArrayList<>();
+      final int kl = colls.length, el = exprs.length;
+      try {
+        out.close();
+        try(final DataInput in = new DataInput(file)) {
+          for(int s = 0, t = 0; s < size; s++) {
+            qc.checkStop();
+            final Item[] key;
+            final int hash;
+            final Value[] values;
+            if(in.read() == 1) {
+              hash = in.readNum();
+              key = new Item[kl];
+              for(int k = 0; k < kl; k++) key[k] = store.read(in);
+              values = new Value[el];
+              for(int e = 0; e < el; e++) values[e] = store.readValue(in);
+            } else {
+              final Tuple tuple = tuples.get(t);
+              tuples.set(t++, null);
+              key = tuple.key;
+              hash = tuple.hash;
+              values = tuple.values;
+            }
+            Group grp = find(m, key, hash);
+            if(grp == null) grp = create(m, list, key, hash);
+            add(grp, values);
+          }
+        }
+      } catch(final IOException ex) {
+        throw IOERR_X.get(info, ex);
+      }
+      file.delete();
+      return list;
+    }
+  }
+}
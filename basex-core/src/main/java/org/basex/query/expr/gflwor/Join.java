@@ -0,0 +1,252 @@
+package org.basex.query.expr.gflwor;
+
+import static org.basex.query.QueryText.*;
+
+import org.basex.query.*;
+import org.basex.query.expr.*;
+import org.basex.query.expr.gflwor.GFLWOR.Clause;
+import org.basex.query.expr.gflwor.GFLWOR.Eval;
+import org.basex.query.iter.*;
+import org.basex.query.util.*;
+import org.basex.query.value.*;
+import org.basex.query.value.item.*;
+import org.basex.query.value.node.*;
+import org.basex.query.value.type.*;
+import org.basex.query.value.type.SeqType.Occ;
+import org.basex.query.var.*;
+import org.basex.util.*;
+import org.basex.util.hash.*;
+import org.basex.util.list.*;
+
+/**
+ * FLWOR {@code for} clause, followed by a {@code where} clause with an equality comparison,
+ * which is evaluated as hash join. The bound expression is evaluated once, and its items
+ * are indexed by the string values of the comparison operand that references the item
+ * variable. The other operand is evaluated for each incoming tuple and used to look up
+ * the matching items.
+ *
+ * The join is created by {@link GFLWOR} if the bound expression and the indexed operand
+ * are independent of the incoming tuples. If the keys are no strings or untyped atomics,
+ * the comparison is evaluated for each item, as it would be done by a nested loop.
+ *
+ * @author BaseX Team 2005-16, BSD License
+ * @author Christian Gruen
+ */
+public final class Join extends Clause {
+  /** Item variable. */
+  final Var var;
+  /** Bound expression. */
+  Expr expr;
+  /** Join predicate. */
+  Expr pred;
+
+  /**
+   * Constructor.
+   * @param var item variable
+   * @param expr bound expression
+   * @param pred join predicate
+   * @param info input info
+   */
+  Join(final Var var, final Expr expr, final Expr pred, final InputInfo info) {
+    super(info, var);
+    this.var = var;
+    this.expr = expr;
+    this.pred = pred;
+  }
+
+  @Override
+  Eval eval(final Eval sub) {
+    // operands of the comparison: indexed operand, operand for lookups
+    Expr ix = null, lu = null;
+    if(pred instanceof CmpG && ((CmpG) pred).equality()) {
+      final Expr[] ops = ((CmpG) pred).exprs;
+      for(int o = 0; o < 2; o++) {
+        if(ops[o].uses(var) && !ops[1 - o].uses(var)) {
+          ix = ops[o];
+          lu = ops[1 - o];
+        }
+      }
+    }
+    final Expr key = ix, probe = lu;
+
+    return new Eval() {
+      /** Items of the bound expression ({@code null} if not evaluated yet). */
+      private Value items;
+      /** Positions of the items, indexed by their keys ({@code null}: no index). */
+      private TokenObjMap<IntList> index;
+      /** Positions of the items matching the current tuple ({@code null}: scan). */
+      private IntList matches;
+      /** Current position. */
+      private long p;
+
+      @Override
+      public boolean next(final QueryContext qc) throws QueryException {
+        while(true) {
+          if(matches != null) {
+            // return next match
+            if(p < matches.size()) {
+              qc.set(var, items.itemAt(matches.get((int) p++)), info);
+              return true;
+            }
+          } else if(items != null) {
+            // compare items one by one
+            final long is = items.size();
+            while(p < is) {
+              qc.set(var, items.itemAt(p++), info);
+              if(pred.ebv(qc, info).bool(info)) return true;
+            }
+          }
+          if(!sub.next(qc)) return false;
+
+          if(items == null) {
+            items = expr.value(qc);
+            if(key != null) index = index(qc);
+          }
+          matches = index == null ? null : lookup(qc);
+          p = 0;
+        }
+      }
+
+      /**
+       * Indexes the items of the bound expression.
+       * @param qc query context
+       * @return index, or {@code null} if the keys cannot be hashed
+       * @throws QueryException query exception
+       */
+      private TokenObjMap<IntList> index(final QueryContext qc) throws QueryException {
+        final long is = items.size();
+        if(is > Integer.MAX_VALUE) return null;
+
+        final TokenObjMap<IntList> map = new TokenObjMap<>();
+        for(int i = 0; i < is; i++) {
+          qc.checkStop();
+          qc.set(var, items.itemAt(i), info);
+          final Iter iter = key.atomIter(qc, info);
+          for(Item it; (it = iter.next()) != null;) {
+            if(!it.type.isStringOrUntyped()) return null;
+            final byte[] k = it.string(info);
+            IntList pos = map.get(k);
+            if(pos == null) {
+              pos = new IntList(1);
+              map.put(k, pos);
+            }
+            if(pos.isEmpty() || pos.peek() != i) pos.add(i);
+          }
+        }
+        return map;
+      }
+
+      /**
+       * Returns the positions of the items matching the current tuple.
+       * @param qc query context
+       * @return positions, or {@code null} if the items need to be compared one by one
+       * @throws QueryException query exception
+       */
+      private IntList lookup(final QueryContext qc) throws QueryException {
+        final IntList list = new IntList();
+        if(items.isEmpty()) return list;
+
+        final Iter iter = probe.atomIter(qc, info);
+        int c = 0;
+        for(Item it; (it = iter.next()) != null; c++) {
+          if(!it.type.isStringOrUntyped()) return null;
+          final IntList pos = index.get(it.string(info));
+          if(pos != null) list.add(pos.toArray());
+        }
+        // preserve order of the bound items
+        return c > 1 ? list.sort().distinct() : list;
+      }
+    };
+  }
+
+  @Override
+  public Join compile(final QueryContext qc, final VarScope scp) throws QueryException {
+    expr = expr.compile(qc, scp);
+    pred = pred.compile(qc, scp);
+    return optimize(qc, scp);
+  }
+
+  @Override
+  public Join optimize(final QueryContext qc, final VarScope scp) throws QueryException {
+    seqType = SeqType.get(expr.seqType().type, Occ.ONE);
+    var.refineType(seqType, qc, info);
+    size = 1;
+    var.size = size;
+    var.data = expr.data();
+    pred = pred.optimizeEbv(qc, scp);
+    if(pred.isValue()) pred = pred.ebv(qc, info);
+    return this;
+  }
+
+  @Override
+  public boolean has(final Flag flag) {
+    return expr.has(flag) || pred.has(flag);
+  }
+
+  @Override
+  public boolean removable(final Var v) {
+    return expr.removable(v) && pred.removable(v);
+  }
+
+  @Override
+  public VarUsage count(final Var v) {
+    return expr.count(v).plus(pred.count(v).times(expr.size()));
+  }
+
+  @Override
+  public Clause inline(final QueryContext qc, final VarScope scp, final Var v, final Expr ex)
+      throws QueryException {
+
+    final Expr sub1 = expr.inline(qc, scp, v, ex), sub2 = pred.inline(qc, scp, v, ex);
+    if(sub1 == null && sub2 == null) return null;
+    if(sub1 != null) expr = sub1;
+    if(sub2 != null) pred = sub2;
+    return compile(qc, scp);
+  }
+
+  @Override
+  public Join copy(final QueryContext qc, final VarScope scp, final IntObjMap<Var> vs) {
+    final Expr ex = expr.copy(qc, scp, vs);
+    final Var v = scp.newCopyOf(qc, var);
+    vs.put(var.id, v);
+    return new Join(v, ex, pred.copy(qc, scp, vs), info);
+  }
+
+  @Override
+  public boolean accept(final ASTVisitor visitor) {
+    return expr.accept(visitor) && visitor.declared(var) && pred.accept(visitor);
+  }
+
+  @Override
+  public void checkUp() throws QueryException {
+    checkNoUp(expr);
+    checkNoUp(pred);
+  }
+
+  @Override
+  void calcSize(final long[] minMax) {
+    final long sz = expr.size(), max = minMax[1];
+    minMax[0] = 0;
+    minMax[1] = sz < 0 ? -1 : max > 0 ? max * sz : max;
+  }
+
+  @Override
+  public int exprSize() {
+    return expr.exprSize() + pred.exprSize();
+  }
+
+  @Override
+  public void plan(final FElem plan) {
+    final FElem e = planElem();
+    var.plan(e);
+    expr.plan(e);
+    pred.plan(e);
+    plan.add(e);
+  }
+
+  @Override
+  public String toString() {
+    return new StringBuilder(FOR).append(' ').append(var).append(' ').append(IN).append(' ').
+        append(expr).append(' ').append(WHERE).append(' ').append(pred).toString();
+  }
+}
@@ -3,9 +3,6 @@ package org.basex.query.expr.gflwor;
 import static org.basex.query.QueryError.*;
 import static org.basex.query.QueryText.*;
 
-import java.util.*;
-import java.util.List;
-
 import org.basex.query.*;
 import org.basex.query.expr.*;
 import org.basex.query.expr.gflwor.GFLWOR.Clause;
@@ -45,21 +42,24 @@ public final class OrderBy extends Clause {
 
   @Override
   Eval eval(final Eval sub) {
+    return eval(sub, Long.MAX_VALUE);
+  }
+
+  /**
+   * Returns an evaluator that returns the specified maximum number of tuples.
+   * @param sub wrapped evaluator
+   * @param max maximum number of tuples
+   * @return evaluator
+   */
+  Eval eval(final Eval sub, final long max) {
     return new Eval() {
-      /** Sorted output tuples. */
-      private Value[][] tpls;
-      /** Permutation of the values. */
-      private Integer[] perm;
-      /** Current position. */
-      int pos;
+      /** Sorted tuples. */
+      private Sorter sorter;
       @Override
       public boolean next(final QueryContext qc) throws QueryException {
-        if(tpls == null) sort(qc);
-        if(pos == tpls.length) return false;
-        final int p = perm[pos++];
-        final Value[] tuple = tpls[p];
-        // free the space occupied by the tuple
-        tpls[p] = null;
+        if(sorter == null) sort(qc);
+        final Value[] tuple = sorter.next();
+        if(tuple == null) return false;
         final int rl = refs.length;
         for(int r = 0; r < rl; r++) qc.set(refs[r].var, tuple[r], info);
         return true;
@@ -71,59 +71,14 @@ public final class OrderBy extends Clause {
        * @throws QueryException evaluation exception
        */
       private void sort(final QueryContext qc) throws QueryException {
-        // keys are stored at odd positions, values at even ones
-        List<Value[]> tuples = new ArrayList<>();
+        final int kl = keys.length, rl = refs.length;
+        sorter = new Sorter(keys, rl, max, qc, info);
         while(sub.next(qc)) {
-          final int kl = keys.length;
           final Item[] key = new Item[kl];
           for(int k = 0; k < kl; k++) key[k] = keys[k].expr.atomItem(qc, keys[k].info);
-          tuples.add(key);
-
-          final int rl = refs.length;
           final Value[] vals = new Value[rl];
           for(int r = 0; r < rl; r++) vals[r] = refs[r].value(qc);
-          tuples.add(vals);
-        }
-
-        final int len = tuples.size() >>> 1;
-        final Item[][] ks = new Item[len][];
-        perm = new Integer[len];
-        tpls = new Value[len][];
-        for(int i = 0; i < len; i++) {
-          perm[i] = i;
-          tpls[i] = tuples.get(i << 1 | 1);
-          ks[i] = (Item[]) tuples.get(i << 1);
-        }
-        // be nice to the garbage collector
-        tuples = null;
-        try {
-          Arrays.sort(perm, new Comparator<Integer>() {
-            @Override
-            public int compare(final Integer x, final Integer y) {
-              try {
-                final Item[] a = ks[x], b = ks[y];
-                final int kl = keys.length;
-                for(int k = 0; k < kl; k++) {
-                  final Key or = keys[k];
-                  Item m = a[k], n = b[k];
-                  if(m == Dbl.NAN || m == Flt.NAN) m = null;
-                  if(n == Dbl.NAN || n == Flt.NAN) n = null;
-                  if(m != null && n != null && !m.comparable(n))
-                    throw castError(or.info, n, m.type);
-
-                  final int c = m == null
-                      ? n == null ? 0                 : or.least ? -1 : 1
-                      : n == null ? or.least ? 1 : -1 : m.diff(n, or.coll, or.info);
-                  if(c != 0) return or.desc ? -c : c;
-                }
-                return 0;
-              } catch(final QueryException ex) {
-                throw new QueryRTException(ex);
-              }
-            }
-          });
-        } catch(final QueryRTException ex) {
-          throw ex.getCause();
+          sorter.add(key, vals);
         }
       }
     };
@@ -261,6 +216,24 @@ public final class OrderBy extends Clause {
       this.coll = coll;
     }
 
+    /**
+     * Compares two items of this sort key.
+     * @param m first item (can be {@code null})
+     * @param n second item (can be {@code null})
+     * @return result of comparison
+     * @throws QueryException query exception
+     */
+    int compare(final Item m, final Item n) throws QueryException {
+      final Item a = m == Dbl.NAN || m == Flt.NAN ? null : m;
+      final Item b = n == Dbl.NAN || n == Flt.NAN ? null : n;
+      if(a != null && b != null && !a.comparable(b)) throw castError(info, b, a.type);
+
+      final int c = a == null
+          ? b == null ? 0                 : least ? -1 : 1
+          : b == null ? least ? 1 : -1 : a.diff(b, coll, info);
+      return desc ? -c : c;
+    }
+
     @Override
     public Key copy(final QueryContext qc, final VarScope scp, final IntObjMap<Var> vs) {
       return new Key(info, expr.copy(qc, scp, vs), desc, least, coll);
@@ -0,0 +1,153 @@
+package org.basex.query.expr.gflwor;
+
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.*;
+
+import org.basex.query.*;
+import org.basex.query.expr.*;
+import org.basex.query.expr.gflwor.GFLWOR.Clause;
+import org.basex.query.expr.gflwor.GFLWOR.Eval;
+import org.basex.query.value.*;
+import org.basex.query.value.item.*;
+
+/**
+ * Evaluates the iterations of a FLWOR expression in parallel. The items of the first
+ * {@code for} clause are split into ranges, which are evaluated by separate query contexts.
+ * The results are joined in their original order. If the clauses are followed by a
+ * {@code group by} clause, the groups of each range are built instead, and no results are
+ * returned.
+ *
+ * @author BaseX Team 2005-16, BSD License
+ * @author Christian Gruen
+ */
+final class Parallel extends RecursiveTask<Value> {
+  /** First for clause. */
+  private final For fr;
+  /** Remaining clauses. */
+  private final List<Clause> clauses;
+  /** Return expression ({@code null} if groups are built). */
+  private final Expr ret;
+  /** Group by clause ({@code null} if results are returned). */
+  private final GroupBy group;
+  /** Groups of the evaluated ranges, indexed by their first item. */
+  private final Map<Long, Grouper> groups;
+  /** Items of the first for clause. */
+  private final Value items;
+  /** Maximum number of items to be evaluated by a single task. */
+  private final long split;
+  /** Query context of the calling thread. */
+  private final QueryContext qc;
+  /** First item to evaluate. */
+  private final long start;
+  /** Last item to evaluate (exclusive). */
+  private final long end;
+
+  /**
+   * Constructor.
+   * @param fr first for clause
+   * @param clauses remaining clauses
+   * @param ret return expression
+   * @param items items of the for clause
+   * @param split maximum number of items to be evaluated by a single task
+   * @param qc query context of the calling thread
+   */
+  Parallel(final For fr, final List<Clause> clauses, final Expr ret, final Value items,
+      final long split, final QueryContext qc) {
+    this(fr, clauses, ret, null, null, items, split, qc, 0, items.size());
+  }
+
+  /**
+   * Constructor for building groups.
+   * @param fr first for clause
+   * @param clauses clauses between the first for clause and the group by clause
+   * @param group group by clause
+   * @param groups map for the groups of the evaluated ranges
+   * @param items items of the for clause
+   * @param split maximum number of items to be evaluated by a single task
+   * @param qc query context of the calling thread
+   */
+  Parallel(final For fr, final List<Clause> clauses, final GroupBy group,
+      final Map<Long, Grouper> groups, final Value items, final long split,
+      final QueryContext qc) {
+    this(fr, clauses, null, group, groups, items, split, qc, 0, items.size());
+  }
+
+  /**
+   * Private constructor.
+   * @param fr first for clause
+   * @param clauses remaining clauses
+   * @param ret return expression ({@code null} if groups are built)
+   * @param group group by clause ({@code null} if results are returned)
+   * @param groups map for the groups of the evaluated ranges ({@code null} if results are
+   *   returned)
+   * @param items items of the for clause
+   * @param split maximum number of items to be evaluated by a single task
+   * @param qc query context of the calling thread
+   * @param start first item to evaluate
+   * @param end last item to evaluate (exclusive)
+   */
+  private Parallel(final For fr, final List<Clause> clauses, final Expr ret,
+      final GroupBy group, final Map<Long, Grouper> groups, final Value items, final long split,
+      final QueryContext qc, final long start, final long end) {
+    this.fr = fr;
+    this.clauses = clauses;
+    this.ret = ret;
+    this.group = group;
+    this.groups = groups;
+    this.items = items;
+    this.split = split;
+    this.qc = qc;
+    this.start = start;
+    this.end = end;
+  }
+
+  @Override
+  protected Value compute() {
+    if(end - start > split) {
+      // split the work and join the results in the correct order
+      final long mid = start + (end - start) / 2;
+      final Parallel first = new Parallel(fr, clauses, ret, group, groups, items, split, qc,
+          start, mid);
+      final Parallel second = new Parallel(fr, clauses, ret, group, groups, items, split, qc,
+          mid, end);
+      invokeAll(first, second);
+      return new ValueBuilder().add(first.join()).add(second.join()).value();
+    }
+
+    // evaluate the iterations with a context that inherits the bindings of the caller
+    final QueryContext qctx = new QueryContext(qc);
+    qctx.value = qc.value;
+    qctx.pos = qc.pos;
+    qctx.size = qc.size;
+    qctx.stack.enterFrame(qc.stack);
+
+    Eval eval = new Eval() {
+      /** Current position. */
+      private long p = start;
+
+      @Override
+      boolean next(final QueryContext q) throws QueryException {
+        if(p == end) return false;
+        qc.checkStop();
+        q.set(fr.var, items.itemAt(p), fr.info);
+        if(fr.pos != null) q.set(fr.pos, Int.get(p + 1), fr.info);
+        p++;
+        return true;
+      }
+    };
+    for(final Clause cl : clauses) eval = cl.eval(eval);
+
+    final ValueBuilder vb = new ValueBuilder();
+    try {
+      if(group != null) {
+        groups.put(start, group.group(eval, qctx, 0));
+      } else {
+        while(eval.next(qctx)) vb.add(ret.value(qctx));
+      }
+    } catch(final QueryException ex) {
+      completeExceptionally(ex);
+    }
+    return vb.value();
+  }
+}
@@ -0,0 +1,413 @@
+package org.basex.query.expr.gflwor;
+
+import static org.basex.query.QueryError.*;
+
+import java.io.*;
+import java.util.*;
+
+import org.basex.core.*;
+import org.basex.io.*;
+import org.basex.io.in.DataInput;
+import org.basex.io.out.DataOutput;
+import org.basex.query.*;
+import org.basex.query.expr.gflwor.OrderBy.Key;
+import org.basex.query.value.*;
+import org.basex.query.value.item.*;
+import org.basex.util.*;
+import org.basex.util.list.*;
+
+/**
+ * Sorts the tuples of an {@code order by} clause. The tuples are sorted via their positions,
+ * using a stable merge sort. If the number of cached tuples exceeds the limit specified by
+ * {@link MainOptions#SORTSIZE}, the sorted tuples are written to a temporary file, and all
+ * sorted runs are merged when the tuples are returned.
+ *
+ * Tuples can only be written to disk if they consist of atomic items with a string
+ * representation and database nodes (see {@link Spill}). As soon as another tuple is
+ * encountered, all remaining tuples will be sorted in main memory.
+ *
+ * If only the first tuples of the sort order will be requested, a bounded heap is used,
+ * which retains the best tuples seen so far.
+ *
+ * @author BaseX Team 2005-16, BSD License
+ * @author Christian Gruen
+ */
+final class Sorter {
+  /** Sort keys. */
+  private final Key[] keys;
+  /** Number of values per tuple. */
+  private final int size;
+  /** Query context. */
+  private final QueryContext qc;
+  /** Input info. */
+  private final InputInfo info;
+  /** Maximum number of tuples sorted in main memory (0: no limit). */
+  private final int limit;
+  /** Maximum number of returned tuples ({@code 0}: no limit). */
+  private final int top;
+
+  /** Keys of the cached tuples. */
+  private final ArrayList<Item[]> tkeys = new ArrayList<>();
+  /** Values of the cached tuples. */
+  private final ArrayList<Value[]> tvalues = new ArrayList<>();
+  /** Files with sorted runs. */
+  private final ArrayList<IOFile> files = new ArrayList<>();
+  /** Temporary storage for sorted runs. */
+  private final Spill store;
+  /** Heap with the positions of the best tuples, worst tuple first (if top is set). */
+  private final IntList heap = new IntList();
+  /** Input positions of the cached tuples (if top is set). */
+  private final LongList inputs = new LongList();
+  /** Number of added tuples. */
+  private long count;
+  /** Flag for writing runs to disk. */
+  private boolean spill;
+  /** Runs to be merged ({@code null} if sorting has not been finished yet). */
+  private Run[] runs;
+
+  /**
+   * Constructor.
+   * @param keys sort keys
+   * @param size number of values per tuple
+   * @param max maximum number of tuples to be returned
+   * @param qc query context
+   * @param info input info
+   */
+  Sorter(final Key[] keys, final int size, final long max, final QueryContext qc,
+      final InputInfo info) {
+    this.keys = keys;
+    this.size = size;
+    this.qc = qc;
+    this.info = info;
+    limit = qc.context.options.get(MainOptions.SORTSIZE);
+    top = max > 0 && max <= (limit > 0 ? limit : Integer.MAX_VALUE) ? (int) max : 0;
+    spill = limit > 0 && top == 0;
+    store = new Spill(qc, info);
+  }
+
+  /**
+   * Adds a tuple.
+   * @param key sort key (items may be {@code null})
+   * @param values values of the tuple
+   * @throws QueryException query exception
+   */
+  void add(final Item[] key, final Value[] values) throws QueryException {
+    if(top > 0) {
+      retain(key, values);
+      return;
+    }
+    tkeys.add(key);
+    tvalues.add(values);
+    if(spill) {
+      spill = Spill.storable(key, values);
+      if(spill && tkeys.size() >= limit) write();
+    }
+  }
+
+  /**
+   * Returns the values of the next tuple in the sort order.
+   * @return values or {@code null}
+   * @throws QueryException query exception
+   */
+  Value[] next() throws QueryException {
+    if(runs == null) finish();
+
+    // choose the smallest key (prefer earlier runs to keep the sort stable)
+    Run min = null;
+    for(final Run run : runs) {
+      if(run.key != null && (min == null || compare(run.key, min.key) < 0)) min = run;
+    }
+    if(min == null) return null;
+    final Value[] values = min.values;
+    min.next();
+    return values;
+  }
+
+  // PRIVATE METHODS ==============================================================================
+
+  /**
+   * Adds a tuple to the heap if it is one of the best tuples seen so far.
+   * @param key sort key
+   * @param values values of the tuple
+   * @throws QueryException query exception
+   */
+  private void retain(final Item[] key, final Value[] values) throws QueryException {
+    final long c = count++;
+    final int ts = tkeys.size();
+    if(ts < top) {
+      tkeys.add(key);
+      tvalues.add(values);
+      inputs.add(c);
+      heap.add(ts);
+      for(int h = ts; h > 0;) {
+        final int p = h - 1 >>> 1;
+        if(compare(heap.get(h), heap.get(p)) <= 0) break;
+        swap(h, p);
+        h = p;
+      }
+    } else {
+      // replace worst tuple (on equal keys, the earlier tuple is preferred)
+      final int w = heap.get(0);
+      if(compare(key, tkeys.get(w)) >= 0) return;
+      tkeys.set(w, key);
+      tvalues.set(w, values);
+      inputs.set(w, c);
+      for(int h = 0;;) {
+        final int l = (h << 1) + 1, r = l + 1;
+        int m = h;
+        if(l < ts && compare(heap.get(l), heap.get(m)) > 0) m = l;
+        if(r < ts && compare(heap.get(r), heap.get(m)) > 0) m = r;
+        if(m == h) break;
+        swap(h, m);
+        h = m;
+      }
+    }
+  }
+
+  /**
+   * Swaps two heap entries.
+   * @param a first entry
+   * @param b second entry
+   */
+  private void swap(final int a, final int b) {
+    final int t = heap.get(a);
+    heap.set(a, heap.get(b));
+    heap.set(b, t);
+  }
+
+  /**
+   * Compares two cached tuples, including their input positions.
+   * @param a position of the first tuple
+   * @param b position of the second tuple
+   * @return result of comparison
+   * @throws QueryException query exception
+   */
+  private int compare(final int a, final int b) throws QueryException {
+    final int c = compare(tkeys.get(a), tkeys.get(b));
+    return c != 0 ? c : Long.compare(inputs.get(a), inputs.get(b));
+  }
+
+  /**
+   * Sorts the cached tuples and prepares the runs to be merged.
+   * @throws QueryException query exception
+   */
+  private void finish() throws QueryException {
+    final int fl = files.size();
+    runs = new Run[fl + 1];
+    for(int f = 0; f < fl; f++) runs[f] = new FileRun(files.get(f));
+    runs[fl] = new MemRun();
+    for(final Run run : runs) run.next();
+  }
+
+  /**
+   * Sorts the cached tuples and writes them to a temporary file.
+   * @throws QueryException query exception
+   */
+  private void write() throws QueryException {
+    final Item[][] ks = tkeys.toArray(new Item[tkeys.size()][]);
+    final Value[][] vs = tvalues.toArray(new Value[tvalues.size()][]);
+    tkeys.clear();
+    tvalues.clear();
+    final int[] order = sort(ks);
+
+    final IOFile file = store.file();
+    files.add(file);
+    try {
+      try(final DataOutput out = new DataOutput(file)) {
+        out.writeNum(order.length);
+        for(final int o : order) {
+          qc.checkStop();
+          for(final Item it : ks[o]) store.write(out, it);
+          for(final Value value : vs[o]) store.write(out, value);
+          // free the space occupied by the tuple
+          ks[o] = null;
+          vs[o] = null;
+        }
+      }
+    } catch(final IOException ex) {
+      throw IOERR_X.get(info, ex);
+    }
+  }
+
+  /**
+   * Returns the sorted positions of the specified keys.
+   * @param ks keys
+   * @return positions
+   * @throws QueryException query exception
+   */
+  private int[] sort(final Item[][] ks) throws QueryException {
+    final int tl = ks.length;
+    final int[] order = new int[tl];
+    for(int t = 0; t < tl; t++) order[t] = t;
+    sort(ks, order.clone(), order, 0, tl);
+    return order;
+  }
+
+  /**
+   * Sorts the specified range of positions (stable merge sort).
+   * @param ks keys
+   * @param src source positions
+   * @param dst target positions
+   * @param lo lower bound (inclusive)
+   * @param hi upper bound (exclusive)
+   * @throws QueryException query exception
+   */
+  private void sort(final Item[][] ks, final int[] src, final int[] dst, final int lo,
+      final int hi) throws QueryException {
+
+    final int len = hi - lo;
+    if(len < 7) {
+      // insertion sort for small ranges
+      for(int i = lo + 1; i < hi; i++) {
+        for(int j = i; j > lo && compare(ks, dst[j - 1], dst[j]) > 0; j--) {
+          final int t = dst[j];
+          dst[j] = dst[j - 1];
+          dst[j - 1] = t;
+        }
+      }
+      return;
+    }
+
+    final int mid = lo + hi >>> 1;
+    sort(ks, dst, src, lo, mid);
+    sort(ks, dst, src, mid, hi);
+
+    // skip merge if ranges are already ordered
+    if(compare(ks, src[mid - 1], src[mid]) <= 0) {
+      System.arraycopy(src, lo, dst, lo, len);
+      return;
+    }
+    for(int i = lo, p = lo, q = mid; i < hi; i++) {
+      dst[i] = q >= hi || p < mid && compare(ks, src[p], src[q]) <= 0 ? src[p++] : src[q++];
+    }
+  }
+
+  /**
+   * Compares two tuples. If top is set, the input positions are compared as well.
+   * @param ks keys
+   * @param a position of the first tuple
+   * @param b position of the second tuple
+   * @return result of comparison
+   * @throws QueryException query exception
+   */
+  private int compare(final Item[][] ks, final int a, final int b) throws QueryException {
+    final int c = compare(ks[a], ks[b]);
+    return c != 0 || top == 0 ? c : Long.compare(inputs.get(a), inputs.get(b));
+  }
+
+  /**
+   * Compares two sort keys.
+   * @param a first key
+   * @param b second key
+   * @return result of comparison
+   * @throws QueryException query exception
+   */
+  private int compare(final Item[] a, final Item[] b) throws QueryException {
+    final int kl = keys.length;
+    for(int k = 0; k < kl; k++) {
+      final int c = keys[k].compare(a[k], b[k]);
+      if(c != 0) return c;
+    }
+    return 0;
+  }
+
+  /** Sorted run. */
+  private abstract static class Run {
+    /** Key of the current tuple ({@code null} if the run is exhausted). */
+    Item[] key;
+    /** Values of the current tuple. */
+    Value[] values;
+
+    /**
+     * Moves to the next tuple.
+     * @throws QueryException query exception
+     */
+    abstract void next() throws QueryException;
+  }
+
+  /** Sorted run in main memory. */
+  private final class MemRun extends Run {
+    /** Keys. */
+    private final Item[][] ks;
+    /** Values. */
+    private final Value[][] vs;
+    /** Sorted positions. */
+    private final int[] order;
+    /** Current position. */
+    private int pos;
+
+    /**
+     * Constructor, sorting the cached tuples.
+     * @throws QueryException query exception
+     */
+    private MemRun() throws QueryException {
+      ks = tkeys.toArray(new Item[tkeys.size()][]);
+      vs = tvalues.toArray(new Value[tvalues.size()][]);
+      tkeys.clear();
+      tvalues.clear();
+      order = sort(ks);
+    }
+
+    @Override
+    void next() {
+      if(pos == order.length) {
+        key = null;
+        values = null;
+      } else {
+        final int o = order[pos++];
+        key = ks[o];
+        values = vs[o];
+        // free the space occupied by the tuple
+        ks[o] = null;
+        vs[o] = null;
+      }
+    }
+  }
+
+  /** Sorted run on disk. */
+  private final class FileRun extends Run {
+    /** File. */
+    private final IOFile file;
+    /** Input stream. */
+    private DataInput in;
+    /** Number of remaining tuples. */
+    private int remaining = -1;
+
+    /**
+     * Constructor.
+     * @param file file
+     */
+    private FileRun(final IOFile file) {
+      this.file = file;
+    }
+
+    @Override
+    void next() throws QueryException {
+      try {
+        if(in == null) {
+          in = new DataInput(file);
+          remaining = in.readNum();
+        }
+        if(remaining == 0) {
+          key = null;
+          values = null;
+          in.close();
+          file.delete();
+          return;
+        }
+        remaining--;
+
+        final int kl = keys.length;
+        final Item[] k = new Item[kl];
+        for(int i = 0; i < kl; i++) k[i] = store.read(in);
+        final Value[] v = new Value[size];
+        for(int i = 0; i < size; i++) v[i] = store.readValue(in);
+        key = k;
+        values = v;
+      } catch(final IOException ex) {
+        throw IOERR_X.get(info, ex);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,212 @@
+package org.basex.query.expr.gflwor;
+
+import static org.basex.query.QueryError.*;
+
+import java.io.*;
+import java.util.*;
+
+import org.basex.data.*;
+import org.basex.io.*;
+import org.basex.io.in.DataInput;
+import org.basex.io.out.DataOutput;
+import org.basex.query.*;
+import org.basex.query.util.list.*;
+import org.basex.query.value.*;
+import org.basex.query.value.item.*;
+import org.basex.query.value.node.*;
+import org.basex.query.value.type.*;
+import org.basex.util.*;
+
+/**
+ * Writes the items of tuples to temporary files and reads them back. Used by clauses that
+ * cache more tuples than are allowed to be kept in main memory.
+ *
+ * Only atomic items with a string representation and database nodes can be written to disk.
+ * Temporary files are deleted when the query is closed.
+ *
+ * @author BaseX Team 2005-16, BSD License
+ * @author Christian Gruen
+ */
+final class Spill {
+  /** Marker for empty items. */
+  private static final int EMPTY = 0;
+  /** Marker for database nodes. */
+  private static final int NODE = Type.ID.NOD.asByte();
+
+  /** Query context. */
+  private final QueryContext qc;
+  /** Input info. */
+  private final InputInfo info;
+  /** Databases referenced by stored nodes. */
+  private final ArrayList<Data> datas = new ArrayList<>();
+
+  /**
+   * Constructor.
+   * @param qc query context
+   * @param info input info
+   */
+  Spill(final QueryContext qc, final InputInfo info) {
+    this.qc = qc;
+    this.info = info;
+  }
+
+  /**
+   * Creates a temporary file, which will be deleted when the query is closed.
+   * @return file
+   * @throws QueryException query exception
+   */
+  IOFile file() throws QueryException {
+    Files files;
+    synchronized(qc.resources) {
+      files = qc.resources.get(Files.class);
+      if(files == null) {
+        files = new Files();
+        qc.resources.add(files);
+      }
+    }
+    try {
+      final IOFile file = new IOFile(File.createTempFile(Prop.NAME + '-', IO.TMPSUFFIX));
+      files.add(file);
+      return file;
+    } catch(final IOException ex) {
+      throw IOERR_X.get(info, ex);
+    }
+  }
+
+  /**
+   * Checks if the specified items and values can be written to disk.
+   * @param key items (may be {@code null})
+   * @param values values
+   * @return result of check
+   */
+  static boolean storable(final Item[] key, final Value[] values) {
+    for(final Item it : key) {
+      if(it != null && !storable(it)) return false;
+    }
+    for(final Value value : values) {
+      for(final Item it : value) {
+        if(!storable(it)) return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Checks if the specified item can be written to disk.
+   * @param it item
+   * @return result of check
+   */
+  private static boolean storable(final Item it) {
+    if(it instanceof DBNode) return true;
+    final Type type = it.type;
+    return type instanceof AtomType && type != AtomType.QNM && type != AtomType.NOT &&
+        type != AtomType.JAVA;
+  }
+
+  /**
+   * Writes a value.
+   * @param out output stream
+   * @param value value
+   * @throws IOException I/O exception
+   * @throws QueryException query exception
+   */
+  void write(final DataOutput out, final Value value) throws IOException, QueryException {
+    out.writeNum((int) value.size());
+    for(final Item it : value) write(out, it);
+  }
+
+  /**
+   * Reads a value.
+   * @param in input stream
+   * @return value
+   * @throws IOException I/O exception
+   * @throws QueryException query exception
+   */
+  Value readValue(final DataInput in) throws IOException, QueryException {
+    final int n = in.readNum();
+    final ItemList items = new ItemList(n);
+    for(int i = 0; i < n; i++) items.add(read(in));
+    return items.value();
+  }
+
+  /**
+   * Writes an item.
+   * @param out output stream
+   * @param it item (can be {@code null})
+   * @throws IOException I/O exception
+   * @throws QueryException query exception
+   */
+  void write(final DataOutput out, final Item it) throws IOException, QueryException {
+    if(it == null) {
+      out.write(EMPTY);
+    } else if(it instanceof DBNode) {
+      final DBNode node = (DBNode) it;
+      int d = datas.indexOf(node.data());
+      if(d == -1) {
+        d = datas.size();
+        datas.add(node.data());
+      }
+      out.write(NODE);
+      out.writeNum(d);
+      out.writeNum(node.pre());
+    } else {
+      // floating-point numbers are written as bits: their string representation may be rounded
+      final Type type = it.type;
+      out.write(type.id().asByte());
+      if(type == AtomType.DBL) {
+        final long bits = Double.doubleToRawLongBits(it.dbl(info));
+        out.writeNum((int) (bits >>> 32));
+        out.writeNum((int) bits);
+      } else if(type == AtomType.FLT) {
+        out.writeNum(Float.floatToRawIntBits(it.flt(info)));
+      } else {
+        out.writeToken(it.string(info));
+      }
+    }
+  }
+
+  /**
+   * Reads an item.
+   * @param in input stream
+   * @return item (can be {@code null})
+   * @throws IOException I/O exception
+   * @throws QueryException query exception
+   */
+  Item read(final DataInput in) throws IOException, QueryException {
+    final int id = in.read();
+    if(id == EMPTY) return null;
+    if(id == NODE) {
+      final Data data = datas.get(in.readNum());
+      return new DBNode(data, in.readNum());
+    }
+    final Type type = Type.ID.getType(id);
+    if(type == AtomType.DBL) {
+      final long bits = (long) in.readNum() << 32 | in.readNum() & 0xFFFFFFFFL;
+      return Dbl.get(Double.longBitsToDouble(bits));
+    }
+    if(type == AtomType.FLT) return Flt.get(Float.intBitsToFloat(in.readNum()));
+    final byte[] string = in.readToken();
+    return type == AtomType.STR ? Str.get(string) : type == AtomType.ATM ? new Atm(string) :
+      (Item) type.cast(Str.get(string), qc, null, info);
+  }
+
+  /** Registry for temporary files, which are deleted when the query is closed. */
+  static final class Files implements QueryResource {
+    /** Temporary files. */
+    private final ArrayList<IOFile> files = new ArrayList<>();
+
+    /**
+     * Adds a file.
+     * @param file file
+     */
+    synchronized void add(final IOFile file) {
+      files.add(file);
+    }
+
+    @Override
+    public synchronized void close() {
+      for(final IOFile file : files) file.delete();
+      files.clear();
+    }
+  }
+}
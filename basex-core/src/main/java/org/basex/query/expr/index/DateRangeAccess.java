@@ -0,0 +1,175 @@
+package org.basex.query.expr.index;
+
+import static org.basex.query.QueryText.*;
+
+import org.basex.data.*;
+import org.basex.index.*;
+import org.basex.index.query.*;
+import org.basex.query.*;
+import org.basex.query.expr.*;
+import org.basex.query.func.*;
+import org.basex.query.iter.*;
+import org.basex.query.util.*;
+import org.basex.query.value.item.*;
+import org.basex.query.value.node.*;
+import org.basex.query.var.*;
+import org.basex.util.*;
+import org.basex.util.hash.*;
+import org.basex.util.list.*;
+
+/**
+ * This index class retrieves date and dateTime ranges from a value index.
+ *
+ * The lexical representations of dates with four-digit years are sorted chronologically,
+ * apart from timezones and the hour 24. All index entries are thus retrieved whose date
+ * prefix is at most two days before the minimum or after the maximum, along with entries
+ * that start with whitespaces or a minus sign. The values of the retrieved entries are
+ * compared with the original bounds. The index access is only chosen if the statistics
+ * indicate that all values can be cast to the type of the bounds.
+ *
+ * @author BaseX Team 2005-16, BSD License
+ * @author Christian Gruen
+ */
+public final class DateRangeAccess extends IndexAccess {
+  /** Tolerance for timezones and the hour 24. */
+  private static final DTDur TWO_DAYS = new DTDur(48, 0);
+  /** Tolerance for the exclusive upper bound. */
+  private static final DTDur THREE_DAYS = new DTDur(72, 0);
+
+  /** Index type. */
+  private final IndexType type;
+  /** Minimum. */
+  private final ADate min;
+  /** Include minimum value. */
+  private final boolean mni;
+  /** Maximum. */
+  private final ADate max;
+  /** Include maximum value. */
+  private final boolean mxi;
+  /** Date prefixes of the entries to be retrieved ({@code null} if they cannot be computed). */
+  private final StringRange range;
+
+  /**
+   * Constructor.
+   * @param info input info
+   * @param type index type
+   * @param min minimum value
+   * @param mni include minimum value
+   * @param max maximum value
+   * @param mxi include maximum value
+   * @param ictx index context
+   */
+  public DateRangeAccess(final InputInfo info, final IndexType type, final ADate min,
+      final boolean mni, final ADate max, final boolean mxi, final IndexContext ictx) {
+
+    super(ictx, info);
+    this.type = type;
+    this.min = min;
+    this.mni = mni;
+    this.max = max;
+    this.mxi = mxi;
+    final byte[] mn = prefix(min, false), mx = prefix(max, true);
+    range = mn != null && mx != null ? new StringRange(type, mn, true, mx, false) : null;
+  }
+
+  /**
+   * Returns the estimated costs of the index access.
+   * @return costs, or {@code -1} if the index cannot be used
+   */
+  public int costs() {
+    return range != null ? ictx.data.costs(range) : -1;
+  }
+
+  @Override
+  public BasicNodeIter iter(final QueryContext qc) {
+    final boolean text = type == IndexType.TEXT;
+    final byte kind = text ? Data.TEXT : Data.ATTR;
+    final Data data = ictx.data;
+
+    // retrieve candidates in document order: entries with leading whitespaces or signs,
+    // and entries with a matching date prefix
+    final IntList pres = new IntList();
+    for(final StringRange sr : new StringRange[] {
+        new StringRange(type, Token.EMPTY, true, Token.ZERO, false), range }) {
+      final IndexIterator ii = data.iter(sr);
+      while(ii.more()) pres.add(ii.pre());
+    }
+    pres.sort();
+
+    return new BasicNodeIter() {
+      final int sz = pres.size();
+      int p = -1;
+
+      @Override
+      public ANode next() {
+        while(++p < sz) {
+          final int pre = pres.get(p);
+          if(contains(data.text(pre, text))) return new DBNode(data, pre, kind);
+        }
+        return null;
+      }
+    };
+  }
+
+  /**
+   * Checks if the specified value is within the range.
+   * @param value value
+   * @return result of check
+   */
+  private boolean contains(final byte[] value) {
+    try {
+      final Item it = (Item) min.type.cast(new Atm(value), null, null, info);
+      final int mn = min.diff(it, null, info), mx = max.diff(it, null, info);
+      return (mni ? mn <= 0 : mn < 0) && (mxi ? mx >= 0 : mx > 0);
+    } catch(final QueryException ex) {
+      // invalid values are excluded by the statistics check in the compilation step
+      Util.debug(ex);
+      return false;
+    }
+  }
+
+  /**
+   * Returns the date prefix of the first entry to be retrieved, or of the first entry
+   * that will be excluded.
+   * @param date date
+   * @param max maximum flag
+   * @return date prefix, or {@code null} if the year has no four digits
+   */
+  private static byte[] prefix(final ADate date, final boolean max) {
+    final Dat dat;
+    try {
+      dat = new Dat(new Dat(date), max ? THREE_DAYS : TWO_DAYS, max, null);
+    } catch(final QueryException ex) {
+      Util.debug(ex);
+      return null;
+    }
+    final long y = dat.yea();
+    if(y < 1 || y > 9999) return null;
+    final TokenBuilder tb = new TokenBuilder();
+    final byte[] year = Token.token(y);
+    for(int i = year.length; i < 4; i++) tb.add('0');
+    tb.add(year).add('-');
+    if(dat.mon() < 10) tb.add('0');
+    tb.addLong(dat.mon()).add('-');
+    if(dat.day() < 10) tb.add('0');
+    return tb.addLong(dat.day()).finish();
+  }
+
+  @Override
+  public Expr copy(final QueryContext qc, final VarScope scp, final IntObjMap<Var> vs) {
+    return new DateRangeAccess(info, type, min, mni, max, mxi, ictx);
+  }
+
+  @Override
+  public void plan(final FElem plan) {
+    addPlan(plan, planElem(DATA, ictx.data.meta.name, MIN, min, MAX, max, TYP, type));
+  }
+
+  @Override
+  public String toString() {
+    final TokenBuilder tb = new TokenBuilder();
+    return tb.addExt((type == IndexType.TEXT ? Function._DB_TEXT_RANGE :
+      Function._DB_ATTRIBUTE_RANGE).get(null, info, Str.get(ictx.data.meta.name),
+        min, max)).toString();
+  }
+}
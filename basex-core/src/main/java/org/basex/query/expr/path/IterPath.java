@@ -2,8 +2,10 @@ package org.basex.query.expr.path;
 
 import static org.basex.query.QueryError.*;
 
+import org.basex.data.*;
 import org.basex.query.*;
 import org.basex.query.expr.*;
+import org.basex.query.expr.Expr.Flag;
 import org.basex.query.iter.*;
 import org.basex.query.util.list.*;
 import org.basex.query.value.*;
@@ -17,6 +19,11 @@ import org.basex.util.hash.*;
  * Iterative path expression for location paths which return sorted and
  * duplicate-free results.
  *
+ * Descendant steps without positional predicates are evaluated as staircase joins:
+ * as the context nodes are sorted, a context node can be skipped if it is a descendant of
+ * the previously evaluated context node, because its results have already been returned.
+ * This way, paths like {@code //a//b} are evaluated without caching intermediate results.
+ *
  * @author BaseX Team 2005-16, BSD License
  * @author Christian Gruen
  */
@@ -38,6 +45,8 @@ final class IterPath extends AxisPath {
       final int sz = steps.length + (r ? 1 : 0);
       final Expr[] expr = r ? new ExprList(sz).add(root).add(steps).finish() : steps;
       final Iter[] iter = new Iter[sz];
+      final boolean[] prune = prune(expr);
+      final ANode[] last = new ANode[sz];
       ANode node;
       int pos = -1;
 
@@ -66,6 +75,12 @@ final class IterPath extends AxisPath {
               // ensure that root only returns nodes
               if(r && p == 0 && !(it instanceof ANode))
                 throw PATHNODE_X_X_X.get(info, steps[0], it.type, it);
+              if(prune[p + 1]) {
+                // skip nodes whose descendants have already been visited
+                final ANode nd = (ANode) it, ls = last[p + 1];
+                if(ls != null && descendant(nd, ls)) continue;
+                last[p + 1] = nd;
+              }
               qc.value = it;
               ++p;
               iter[p] = qc.iter(expr[p]);
@@ -91,6 +106,43 @@ final class IterPath extends AxisPath {
     };
   }
 
+  /**
+   * Indicates for which expressions the descendants of previous context nodes can be skipped.
+   * @param expr expressions
+   * @return flags
+   */
+  private static boolean[] prune(final Expr[] expr) {
+    final int el = expr.length;
+    final boolean[] prune = new boolean[el];
+    for(int e = 0; e < el; e++) {
+      if(expr[e] instanceof Step) {
+        final Step step = (Step) expr[e];
+        prune[e] = (step.axis == Axis.DESC || step.axis == Axis.DESCORSELF) &&
+            !step.has(Flag.POS);
+      }
+    }
+    return prune;
+  }
+
+  /**
+   * Checks if a node is identical to or a descendant of the specified ancestor node.
+   * @param node node
+   * @param anc ancestor node
+   * @return result of check
+   */
+  private static boolean descendant(final ANode node, final ANode anc) {
+    if(node instanceof DBNode && anc instanceof DBNode) {
+      final Data data = anc.data();
+      if(data != node.data()) return false;
+      final int a = ((DBNode) anc).pre(), n = ((DBNode) node).pre();
+      return n >= a && n < a + data.size(a, data.kind(a));
+    }
+    for(ANode nd = node; nd != null; nd = nd.parent()) {
+      if(nd.is(anc)) return true;
+    }
+    return false;
+  }
+
   @Override
   public IterPath copy(final QueryContext qc, final VarScope scp, final IntObjMap<Var> vs) {
     final Expr rt = root == null ? null : root.copy(qc, scp, vs);
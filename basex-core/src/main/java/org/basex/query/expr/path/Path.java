@@ -348,8 +348,9 @@ public abstract class Path extends ParseExpr {
           break;
         case DESC:
         case DESCORSELF:
-          // non-overlapping if all nodes are on the same level
-          if(!sameDepth) return false;
+          // non-overlapping if all nodes are on the same level. otherwise, descendants of
+          // nested context nodes will be skipped if the results do not depend on the position
+          if(!sameDepth && step.has(Flag.POS)) return false;
           atMostOne = false;
           sameDepth = false;
           break;
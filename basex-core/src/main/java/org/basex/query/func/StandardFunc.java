@@ -386,6 +386,16 @@ public abstract class StandardFunc extends Arr {
     return visitor.lock(exprs[i] instanceof Str ? string(((Str) exprs[i]).string()) : null);
   }
 
+  /**
+   * Tries to mark the database of the specified argument for index access.
+   * @param visitor visitor
+   * @param i index of argument
+   * @return success flag
+   */
+  protected final boolean indexLock(final ASTVisitor visitor, final int i) {
+    return visitor.index(exprs[i] instanceof Str ? string(((Str) exprs[i]).string()) : null);
+  }
+
   /**
    * Compares several signatures for equality.
    * @param sig signature to be found
@@ -26,6 +26,8 @@ public final class AsyncEval extends StandardFunc {
     public static final StringOption BASE_URI = new StringOption("base-uri");
     /** Cache result. */
     public static final BooleanOption CACHE = new BooleanOption("cache", true);
+    /** Stream result. */
+    public static final BooleanOption STREAM = new BooleanOption("stream", false);
   }
 
   @Override
@@ -38,6 +40,7 @@ public final class AsyncEval extends StandardFunc {
 
     final String uri = opts.get(AsyncOptions.BASE_URI);
     final boolean cache = opts.get(AsyncOptions.CACHE);
+    final boolean stream = opts.get(AsyncOptions.STREAM);
 
     final Context ctx = qc.context;
     final QueryPool queries = ctx.queries;
@@ -57,6 +60,6 @@ public final class AsyncEval extends StandardFunc {
     } finally {
       ctx.options.set(MainOptions.QUERYPATH, path);
     }
-    return Str.get(queries.add(qp, cache, info));
+    return Str.get(queries.add(qp, cache, stream, info));
   }
 }
@@ -15,12 +15,12 @@ import org.basex.util.*;
 public final class AsyncResult extends StandardFunc {
   @Override
   public Value value(final QueryContext qc) throws QueryException {
-    final byte[] id = toToken(exprs[0], qc);
-    return qc.context.queries.result(Token.string(id), info);
+    return iter(qc).value();
   }
 
   @Override
   public Iter iter(final QueryContext qc) throws QueryException {
-    return value(qc).iter();
+    final byte[] id = toToken(exprs[0], qc);
+    return qc.context.queries.iter(Token.string(id), qc, info);
   }
 }
@@ -4,6 +4,7 @@ import org.basex.core.cmd.*;
 import org.basex.core.users.*;
 import org.basex.data.*;
 import org.basex.query.*;
+import org.basex.query.util.*;
 import org.basex.query.value.item.*;
 import org.basex.util.*;
 
@@ -23,4 +24,9 @@ public final class DbInfo extends DbAccess {
     final boolean create = qc.context.user().has(Perm.CREATE);
     return toNode(InfoDB.db(data.meta, false, true, create), DATABASE);
   }
+
+  @Override
+  public final boolean accept(final ASTVisitor visitor) {
+    return indexLock(visitor, 0) && super.accept(visitor);
+  }
 }
@@ -34,4 +34,9 @@ public class DbText extends DbAccess {
     if(!data.meta.index(type)) throw BXDB_INDEX_X.get(info, meta.name, type);
     return new ValueAccess(info, exprs[1], type, null, new IndexContext(data, false));
   }
+
+  @Override
+  public final boolean accept(final ASTVisitor visitor) {
+    return indexLock(visitor, 0) && super.accept(visitor);
+  }
 }
@@ -42,4 +42,9 @@ public class DbTextRange extends DbAccess {
     final StringRange sr = new StringRange(type, min, true, max, true);
     return new StringRangeAccess(info, sr, new IndexContext(data, false));
   }
+
+  @Override
+  public final boolean accept(final ASTVisitor visitor) {
+    return indexLock(visitor, 0) && super.accept(visitor);
+  }
 }
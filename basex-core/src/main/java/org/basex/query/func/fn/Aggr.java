@@ -16,6 +16,9 @@ import org.basex.query.value.item.*;
  * @author Christian Gruen
  */
 abstract class Aggr extends StandardFunc {
+  /** Number of values that are added in a single block. */
+  static final int BLOCK = 1 << 10;
+
   /**
    * Sums up the specified item(s).
    * @param iter iterator
@@ -29,8 +32,43 @@ abstract class Aggr extends StandardFunc {
     final boolean num = rs instanceof ANum, dtd = rs.type == DTD, ymd = rs.type == YMD;
     if(!num && !dtd && !ymd) throw SUM_X_X.get(info, rs.type, rs);
 
-    int c = 1;
-    for(Item i; (i = iter.next()) != null;) {
+    long c = 1;
+    long[] ints = null;
+    double[] dbls = null;
+    while(true) {
+      // add integers and doubles in blocks
+      if(rs instanceof Int) {
+        long s = rs.itr(info), n = 0;
+        if(ints == null) ints = new long[BLOCK];
+        for(int b; (b = iter.next(ints)) != 0;) {
+          for(int i = 0; i < b; i++) {
+            final long l = ints[i];
+            if(l > 0 ? s > Long.MAX_VALUE - l : s < Long.MIN_VALUE - l)
+              throw RANGE_X.get(info, s + " + " + l);
+            s += l;
+          }
+          n += b;
+        }
+        if(n != 0) {
+          rs = Int.get(s);
+          c += n;
+        }
+      } else if(rs instanceof Dbl) {
+        double s = rs.dbl(info);
+        long n = 0;
+        if(dbls == null) dbls = new double[BLOCK];
+        for(int b; (b = iter.next(dbls)) != 0;) {
+          for(int i = 0; i < b; i++) s += dbls[i];
+          n += b;
+        }
+        if(n != 0) {
+          rs = Dbl.get(s);
+          c += n;
+        }
+      }
+
+      final Item i = iter.next();
+      if(i == null) break;
       if(i.type.isNumberOrUntyped()) {
         if(!num) throw SUMDUR_X_X.get(info, i.type, i);
       } else {
@@ -2,6 +2,7 @@ package org.basex.query.func.fn;
 
 import org.basex.query.*;
 import org.basex.query.expr.*;
+import org.basex.query.expr.gflwor.*;
 import org.basex.query.func.*;
 import org.basex.query.func.map.*;
 import org.basex.query.iter.*;
@@ -30,9 +31,16 @@ public final class FnCount extends StandardFunc {
   }
 
   @Override
-  protected Expr opt(final QueryContext qc, final VarScope scp) {
-    // skip non-deterministic and variable expressions
+  protected Expr opt(final QueryContext qc, final VarScope scp) throws QueryException {
+    // count of a variable or path, which is computed by a group by clause
     final Expr e = exprs[0];
+    final Aggregates aggr = Aggregates.get(e);
+    if(aggr != null) {
+      final VarRef ref = aggr.aggregate(Function.COUNT, e, qc, scp, info);
+      if(ref != null) return ref.optimize(qc, scp);
+    }
+
+    // skip non-deterministic and variable expressions
     if(e.has(Flag.NDT) || e.has(Flag.UPD) || e instanceof VarRef) return this;
 
     final long c = e.size();
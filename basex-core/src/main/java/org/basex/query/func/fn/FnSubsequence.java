@@ -2,6 +2,7 @@ package org.basex.query.func.fn;
 
 import org.basex.query.*;
 import org.basex.query.expr.*;
+import org.basex.query.expr.gflwor.*;
 import org.basex.query.func.*;
 import org.basex.query.func.util.*;
 import org.basex.query.iter.*;
@@ -136,9 +137,19 @@ public class FnSubsequence extends StandardFunc {
   }
 
   @Override
-  protected Expr opt(final QueryContext qc, final VarScope scp) {
+  protected Expr opt(final QueryContext qc, final VarScope scp) throws QueryException {
     final SeqType st = exprs[0].seqType();
     seqType = SeqType.get(st.type, st.zeroOrOne() ? Occ.ZERO_ONE : Occ.ZERO_MORE);
+
+    // limit the number of results of a FLWOR expression
+    if(exprs[0] instanceof GFLWOR && exprs.length > 2 && exprs[1] instanceof Value &&
+        exprs[2] instanceof Value) {
+      final long[] range = range(qc);
+      if(range != null && range != ALL) {
+        final long start = Math.max(1, range[0]), len = range[1] + Math.min(0, range[0] - 1);
+        if(len > 0 && len < Long.MAX_VALUE - start) ((GFLWOR) exprs[0]).limit(start + len - 1);
+      }
+    }
     return this;
   }
 }
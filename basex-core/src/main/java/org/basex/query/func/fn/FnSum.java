@@ -6,6 +6,8 @@ import java.math.*;
 
 import org.basex.query.*;
 import org.basex.query.expr.*;
+import org.basex.query.expr.gflwor.*;
+import org.basex.query.func.*;
 import org.basex.query.iter.*;
 import org.basex.query.value.item.*;
 import org.basex.query.value.seq.*;
@@ -25,7 +27,7 @@ public final class FnSum extends Aggr {
     // partial sum calculation (Little Gauss)
     if(exprs[0] instanceof RangeSeq) {
       final RangeSeq rs = (RangeSeq) exprs[0];
-      final long s = rs.start(), e = s + rs.size() - 1;
+      final long s = Math.min(rs.start(), rs.end()), e = Math.max(rs.start(), rs.end());
       // range is small enough to be computed with long values
       if(e < 3037000500L) return Int.get((s + e) * (e - s + 1) / 2);
       // compute larger ranges
@@ -47,11 +49,22 @@ public final class FnSum extends Aggr {
   }
 
   @Override
-  protected Expr opt(final QueryContext qc, final VarScope scp) {
+  protected Expr opt(final QueryContext qc, final VarScope scp) throws QueryException {
     final Expr e1 = exprs[0], e2 = exprs.length == 2 ? exprs[1] : null;
     final Type st1 = e1.seqType().type, st2 = e2 != null ? e2.seqType().type : st1;
     if(st1.isNumberOrUntyped() && st2.isNumberOrUntyped()) seqType = Calc.type(st1, st2).seqType();
 
+    // sum of a variable or path, which is computed by a group by clause
+    final Aggregates aggr = Aggregates.get(e1);
+    if(aggr != null) {
+      final VarRef ref = aggr.aggregate(Function.SUM, e1, qc, scp, info);
+      if(ref != null) {
+        final Expr[] args = exprs.clone();
+        args[0] = ref;
+        return Function.SUM.get(sc, info, args).optimize(qc, scp);
+      }
+    }
+
     // pre-evaluate 0 results (skip non-deterministic and variable expressions)
     final long c = e1.size();
     return c != 0 || e1.has(Flag.NDT) || e1.has(Flag.UPD) || e1 instanceof VarRef ? this :
@@ -68,7 +68,26 @@ abstract class Num extends StandardFunc {
     }
     // numbers
     if(curr.type.isUntyped()) curr = DBL.cast(curr, qc, sc, info);
-    for(Item it; (it = iter.next()) != null;) {
+    final boolean max = cmp == OpV.LT;
+    double[] dbls = null;
+    while(true) {
+      // compare doubles in blocks
+      if(curr.type == DBL) {
+        double m = curr.dbl(info);
+        long n = 0;
+        if(dbls == null) dbls = new double[Aggr.BLOCK];
+        for(int b; (b = iter.next(dbls)) != 0;) {
+          for(int i = 0; i < b; i++) {
+            final double d = dbls[i];
+            if((max ? m < d : m > d) || Double.isNaN(d)) m = d;
+          }
+          n += b;
+        }
+        if(n != 0) curr = Dbl.get(m);
+      }
+
+      final Item it = iter.next();
+      if(it == null) break;
       final Type type = numType(curr, it);
       if(cmp.eval(curr, it, coll, sc, info) || Double.isNaN(it.dbl(info))) curr = it;
       if(type != null) curr = (Item) type.cast(curr, qc, sc, info);
@@ -43,6 +43,6 @@ public final class FtSearch extends FtAccess {
 
   @Override
   public boolean accept(final ASTVisitor visitor) {
-    return dataLock(visitor, 0) && super.accept(visitor);
+    return dataLock(visitor, 0) && indexLock(visitor, 0) && super.accept(visitor);
   }
 }
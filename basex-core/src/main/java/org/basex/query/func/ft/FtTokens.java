@@ -32,6 +32,6 @@ public final class FtTokens extends StandardFunc {
 
   @Override
   public boolean accept(final ASTVisitor visitor) {
-    return dataLock(visitor, 0) && super.accept(visitor);
+    return dataLock(visitor, 0) && indexLock(visitor, 0) && super.accept(visitor);
   }
 }
@@ -26,7 +26,7 @@ public abstract class IndexFn extends StandardFunc {
 
   @Override
   public final boolean accept(final ASTVisitor visitor) {
-    return dataLock(visitor, 0) && super.accept(visitor);
+    return dataLock(visitor, 0) && indexLock(visitor, 0) && super.accept(visitor);
   }
 
   /**
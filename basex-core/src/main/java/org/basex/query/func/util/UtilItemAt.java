@@ -2,8 +2,10 @@ package org.basex.query.func.util;
 
 import org.basex.query.*;
 import org.basex.query.expr.*;
+import org.basex.query.expr.gflwor.*;
 import org.basex.query.func.*;
 import org.basex.query.iter.*;
+import org.basex.query.value.*;
 import org.basex.query.value.item.*;
 import org.basex.query.value.type.SeqType.*;
 import org.basex.query.var.*;
@@ -37,8 +39,15 @@ public final class UtilItemAt extends StandardFunc {
   }
 
   @Override
-  protected Expr opt(final QueryContext qc, final VarScope scp) {
+  protected Expr opt(final QueryContext qc, final VarScope scp) throws QueryException {
     seqType = exprs[0].seqType().withOcc(Occ.ZERO_ONE);
+
+    // limit the number of results of a FLWOR expression
+    if(exprs[0] instanceof GFLWOR && exprs[1] instanceof Value) {
+      final double ds = toDouble(exprs[1], qc);
+      final long pos = (long) ds;
+      if(ds == pos && pos >= 1) ((GFLWOR) exprs[0]).limit(pos);
+    }
     return this;
   }
 }
@@ -2,6 +2,7 @@ package org.basex.query.iter;
 
 import org.basex.query.*;
 import org.basex.query.value.item.*;
+import org.basex.query.value.node.*;
 import org.basex.util.*;
 
 /**
@@ -21,6 +22,10 @@ public final class AtomIter extends Iter {
   private Iter atom;
   /** Size. Arrays may be encountered if value is {@code -1}. */
   private final long size;
+  /** Item that has been retrieved by a batched call, but not returned yet. */
+  private Item item;
+  /** Indicates if the input iterator has been exhausted by a batched call. */
+  private boolean done;
 
   /**
    * Constructor.
@@ -42,13 +47,13 @@ public final class AtomIter extends Iter {
     // shortcut if no arrays will be returned
     if(size != -1) {
       qc.checkStop();
-      final Item it = iter.next();
+      final Item it = input();
       return it == null ? null : it.atomItem(info);
     }
 
     while(true) {
       if(atom == null) {
-        final Item it = iter.next();
+        final Item it = input();
         if(it == null) return null;
         atom = it.atomValue(info).iter();
       }
@@ -59,6 +64,66 @@ public final class AtomIter extends Iter {
     }
   }
 
+  @Override
+  public int next(final long[] block) throws QueryException {
+    if(atom != null || done) return 0;
+    // native sequences: values are copied in bulk
+    int n = item == null ? iter.next(block) : 0;
+    if(n != 0) return n;
+
+    qc.checkStop();
+    final int bl = block.length;
+    while(n < bl) {
+      final Item it = input();
+      if(it == null) break;
+      if(!(it instanceof Int)) {
+        item = it;
+        break;
+      }
+      block[n++] = ((Int) it).itr();
+    }
+    return n;
+  }
+
+  @Override
+  public int next(final double[] block) throws QueryException {
+    if(atom != null || done) return 0;
+    // native sequences: values are copied in bulk
+    int n = item == null ? iter.next(block) : 0;
+    if(n != 0) return n;
+
+    // nodes are converted without being atomized
+    qc.checkStop();
+    final int bl = block.length;
+    while(n < bl) {
+      final Item it = input();
+      if(it == null) break;
+      if(!(it instanceof ANode || it instanceof ANum)) {
+        item = it;
+        break;
+      }
+      block[n++] = it.dbl(info);
+    }
+    return n;
+  }
+
+  /**
+   * Returns the next item of the input iterator.
+   * @return item or {@code null}
+   * @throws QueryException query exception
+   */
+  private Item input() throws QueryException {
+    final Item it = item;
+    if(it != null) {
+      item = null;
+      return it;
+    }
+    if(done) return null;
+    final Item next = iter.next();
+    if(next == null) done = true;
+    return next;
+  }
+
   @Override
   public long size() {
     return size;
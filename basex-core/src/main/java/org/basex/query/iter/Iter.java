@@ -19,6 +19,31 @@ public abstract class Iter {
    */
   public abstract Item next() throws QueryException;
 
+  /**
+   * Fills the specified array with the values of the next items, if they are integers.
+   * If {@code 0} is returned, the next item must be requested via {@link #next()}.
+   * @param block array to be filled
+   * @return number of values (may be smaller than the array length)
+   * @throws QueryException query exception
+   */
+  @SuppressWarnings("unused")
+  public int next(final long[] block) throws QueryException {
+    return 0;
+  }
+
+  /**
+   * Fills the specified array with the double values of the next items, if they are
+   * numbers or untyped values.
+   * If {@code 0} is returned, the next item must be requested via {@link #next()}.
+   * @param block array to be filled
+   * @return number of values (may be smaller than the array length)
+   * @throws QueryException query exception
+   */
+  @SuppressWarnings("unused")
+  public int next(final double[] block) throws QueryException {
+    return 0;
+  }
+
   /**
    * Returns the specified item, or an arbitrary item if the index is invalid.
    * This method needs to be implemented - and should only be called - if
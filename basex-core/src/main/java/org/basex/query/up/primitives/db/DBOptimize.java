@@ -75,6 +75,7 @@ public final class DBOptimize extends DBUpdate {
     options.assignIfEmpty(MainOptions.SPLITSIZE, meta.splitsize);
     options.assignIfEmpty(MainOptions.UPDINDEX, meta.updindex);
     options.assignIfEmpty(MainOptions.AUTOOPTIMIZE, meta.autooptimize);
+    options.assignIfEmpty(MainOptions.TEXTCACHE, meta.textcache);
     options.assignTo(opts);
 
     // adopt options to database meta data
@@ -85,7 +86,9 @@ public final class DBOptimize extends DBUpdate {
 
     meta.updindex = opts.get(MainOptions.UPDINDEX);
     meta.autooptimize = opts.get(MainOptions.AUTOOPTIMIZE);
+    meta.textcache = opts.get(MainOptions.TEXTCACHE);
     meta.splitsize = opts.get(MainOptions.SPLITSIZE);
+    meta.indexthreads = opts.get(MainOptions.INDEXTHREADS);
 
     // check if other indexing options have changed
     final int maxcats = opts.get(MainOptions.MAXCATS);
@@ -36,7 +36,7 @@ public final class DBAlter extends NameUpdate {
   @Override
   public void apply() throws QueryException {
     close();
-    close(newName, qc, info);
+    close(newName);
     if(!AlterDB.alter(name, newName, qc.context.soptions))
       throw UPDBERROR_X_X.get(info, name, operation());
   }
@@ -38,7 +38,7 @@ public final class DBCopy extends NameUpdate {
   @Override
   public void apply() throws QueryException {
     close();
-    close(newName, qc, info);
+    close(newName);
     try {
       Copy.copy(name, newName, qc.context.soptions, null);
     } catch(final IOException ex) {
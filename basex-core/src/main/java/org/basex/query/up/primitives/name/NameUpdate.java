@@ -19,6 +19,8 @@ public abstract class NameUpdate extends Update implements Comparable<NameUpdate
   final String name;
   /** Query context. */
   final QueryContext qc;
+  /** Databases that have been reserved by this operation. */
+  private final StringList reserved = new StringList(1);
 
   /**
    * Constructor.
@@ -84,27 +86,32 @@ public abstract class NameUpdate extends Update implements Comparable<NameUpdate
     return type.ordinal() - o.type.ordinal();
   }
 
+  /**
+   * Releases all databases that have been reserved by {@link #close()}.
+   */
+  public final void release() {
+    for(final String db : reserved) qc.context.release(db);
+    reserved.reset();
+  }
+
   /**
    * Closes an existing database.
    * @throws QueryException query exception
    */
   final void close() throws QueryException {
-    close(name, qc, info);
+    close(name);
   }
 
   /**
-   * Closes an existing database.
-   * @param name name of database
-   * @param qc query context
-   * @param info input info
+   * Closes an existing database and reserves it until {@link #release()} is called.
+   * @param db name of database
    * @throws QueryException query exception
    */
-  static void close(final String name, final QueryContext qc, final InputInfo info)
-      throws QueryException {
-
+  final void close(final String db) throws QueryException {
     // close data instance in query processor
-    qc.resources.remove(name);
-    // check if database is stilled pinned by another process
-    if(qc.context.pinned(name)) throw BXDB_OPENED_X.get(info, name);
+    qc.resources.remove(db);
+    // check if database is stilled pinned by another process, and prevent it from being opened
+    if(!qc.context.reserve(db)) throw BXDB_OPENED_X.get(info, db);
+    reserved.add(db);
   }
 }
@@ -93,6 +93,17 @@ public abstract class ASTVisitor {
     return true;
   }
 
+  /**
+   * Notifies the visitor of a database whose index structures will be accessed.
+   * Overwritten by {@link MainModule}.
+   * @param db database
+   * @return if database locks cannot be detected statically
+   */
+  @SuppressWarnings("unused")
+  public boolean index(final String db) {
+    return true;
+  }
+
   /**
    * Notifies the visitor of an expression entering a focus.
    */
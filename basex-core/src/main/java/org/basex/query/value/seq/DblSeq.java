@@ -32,6 +32,13 @@ public final class DblSeq extends NativeSeq {
     return Dbl.get(values[(int) pos]);
   }
 
+  @Override
+  int values(final long pos, final double[] block) {
+    final int n = (int) Math.min(block.length, size - pos);
+    System.arraycopy(values, (int) pos, block, 0, n);
+    return n;
+  }
+
   @Override
   public boolean sameAs(final Expr cmp) {
     return cmp instanceof DblSeq && Arrays.equals(values, ((DblSeq) cmp).values);
@@ -33,6 +33,13 @@ public final class IntSeq extends NativeSeq {
     return Int.get(values[(int) pos], type);
   }
 
+  @Override
+  int values(final long pos, final long[] block) {
+    final int n = (int) Math.min(block.length, size - pos);
+    System.arraycopy(values, (int) pos, block, 0, n);
+    return n;
+  }
+
   @Override
   public boolean sameAs(final Expr cmp) {
     if(!(cmp instanceof IntSeq)) return false;
@@ -70,6 +70,13 @@ public final class RangeSeq extends Seq {
     return obj;
   }
 
+  @Override
+  int values(final long pos, final long[] block) {
+    final int n = (int) Math.min(block.length, size - pos);
+    for(int b = 0; b < n; b++) block[b] = start + (asc ? pos + b : -pos - b);
+    return n;
+  }
+
   @Override
   public Item ebv(final QueryContext qc, final InputInfo ii) throws QueryException {
     throw EBV_X.get(ii, this);
@@ -68,12 +68,46 @@ public abstract class Seq extends Value {
       @Override
       public Item next() { return c < size ? itemAt(c++) : null; }
       @Override
+      public int next(final long[] block) {
+        final int n = values(c, block);
+        c += n;
+        return n;
+      }
+      @Override
+      public int next(final double[] block) {
+        final int n = values(c, block);
+        c += n;
+        return n;
+      }
+      @Override
       public long size() { return size; }
       @Override
       public Value value() { return Seq.this; }
     };
   }
 
+  /**
+   * Copies integer values of this sequence to the specified array.
+   * @param pos position of the first value
+   * @param block array to be filled
+   * @return number of copied values ({@code 0} if values are no integers)
+   */
+  @SuppressWarnings("unused")
+  int values(final long pos, final long[] block) {
+    return 0;
+  }
+
+  /**
+   * Copies double values of this sequence to the specified array.
+   * @param pos position of the first value
+   * @param block array to be filled
+   * @return number of copied values ({@code 0} if values are no doubles)
+   */
+  @SuppressWarnings("unused")
+  int values(final long pos, final double[] block) {
+    return 0;
+  }
+
   @Override
   public Value subSeq(final long start, final long len) {
     return len == 0   ? Empty.SEQ
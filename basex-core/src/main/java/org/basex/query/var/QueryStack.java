@@ -36,6 +36,18 @@ public final class QueryStack {
     return s;
   }
 
+  /**
+   * Enters a new stack frame with the bindings of the current frame of another stack.
+   * @param qs stack to be copied
+   * @return stack pointer of the old frame
+   */
+  public int enterFrame(final QueryStack qs) {
+    final int size = qs.end - qs.start, s = enterFrame(size);
+    System.arraycopy(qs.stack, qs.start, stack, start, size);
+    System.arraycopy(qs.vars, qs.start, vars, start, size);
+    return s;
+  }
+
   /**
    * Prepares the current stack frame to be reused.
    * @param size new frame size
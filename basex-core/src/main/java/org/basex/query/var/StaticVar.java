@@ -15,6 +15,7 @@ import org.basex.query.value.item.*;
 import org.basex.query.value.node.*;
 import org.basex.query.value.type.*;
 import org.basex.util.*;
+import org.basex.util.hash.*;
 
 /**
  * Static variable to which an expression can be assigned.
@@ -108,6 +109,26 @@ public final class StaticVar extends StaticDecl {
     }
   }
 
+  /**
+   * Declares a copy of this variable in the specified query context.
+   * The bound expression is assigned via {@link #copyExpr(StaticVar, QueryContext)}.
+   * @param qc query context
+   * @return copy
+   * @throws QueryException query exception
+   */
+  StaticVar copy(final QueryContext qc) throws QueryException {
+    return qc.vars.declare(name, type, anns, null, external, sc, new VarScope(sc), null, info);
+  }
+
+  /**
+   * Assigns a copy of the bound expression of the specified variable.
+   * @param sv original variable
+   * @param qc query context
+   */
+  void copyExpr(final StaticVar sv, final QueryContext qc) {
+    if(sv.expr != null) expr = sv.expr.copy(qc, scope, new IntObjMap<Var>());
+  }
+
   /**
    * Checks for the correct placement of updating expressions in this variable.
    * @throws QueryException query exception
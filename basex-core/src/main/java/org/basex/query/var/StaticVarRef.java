@@ -73,7 +73,8 @@ final class StaticVarRef extends ParseExpr {
   @Override
   public Expr copy(final QueryContext qc, final VarScope scp, final IntObjMap<Var> vs) {
     final StaticVarRef ref = new StaticVarRef(info, name, sc);
-    ref.var = var;
+    // reference the copy of the variable if a cached query is copied
+    ref.var = qc.vars.copy(var);
     return ref;
   }
 
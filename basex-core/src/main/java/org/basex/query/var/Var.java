@@ -5,6 +5,7 @@ import static org.basex.query.QueryError.*;
 import org.basex.data.*;
 import org.basex.query.*;
 import org.basex.query.expr.*;
+import org.basex.query.expr.gflwor.*;
 import org.basex.query.value.*;
 import org.basex.query.value.item.*;
 import org.basex.query.value.node.*;
@@ -35,6 +36,8 @@ public final class Var extends ExprInfo {
   public long size = -1;
   /** Data reference. */
   public Data data;
+  /** Aggregates of this variable, which are computed by a group by clause (can be {@code null}). */
+  public Aggregates aggr;
 
   /** Flag for function parameters. */
   private final boolean param;
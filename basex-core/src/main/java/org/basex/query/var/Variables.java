@@ -23,6 +23,8 @@ import org.basex.util.*;
 public final class Variables extends ExprInfo implements Iterable<StaticVar> {
   /** The variables. */
   private final HashMap<QNm, VarEntry> vars = new HashMap<>();
+  /** Copied variables, indexed by the original variables (only assigned during copying). */
+  private IdentityHashMap<StaticVar, StaticVar> copies;
 
   /**
    * Declares a new static variable.
@@ -49,6 +51,40 @@ public final class Variables extends ExprInfo implements Iterable<StaticVar> {
     return var;
   }
 
+  /**
+   * Declares copies of all variables in the specified query context.
+   * @param qc query context
+   * @throws QueryException query exception
+   */
+  public void copy(final QueryContext qc) throws QueryException {
+    // declare variables first: references in the bound expressions will point to the copies
+    final IdentityHashMap<StaticVar, StaticVar> map = new IdentityHashMap<>(vars.size());
+    for(final VarEntry ve : vars.values()) map.put(ve.var, ve.var.copy(qc));
+    qc.vars.copies = map;
+    for(final Entry<StaticVar, StaticVar> entry : map.entrySet()) {
+      entry.getValue().copyExpr(entry.getKey(), qc);
+    }
+  }
+
+  /**
+   * Finishes copying variables. References to variables of the original query will no
+   * longer be replaced with references to the copies.
+   */
+  public void copied() {
+    copies = null;
+  }
+
+  /**
+   * Returns the copy of the specified variable if variables are currently copied to this
+   * container (see {@link #copy(QueryContext)}), or the variable itself.
+   * @param var variable
+   * @return variable to be referenced
+   */
+  StaticVar copy(final StaticVar var) {
+    final StaticVar sv = copies != null ? copies.get(var) : null;
+    return sv != null ? sv : var;
+  }
+
   /**
    * Checks if none of the variables contains an updating expression.
    * @throws QueryException query exception
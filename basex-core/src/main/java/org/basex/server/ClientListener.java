@@ -4,7 +4,9 @@ import static org.basex.core.Text.*;
 
 import java.io.*;
 import java.net.*;
+import java.nio.channels.*;
 import java.util.*;
+import java.util.concurrent.*;
 
 import org.basex.*;
 import org.basex.core.*;
@@ -25,7 +27,7 @@ import org.basex.util.list.*;
  * @author Andreas Weiler
  * @author Christian Gruen
  */
-public final class ClientListener extends Thread {
+public final class ClientListener implements Runnable {
   /** Timer for authentication time out. */
   public final Timer auth = new Timer();
   /** Timestamp of last interaction. */
@@ -39,13 +41,17 @@ public final class ClientListener extends Thread {
   private final Context context;
   /** Server reference. */
   private final BaseXServer server;
+  /** Socket channel. */
+  public final SocketChannel channel;
+
   /** Socket reference. */
   private final Socket socket;
-
   /** Input stream. */
-  private BufferInput in;
+  private final ChannelInput in;
   /** Output stream. */
-  private PrintOutput out;
+  private final PrintOutput out;
+  /** Nonce for authentication ({@code null} if it has not been sent yet). */
+  private String nonce;
   /** Current command. */
   private Command command;
   /** Query id counter. */
@@ -55,102 +61,60 @@ public final class ClientListener extends Thread {
 
   /**
    * Constructor.
-   * @param socket socket
+   * @param channel socket channel
    * @param context database context
    * @param server server reference
    */
-  public ClientListener(final Socket socket, final Context context, final BaseXServer server) {
+  public ClientListener(final SocketChannel channel, final Context context,
+      final BaseXServer server) {
     this.context = new Context(context, this);
-    this.socket = socket;
+    this.channel = channel;
     this.server = server;
+    socket = channel.socket();
+    in = new ChannelInput(channel);
+    out = PrintOutput.get(Channels.newOutputStream(channel));
     last = System.currentTimeMillis();
-    setDaemon(true);
   }
 
+  /**
+   * Buffers incoming bytes and checks if the next request of the client can be processed.
+   * Must only be called if the channel is in non-blocking mode.
+   * @return result of check
+   */
+  public boolean ready() {
+    try {
+      // process requests that do not fit into the buffer, or the end of the stream
+      if(!in.fill() || in.full()) return true;
+    } catch(final IOException ex) {
+      // exception will be raised again when the request is processed
+      Util.debug(ex);
+      return true;
+    }
+    return complete();
+  }
+
+  /**
+   * Greets or authenticates the client, or processes its requests.
+   * Must only be called if the channel is in blocking mode. Requests will be processed
+   * as long as they have been completely buffered.
+   */
   @Override
   public void run() {
-    if(!authenticate()) return;
+    if(nonce == null) {
+      greet();
+      return;
+    }
 
+    // authenticate session, or process the next request
+    boolean next = true;
+    if(!running) {
+      authenticate();
+      next = complete();
+    }
     try {
-      while(running) {
-        command = null;
-        String cmd;
-        final ServerCmd sc;
-        try {
-          final int b = in.read();
-          if(b == -1) {
-            // end of stream: exit session
-            quit();
-            break;
-          }
-
-          last = System.currentTimeMillis();
-          perf.time();
-          sc = ServerCmd.get(b);
-          cmd = null;
-          if(sc == ServerCmd.CREATE) {
-            create();
-          } else if(sc == ServerCmd.ADD) {
-            add();
-          } else if(sc == ServerCmd.REPLACE) {
-            replace();
-          } else if(sc == ServerCmd.STORE) {
-            store();
-          } else if(sc != ServerCmd.COMMAND) {
-            query(sc);
-          } else {
-            // database command
-            cmd = new ByteList().add(b).add(in.readBytes()).toString();
-          }
-        } catch(final IOException ex) {
-          // this exception may be thrown if a session is stopped
-          quit();
-          break;
-        }
-        if(sc != ServerCmd.COMMAND) continue;
-
-        // parse input and create command instance
-        try {
-          command = new CommandParser(cmd, context).parseSingle();
-          log(LogType.REQUEST, command.toString(true));
-        } catch(final QueryException ex) {
-          // log invalid command
-          final String msg = ex.getMessage();
-          log(LogType.REQUEST, cmd);
-          log(LogType.ERROR, msg);
-          // send 0 to mark end of potential result
-          out.write(0);
-          // send {INFO}0
-          out.print(msg);
-          out.write(0);
-          // send 1 to mark error
-          send(false);
-          continue;
-        }
-
-        // execute command and send {RESULT}
-        boolean ok = true;
-        String info;
-        try {
-          // run command
-          command.execute(context, new ServerOutput(out));
-          info = command.info();
-        } catch(final BaseXException ex) {
-          ok = false;
-          info = ex.getMessage();
-          if(info.startsWith(INTERRUPTED)) info = TIMEOUT_EXCEEDED;
-        }
-
-        // send 0 to mark end of result
-        out.write(0);
-        // send info
-        info(info, ok);
-
-        // stop console
-        if(command instanceof Exit) {
-          command = null;
-          quit();
-        }
+      while(running && next) {
+        process();
+        next = complete();
       }
     } catch(final IOException ex) {
       log(LogType.ERROR, Util.message(ex));
@@ -161,21 +125,137 @@ public final class ClientListener extends Thread {
   }
 
   /**
-   * Initializes a session via digest authentication.
-   * @return success flag
+   * Checks if the next request has been completely buffered. Requests that stream input
+   * to the server are complete if their first argument is available.
+   * @return result of check
    */
-  private boolean authenticate() {
+  private boolean complete() {
+    int o = 0, strings = 2;
+    if(running) {
+      final int b = in.get(o++);
+      if(b == -1) return false;
+      final ServerCmd sc = ServerCmd.get(b);
+      strings = sc == ServerCmd.BIND ? 4 : sc == ServerCmd.CONTEXT ? 3 :
+        sc == ServerCmd.RUN ? 2 : 1;
+    }
+    for(int b; (b = in.get(o++)) != -1;) {
+      if(b == 0 && --strings == 0) return true;
+    }
+    return false;
+  }
+
+  /**
+   * Processes a single request.
+   * @throws IOException I/O exception
+   */
+  private void process() throws IOException {
+    command = null;
+    String cmd;
+    final ServerCmd sc;
     try {
-      final String nonce = Long.toString(System.nanoTime());
-      final byte[] address = socket.getInetAddress().getAddress();
+      final int b = in.read();
+      if(b == -1) {
+        // end of stream: exit session
+        quit();
+        return;
+      }
+
+      last = System.currentTimeMillis();
+      perf.time();
+      sc = ServerCmd.get(b);
+      cmd = null;
+      if(sc == ServerCmd.CREATE) {
+        create();
+      } else if(sc == ServerCmd.ADD) {
+        add();
+      } else if(sc == ServerCmd.REPLACE) {
+        replace();
+      } else if(sc == ServerCmd.STORE) {
+        store();
+      } else if(sc == ServerCmd.INGEST) {
+        ingest();
+      } else if(sc == ServerCmd.RUN) {
+        tagged(sc);
+      } else if(sc != ServerCmd.COMMAND) {
+        query(sc);
+      } else {
+        // database command
+        cmd = new ByteList().add(b).add(in.readBytes()).toString();
+      }
+    } catch(final IOException ex) {
+      // this exception may be thrown if a session is stopped
+      quit();
+      return;
+    }
+    if(sc != ServerCmd.COMMAND) return;
+
+    // parse input and create command instance
+    try {
+      command = new CommandParser(cmd, context).parseSingle();
+      log(LogType.REQUEST, command.toString(true));
+    } catch(final QueryException ex) {
+      // log invalid command
+      final String msg = ex.getMessage();
+      log(LogType.REQUEST, cmd);
+      log(LogType.ERROR, msg);
+      // send 0 to mark end of potential result
+      out.write(0);
+      // send {INFO}0
+      out.print(msg);
+      out.write(0);
+      // send 1 to mark error
+      send(false);
+      return;
+    }
+
+    // execute command and send {RESULT}
+    boolean ok = true;
+    String info;
+    try {
+      // run command
+      command.execute(context, new ServerOutput(out));
+      info = command.info();
+    } catch(final BaseXException ex) {
+      ok = false;
+      info = ex.getMessage();
+      if(info.startsWith(INTERRUPTED)) info = TIMEOUT_EXCEEDED;
+    }
+
+    // send 0 to mark end of result
+    out.write(0);
+    // send info
+    info(info, ok);
+
+    // stop console
+    if(command instanceof Exit) {
+      command = null;
+      quit();
+    }
+  }
 
+  /**
+   * Sends the realm and a nonce to the client.
+   */
+  private void greet() {
+    try {
+      nonce = Long.toString(System.nanoTime());
       // send {REALM:TIMESTAMP}0
-      out = PrintOutput.get(socket.getOutputStream());
       out.print(Prop.NAME + ':' + nonce);
       send(true);
+    } catch(final IOException ex) {
+      Util.debug(ex);
+      close();
+    }
+  }
+
+  /**
+   * Initializes a session via digest authentication.
+   */
+  private void authenticate() {
+    try {
+      final byte[] address = socket.getInetAddress().getAddress();
 
       // evaluate login data
-      in = new BufferInput(socket.getInputStream());
       // receive {USER}0{DIGEST-HASH}0
       final String us = in.readString(), hash = in.readString();
       final User user = context.users.get(us);
@@ -204,7 +284,18 @@ public final class ClientListener extends Thread {
     }
 
     server.remove(this);
-    return running;
+    if(!running) close();
+  }
+
+  /**
+   * Closes the socket of a session that has not been authenticated.
+   */
+  private void close() {
+    try {
+      socket.close();
+    } catch(final IOException ex) {
+      Util.debug(ex);
+    }
   }
 
   /**
@@ -333,6 +424,14 @@ public final class ClientListener extends Thread {
     execute(new Store(in.readString()));
   }
 
+  /**
+   * Adds a stream of documents to a database.
+   * @throws IOException I/O exception
+   */
+  private void ingest() throws IOException {
+    execute(new Ingest(in.readString()));
+  }
+
   /**
    * Executes the specified command.
    * @param cmd command to be executed
@@ -351,6 +450,87 @@ public final class ClientListener extends Thread {
     }
   }
 
+  /**
+   * Runs the current and all subsequent tagged queries that have been completely buffered.
+   * The queries are evaluated in parallel, and the results are sent in the order in which
+   * they are finished. Queries are evaluated in a new context, which inherits the user and
+   * the options of the session.
+   * The number of queries that are evaluated at the same time is limited by
+   * {@link StaticOptions#PARALLEL}; further queries will be read after the current ones
+   * have been finished.
+   * @param sc server command
+   * @throws IOException I/O exception
+   */
+  private void tagged(final ServerCmd sc) throws IOException {
+    final int max = Math.max(1, context.soptions.get(StaticOptions.PARALLEL));
+    final ArrayList<FutureTask<Object>> tasks = new ArrayList<>();
+    do {
+      final String tag = in.readString(), query = in.readString();
+      tasks.add(new FutureTask<>(new Runnable() {
+        @Override
+        public void run() {
+          tagged(tag, query);
+        }
+      }, null));
+    } while(tasks.size() < max && in.get(0) == sc.code && complete() && in.read() != -1);
+
+    // evaluate queries in worker threads, evaluate remaining queries in the current thread
+    try {
+      final int ts = tasks.size();
+      for(int t = 1; t < ts; t++) server.execute(tasks.get(t));
+    } catch(final RejectedExecutionException ex) {
+      Util.debug(ex);
+    }
+    for(final FutureTask<Object> task : tasks) {
+      task.run();
+      try {
+        task.get();
+      } catch(final InterruptedException | ExecutionException ex) {
+        throw new IOException(ex);
+      }
+    }
+  }
+
+  /**
+   * Evaluates a tagged query and sends {TAG}0{RESULT}0{INFO}0 and the success flag.
+   * @param tag tag
+   * @param query query
+   */
+  private void tagged(final String tag, final String query) {
+    final Performance pf = new Performance();
+    final Context ctx = new Context(context, this);
+    ctx.user(context.user());
+
+    final ArrayOutput ao = new ArrayOutput();
+    boolean ok = true;
+    String info;
+    try {
+      final ServerQuery sq = new ServerQuery(query, ctx);
+      sq.execute(ao, false, true, false);
+      info = sq.info();
+    } catch(final IOException ex) {
+      ok = false;
+      info = Util.message(ex);
+    }
+
+    try {
+      synchronized(out) {
+        out.print(tag);
+        out.write(0);
+        out.write(ao.finish());
+        out.write(0);
+        out.print(info);
+        out.write(0);
+        send(ok);
+      }
+    } catch(final IOException ex) {
+      // connection may have been closed
+      Util.debug(ex);
+    }
+    context.log.write(address(), context.user(), ok ? LogType.OK : LogType.ERROR,
+        ServerCmd.RUN.toString() + '[' + tag + "] " + (ok ? query : info), pf);
+  }
+
   /**
    * Processes the query iterator.
    * @param sc server command
@@ -5,6 +5,9 @@ import static org.basex.util.Token.*;
 import java.io.*;
 import java.math.*;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.*;
 
 import org.basex.core.*;
 import org.basex.core.users.*;
@@ -39,8 +42,21 @@ public final class Log {
     /** OK.      */ OK
   }
 
+  /** Maximum number of pending entries. If it is exceeded, entries are written by the caller. */
+  private static final int CAPACITY = 1 << 12;
+  /** Number of pending entries that cause the writer to be woken up. */
+  private static final int BATCH = 1 << 8;
+  /** Maximum time (ns) before pending entries are written. */
+  private static final long INTERVAL = 50000000L;
+
+  /** Pending entries. */
+  private final ConcurrentLinkedQueue<Entry> entries = new ConcurrentLinkedQueue<>();
+  /** Number of pending entries. */
+  private final AtomicInteger pending = new AtomicInteger();
   /** Static options. */
   private final StaticOptions sopts;
+  /** Writer thread ({@code null} if it has not been started yet). */
+  private final AtomicReference<Writer> writer = new AtomicReference<>();
   /** Start date of log. */
   private String start;
   /** Output stream. */
@@ -55,12 +71,13 @@ public final class Log {
   }
 
   /**
-   * Writes a server entry to the log file.
+   * Writes a server entry to the log file. The entry is immediately written to disk.
    * @param type log type
    * @param info info string (can be {@code null})
    */
-  public synchronized void writeServer(final LogType type, final String info) {
+  public void writeServer(final LogType type, final String info) {
     write(SERVER, null, type, info, null);
+    flush();
   }
 
   /**
@@ -71,7 +88,7 @@ public final class Log {
    * @param info info string (can be {@code null})
    * @param perf performance string
    */
-  public synchronized void write(final String address, final User user, final int type,
+  public void write(final String address, final User user, final int type,
       final String info, final Performance perf) {
     write(address, user, Integer.toString(type), info, perf);
   }
@@ -84,65 +101,97 @@ public final class Log {
    * @param info info string (can be {@code null})
    * @param perf performance string
    */
-  public synchronized void write(final String address, final User user, final LogType type,
+  public void write(final String address, final User user, final LogType type,
       final String info, final Performance perf) {
     write(address, user, type.toString(), info, perf);
   }
 
   /**
    * Writes an entry to the log file.
+   * The entry is added to a queue and written by a separate thread. If too many
+   * entries are pending, they are written by the calling thread.
    * @param address address string
    * @param user user ({@code admin} if null)
    * @param type type (ERROR, OK, REQUEST, INFO, HTTP status code)
    * @param info info string (can be {@code null})
    * @param perf performance string
    */
-  public synchronized void write(final String address, final User user, final String type,
+  public void write(final String address, final User user, final String type,
       final String info, final Performance perf) {
 
     if(!sopts.get(StaticOptions.LOG)) {
-      close();
+      if(writer.get() != null || pending.get() != 0) close();
       return;
     }
 
-    // initializes the output stream and returns the current date
+    // construct log text
     final Date date = new Date();
-    try {
-      // check if day has changed
-      final String nstart = name(date);
-      if(fos != null && !start.equals(nstart)) close();
-
-      // create new log file
-      if(fos == null) {
-        final IOFile dir = dir();
-        dir.md();
-        fos = new FileOutputStream(new IOFile(dir, nstart + IO.LOGSUFFIX).file(), true);
-        start = nstart;
+    final int ml = sopts.get(StaticOptions.LOGMSGMAXLEN);
+    final TokenBuilder tb = new TokenBuilder();
+    tb.add(DateTime.format(date, DateTime.TIME));
+    tb.add('\t').add(address);
+    tb.add('\t').add(user == null ? UserText.ADMIN : user.name());
+    tb.add('\t').add(type);
+    tb.add('\t').add(info == null ? EMPTY : chop(normalize(token(info)), ml));
+    if(perf != null) tb.add('\t').add(perf.toString());
+    tb.add(Prop.NL);
+
+    // queue entry, wake up writer
+    entries.add(new Entry(name(date), tb.finish()));
+    final int p = pending.incrementAndGet();
+    if(p > CAPACITY) {
+      flush();
+    } else if(p == 1 || p % BATCH == 0) {
+      LockSupport.unpark(writer());
+    }
+  }
+
+  /**
+   * Writes all pending entries to disk.
+   */
+  public synchronized void flush() {
+    boolean written = false;
+    for(Entry entry; (entry = entries.poll()) != null;) {
+      pending.decrementAndGet();
+      try {
+        // check if day has changed
+        if(fos != null && !start.equals(entry.name)) closeFile();
+
+        // create new log file
+        if(fos == null) {
+          final IOFile dir = directory();
+          dir.md();
+          fos = new FileOutputStream(new IOFile(dir, entry.name + IO.LOGSUFFIX).file(), true);
+          start = entry.name;
+        }
+        fos.write(entry.text);
+        written = true;
+      } catch(final IOException ex) {
+        Util.stack(ex);
       }
+    }
 
-      // construct log text
-      final int ml = sopts.get(StaticOptions.LOGMSGMAXLEN);
-      final TokenBuilder tb = new TokenBuilder();
-      tb.add(DateTime.format(date, DateTime.TIME));
-      tb.add('\t').add(address);
-      tb.add('\t').add(user == null ? UserText.ADMIN : user.name());
-      tb.add('\t').add(type);
-      tb.add('\t').add(info == null ? EMPTY : chop(normalize(token(info)), ml));
-      if(perf != null) tb.add('\t').add(perf.toString());
-      tb.add(Prop.NL);
-
-      // write and flush text
-      fos.write(tb.finish());
-      fos.flush();
+    try {
+      if(written && fos != null) fos.flush();
     } catch(final IOException ex) {
       Util.stack(ex);
     }
   }
 
   /**
-   * Closes the log file.
+   * Writes all pending entries, stops the writer and closes the log file.
    */
   public synchronized void close() {
+    final Writer w = writer.getAndSet(null);
+    if(w != null) w.interrupt();
+    flush();
+    closeFile();
+  }
+
+  /**
+   * Closes the log file.
+   */
+  private void closeFile() {
     if(fos == null) return;
     try {
       fos.close();
@@ -153,11 +202,12 @@ public final class Log {
   }
 
   /**
-   * Returns a reference to the log directory.
+   * Writes all pending entries and returns a reference to the log directory.
    * @return log directory
    */
   public synchronized IOFile dir() {
-    return sopts.dbPath(".").resolve(sopts.get(StaticOptions.LOGPATH));
+    flush();
+    return directory();
   }
 
   /**
@@ -177,6 +227,74 @@ public final class Log {
     return DateTime.format(date, DateTime.DATE);
   }
 
+  /**
+   * Returns a reference to the log directory.
+   * @return log directory
+   */
+  private IOFile directory() {
+    return sopts.dbPath(".").resolve(sopts.get(StaticOptions.LOGPATH));
+  }
+
+  /**
+   * Returns the writer thread. Starts a new thread if no thread is running.
+   * Does not synchronize on the log instance, so callers are never blocked by a running flush.
+   * @return writer
+   */
+  private Writer writer() {
+    final Writer w = writer.get();
+    if(w != null) return w;
+    final Writer nw = new Writer();
+    if(!writer.compareAndSet(null, nw)) return writer.get();
+    nw.start();
+    return nw;
+  }
+
+  /**
+   * Pending log entry.
+   */
+  private static final class Entry {
+    /** Name of the log file. */
+    final String name;
+    /** Text to be written. */
+    final byte[] text;
+
+    /**
+     * Constructor.
+     * @param name name of the log file
+     * @param text text to be written
+     */
+    Entry(final String name, final byte[] text) {
+      this.name = name;
+      this.text = text;
+    }
+  }
+
+  /**
+   * Thread that writes pending entries in regular intervals.
+   */
+  private final class Writer extends Thread {
+    /**
+     * Constructor.
+     */
+    Writer() {
+      setDaemon(true);
+    }
+
+    @Override
+    public void run() {
+      while(!isInterrupted()) {
+        if(pending.get() == 0) {
+          // wait for first entry
+          LockSupport.park(this);
+        } else {
+          // wait for further entries, write all entries
+          LockSupport.parkNanos(this, INTERVAL);
+          flush();
+        }
+      }
+    }
+  }
+
   /**
    * Log entry.
    */
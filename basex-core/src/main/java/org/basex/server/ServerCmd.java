@@ -33,6 +33,10 @@ public enum ServerCmd {
   STORE(13),
   /** Code for binding a context value: {id}0{val}0{type}0. */
   CONTEXT(14),
+  /** Code for running a query in parallel, identified by a tag: {tag}0{query}0. */
+  RUN(15),
+  /** Code for adding a stream of documents to a database: {path}0{entries}0. */
+  INGEST(16),
   /** Code for returning the update flag: {id}0. */
   UPDATING(30),
   /** Code for executing a query and returning all information relevant for XQJ: {id}0. */
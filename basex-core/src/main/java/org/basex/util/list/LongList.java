@@ -68,6 +68,17 @@ public class LongList extends ElementList {
     return list[index];
   }
 
+  /**
+   * Stores an element at the specified position.
+   * @param index index of the element to replace
+   * @param element element to be stored
+   */
+  public final void set(final int index, final long element) {
+    if(index >= list.length) list = Arrays.copyOf(list, newSize(index + 1));
+    list[index] = element;
+    size = Math.max(size, index + 1);
+  }
+
   /**
    * Returns the uppermost element from the stack.
    * @return the uppermost element
@@ -0,0 +1,87 @@
+package org.basex.build;
+
+import static org.junit.Assert.*;
+
+import org.basex.*;
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.junit.*;
+import org.junit.Test;
+
+/**
+ * Tests for the {@link MainOptions#PARSETHREADS} option.
+ *
+ * @author BaseX Team 2005-16, BSD License
+ * @author Christian Gruen
+ */
+public final class ParallelParseTest extends SandboxTest {
+  /** Test folder. */
+  private static final String DIR = "src/test/resources/";
+  /** Query for serializing all documents. */
+  private static final String QUERY =
+      "for $d in db:open('" + NAME + "') return (document-uri($d), $d)";
+
+  /**
+   * Drops the database and resets the options.
+   */
+  @After
+  public void tearDown() {
+    execute(new DropDB(NAME));
+    set(MainOptions.PARSETHREADS, 1);
+    set(MainOptions.SKIPCORRUPT, false);
+    set(MainOptions.MAINMEM, false);
+  }
+
+  /**
+   * Compares databases that have been created sequentially and in parallel.
+   */
+  @Test
+  public void create() {
+    set(MainOptions.SKIPCORRUPT, true);
+    assertEquals(create(1), create(4));
+    set(MainOptions.MAINMEM, true);
+    assertEquals(create(1), create(4));
+  }
+
+  /**
+   * Adds documents in parallel.
+   */
+  @Test
+  public void add() {
+    set(MainOptions.PARSETHREADS, 4);
+    execute(new CreateDB(NAME));
+    execute(new Add("a", DIR + "dir"));
+    execute(new Add("b", DIR + "xml.zip"));
+    assertEquals("3", query("count(db:open('" + NAME + "', 'a'))"));
+    assertEquals("4", query("count(db:open('" + NAME + "', 'b'))"));
+  }
+
+  /**
+   * Reports or skips corrupt documents.
+   */
+  @Test
+  public void corrupt() {
+    set(MainOptions.PARSETHREADS, 4);
+    try {
+      new CreateDB(NAME, DIR).execute(context);
+      fail("Corrupt document was not rejected.");
+    } catch(final BaseXException ex) {
+      assertTrue(ex.getMessage().contains("corrupt.xml"));
+    }
+    set(MainOptions.SKIPCORRUPT, true);
+    final CreateDB cmd = new CreateDB(NAME, DIR);
+    execute(cmd);
+    assertTrue(cmd.info().contains("corrupt.xml"));
+  }
+
+  /**
+   * Creates a database with the specified number of threads and returns all documents.
+   * @param threads number of threads
+   * @return documents
+   */
+  private static String create(final int threads) {
+    set(MainOptions.PARSETHREADS, threads);
+    execute(new CreateDB(NAME, DIR));
+    return query(QUERY);
+  }
+}
@@ -329,7 +329,10 @@ public class CommandTest extends SandboxTest {
   /** Command test. */
   @Test
   public final void info() {
-    ok(new Info());
+    // cache statistics and queue waiting times are shown to admins
+    final String info = ok(new Info());
+    assertTrue(info.contains(Text.QUERY_CACHE));
+    assertTrue(info.contains(Text.QUEUE_WAITS));
   }
 
   /** Command test. */
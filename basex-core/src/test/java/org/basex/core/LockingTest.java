@@ -193,6 +193,135 @@ public final class LockingTest extends SandboxTest {
     for(int t = 1; t < tl; t++) testers[t].release();
   }
 
+  /**
+   * Test limit of parallel transactions per user.
+   * @throws InterruptedException Got interrupted.
+   */
+  @Test
+  public void userTransactionLimitTest() throws InterruptedException {
+    context.soptions.set(StaticOptions.USERPARALLEL, 1);
+    try {
+      final CountDownLatch a1 = new CountDownLatch(1), a2 = new CountDownLatch(1),
+          b1 = new CountDownLatch(1);
+      final LockTester th1 = new LockTester(null, NONE, NONE, a1, "a");
+      final LockTester th2 = new LockTester(null, NONE, NONE, a2, "a");
+      final LockTester th3 = new LockTester(null, NONE, NONE, b1, "b");
+
+      th1.start();
+      assertTrue("Thread 1 should be able to acquire lock.",
+          a1.await(WAIT, TimeUnit.MILLISECONDS));
+      th2.start();
+      assertFalse("Thread 2 shouldn't be able to acquire lock yet.",
+          a2.await(WAIT, TimeUnit.MILLISECONDS));
+      th3.start();
+      assertTrue("Thread 3 of another user should be able to acquire lock.",
+          b1.await(WAIT, TimeUnit.MILLISECONDS));
+      th1.release();
+      assertTrue("Thread 2 should be able to acquire lock now.",
+          a2.await(WAIT, TimeUnit.MILLISECONDS));
+      th2.release();
+      th3.release();
+    } finally {
+      context.soptions.set(StaticOptions.USERPARALLEL, 0);
+    }
+  }
+
+  /**
+   * Test limit of parallel transactions per database.
+   * @throws InterruptedException Got interrupted.
+   */
+  @Test
+  public void databaseTransactionLimitTest() throws InterruptedException {
+    context.soptions.set(StaticOptions.DBPARALLEL, 1);
+    try {
+      final CountDownLatch l0 = new CountDownLatch(1), l1 = new CountDownLatch(1),
+          l2 = new CountDownLatch(1);
+      final String[] both = { objects[1], objects[2] };
+      final LockTester th0 = new LockTester(null, both, NONE, l0, "a");
+      final LockTester th1 = new LockTester(null, new String[] { objects[1] }, NONE, l1, "b");
+      final LockTester th2 = new LockTester(null, new String[] { objects[2] }, NONE, l2, "c");
+
+      // thread 1 is queued after thread 2, but will be preferred
+      th1.priority = 2;
+      th0.start();
+      assertTrue("Thread 0 should be able to acquire lock.",
+          l0.await(WAIT, TimeUnit.MILLISECONDS));
+      th2.start();
+      assertFalse("Thread 2 shouldn't be able to acquire lock yet.",
+          l2.await(WAIT, TimeUnit.MILLISECONDS));
+      th1.start();
+      assertFalse("Thread 1 shouldn't be able to acquire lock yet.",
+          l1.await(WAIT, TimeUnit.MILLISECONDS));
+
+      // both queued transactions are admitted after a single release
+      th0.release();
+      assertTrue("Thread 1 should be able to acquire lock now.",
+          l1.await(WAIT, TimeUnit.MILLISECONDS));
+      assertTrue("Thread 2 should be able to acquire lock now.",
+          l2.await(WAIT, TimeUnit.MILLISECONDS));
+      th1.release();
+      th2.release();
+    } finally {
+      context.soptions.set(StaticOptions.DBPARALLEL, 0);
+    }
+  }
+
+  /**
+   * Test fair queuing of transactions of different users.
+   * @throws InterruptedException Got interrupted.
+   */
+  @Test
+  public void fairQueuingTest() throws InterruptedException {
+    final int parallel = context.soptions.get(StaticOptions.PARALLEL);
+    context.soptions.set(StaticOptions.PARALLEL, 1);
+    try {
+      final CountDownLatch a1 = new CountDownLatch(1), a2 = new CountDownLatch(1),
+          a3 = new CountDownLatch(1), b1 = new CountDownLatch(1);
+      final LockTester th1 = new LockTester(null, NONE, NONE, a1, "a");
+      final LockTester th2 = new LockTester(null, NONE, NONE, a2, "a");
+      final LockTester th3 = new LockTester(null, NONE, NONE, a3, "a");
+      final LockTester th4 = new LockTester(null, NONE, NONE, b1, "b");
+
+      th1.start();
+      assertTrue("Thread 1 should be able to acquire lock.",
+          a1.await(WAIT, TimeUnit.MILLISECONDS));
+      th2.start();
+      th3.start();
+      assertFalse("Thread 2 shouldn't be able to acquire lock yet.",
+          a2.await(WAIT, TimeUnit.MILLISECONDS));
+      th4.start();
+      assertFalse("Thread 4 shouldn't be able to acquire lock yet.",
+          b1.await(WAIT, TimeUnit.MILLISECONDS));
+
+      // transaction of second user is preferred to pending transactions of first user
+      th1.release();
+      assertTrue("Thread 4 should be able to acquire lock now.",
+          b1.await(WAIT, TimeUnit.MILLISECONDS));
+      assertEquals(2, a2.getCount() + a3.getCount());
+      // queue waiting times are recorded
+      assertEquals(1, locks.waits("b")[0]);
+      assertTrue(locks.waits("b")[2] > 0);
+
+      th4.release();
+      assertTrue("Thread 2 or 3 should be able to acquire lock now.",
+          a2.await(WAIT, TimeUnit.MILLISECONDS) || a3.await(WAIT, TimeUnit.MILLISECONDS));
+      assertEquals(2, locks.waits("a")[0]);
+      th2.release();
+      th3.release();
+      assertTrue("Threads 2 and 3 should have acquired locks.",
+          a2.await(WAIT, TimeUnit.MILLISECONDS) && a3.await(WAIT, TimeUnit.MILLISECONDS));
+      for(final Thread th : new Thread[] { th1, th2, th3, th4 }) th.join();
+
+      // statistics of idle users are discarded
+      assertEquals(0, locks.waits("a")[0]);
+      assertEquals(0, locks.waits("b")[0]);
+      assertEquals(0, locks.waitingUsers().size());
+      assertEquals(4, locks.waits(null)[0]);
+    } finally {
+      context.soptions.set(StaticOptions.PARALLEL, parallel);
+    }
+  }
+
   /**
    * Global locking test.
    * @throws InterruptedException Got interrupted.
@@ -575,6 +704,10 @@ public final class LockingTest extends SandboxTest {
     private final String[] readObjects;
     /** Array of objects to put write locks onto. */
     private final String[] writeObjects;
+    /** Name of the user. */
+    private final String owner;
+    /** Scheduling priority. */
+    private int priority = 1;
     /** Flag indicating to release locks after being notified. */
     private volatile boolean requestRelease;
 
@@ -586,6 +719,20 @@ public final class LockingTest extends SandboxTest {
      * @param c Latch to count down after receiving locks
      */
     LockTester(final CountDownLatch a, final String[] r, final String[] w, final CountDownLatch c) {
+      this(a, r, w, c, "");
+    }
+
+    /**
+     * Setup locking thread for the specified user.
+     * @param a Latch to await
+     * @param r Strings to put read lock on
+     * @param w Strings to put write lock on
+     * @param c Latch to count down after receiving locks
+     * @param o Name of the user
+     */
+    LockTester(final CountDownLatch a, final String[] r, final String[] w, final CountDownLatch c,
+        final String o) {
+      owner = o;
       await = a;
       writing = w != null && w.length != 0;
       readObjects = r;
@@ -606,6 +753,8 @@ public final class LockingTest extends SandboxTest {
 
       // Fetch lock if objects are set
       final Command cmd = new Cmd(writing);
+      cmd.owner = owner;
+      cmd.priority = priority;
       locks.acquire(cmd,
         readObjects != null ? new StringList().add(readObjects) : null,
         writeObjects != null ? new StringList().add(writeObjects) : null);
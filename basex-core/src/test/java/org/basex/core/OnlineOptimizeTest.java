@@ -0,0 +1,130 @@
+package org.basex.core;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+
+import org.basex.*;
+import org.basex.api.client.*;
+import org.basex.core.cmd.*;
+import org.basex.util.*;
+import org.junit.*;
+import org.junit.Test;
+
+/**
+ * Tests for the {@link MainOptions#ONLINEOPTIMIZE} option.
+ *
+ * @author BaseX Team 2005-16, BSD License
+ * @author Christian Gruen
+ */
+public final class OnlineOptimizeTest extends SandboxTest {
+  /** Number of elements in the test database. */
+  private static final int SIZE = 200000;
+
+  /**
+   * Creates the test database.
+   */
+  @Before
+  public void init() {
+    execute(new CreateDB(NAME, "<x/>"));
+    execute(new XQuery("insert node (1 to " + SIZE + ") ! <a>{ . }</a> into /x"));
+    execute(new Close());
+    set(MainOptions.ONLINEOPTIMIZE, true);
+  }
+
+  /**
+   * Drops the database and resets the options.
+   */
+  @After
+  public void tearDown() {
+    set(MainOptions.ONLINEOPTIMIZE, false);
+    execute(new DropDB(NAME));
+  }
+
+  /**
+   * Optimizes a database.
+   */
+  @Test
+  public void optimize() {
+    execute(new Open(NAME));
+    execute(new XQuery("delete node //a[. > 10]"));
+    execute(new OptimizeAll());
+    assertEquals(NAME, context.data().meta.name);
+    assertEquals("55", query("sum(//a)"));
+    assertEquals("22", query("db:info('" + NAME + "')//nodes/string()"));
+  }
+
+  /**
+   * Reads the database while it is being optimized.
+   * @throws Exception exception
+   */
+  @Test
+  public void read() throws Exception {
+    final Optimizer opt = new Optimizer();
+    opt.start();
+    while(!(opt.cmd.progress() > 0) && opt.isAlive()) Thread.yield();
+    try(Session session = new LocalSession(context)) {
+      assertEquals("1", session.execute(new XQuery("db:open('" + NAME + "')/x/a[1]/text()")));
+      assertTrue(opt.isAlive());
+    }
+    opt.join();
+    assertNull(opt.error);
+  }
+
+  /**
+   * Updates the database while it is being optimized.
+   * The update must not get lost, no matter if the optimization succeeds or is rejected.
+   * @throws Exception exception
+   */
+  @Test
+  public void write() throws Exception {
+    final Optimizer opt = new Optimizer();
+    opt.start();
+    while(!(opt.cmd.progress() > 0) && opt.isAlive()) Thread.yield();
+    try(Session session = new LocalSession(context)) {
+      session.execute(new XQuery("insert node <b/> into db:open('" + NAME + "')/x"));
+    }
+    opt.join();
+    if(opt.error != null) assertTrue(opt.error.getMessage(), opt.error.getMessage().contains(
+        Util.info(Text.DB_UPDATED_X, NAME)));
+    assertEquals("1", query("count(db:open('" + NAME + "')/x/b)"));
+  }
+
+  /**
+   * Changes the options of the database while it is being optimized.
+   * The change must not get lost, no matter if the optimization succeeds or is rejected.
+   * @throws Exception exception
+   */
+  @Test
+  public void options() throws Exception {
+    final Optimizer opt = new Optimizer();
+    opt.start();
+    while(!(opt.cmd.progress() > 0) && opt.isAlive()) Thread.yield();
+    try(Session session = new LocalSession(context)) {
+      session.execute(new XQuery(
+          "db:optimize('" + NAME + "', false(), map { 'ftindex': true() })"));
+    }
+    opt.join();
+    if(opt.error != null) assertTrue(opt.error.getMessage(), opt.error.getMessage().contains(
+        Util.info(Text.DB_UPDATED_X, NAME)));
+    assertEquals("true", query("db:info('" + NAME + "')//ftindex/string()"));
+  }
+
+  /** Thread for optimizing the database in a separate session. */
+  private static final class Optimizer extends Thread {
+    /** Command. */
+    private final OptimizeAll cmd = new OptimizeAll();
+    /** Error. */
+    private IOException error;
+
+    @Override
+    public void run() {
+      try(Session session = new LocalSession(context)) {
+        session.execute(new Open(NAME));
+        session.execute(cmd);
+      } catch(final IOException ex) {
+        error = ex;
+      }
+    }
+  }
+}
@@ -129,6 +129,39 @@ public final class DiskTableTest extends SandboxTest {
     assertEquals("Unexpected number of blocks!", blocks, tdaBlocks());
   }
 
+  /**
+   * Reads the table concurrently.
+   * @throws Exception exception
+   */
+  @Test
+  public void concurrentReads() throws Exception {
+    tda.lock(false);
+    final long hits = tda.buffers().hits();
+    final Thread[] threads = new Thread[4];
+    final Throwable[] errors = new Throwable[threads.length];
+    for(int t = 0; t < threads.length; t++) {
+      final int th = t;
+      threads[t] = new Thread() {
+        @Override
+        public void run() {
+          try {
+            for(int i = 0; i < storage.length; ++i) {
+              assertEquals(storage[i], (byte) tda.read1(i >> IO.NODEPOWER,
+                  i % (1 << IO.NODEPOWER)));
+            }
+          } catch(final Throwable ex) {
+            errors[th] = ex;
+          }
+        }
+      };
+      threads[t].start();
+    }
+    for(final Thread thread : threads) thread.join();
+    for(final Throwable error : errors) if(error != null) throw new AssertionError(error);
+    // pages are retrieved from the buffer manager
+    assertTrue(tda.buffers().hits() > hits);
+  }
+
   /**
    * Returns the number of block entries.
    * @return number of entries
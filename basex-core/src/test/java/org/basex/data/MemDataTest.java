@@ -22,7 +22,7 @@ public class MemDataTest extends SandboxTest {
   /** XML document. */
   private static final byte[] XML = Token.token(XMLSTR);
   /** Tested {@link MemData} instance. */
-  private Data data;
+  Data data;
 
   /**
    * Set up method; executed before each test.
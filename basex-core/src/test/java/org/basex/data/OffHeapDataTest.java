@@ -0,0 +1,25 @@
+package org.basex.data;
+
+import java.io.*;
+
+import org.basex.build.*;
+import org.basex.core.*;
+import org.basex.io.*;
+import org.junit.*;
+
+/**
+ * Test index updates when using off-heap memory storage ({@link MemData}).
+ *
+ * @author BaseX Team 2005-16, BSD License
+ * @author Christian Gruen
+ */
+public final class OffHeapDataTest extends MemDataTest {
+  @Override
+  @Before
+  public void setUp() throws IOException {
+    final MainOptions opts = new MainOptions();
+    opts.set(MainOptions.OFFHEAP, true);
+    data = MemBuilder.build(Parser.singleParser(new IOContent(XMLSTR), opts, ""));
+    context.openDB(data);
+  }
+}
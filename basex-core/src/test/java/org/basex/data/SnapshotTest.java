@@ -0,0 +1,200 @@
+package org.basex.data;
+
+import static org.junit.Assert.*;
+
+import org.basex.*;
+import org.basex.api.client.*;
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.core.parse.Commands.CmdIndex;
+import org.basex.query.value.node.*;
+import org.junit.*;
+import org.junit.Test;
+
+/**
+ * Tests for database snapshots.
+ *
+ * @author BaseX Team 2005-16, BSD License
+ * @author Christian Gruen
+ */
+public final class SnapshotTest extends SandboxTest {
+  /**
+   * Creates the test database.
+   */
+  @Before
+  public void init() {
+    execute(new CreateDB(NAME, "<x><a>1</a><a>some text</a><b c='attribute value'/></x>"));
+  }
+
+  /**
+   * Drops the database.
+   */
+  @After
+  public void tearDown() {
+    context.soptions.set(StaticOptions.SNAPSHOTS, false);
+    execute(new DropDB(NAME));
+  }
+
+  /**
+   * Checks that a snapshot is not affected by updates.
+   * @throws Exception exception
+   */
+  @Test
+  public void updates() throws Exception {
+    final DiskData data = (DiskData) context.data();
+    final String original = query(".");
+    final SnapshotData snapshot = data.snapshot();
+
+    // updates affecting table pages, texts and attribute values
+    query("for $i in 1 to 5000 return insert node <a>{ $i } text</a> as first into /x");
+    query("replace value of node /x/a[last()] with 'a longer text than before'");
+    query("replace value of node //@c with 'new'");
+    query("delete node /x/a[position() < 2500]");
+    query("rename node /x/b as 'd'");
+    query("insert node attribute e { 'f' } into /x/d");
+    assertEquals(original, new DBNode(snapshot, 0).serialize().toString());
+    assertEquals(8, snapshot.meta.size);
+
+    // new snapshot reflects the updates
+    final String updated = query(".");
+    final SnapshotData snapshot2 = data.snapshot();
+    assertEquals(updated, new DBNode(snapshot2, 0).serialize().toString());
+    snapshot.close();
+    snapshot2.close();
+
+    execute(new Close());
+    execute(new Open(NAME));
+    assertEquals(updated, query("."));
+  }
+
+  /**
+   * Reads a database while it is being updated.
+   * @throws Exception exception
+   */
+  @Test
+  public void read() throws Exception {
+    execute(new Close());
+    context.soptions.set(StaticOptions.SNAPSHOTS, true);
+
+    final Writer writer = new Writer();
+    writer.start();
+    while(writer.getState() != Thread.State.TIMED_WAITING && writer.isAlive()) Thread.yield();
+    try(Session session = new LocalSession(context)) {
+      assertEquals("2", session.execute(new XQuery("count(db:open('" + NAME + "')//a)")));
+      assertTrue(writer.isAlive());
+    }
+    writer.join();
+    assertNull(writer.error);
+    assertEquals("3", query("count(db:open('" + NAME + "')//a)"));
+  }
+
+  /**
+   * Accesses index structures while snapshots are enabled.
+   * @throws Exception exception
+   */
+  @Test
+  public void indexes() throws Exception {
+    execute(new CreateIndex(CmdIndex.FULLTEXT));
+    execute(new Close());
+    context.soptions.set(StaticOptions.SNAPSHOTS, true);
+
+    try(Session session = new LocalSession(context)) {
+      final String[][] queries = {
+        { "count(db:text('" + NAME + "', '1'))", "1" },
+        { "count(db:text-range('" + NAME + "', '1', '1'))", "1" },
+        { "count(db:attribute('" + NAME + "', 'attribute value'))", "1" },
+        { "count(ft:search('" + NAME + "', 'text'))", "1" },
+        { "count(index:texts('" + NAME + "'))", "2" },
+        { "db:info('" + NAME + "')//textindex/string()", "true" },
+        { "db:text('" + NAME + "', '1')/.. is db:open('" + NAME + "')/x/a[1]", "true" }
+      };
+      for(final String[] query : queries) {
+        assertEquals(query[0], query[1], session.execute(new XQuery(query[0])));
+      }
+    }
+  }
+
+  /**
+   * Checks that the ID/PRE mapping of a snapshot is not affected by updates.
+   * @throws Exception exception
+   */
+  @Test
+  public void idmap() throws Exception {
+    execute(new DropDB(NAME));
+    execute(new Set(MainOptions.UPDINDEX, true));
+    execute(new CreateDB(NAME, "<x><a/><b/></x>"));
+    execute(new Set(MainOptions.UPDINDEX, false));
+
+    final DiskData data = (DiskData) context.data();
+    final SnapshotData snapshot = data.snapshot();
+    try {
+      assertTrue(snapshot.meta.updindex);
+      query("insert node <c/> as first into /x");
+      for(int pre = 0; pre < snapshot.meta.size; pre++) {
+        assertEquals(pre, snapshot.pre(snapshot.id(pre)));
+      }
+      assertEquals(3, data.pre(snapshot.id(2)));
+    } finally {
+      snapshot.close();
+    }
+  }
+
+  /**
+   * Checks that a database cannot be dropped or opened while it is pinned or reserved.
+   * @throws Exception exception
+   */
+  @Test
+  public void reserve() throws Exception {
+    execute(new Close());
+    context.soptions.set(StaticOptions.SNAPSHOTS, true);
+
+    // database is pinned by a reader
+    final Data data = Open.open(NAME, context, context.options);
+    try {
+      assertFalse(context.reserve(NAME));
+      assertFalse(new DropDB(NAME).run(context));
+      assertTrue(context.soptions.dbExists(NAME));
+    } finally {
+      Close.close(data, context);
+    }
+
+    // database is reserved: it cannot be opened by other threads
+    assertTrue(context.reserve(NAME));
+    try {
+      final Exception[] error = new Exception[1];
+      final Thread reader = new Thread() {
+        @Override
+        public void run() {
+          try {
+            Close.close(Open.open(NAME, context, context.options), context);
+          } catch(final Exception ex) {
+            error[0] = ex;
+          }
+        }
+      };
+      reader.start();
+      reader.join();
+      assertNotNull(error[0]);
+    } finally {
+      context.release(NAME);
+    }
+    assertTrue(new DropDB(NAME).run(context));
+    assertFalse(context.soptions.dbExists(NAME));
+  }
+
+  /** Thread for updating the database in a separate session. */
+  private static final class Writer extends Thread {
+    /** Error. */
+    private Exception error;
+
+    @Override
+    public void run() {
+      try(Session session = new LocalSession(context)) {
+        session.execute(new XQuery("insert node <a/> into db:open('" + NAME + "')/x, " +
+            "prof:sleep(2000)"));
+      } catch(final Exception ex) {
+        error = ex;
+      }
+    }
+  }
+}
@@ -0,0 +1,75 @@
+package org.basex.data;
+
+import static org.junit.Assert.*;
+
+import org.basex.*;
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.junit.*;
+import org.junit.Test;
+
+/**
+ * Tests for the text cache of disk databases ({@link TextCache}).
+ *
+ * @author BaseX Team 2005-16, BSD License
+ * @author Christian Gruen
+ */
+public final class TextCacheTest extends SandboxTest {
+  /**
+   * Creates a database with an activated text cache.
+   */
+  @Before
+  public void setUp() {
+    set(MainOptions.TEXTCACHE, 1024);
+    execute(new CreateDB(NAME, "<x><a>text one</a><a>text two</a><b c='value one'/></x>"));
+    set(MainOptions.TEXTCACHE, 0);
+  }
+
+  /**
+   * Drops the database.
+   */
+  @After
+  public void tearDown() {
+    execute(new DropDB(NAME));
+  }
+
+  /**
+   * Checks that cached texts are returned.
+   */
+  @Test
+  public void cached() {
+    assertEquals("text one text two", query("string-join(//a, ' ')"));
+    assertEquals("text one text two", query("string-join(//a, ' ')"));
+    assertEquals("value one", query("data(//@c)"));
+
+    final TextCache tc = ((DiskData) context.data()).cache();
+    assertNotNull(tc);
+    assertTrue(tc.hits() >= 2);
+  }
+
+  /**
+   * Checks that cached texts are invalidated by updates.
+   */
+  @Test
+  public void update() {
+    assertEquals("text one text two", query("string-join(//a, ' ')"));
+    assertEquals("value one", query("data(//@c)"));
+    query("replace value of node //a[1] with 'new text'");
+    query("delete node //a[2]");
+    query("insert node <a>text three</a> into /x");
+    query("replace value of node //@c with 'value two'");
+    assertEquals("new text text three", query("string-join(//a, ' ')"));
+    assertEquals("value two", query("data(//@c)"));
+  }
+
+  /**
+   * Checks that the cache size can be changed via optimize.
+   */
+  @Test
+  public void optimize() {
+    set(MainOptions.TEXTCACHE, 0);
+    execute(new Optimize());
+    assertNull(((DiskData) context.data()).cache());
+    assertEquals("text one text two", query("string-join(//a, ' ')"));
+  }
+}
@@ -0,0 +1,169 @@
+package org.basex.index;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import org.basex.*;
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.junit.*;
+import org.junit.Test;
+
+/**
+ * Tests for the {@link MainOptions#INDEXTHREADS} option.
+ *
+ * @author BaseX Team 2005-16, BSD License
+ * @author Christian Gruen
+ */
+public final class ParallelIndexTest extends SandboxTest {
+  /** Query for returning the contents of all index structures. */
+  private static final String QUERY =
+    "(for $k in index:texts('" + NAME + "') " +
+    "return $k || ':' || string-join(db:text('" + NAME + "', $k) ! db:node-pre(.), ','))," +
+    "(for $k in index:attributes('" + NAME + "') " +
+    "return $k || ':' || string-join(db:attribute('" + NAME + "', $k) ! db:node-pre(.), ','))," +
+    "(for $k in index:tokens('" + NAME + "') " +
+    "return $k || ':' || string-join(db:token('" + NAME + "', $k) ! db:node-pre(.), ','))," +
+    "(for $k in ('tok0', 'tok3', 't12') " +
+    "return $k || ':' || string-join(ft:search('" + NAME + "', $k) ! db:node-pre(.), ','))";
+
+  /**
+   * Initializes the index options.
+   */
+  @Before
+  public void init() {
+    set(MainOptions.TOKENINDEX, true);
+    set(MainOptions.FTINDEX, true);
+  }
+
+  /**
+   * Drops the database and resets the options.
+   */
+  @After
+  public void tearDown() {
+    execute(new DropDB(NAME));
+    set(MainOptions.TOKENINDEX, false);
+    set(MainOptions.FTINDEX, false);
+    set(MainOptions.INDEXTHREADS, 1);
+    set(MainOptions.SPLITSIZE, 0);
+    set(MainOptions.UPDINDEX, false);
+  }
+
+  /**
+   * Compares indexes that have been built sequentially and in parallel.
+   */
+  @Test
+  public void create() {
+    final String expected = create(1);
+    assertEquals(expected, create(4));
+    // write partial indexes in each partition
+    set(MainOptions.SPLITSIZE, 1);
+    assertEquals(expected, create(4));
+    set(MainOptions.SPLITSIZE, 0);
+    set(MainOptions.UPDINDEX, true);
+    assertEquals(expected, create(4));
+  }
+
+  /**
+   * Optimizes a database in parallel.
+   */
+  @Test
+  public void optimize() {
+    final String expected = create(1);
+    set(MainOptions.INDEXTHREADS, 4);
+    execute(new OptimizeAll());
+    assertEquals(expected, query(QUERY));
+    execute(new CreateIndex(IndexType.TEXT));
+    assertEquals(expected, query(QUERY));
+  }
+
+  /**
+   * Runs nested tasks in a single pool without exceeding the number of threads.
+   * @throws Exception exception
+   */
+  @Test
+  public void pool() throws Exception {
+    final IndexPool pool = new IndexPool(3, null);
+    try {
+      final AtomicInteger active = new AtomicInteger(), max = new AtomicInteger();
+      final Task[] tasks = new Task[4];
+      for(int t = 0; t < tasks.length; t++) {
+        final Task[] subtasks = new Task[4];
+        for(int s = 0; s < subtasks.length; s++) subtasks[s] = new Task(pool, null, active, max);
+        tasks[t] = new Task(pool, subtasks, active, max);
+      }
+      pool.run(tasks);
+      for(final Task task : tasks) {
+        assertTrue(task.done);
+        for(final Task subtask : task.tasks) assertTrue(subtask.done);
+      }
+      assertTrue(max.get() <= 3);
+    } finally {
+      pool.close();
+    }
+  }
+
+  /**
+   * Creates a database with the specified number of threads and returns the index contents.
+   * @param threads number of threads
+   * @return index contents
+   */
+  private static String create(final int threads) {
+    set(MainOptions.INDEXTHREADS, threads);
+    final StringBuilder sb = new StringBuilder("<x>");
+    for(int i = 0; i < 50000; i++) {
+      sb.append("<a b='v").append(i % 100).append("'>t").append(i % 1000);
+      sb.append(" tok").append(i % 7).append("</a>");
+    }
+    execute(new CreateDB(NAME, sb.append("</x>").toString()));
+    return query(QUERY);
+  }
+
+  /** Task that runs subtasks. */
+  private static final class Task extends Proc implements Callable<Void> {
+    /** Pool. */
+    private final IndexPool pool;
+    /** Subtasks (can be {@code null}). */
+    private final Task[] tasks;
+    /** Number of active tasks that are not waiting for subtasks. */
+    private final AtomicInteger active;
+    /** Maximum number of active tasks. */
+    private final AtomicInteger max;
+    /** Indicates if the task has been finished. */
+    private volatile boolean done;
+
+    /**
+     * Constructor.
+     * @param pool pool
+     * @param tasks subtasks (can be {@code null})
+     * @param active number of active tasks
+     * @param max maximum number of active tasks
+     */
+    Task(final IndexPool pool, final Task[] tasks, final AtomicInteger active,
+        final AtomicInteger max) {
+      this.pool = pool;
+      this.tasks = tasks;
+      this.active = active;
+      this.max = max;
+    }
+
+    @Override
+    public Void call() throws Exception {
+      if(tasks != null) {
+        pool.run(tasks);
+      } else {
+        final int a = active.incrementAndGet();
+        while(true) {
+          final int m = max.get();
+          if(a <= m || max.compareAndSet(m, a)) break;
+        }
+        Thread.sleep(20);
+        active.decrementAndGet();
+      }
+      done = true;
+      return null;
+    }
+  }
+}
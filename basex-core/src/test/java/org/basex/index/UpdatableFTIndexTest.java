@@ -0,0 +1,91 @@
+package org.basex.index;
+
+import static org.junit.Assert.*;
+
+import org.basex.*;
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.junit.*;
+import org.junit.Test;
+
+/**
+ * Tests for the incremental maintenance of the full-text index.
+ *
+ * @author BaseX Team 2005-16, BSD License
+ * @author Christian Gruen
+ */
+public final class UpdatableFTIndexTest extends SandboxTest {
+  /** Query for returning the contents of the full-text index. */
+  private static final String QUERY =
+    "(for $k in ('hello', 'world', 'tok1', 'tok77', 'new') " +
+    "return $k || ':' || string-join(ft:search('" + NAME + "', $k) ! db:node-pre(.), ','))," +
+    "string-join(ft:search('" + NAME + "', 'wor.*', map { 'wildcards': true() }) ! " +
+    "db:node-pre(.), ',')," +
+    "string-join(ft:search('" + NAME + "', 'hallo', map { 'fuzzy': true() }) ! " +
+    "db:node-pre(.), ',')," +
+    "count(db:open('" + NAME + "')//a[text() contains text 'hello'])," +
+    "(for $t in ft:tokens('" + NAME + "') return $t || ':' || $t/@count)";
+
+  /**
+   * Initializes the index options.
+   */
+  @Before
+  public void init() {
+    set(MainOptions.FTINDEX, true);
+    set(MainOptions.UPDINDEX, true);
+  }
+
+  /**
+   * Drops the database and resets the options.
+   */
+  @After
+  public void tearDown() {
+    execute(new DropDB(NAME));
+    set(MainOptions.FTINDEX, false);
+    set(MainOptions.UPDINDEX, false);
+  }
+
+  /**
+   * Runs various updates.
+   */
+  @Test
+  public void update() {
+    execute(new CreateDB(NAME, "<x><a>hello world</a><a>tok1 tok2</a><b>hello</b></x>"));
+    update("insert node <a>new hello world</a> into /x");
+    update("replace value of node /x/a[2] with 'tok77 word'");
+    update("delete node /x/a[1]");
+    update("rename node /x/b as 'a'");
+    update("insert node <a>hello again</a> as first into /x");
+    update("replace node /x/a[last()] with <a>world tok1</a>");
+    update("for $a in /x/a[1] return replace value of node $a with 'new hello'");
+  }
+
+  /**
+   * Merges a large number of updates with the index files.
+   */
+  @Test
+  public void merge() {
+    execute(new CreateDB(NAME, "<x><a>hello world</a></x>"));
+    update("for $i in 1 to 1000 return insert node <a>tok{ $i } hello world</a> into /x");
+    update("delete node /x/a[position() mod 3 = 0]");
+    update("for $a in /x/a[position() mod 5 = 0] return replace value of node $a with 'new'");
+  }
+
+  /**
+   * Performs an update and compares the index contents with a rebuilt index.
+   * @param query update query
+   */
+  private void update(final String query) {
+    execute(new Open(NAME));
+    query(query);
+    assertEquals("true", query("db:info('" + NAME + "')//ftindex/string()"));
+    final String result = query(QUERY);
+    // reopen database
+    execute(new Close());
+    assertEquals(result, query(QUERY));
+    // rebuild index
+    execute(new Open(NAME));
+    execute(new CreateIndex(IndexType.FULLTEXT));
+    assertEquals(result, query(QUERY));
+  }
+}
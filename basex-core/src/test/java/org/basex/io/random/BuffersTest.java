@@ -0,0 +1,90 @@
+package org.basex.io.random;
+
+import static org.junit.Assert.*;
+
+import org.basex.core.*;
+import org.junit.*;
+
+/**
+ * Tests for class {@link Buffers}.
+ *
+ * @author BaseX Team 2005-16, BSD License
+ * @author Christian Gruen
+ */
+public final class BuffersTest {
+  /**
+   * Disables the global buffer pool.
+   */
+  @Before
+  public void setUp() {
+    Buffers.pool(0);
+  }
+
+  /**
+   * Resets the global buffer pool.
+   */
+  @After
+  public void tearDown() {
+    Buffers.pool(StaticOptions.BUFFERPOOL.value());
+  }
+
+  /**
+   * Counts hits and misses.
+   */
+  @Test
+  public void hits() {
+    final Buffers bm = new Buffers();
+    assertTrue(bm.cursor(1));
+    assertFalse(bm.cursor(1));
+    assertTrue(bm.cursor(2));
+    assertFalse(bm.cursor(1));
+    assertFalse(bm.cursor(2));
+    assertEquals(2, bm.hits());
+    assertEquals(2, bm.misses());
+  }
+
+  /**
+   * Checks that repeatedly referenced pages survive a sequential scan.
+   */
+  @Test
+  public void scan() {
+    final Buffers bm = new Buffers();
+    bm.cursor(0);
+    bm.cursor(1);
+    bm.cursor(0);
+    for(int p = 2; p < 1000; p++) bm.cursor(p);
+    assertEquals(16, bm.size());
+    assertFalse(bm.cursor(0));
+  }
+
+  /**
+   * Checks that buffers are taken from the global buffer pool.
+   */
+  @Test
+  public void pool() {
+    Buffers.pool(1);
+    final Buffers bm = new Buffers();
+    for(int r = 0; r < 3; r++) {
+      for(int p = 0; p < 64; p++) bm.cursor(p);
+    }
+    assertEquals(64, bm.size());
+    bm.close();
+  }
+
+  /**
+   * Checks that no pages are returned after the buffers have been closed.
+   */
+  @Test
+  public void close() {
+    Buffers.pool(1);
+    final Buffers bm = new Buffers();
+    for(int p = 0; p < 64; p++) bm.cursor(p);
+    bm.cursor(1);
+    bm.current().pos = 1;
+    bm.close();
+    assertEquals(16, bm.size());
+    for(int p = 0; p < 64; p++) assertNull(bm.get(p));
+    assertTrue(bm.cursor(1));
+    assertEquals(-1, bm.current().pos);
+  }
+}
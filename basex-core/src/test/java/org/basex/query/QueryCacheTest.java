@@ -0,0 +1,87 @@
+package org.basex.query;
+
+import static org.junit.Assert.*;
+
+import org.basex.*;
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.junit.*;
+import org.junit.Test;
+
+/**
+ * Tests for the cache of parsed queries.
+ *
+ * @author BaseX Team 2005-16, BSD License
+ * @author Christian Gruen
+ */
+public final class QueryCacheTest extends SandboxTest {
+  /** Query with an external variable. */
+  private static final String EXTERNAL = "declare variable $x as xs:integer external := 1; "
+      + "declare variable $y := $x * 2; for $i in 1 to $x return <a>{ $i + $y }</a>";
+
+  /**
+   * Enables the cache.
+   */
+  @Before
+  public void init() {
+    context.soptions.set(StaticOptions.QUERYCACHE, 10);
+    context.cache.clear();
+  }
+
+  /**
+   * Disables the cache.
+   */
+  @After
+  public void tearDown() {
+    context.soptions.set(StaticOptions.QUERYCACHE, 0);
+    context.cache.clear();
+    execute(new DropDB(NAME));
+  }
+
+  /**
+   * Evaluates a query repeatedly with different bindings.
+   * @throws Exception exception
+   */
+  @Test
+  public void bindings() throws Exception {
+    for(int i = 1; i < 4; i++) {
+      try(final QueryProcessor qp = new QueryProcessor(EXTERNAL, context)) {
+        qp.bind("x", i);
+        assertEquals(i, qp.value().size());
+      }
+    }
+    try(final QueryProcessor qp = new QueryProcessor(EXTERNAL, context)) {
+      assertEquals("<a>3</a>", qp.value().serialize().toString());
+    }
+    assertEquals("1 queries, 3/4 hits (75.0%)", context.cache.toString());
+  }
+
+  /**
+   * Checks that cached queries reflect database updates.
+   */
+  @Test
+  public void updates() {
+    execute(new CreateDB(NAME, "<x><a/></x>"));
+    final String count = "count(//a)";
+    assertEquals("1", query(count));
+    query("insert node <a/> into /x");
+    assertEquals("2", query(count));
+    execute(new CreateIndex("text"));
+    query("insert node <a>text</a> into /x");
+    assertEquals("3", query(count));
+    assertEquals("1", query("count(//a[text() = 'text'])"));
+    assertEquals("1", query("count(//a[text() = 'text'])"));
+  }
+
+  /**
+   * Checks queries that are not cached.
+   */
+  @Test
+  public void uncached() {
+    final String query = "declare function local:f() { 1 }; local:f()";
+    assertEquals("1", query(query));
+    assertEquals("1", query(query));
+    assertEquals("1", query("declare option output:method 'text'; 1"));
+    assertEquals("2 queries, 0/2 hits (0.0%)", context.cache.toString());
+  }
+}
@@ -1,5 +1,7 @@
 package org.basex.query.ast;
 
+import static org.basex.query.QueryError.*;
+
 import org.basex.query.expr.*;
 import org.basex.query.expr.gflwor.*;
 import org.basex.query.func.util.*;
@@ -298,4 +300,95 @@ public final class GFLWOROptimizeTest extends QueryPlanTest {
         "count(//VarRef) = 1"
     );
   }
+
+  /** Tests the rewriting of equality comparisons to hash joins. */
+  @Test public void join() {
+    final String xml = "let $a := (<a id='1'/>, <a id='2'/>, <a id='3'/>) " +
+        "let $b := (<b ref='3' v='x'/>, <b ref='1' v='y'/>, <b ref='3' v='z'/>) ";
+    check(xml + "for $x in $a for $y in $b where $y/@ref = $x/@id return $x/@id || $y/@v",
+        "1y\n3x\n3z",
+        "exists(//Join)", "empty(//Where)");
+    // multiple keys, order of bound items
+    check(xml + "for $x in ('3', '1 3') for $y in $b " +
+        "where tokenize($x) = $y/@ref return $y/@v || $x",
+        "x3\nz3\nx1 3\ny1 3\nz1 3",
+        "exists(//Join)");
+    // non-string keys: nested loop
+    check("for $x in (1, '2', 2.0) for $y in (<y>2</y>, <y>1</y>) " +
+        "where $y = $x return $y || $x",
+        "11\n22\n22",
+        "exists(//Join)");
+  }
+
+  /** Tests expressions that are not rewritten to hash joins. */
+  @Test public void dontJoin() {
+    // bound expression depends on preceding clause
+    check("for $x in 1 to 3 for $y in $x to 3 where $y = 2 return $x",
+        "1\n2", "empty(//Join)");
+    // key depends on preceding clause
+    check("for $x in ('a', 'b') for $y in ('a', 'b') where $y || $x = 'aa' return $x",
+        "a", "empty(//Join)");
+    // no preceding loop
+    check("let $x := 'b' for $y in ('a', 'b') where $y = $x return $y",
+        "b", "empty(//Join)");
+    // no equality comparison
+    check("for $x in ('a', 'b') for $y in ('a', 'b') where $y != $x return $y",
+        "b\na", "empty(//Join)");
+  }
+
+  /** Tests the propagation of the number of requested results to order by clauses. */
+  @Test public void orderByTop() {
+    check("(for $i in 1 to 10 order by -$i return $i)[position() <= 3]",
+        "10\n9\n8", "//GFLWOR/@limit = 3");
+    check("subsequence(for $i in 1 to 10 order by -$i return $i, 2, 2)",
+        "9\n8", "//GFLWOR/@limit = 3");
+    check("head(for $i in 1 to 10 order by -$i return $i)",
+        "10", "//GFLWOR/@limit = 1");
+    check("(for $i in 1 to 10 order by -$i return $i)[position() > 8]",
+        "2\n1", "empty(//GFLWOR/@limit)");
+  }
+
+  /** Tests the computation of counts and sums of non-grouping variables while grouping. */
+  @Test public void groupByAggregates() {
+    // partial sums are bound to new variables
+    final String summed = "empty(//FnSum/VarRef/Var[@id = //(For, Let)/Var/@id])";
+    check("for $i in 1 to 10 let $d := $i div 2 group by $m := $i mod 2 " +
+        "return $m || ':' || count($i) || ':' || sum($i) || ':' || sum($d)",
+        "1:5:25:12.5\n0:5:30:15", "empty(//FnCount)", summed);
+    // values are still required
+    check("for $i in 1 to 10 group by $m := $i mod 2 return count($i) + $i[1]",
+        "6\n7", "empty(//FnCount)");
+    // untyped values are summed up as well
+    check("for $i in (<a>1</a>, <a>2</a>) group by $m := 1 return (count($i), sum($i))",
+        "2\n3", "empty(//FnCount)", summed);
+    // sum with explicit zero value
+    check("for $i in 1 to 3 group by $m := 1 return sum($i, 'none')", "6", summed);
+  }
+
+  /** Tests the computation of aggregates of attribute paths while grouping. */
+  @Test public void groupByPathAggregates() {
+    final String doc = "let $d := <x><e k='a' v='1'/><e k='b' v='2'/><e k='a' v='3'/></x> ";
+    check(doc + "for $e in $d/e group by $k := $e/@k return sum($e/@v) + count($e/@v)",
+        "6\n3", "empty(//FnCount)", "empty(//FnSum//@axis)");
+    check(doc + "for $e in $d/e let $x := $e group by $k := $e/@k return sum($x/@v)",
+        "4\n2", "empty(//FnSum//@axis)");
+    // nodes may occur more than once: paths are not aggregated
+    check(doc + "for $i in 1 to 2 for $e in $d/e group by $k := $e/@k return sum($e/@v)",
+        "4\n2", "exists(//FnSum//@axis)");
+    // predicates are not aggregated
+    check(doc + "for $e in $d/e group by $k := $e/@k return count($e/@v[. > 1])",
+        "1\n1", "exists(//FnCount)");
+  }
+
+  /** Tests if errors are only raised if the aggregated sums are requested. */
+  @Test public void groupByAggregateErrors() {
+    final String ints = "for $i in (9223372036854775807, 1, 4) group by $k := $i mod 2 ";
+    check(ints + "return if($k = 0) then sum($i) else 'x'", "x\n4");
+    error(ints + "return sum($i)", RANGE_X);
+
+    final String attrs = "for $e in <x><e k='a' v='x'/><e k='b' v='2'/></x>/e " +
+        "group by $k := $e/@k ";
+    check(attrs + "return if($k = 'b') then sum($e/@v) else count($e/@v)", "1\n2");
+    error(attrs + "return sum($e/@v)", FUNCCAST_X_X_X, FUNCAST_X_X);
+  }
 }
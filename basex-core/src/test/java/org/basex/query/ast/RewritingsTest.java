@@ -107,6 +107,22 @@ public final class RewritingsTest extends QueryPlanTest {
     execute(new DropDB(NAME));
   }
 
+  /**
+   * Checks if nested descendant steps are evaluated iteratively.
+   */
+  @Test
+  public void iterDescendants() {
+    execute(new CreateDB(NAME, "<r><a id='1'><b id='2'><a id='3'><b id='4'><c id='5'/></b>"
+        + "<c id='6'/></a></b><c id='7'/></a><a id='8'><b id='9'><c id='10'/></b></a></r>"));
+    check("(//a//b//c) ! string(@id)", "5\n6\n10", "exists(//IterPath)");
+    check("(//a//b//*) ! string(@id)", "3\n4\n5\n6\n10", "exists(//IterPath)");
+    check("(//a/descendant-or-self::*//c) ! string(@id)", "5\n6\n7\n10", "exists(//IterPath)");
+    check("(//a//b//c[1]) ! string(@id)", "5\n6\n10", "empty(//IterPath)");
+    check("(//a//b[1]//c) ! string(@id)", "5\n6\n10", "empty(//IterPath)");
+    check("(document { //r }//a//b//c) ! string(@id)", "5\n6\n10", "exists(//IterPath)");
+    execute(new DropDB(NAME));
+  }
+
   /**
    * Checks OR optimizations.
    */
@@ -2,8 +2,11 @@ package org.basex.query.expr;
 
 import static org.junit.Assert.*;
 
+import org.basex.core.*;
+import org.basex.core.cmd.*;
 import org.basex.query.*;
 import org.junit.*;
+import org.junit.Test;
 
 /**
  * Test cases for FLWOR expressions.
@@ -30,4 +33,128 @@ public final class GFLWORTest extends AdvancedQueryTest {
   public void posOptimizationTest() {
     assertEquals("<a/>", query("for $a at $p in (<a/>,<b/>)/. where $p < 2 return $a"));
   }
+
+  /** Order by clauses, of which only the first results are requested. */
+  @Test
+  public void orderByTop() {
+    final String flwor = "for $i in 1 to 10 order by $i mod 3 return $i";
+    assertEquals("3\n6\n9\n1\n4", query("(" + flwor + ")[position() <= 5]"));
+    assertEquals("1\n4\n7", query("subsequence(" + flwor + ", 4, 3)"));
+    assertEquals("3\n6", query("subsequence(" + flwor + ", 0, 3)"));
+    assertEquals("3", query("head(" + flwor + ")"));
+    assertEquals("9", query("(" + flwor + ")[3]"));
+    assertEquals("9\n7\n5", query("(for $i in (5, 3, 9, 1, 3, 7) " +
+        "order by $i descending return $i)[position() <= 3]"));
+    assertEquals("20\n18", query("(for $i in 1 to 10 " +
+        "order by -$i let $j := $i * 2 return $j)[position() <= 2]"));
+    assertEquals("b\nb\n1", query("(for $i in ('b', 1, 'b', 2) " +
+        "order by $i[. instance of xs:string] empty greatest return $i)[position() < 4]"));
+  }
+
+  /** Order by clauses, with sorted runs written to disk. */
+  @Test
+  public void orderBySpill() {
+    execute(new CreateDB(NAME, "<x>" +
+        "<a>c</a><a>a</a><a>d</a><a>b</a><a>a</a><a>e</a><a>c</a><a>b</a></x>"));
+    final String[] queries = {
+      "for $i in 1 to 20 order by $i mod 7, -$i return $i",
+      "for $i in 1 to 20 stable order by $i mod 3 descending return $i",
+      "for $i in (1, (), 2.5, xs:double('NaN'), 3, (), 0e0) " +
+        "order by $i empty greatest return string($i)",
+      "for $s in ('b', 'c', 'a', 'e', 'd', 'a') let $n := xs:untypedAtomic($s) " +
+        "order by $s return ($n, xs:date('2000-01-01'), xs:QName('q'))",
+      "for $a in //a order by $a descending return $a",
+      "for $a at $p in //a order by $a, $p descending return ($a, $p)",
+      "for $i in 1 to 10 let $x := if($i > 7) then <f>{ $i }</f> else $i " +
+        "order by $i mod 4 return $x",
+      "for $d in (5.5568347289412345E-6, xs:float(6.2345678E-6), 1.2345678901234E14, -0e0) " +
+        "order by $d return ($d, $d = (5.5568347289412345E-6, xs:float(6.2345678E-6)))"
+    };
+    try {
+      for(final String query : queries) {
+        final String expected = query(query);
+        set(MainOptions.SORTSIZE, 3);
+        assertEquals(query, expected, query(query));
+        set(MainOptions.SORTSIZE, 0);
+      }
+    } finally {
+      set(MainOptions.SORTSIZE, 0);
+      execute(new DropDB(NAME));
+    }
+  }
+
+  /** Group by clauses, with the tuples of new groups written to disk. */
+  @Test
+  public void groupBySpill() {
+    execute(new CreateDB(NAME, "<x>" +
+        "<a>c</a><a>a</a><a>d</a><a>b</a><a>a</a><a>e</a><a>c</a><a>b</a></x>"));
+    final String[] queries = {
+      "for $i in 1 to 100 group by $k := $i mod 7 order by $k " +
+        "return ($k, count($i), sum($i), string-join($i, ','))",
+      "for $a in //a group by $s := string($a) order by $s return ($s, count($a), $a)",
+      "for $i in 1 to 10 let $x := if($i > 7) then <f>{ $i }</f> else $i " +
+        "group by $m := $i mod 3 order by $m return ($m, $x)",
+      "for $i in 1 to 10 group by $k := if($i mod 3 = 0) then () else $i mod 2 " +
+        "order by $k empty least return ($k, count($i))",
+      "for $d in (5.5568347289412345E-6, 1e0, xs:float(6.2345678E-6), 2e0, 3e0) " +
+        "group by $k := $d < 1 order by $k return ($k, sum($d), $d)",
+      "for $s in ('a', 'A', 'b', 'B', 'a') group by $k := $s collation " +
+        "'http://www.w3.org/2005/xpath-functions/collation/html-ascii-case-insensitive' " +
+        "order by $k return ($k, count($s))"
+    };
+    try {
+      for(final String query : queries) {
+        final String expected = query(query);
+        set(MainOptions.GROUPSIZE, 2);
+        assertEquals(query, expected, query(query));
+        set(MainOptions.GROUPSIZE, 0);
+      }
+    } finally {
+      set(MainOptions.GROUPSIZE, 0);
+      execute(new DropDB(NAME));
+    }
+  }
+
+  /** Parallel evaluation of FLWOR iterations with group by clauses. */
+  @Test
+  public void groupByParallel() {
+    final String[] queries = {
+      "%s for $i in 1 to 1000 let $m := $i mod 13 group by $m " +
+        "return ($m, count($i), sum($i), $i[1]) %s",
+      "%s for $i in 1 to 200 where $i mod 2 = 0 group by $k := $i mod 5 let $c := count($i) " +
+        "order by $c descending, $k return ($k, $c, string-join($i, ' ')) %s",
+      "<x>{ (1 to 30) ! <a>{ . mod 4 }</a> }</x>/(%s for $a in a " +
+        "group by $v := string($a) return $v || ':' || count($a) %s)",
+      "%s for $i in (1 to 50, 'x', 51 to 100) group by $k := $i instance of xs:integer " +
+        "return ($k, count($i)) %s"
+    };
+    for(final String query : queries) {
+      final String expected = query(String.format(query, "(", ")"));
+      final String parallel = String.format(query, "(# basex:parallel 4 #) {", "}");
+      assertEquals(parallel, expected, query(parallel));
+    }
+    error("(# basex:parallel 4 #) { for $i in 1 to 10 group by $k := ($i, $i) return $k }",
+        QueryError.SEQFOUND_X);
+  }
+
+  /** Parallel evaluation of FLWOR iterations. */
+  @Test
+  public void parallel() {
+    final String[] queries = {
+      "%s for $i in 1 to 100 return $i * 2 %s",
+      "let $n := 7 return %s for $i at $p in 1 to 50 let $x := $i * $n " +
+        "where $i mod 3 = 0 return <a p='{ $p }'>{ $x }</a> %s",
+      "declare function local:f($d) { %s for $i in 1 to 20 for $j in 1 to $i mod 4 " +
+        "return $i + $j + $d %s }; local:f(<d>100</d>)",
+      "<x>{ (1 to 30) ! <a>{ . }</a> }</x>/(%s for $a in a where $a mod 2 = 0 " +
+        "return string($a) || name() %s)"
+    };
+    for(final String query : queries) {
+      final String expected = query(String.format(query, "(", ")"));
+      final String parallel = String.format(query, "(# basex:parallel 4 #) {", "}");
+      assertEquals(parallel, expected, query(parallel));
+    }
+    error("(# basex:parallel 4 #) { for $i in 1 to 10 return " +
+        "if($i = 7) then error() else $i }", QueryError.FUNERR1);
+  }
 }
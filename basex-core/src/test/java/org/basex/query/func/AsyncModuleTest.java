@@ -6,7 +6,10 @@ import static org.junit.Assert.*;
 
 import java.io.*;
 
+import org.basex.core.*;
+import org.basex.core.cmd.XQuery;
 import org.basex.query.*;
+import org.basex.util.*;
 import org.junit.*;
 
 /**
@@ -149,4 +152,46 @@ public final class AsyncModuleTest extends AdvancedQueryTest {
       }
     }
   }
+
+  /** Test method. */
+  @Test
+  public void stream() {
+    final String options = " map {}, map { 'stream': true() }";
+    // consume results while query is running
+    String id = query(_ASYNC_EVAL.args("\"(1 to 100000) ! <a>{ . }</a>\"", options));
+    query("sum(" + _ASYNC_RESULT.args(id) + " ! xs:integer(.))", "5000050000");
+    error(_ASYNC_RESULT.args(id), ASYNC_UNKNOWN_X);
+
+    // consume result after query has been finished
+    id = query(_ASYNC_EVAL.args("1 to 3", options));
+    while(query(_ASYNC_FINISHED.args(id)).equals("false")) Performance.sleep(10);
+    query(_ASYNC_RESULT.args(id), "1\n2\n3");
+
+    // errors are raised after the preceding results
+    id = query(_ASYNC_EVAL.args("\"(1 to 1000), error()\"", options));
+    error("count(" + _ASYNC_RESULT.args(id) + ")", FUNERR1);
+
+    // stop query while results are being buffered
+    id = query(_ASYNC_EVAL.args("1 to 100000000", options));
+    query(_ASYNC_STOP.args(id));
+    error(_ASYNC_RESULT.args(id), ASYNC_UNKNOWN_X);
+
+    // query requests a lock that is held by the consumer
+    query(_DB_CREATE.args(NAME, " <x/>", "x.xml"));
+    try {
+      final String update = " 'insert node <a/> into " + _DB_OPEN.args(NAME) + "/x'";
+      new XQuery(_DB_OPEN.args(NAME) + ", " + _ASYNC_RESULT.args(
+          _ASYNC_EVAL.args(update, options))).execute(context);
+      fail("Query was expected to fail.");
+    } catch(final BaseXException ex) {
+      assertTrue(ex.getMessage(),
+          ex.getMessage().contains(Token.string(ASYNC_RUNNING_X.qname().string())));
+    } finally {
+      // wait until the update has been performed
+      for(final String qid : query(_ASYNC_IDS.args()).split("\n")) {
+        while(query(_ASYNC_FINISHED.args(qid)).equals("false")) Performance.sleep(10);
+      }
+      query(_DB_DROP.args(NAME));
+    }
+  }
 }
@@ -90,6 +90,39 @@ public final class FnTest extends AdvancedQueryTest {
     query("sum((), ())", "");
     query("sum(1, 'x')", 1);
     error("sum((), (1,2))", SEQFOUND_X);
+
+    query("sum(reverse(1 to 3000))", "4501500");
+
+    // values added in blocks
+    query("sum(reverse(1 to 3000)[. > 0])", "4501500");
+    query("sum((1 to 3000) ! xs:byte(. mod 100))", "148500");
+    query("sum((1 to 3000) ! xs:double(.))", "4.5015E6");
+    query("sum((1 to 3000) ! <a>{ . }</a>)", "4.5015E6");
+    query("sum(((1 to 3000) ! <a>{ . }</a>, 1.5, 2 to 3000))", "9.0030005E6");
+    query("sum((1 to 3000, [ 1, 2 ], xs:float(0.5)))", "4501503.5");
+    query("sum((1 to 3000, <a>NaN</a>))", "NaN");
+    error("sum((9223372036854775807, 1 to 3000))", RANGE_X);
+    error("sum(((1 to 3000) ! <a>{ . }</a>, 'x'))", SUMNUM_X_X);
+    error("sum(((1 to 3000) ! <a>{ . }</a>, <a>x</a>))", FUNCAST_X_X);
+  }
+
+  /** Tests for the {@code avg} function. */
+  @Test
+  public void avg() {
+    query("avg(1 to 3000)", "1500.5");
+    query("avg((1 to 3000) ! <a>{ . }</a>)", "1500.5");
+    query("avg((1 to 3000, 1500.5))", "1500.5");
+  }
+
+  /** Tests for the {@code max} and {@code min} functions. */
+  @Test
+  public void minMax() {
+    query("max((1 to 3000) ! <a>{ . }</a>)", "3000");
+    query("min((1 to 3000) ! <a>{ . }</a>)", "1");
+    query("max(((1 to 3000) ! <a>{ . }</a>, 5000))", "5000");
+    query("max(((1 to 3000) ! <a>{ . }</a>, 5000)) instance of xs:double", "true");
+    query("max((1 to 3000) ! <a>{ . }</a>) instance of xs:double", "true");
+    query("min(((1 to 3000) ! <a>{ . }</a>, <a>NaN</a>, 0))", "NaN");
   }
 
   /** Tests for the {@code static-base-uri} function. */
@@ -0,0 +1,188 @@
+package org.basex.query.index;
+
+import java.text.*;
+import java.util.*;
+
+import org.basex.core.cmd.*;
+import org.basex.core.parse.Commands.CmdIndex;
+import org.basex.query.*;
+import org.basex.query.ast.*;
+import org.basex.query.expr.index.*;
+import org.basex.util.*;
+import org.junit.*;
+import org.junit.Test;
+
+/**
+ * This class tests if date range queries are correctly evaluated with(out) the index.
+ *
+ * @author BaseX Team 2005-16, BSD License
+ * @author Christian Gruen
+ */
+public final class DateRangeTest extends QueryPlanTest {
+  /** Timezones of the generated timestamps (in hours). */
+  private static final int[] ZONES = { 0, 14, -12, 5, -3 };
+  /** Start of the generated timestamps. */
+  private static final long START = 1767225600000L;
+  /** Distance between two timestamps (seven hours). */
+  private static final long STEP = 7 * 3600000L;
+  /** Number of timestamps. */
+  private static final int COUNT = 2000;
+
+  /**
+   * Initializes the tests.
+   */
+  @BeforeClass
+  public static void start() {
+    final SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss", Locale.ENGLISH);
+    sdf.setTimeZone(TimeZone.getTimeZone("UTC"));
+
+    final TokenBuilder tb = new TokenBuilder().add("<xml>");
+    for(int i = 0; i < COUNT; i++) {
+      // add timestamps in different timezones, some with leading whitespaces
+      final int zone = ZONES[i % ZONES.length];
+      tb.add("<e ts='").add(i % 10 == 0 ? " " : "");
+      tb.add(sdf.format(new Date(START + i * STEP + zone * 3600000L)));
+      tb.add(zone == 0 ? "Z" : String.format(Locale.ENGLISH, "%+03d:00", zone)).add("'/>");
+    }
+    // add dates
+    for(int i = 0; i < 365; i++) {
+      tb.add("<d>").add(sdf.format(new Date(START + i * 86400000L)).substring(0, 10));
+      tb.add("</d>");
+    }
+    tb.add("</xml>");
+    execute(new CreateDB(NAME, tb.toString()));
+  }
+
+  /**
+   * Finishes the tests.
+   */
+  @AfterClass
+  public static void finish() {
+    execute(new DropDB(NAME));
+  }
+
+  /**
+   * Compares attributes with dateTime bounds.
+   */
+  @Test
+  public void dateTime() {
+    dateTime("2026-01-01T00:00:00Z", "2026-01-01T00:00:00Z", true, true);
+    dateTime("2026-01-10T00:00:00Z", "2026-01-12T00:00:00Z", true, false);
+    dateTime("2026-01-10T07:00:00Z", "2026-01-12T00:00:00Z", false, true);
+    dateTime("2026-02-01T03:00:00+02:00", "2026-03-01T00:00:00-05:00", true, false);
+    dateTime("2025-12-01T00:00:00Z", "2027-01-01T00:00:00Z", true, false);
+    dateTime("2026-05-01T00:00:00Z", "2026-05-02T00:00:00Z", true, true);
+  }
+
+  /**
+   * Compares casted attributes with dateTime bounds.
+   */
+  @Test
+  public void cast() {
+    test("count(//e[xs:dateTime(@ts) >= xs:dateTime('2026-01-10T00:00:00Z') and "
+        + "xs:dateTime(@ts) < xs:dateTime('2026-01-12T00:00:00Z')])",
+        Integer.toString(count("2026-01-10T00:00:00Z", "2026-01-12T00:00:00Z", true, false)),
+        true);
+  }
+
+  /**
+   * Compares texts with date bounds.
+   */
+  @Test
+  public void date() {
+    test("count(//d[. >= xs:date('2026-02-01') and . <= xs:date('2026-02-28')])", "28", true);
+    test("count(//d[text() > xs:date('2026-02-01') and text() < xs:date('2026-02-28')])",
+        "26", true);
+    test("count(//d[xs:date(text()) >= xs:date('2026-12-31') and "
+        + "xs:date(text()) <= xs:date('2027-12-31')])", "1", true);
+    test("count(//d[. >= xs:date('2026-12-31')])", "1", false);
+  }
+
+  /**
+   * Checks that the index is not used if values cannot be cast to the bound type.
+   */
+  @Test
+  public void invalid() {
+    final String clz = Util.className(DateRangeAccess.class);
+    try {
+      execute(new CreateDB(NAME + "Invalid",
+          "<xml><e ts='2020-01-15'/><e ts='bogus'/><d>2020-01-15</d><d/></xml>"));
+      final String[] queries = {
+        "count(//e[@ts >= xs:date('2020-01-01') and @ts <= xs:date('2020-02-01')])",
+        "count(//d[. >= xs:date('2020-01-01') and . <= xs:date('2020-02-01')])"
+      };
+      for(final String query : queries) {
+        error(query, QueryError.DATEFORMAT_X_X_X);
+      }
+      // empty elements have no text nodes, but are not reflected in the statistics
+      check("count(//d[text() >= xs:date('2020-01-01') and text() <= xs:date('2020-02-01')])",
+          "1", "not(//" + clz + ')');
+    } finally {
+      execute(new DropDB(NAME + "Invalid"));
+      execute(new Open(NAME));
+    }
+  }
+
+  /**
+   * Tests a dateTime range.
+   * @param min minimum
+   * @param max maximum
+   * @param mni include minimum
+   * @param mxi include maximum
+   */
+  private static void dateTime(final String min, final String max, final boolean mni,
+      final boolean mxi) {
+    test("count(//e[@ts " + (mni ? ">=" : ">") + " xs:dateTime('" + min + "') and @ts " +
+        (mxi ? "<=" : "<") + " xs:dateTime('" + max + "')])",
+        Integer.toString(count(min, max, mni, mxi)), true);
+  }
+
+  /**
+   * Counts the generated timestamps within the specified range.
+   * @param min minimum
+   * @param max maximum
+   * @param mni include minimum
+   * @param mxi include maximum
+   * @return count
+   */
+  private static int count(final String min, final String max, final boolean mni,
+      final boolean mxi) {
+    final long mn = time(min), mx = time(max);
+    int c = 0;
+    for(int i = 0; i < COUNT; i++) {
+      final long t = START + i * STEP;
+      if((mni ? t >= mn : t > mn) && (mxi ? t <= mx : t < mx)) c++;
+    }
+    return c;
+  }
+
+  /**
+   * Returns the milliseconds of the specified dateTime.
+   * @param date date
+   * @return milliseconds
+   */
+  private static long time(final String date) {
+    try {
+      return new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ssXXX", Locale.ENGLISH).parse(date).
+          getTime();
+    } catch(final ParseException ex) {
+      throw new AssertionError(ex);
+    }
+  }
+
+  /**
+   * Tests a query with and without index.
+   * @param query query
+   * @param result expected result
+   * @param index index access expected in query plan
+   */
+  private static void test(final String query, final String result, final boolean index) {
+    final String clz = Util.className(DateRangeAccess.class);
+    execute(new CreateIndex(CmdIndex.TEXT));
+    execute(new CreateIndex(CmdIndex.ATTRIBUTE));
+    check(query, result, (index ? "exists" : "not") + "(//" + clz + ')');
+    execute(new DropIndex(CmdIndex.TEXT));
+    execute(new DropIndex(CmdIndex.ATTRIBUTE));
+    check(query, result, "not(//" + clz + ')');
+  }
+}
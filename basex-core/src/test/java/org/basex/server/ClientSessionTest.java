@@ -1,12 +1,17 @@
 package org.basex.server;
 
+import static org.basex.query.func.Function.*;
 import static org.junit.Assert.*;
 
 import java.io.*;
+import java.util.*;
 
 import org.basex.*;
+import org.basex.api.client.*;
+import org.basex.core.*;
 import org.basex.util.*;
 import org.junit.*;
+import org.junit.Test;
 
 /**
  * This class tests the client/server session API.
@@ -46,4 +51,61 @@ public class ClientSessionTest extends SessionTest {
       fail(Util.message(ex));
     }
   }
+
+  /**
+   * Runs queries in a pipeline.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void pipeline() throws IOException {
+    final ClientSession cs = (ClientSession) session;
+    assertArrayEquals(new String[] { "1", "slow", "fast" },
+        cs.pipeline("1", "prof:sleep(200), 'slow'", "'fast'"));
+    assertArrayEquals(new String[0], cs.pipeline());
+
+    // queries are evaluated in parallel
+    final Performance perf = new Performance();
+    final String[] queries = new String[5];
+    for(int q = 0; q < queries.length; q++) queries[q] = "prof:sleep(500), " + q;
+    assertEquals("4", cs.pipeline(queries)[4]);
+    assertTrue(perf.time() < 2000000000L);
+
+    // error: all results are consumed
+    try {
+      cs.pipeline("1", "1+", "2");
+      fail("Error expected.");
+    } catch(final BaseXException ex) {
+      assertTrue(ex.getMessage(), ex.getMessage().contains("[XPST0003]"));
+    }
+    assertArrayEquals(new String[] { "3" }, cs.pipeline("3"));
+  }
+
+  /**
+   * Adds a stream of documents in batches.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void ingest() throws IOException {
+    final ClientSession cs = (ClientSession) session;
+    cs.execute("create db " + NAME);
+    cs.execute("set " + MainOptions.INGESTBATCH.name() + " 3");
+    final Map<String, byte[]> docs = new LinkedHashMap<>();
+    for(int d = 0; d < 10; d++) docs.put("sub/" + d + ".xml", Token.token("<x>" + d + "</x>"));
+    cs.ingest("dir", docs);
+    assertEqual("10", cs.query("count(" + _DB_OPEN.args(NAME, "dir/sub") + ')').execute());
+    assertEqual("9", cs.query(_DB_OPEN.args(NAME, "dir/sub/9.xml") + "/x/text()").execute());
+    cs.ingest("", new HashMap<String, byte[]>());
+
+    // error: documents of the preceding batches are added
+    docs.clear();
+    for(int d = 0; d < 5; d++) docs.put(d + ".xml", Token.token(d == 4 ? "<x>" : "<x/>"));
+    try {
+      cs.ingest("", docs);
+      fail("Error expected.");
+    } catch(final BaseXException ex) {
+      assertEqual("13", cs.query("count(" + _DB_OPEN.args(NAME) + ')').execute());
+    }
+    // session is still functional
+    assertEqual("1", cs.query("1").execute());
+  }
 }
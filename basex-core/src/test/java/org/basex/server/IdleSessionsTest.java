@@ -0,0 +1,67 @@
+package org.basex.server;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.util.*;
+
+import org.basex.*;
+import org.basex.api.client.*;
+import org.basex.util.*;
+import org.junit.*;
+import org.junit.Test;
+
+/**
+ * This class tests if idle client sessions are handled without separate threads.
+ *
+ * @author BaseX Team 2005-16, BSD License
+ * @author Christian Gruen
+ */
+public final class IdleSessionsTest extends SandboxTest {
+  /** Number of sessions. */
+  private static final int SESSIONS = 300;
+
+  /** Server reference. */
+  private BaseXServer server;
+
+  /**
+   * Starts the server.
+   * @throws IOException exception
+   */
+  @Before
+  public void start() throws IOException {
+    server = createServer();
+  }
+
+  /**
+   * Stops the server.
+   * @throws IOException exception
+   */
+  @After
+  public void stop() throws IOException {
+    stopServer(server);
+  }
+
+  /**
+   * Opens many sessions and checks that the number of threads does not grow accordingly.
+   * @throws Exception exception
+   */
+  @Test
+  public void threads() throws Exception {
+    final ArrayList<ClientSession> sessions = new ArrayList<>();
+    try {
+      for(int s = 0; s < SESSIONS; s++) sessions.add(createClient());
+      // wait until all authentication timers have been cancelled
+      Performance.sleep(200);
+      final int threads = Thread.activeCount();
+      assertTrue("Threads: " + threads, threads < SESSIONS / 2);
+
+      // all sessions are still functional
+      for(int s = 0; s < SESSIONS; s++) {
+        assertEquals(Integer.toString(s), sessions.get(s).query(Integer.toString(s)).execute());
+      }
+    } finally {
+      for(final ClientSession cs : sessions) cs.close();
+    }
+  }
+}
@@ -1,7 +1,16 @@
 package org.basex.server;
 
+import static org.basex.query.func.Function.*;
+import static org.junit.Assert.*;
+
+import java.io.*;
+
 import org.basex.api.client.*;
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.io.in.*;
 import org.junit.*;
+import org.junit.Test;
 
 /**
  * This class tests the local session API.
@@ -15,4 +24,40 @@ public class LocalSessionTest extends SessionTest {
   public void startSession() {
     session = new LocalSession(context, out);
   }
+
+  /**
+   * Ingests streamed entries.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void ingest() throws IOException {
+    session.execute(new CreateDB(NAME));
+    session.execute(ingest("a.xml|4|<a/>b.xml|4|<b/>"));
+    // content that is not consumed by the parser is skipped
+    session.execute(ingest("c.xml|8|<c/>    d.xml|4|<d/>"));
+    assertEqual("4", session.query(COUNT.args(_DB_OPEN.args(NAME))).execute());
+
+    // invalid and truncated lengths
+    for(final String entries : new String[] { "e.xml|-1|<e/>", "e.xml|x|<e/>",
+        "e.xml|" + Long.MAX_VALUE + "|<e/>" }) {
+      try {
+        session.execute(ingest(entries));
+        fail("Error expected: " + entries);
+      } catch(final BaseXException ex) {
+        /* expected */
+      }
+    }
+    assertEqual("4", session.query(COUNT.args(_DB_OPEN.args(NAME))).execute());
+  }
+
+  /**
+   * Returns an ingest command for the specified entries.
+   * @param entries entries (separators are represented by {@code |})
+   * @return command
+   */
+  private static Ingest ingest(final String entries) {
+    final Ingest cmd = new Ingest("");
+    cmd.setInput(new ArrayInput(entries.replace('|', '\0')));
+    return cmd;
+  }
 }
@@ -0,0 +1,78 @@
+package org.basex.server;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import org.basex.*;
+import org.basex.io.*;
+import org.basex.server.Log.LogType;
+import org.basex.util.*;
+import org.junit.*;
+import org.junit.Test;
+
+/**
+ * This class tests the log writer.
+ *
+ * @author BaseX Team 2005-16, BSD License
+ * @author Christian Gruen
+ */
+public final class LogTest extends SandboxTest {
+  /** Number of threads. */
+  private static final int THREADS = 4;
+  /** Number of entries per thread. */
+  private static final int ENTRIES = 5000;
+
+  /** Log. */
+  private Log log;
+
+  /**
+   * Creates the log.
+   */
+  @Before
+  public void init() {
+    log = new Log(context.soptions);
+  }
+
+  /**
+   * Closes the log and deletes the log files.
+   */
+  @After
+  public void finish() {
+    log.close();
+    log.dir().delete();
+  }
+
+  /**
+   * Writes entries from multiple threads.
+   * @throws Exception exception
+   */
+  @Test
+  public void write() throws Exception {
+    final Thread[] threads = new Thread[THREADS];
+    for(int t = 0; t < THREADS; t++) {
+      final String address = "thread" + t;
+      threads[t] = new Thread() {
+        @Override
+        public void run() {
+          for(int e = 0; e < ENTRIES; e++) log.write(address, null, LogType.INFO, "e" + e, null);
+        }
+      };
+      threads[t].start();
+    }
+    for(final Thread thread : threads) thread.join();
+
+    // all entries are available, entries of a single thread are written in order
+    final IOFile file = new IOFile(log.dir(), Log.name(new Date()) + IO.LOGSUFFIX);
+    final int[] next = new int[THREADS];
+    int lines = 0;
+    for(final String line : Strings.split(Token.string(file.read()), '\n')) {
+      if(line.isEmpty()) continue;
+      final String[] cols = Strings.split(line.trim(), '\t');
+      assertEquals(5, cols.length);
+      assertEquals("e" + next[cols[1].charAt(6) - '0']++, cols[4]);
+      lines++;
+    }
+    assertEquals(THREADS * ENTRIES, lines);
+  }
+}